@@ -0,0 +1,65 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.common.BatchProcessingCollector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Overhead of batching a stream, as used by the bulk loaders and
+ * hierarchy rebuilds before handing each batch to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchProcessingCollectorBenchmark {
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    @Param({"100000"})
+    public int itemCount;
+
+    private List<String> items;
+
+
+    @Setup
+    public void setup() {
+        items = SyntheticData.mkAppNames(itemCount);
+    }
+
+
+    @Benchmark
+    public Integer collectInBatches(Blackhole blackhole) {
+        return items
+                .stream()
+                .collect(new BatchProcessingCollector<>(
+                        batchSize,
+                        batch -> blackhole.consume(batch.size())));
+    }
+
+}
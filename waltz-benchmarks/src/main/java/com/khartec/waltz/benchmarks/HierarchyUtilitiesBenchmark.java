@@ -0,0 +1,69 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.common.hierarchy.FlatNode;
+import com.khartec.waltz.common.hierarchy.Forest;
+import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Building and measuring hierarchies, as used by the entity hierarchy
+ * rebuild and the org unit / measurable tree endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyUtilitiesBenchmark {
+
+    /** number of copies of the sample org unit tree (~30 units each) **/
+    @Param({"10", "100", "1000"})
+    public int copies;
+
+    private List<FlatNode<String, Long>> nodes;
+    private Forest<String, Long> forest;
+
+
+    @Setup
+    public void setup() {
+        nodes = SyntheticData.mkOrgUnitNodes(copies);
+        forest = HierarchyUtilities.toForest(nodes);
+    }
+
+
+    @Benchmark
+    public Forest<String, Long> toForest() {
+        return HierarchyUtilities.toForest(nodes);
+    }
+
+
+    @Benchmark
+    public Map<Long, Integer> assignDepths() {
+        return HierarchyUtilities.assignDepths(forest);
+    }
+
+}
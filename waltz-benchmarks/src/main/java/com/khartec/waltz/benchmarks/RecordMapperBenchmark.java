@@ -0,0 +1,78 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.data.physical_flow.PhysicalFlowDao;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.model.physical_flow.PhysicalFlow;
+import com.khartec.waltz.schema.tables.records.LogicalFlowRecord;
+import com.khartec.waltz.schema.tables.records.PhysicalFlowRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Record to domain object conversion for the flow DAOs.  This is the
+ * per-row cost paid on every flow fetch once the query has returned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordMapperBenchmark {
+
+    @Param({"1000", "10000"})
+    public int flowCount;
+
+    private List<LogicalFlowRecord> logicalFlowRecords;
+    private List<PhysicalFlowRecord> physicalFlowRecords;
+
+
+    @Setup
+    public void setup() {
+        logicalFlowRecords = SyntheticData.mkLogicalFlowRecords(flowCount, flowCount / 10);
+        physicalFlowRecords = SyntheticData.mkPhysicalFlowRecords(logicalFlowRecords);
+    }
+
+
+    @Benchmark
+    public List<LogicalFlow> logicalFlowToDomain() {
+        return logicalFlowRecords
+                .stream()
+                .map(LogicalFlowDao.TO_DOMAIN_MAPPER::map)
+                .collect(toList());
+    }
+
+
+    @Benchmark
+    public List<PhysicalFlow> physicalFlowToDomain() {
+        return physicalFlowRecords
+                .stream()
+                .map(PhysicalFlowDao.TO_DOMAIN_MAPPER::map)
+                .collect(toList());
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.common.hierarchy.FlatNode;
+import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.jobs.generators.AppGenerator;
+import com.khartec.waltz.jobs.generators.OrgUnitGenerator;
+import com.khartec.waltz.jobs.generators.PhysicalFlowGenerator;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlow;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.model.physical_specification.DataFormatKind;
+import com.khartec.waltz.model.physical_specification.ImmutablePhysicalSpecification;
+import com.khartec.waltz.model.physical_specification.PhysicalSpecification;
+import com.khartec.waltz.schema.tables.records.LogicalFlowRecord;
+import com.khartec.waltz.schema.tables.records.OrganisationalUnitRecord;
+import com.khartec.waltz.schema.tables.records.PhysicalFlowRecord;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.Unchecked;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.khartec.waltz.common.IOUtilities.readLines;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.jobs.generators.SampleDataGenerator.SAMPLE_DATA_PROVENANCE;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * In-memory synthetic data for the benchmarks.
+ *
+ * The sample data generators in `waltz-jobs` write straight to the database,
+ * so where possible we reuse their record builders and resource files and
+ * stop short of the insert.  Columns which the database would normally
+ * default (ids, removal flags etc.) are filled in here so the records look
+ * as if they had been fetched.
+ *
+ * A fixed seed and a fixed timestamp are used so that runs from different
+ * builds see the same data.
+ */
+public class SyntheticData {
+
+    private static final long SEED = 1234L;
+
+    /** Stands in for the audit timestamps which would otherwise be 'now' **/
+    private static final LocalDateTime AS_AT = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    /** Ids of each copy of the org unit tree are offset by this amount **/
+    private static final long ORG_UNIT_ID_STRIDE = 1_000_000L;
+
+    private static final DSLContext DSL_CONTEXT = DSL.using(SQLDialect.DEFAULT);
+
+    private static final List<String> TRANSPORT_KINDS = newArrayList(
+            "DATABASE_CONNECTION",
+            "EMAIL",
+            "FILE_TRANSPORT",
+            "FILE_SHARE",
+            "MANUAL",
+            "MESSAGING",
+            "OTHER",
+            "RPC",
+            "UNKNOWN",
+            "WEB");
+
+
+    private SyntheticData() {
+    }
+
+
+    /**
+     * Builds an org unit hierarchy by repeatedly grafting copies of the
+     * sample org unit tree (see `OrgUnitGenerator`) onto earlier copies.
+     * Copy `n` is attached beneath a unit from copy `(n - 1) / 2`, giving a
+     * forest which grows in both breadth and (logarithmically) depth.
+     *
+     * @param copies number of copies of the sample tree to include
+     * @return flat nodes, keyed by org unit id, carrying the unit name
+     */
+    public static List<FlatNode<String, Long>> mkOrgUnitNodes(int copies) {
+        List<OrganisationalUnitRecord> sample = OrgUnitGenerator.mkOrgUnitRecords();
+        List<Long> sampleIds = sample
+                .stream()
+                .map(OrganisationalUnitRecord::getId)
+                .collect(toList());
+
+        Random rnd = new Random(SEED);
+        List<FlatNode<String, Long>> nodes = new ArrayList<>(sample.size() * copies);
+
+        for (int copy = 0; copy < copies; copy++) {
+            long offset = copy * ORG_UNIT_ID_STRIDE;
+            Optional<Long> graftPoint = copy == 0
+                    ? Optional.empty()
+                    : Optional.of(((copy - 1) / 2) * ORG_UNIT_ID_STRIDE + sampleIds.get(rnd.nextInt(sampleIds.size())));
+
+            for (OrganisationalUnitRecord record : sample) {
+                Optional<Long> parentId = record.getParentId() == null
+                        ? graftPoint
+                        : Optional.of(record.getParentId() + offset);
+
+                nodes.add(new FlatNode<>(
+                        record.getId() + offset,
+                        parentId,
+                        record.getName() + " - " + copy));
+            }
+        }
+
+        return nodes;
+    }
+
+
+    /**
+     * Application names in the same style as `AppGenerator` (an animal
+     * name followed by a sequence number).
+     */
+    public static List<String> mkAppNames(int count) {
+        List<String> animals = Unchecked.supplier(() -> readLines(AppGenerator.class.getResourceAsStream("/app-names.txt"))).get();
+
+        Random rnd = new Random(SEED);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(animals.get(rnd.nextInt(animals.size())) + " - " + i);
+        }
+        return names;
+    }
+
+
+    /**
+     * Logical flows between randomly chosen applications, converted to
+     * records via `LogicalFlowDao.TO_RECORD_MAPPER` as `LogicalFlowGenerator`
+     * does.
+     */
+    public static List<LogicalFlowRecord> mkLogicalFlowRecords(int count, int appCount) {
+        Random rnd = new Random(SEED);
+
+        List<LogicalFlowRecord> records = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            LogicalFlow flow = ImmutableLogicalFlow.builder()
+                    .source(mkRef(EntityKind.APPLICATION, 1 + rnd.nextInt(appCount)))
+                    .target(mkRef(EntityKind.APPLICATION, 1 + rnd.nextInt(appCount)))
+                    .lastUpdatedBy("admin")
+                    .provenance(SAMPLE_DATA_PROVENANCE)
+                    .lastUpdatedAt(AS_AT)
+                    .build();
+
+            LogicalFlowRecord record = LogicalFlowDao.TO_RECORD_MAPPER.apply(flow, DSL_CONTEXT);
+            record.setId((long) i);
+            record.setIsRemoved(false);
+            records.add(record);
+        }
+        return records;
+    }
+
+
+    /**
+     * Physical flows built by `PhysicalFlowGenerator` against a single
+     * synthetic specification, one per logical flow (less one, as per the
+     * generator).
+     */
+    public static List<PhysicalFlowRecord> mkPhysicalFlowRecords(List<LogicalFlowRecord> logicalFlows) {
+        PhysicalSpecification spec = ImmutablePhysicalSpecification.builder()
+                .id(1L)
+                .name("Benchmark specification")
+                .description("Synthetic specification used by the benchmarks")
+                .owningEntity(mkRef(EntityKind.APPLICATION, 1L))
+                .format(DataFormatKind.FLAT_FILE)
+                .lastUpdatedBy("admin")
+                .provenance(SAMPLE_DATA_PROVENANCE)
+                .build();
+
+        List<Long> logicalFlowIds = logicalFlows
+                .stream()
+                .map(LogicalFlowRecord::getId)
+                .collect(toList());
+
+        List<PhysicalFlowRecord> records = PhysicalFlowGenerator.mkPhysicalFlowRecords(
+                spec,
+                logicalFlowIds,
+                TRANSPORT_KINDS,
+                new Random(SEED),
+                Timestamp.valueOf(AS_AT));
+
+        long id = 1;
+        for (PhysicalFlowRecord record : records) {
+            record.setId(id++);
+            record.setLastUpdatedAt(Timestamp.valueOf(AS_AT));
+            record.setIsRemoved(false);
+            record.setIsReadonly(false);
+        }
+        return records;
+    }
+
+}
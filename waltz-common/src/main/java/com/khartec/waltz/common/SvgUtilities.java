@@ -18,83 +18,400 @@
 
 package com.khartec.waltz.common;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 
-import static com.khartec.waltz.common.XmlUtilities.*;
+import static com.khartec.waltz.common.Checks.checkNotNull;
 
+
+/**
+ * Rewrites SVG documents (typically exported from Visio) in a single streaming
+ * pass over the input.  Markup is copied through unchanged apart from the
+ * targeted edits, the document type declaration is dropped and empty elements
+ * are written in their short form.
+ */
 public class SvgUtilities {
 
-    public static String convertVisioSvg(String key, String svgStr) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException, TransformerException {
-        DocumentBuilder builder = createNonValidatingDocumentBuilderFactory().newDocumentBuilder();
-        InputSource svgSource = new InputSource(new ByteArrayInputStream(svgStr.getBytes()));
-        Document svg = builder.parse(svgSource);
-
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        NodeList nodes = (NodeList) xpath.evaluate("//*", svg, XPathConstants.NODESET);
-
-        stream(nodes)
-                .forEach(n -> stream(n.getChildNodes())
-                        .filter(c -> c.getNodeName().contains("custProps"))
-                        .forEach(c -> stream(c.getChildNodes())
-                                .filter(cp -> cp.getNodeName().contains("cp"))
-                                .map(cp -> (Element) cp)
-                                .filter(cp -> key.equals(cp.getAttribute("v:lbl")))
-                                .map(cp -> cp.getAttribute("v:val"))
-                                .map(v -> v.replaceAll("^.*\\((.*)\\)$", "$1"))
-                                .forEach(v -> ((Element) n).setAttribute("data-"+key, v))
-                        )
-                );
-
-        return printDocument(svg, false); // do NOT toPrettyString print visio
+    private static final Pattern VISIO_VALUE_PATTERN = Pattern.compile("^.*\\((.*)\\)$");
+
+    private static final String REPORT_CDATA_PROPERTY = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    private static final XMLInputFactory INPUT_FACTORY = mkInputFactory();
+
+
+    /**
+     * Copies the value of the Visio custom property named `key` onto the shape
+     * which declares it, as a `data-{key}` attribute.  Values of the form
+     * `Some Label (value)` are reduced to the bracketed portion.
+     */
+    public static String convertVisioSvg(String key, String svgStr) throws XMLStreamException {
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(svgStr, "svgStr cannot be null");
+
+        String dataAttr = "data-" + key;
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(svgStr));
+        SvgWriter out = new SvgWriter(svgStr.length());
+
+        // open elements, innermost first
+        Deque<VisioElement> open = new ArrayDeque<>();
+
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = qualifiedName(reader.getPrefix(), reader.getLocalName());
+                        VisioElement element = new VisioElement(name);
+                        out.writeStartElement(reader, dataAttr);
+                        element.attrStart = out.lastExcludedAttrStart;
+                        element.attrEnd = out.lastExcludedAttrEnd;
+
+                        if (name.contains("cp") && open.size() >= 2) {
+                            VisioElement parent = open.peek();
+                            if (parent.name.contains("custProps")) {
+                                String label = findAttribute(reader, "v:lbl").orElse("");
+                                if (key.equals(label)) {
+                                    VisioElement shape = second(open);
+                                    shape.dataValue = VISIO_VALUE_PATTERN
+                                            .matcher(findAttribute(reader, "v:val").orElse(""))
+                                            .replaceAll("$1");
+                                }
+                            }
+                        }
+
+                        open.push(element);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        VisioElement closed = open.pop();
+                        if (closed.dataValue != null) {
+                            out.replace(
+                                    closed.attrStart,
+                                    closed.attrEnd,
+                                    mkAttribute(dataAttr, closed.dataValue));
+                        }
+                        out.writeEndElement(closed.name);
+                        break;
+                    default:
+                        out.writeEvent(reader);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return out.toString();
     }
 
 
+    /**
+     * Wraps every element carrying a `data-{keyProp}` attribute in a hyperlink,
+     * provided `keyToUrl` yields a url for the attribute value.
+     */
     public static String addWaltzEntityLinks(String svgStr,
                                              String keyProp,
-                                             Function<String, Optional<String>> keyToUrl) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException, TransformerException {
-        DocumentBuilder builder = createNonValidatingDocumentBuilderFactory().newDocumentBuilder();
-        InputSource svgSource = new InputSource(new ByteArrayInputStream(svgStr.getBytes()));
-        Document svg = builder.parse(svgSource);
-
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        NodeList nodes = (NodeList) xpath.evaluate("//*", svg, XPathConstants.NODESET);
-
-        stream(nodes)
-                .forEach(n -> stream(n.getChildNodes())
-                        .filter(c -> c.hasAttributes() && c.getAttributes().getNamedItem("data-" + keyProp) != null)
-                        .forEach(c -> {
-                            String keyVal = c.getAttributes()
-                                                .getNamedItem("data-" + keyProp)
-                                                .getNodeValue();
-
-                            keyToUrl.apply(keyVal)
-                                    .ifPresent(url -> {
-                                        Element linkNode = svg.createElement("a");
-                                        linkNode.setAttribute("href", url);
-                                        linkNode.setAttribute("target", "_blank");
-                                        c.getParentNode().appendChild(linkNode);
-                                        linkNode.appendChild(c);
-                                    });
-                        })
-                );
-
-        return printDocument(svg, false);
+                                             Function<String, Optional<String>> keyToUrl) throws XMLStreamException {
+        checkNotNull(svgStr, "svgStr cannot be null");
+        checkNotNull(keyProp, "keyProp cannot be null");
+        checkNotNull(keyToUrl, "keyToUrl cannot be null");
+
+        String dataAttr = "data-" + keyProp;
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(svgStr));
+        SvgWriter out = new SvgWriter(svgStr.length());
+
+        // names of open elements, paired with whether they have been wrapped in a link
+        Deque<String> openNames = new ArrayDeque<>();
+        Deque<Boolean> openLinked = new ArrayDeque<>();
+
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        // as before, the root element is never linked
+                        Optional<String> url = openNames.isEmpty()
+                                ? Optional.empty()
+                                : findAttribute(reader, dataAttr).flatMap(keyToUrl);
+
+                        if (url.isPresent()) {
+                            out.writeLinkStart(url.get());
+                        }
+                        out.writeStartElement(reader, null);
+                        openNames.push(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+                        openLinked.push(url.isPresent());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        out.writeEndElement(openNames.pop());
+                        if (openLinked.pop()) {
+                            out.writeLinkEnd();
+                        }
+                        break;
+                    default:
+                        out.writeEvent(reader);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return out.toString();
+    }
+
+
+    // --- helpers
+
+    private static XMLInputFactory mkInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // match the (non namespace aware) DOM handling, names are used as written
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        if (factory.isPropertySupported(REPORT_CDATA_PROPERTY)) {
+            // keep CDATA sections (e.g. embedded stylesheets) as written
+            factory.setProperty(REPORT_CDATA_PROPERTY, true);
+        }
+        return factory;
+    }
+
+
+    private static VisioElement second(Deque<VisioElement> open) {
+        return open.stream().skip(1).findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+
+    private static Optional<String> findAttribute(XMLStreamReader reader, String name) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (name.equals(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)))) {
+                return Optional.of(reader.getAttributeValue(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty()
+                ? localName
+                : prefix + ":" + localName;
+    }
+
+
+    private static String mkAttribute(String name, String value) {
+        StringBuilder sb = new StringBuilder();
+        appendAttribute(sb, name, value);
+        return sb.toString();
+    }
+
+
+    private static void appendAttribute(StringBuilder sb, String name, String value) {
+        sb.append(' ').append(name).append("=\"");
+        appendEscaped(sb, value, true);
+        sb.append('"');
+    }
+
+
+    private static void appendEscaped(StringBuilder sb, String text, boolean inAttribute) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '"': sb.append(inAttribute ? "&quot;" : "\""); break;
+                case '\n': sb.append(inAttribute ? "&#10;" : "\n"); break;
+                case '\r': sb.append("&#13;"); break;
+                case '\t': sb.append(inAttribute ? "&#9;" : "\t"); break;
+                default: sb.append(c);
+            }
+        }
+    }
+
+
+    private static class VisioElement {
+        private final String name;
+        private int attrStart;
+        private int attrEnd;
+        private String dataValue;
+
+        private VisioElement(String name) {
+            this.name = name;
+        }
+    }
+
+
+    private static class Replacement {
+        private final int start;
+        private final int end;
+        private final String text;
+
+        private Replacement(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+
+
+    /**
+     * Serialises parser events.  The closing `>` of a start tag is deferred
+     * so empty elements can be written as `<x/>`.  Attributes may be replaced
+     * after the tag has been written, replacements are applied when the
+     * output is rendered (avoiding repeated copying of the buffer).
+     */
+    private static class SvgWriter {
+
+        private final StringBuilder sb;
+        private final List<Replacement> replacements = new ArrayList<>();
+        private boolean startTagOpen = false;
+
+        // position of the attribute excluded from the last start tag (or where it would be)
+        private int lastExcludedAttrStart;
+        private int lastExcludedAttrEnd;
+
+
+        private SvgWriter(int expectedLength) {
+            this.sb = new StringBuilder(expectedLength + expectedLength / 8);
+            sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+        }
+
+
+        /**
+         * @param movedAttr  attribute written last (if present), so it may later be replaced
+         */
+        private void writeStartElement(XMLStreamReader reader, String movedAttr) {
+            closeStartTag();
+            sb.append('<').append(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                appendAttribute(
+                        sb,
+                        prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix,
+                        reader.getNamespaceURI(i));
+            }
+
+            String moved = null;
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String attrName = qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                if (attrName.equals(movedAttr)) {
+                    moved = reader.getAttributeValue(i);
+                } else {
+                    appendAttribute(sb, attrName, reader.getAttributeValue(i));
+                }
+            }
+
+            lastExcludedAttrStart = sb.length();
+            if (moved != null) {
+                appendAttribute(sb, movedAttr, moved);
+            }
+            lastExcludedAttrEnd = sb.length();
+
+            startTagOpen = true;
+        }
+
+
+        private void writeEndElement(String name) {
+            if (startTagOpen) {
+                sb.append("/>");
+                startTagOpen = false;
+            } else {
+                sb.append("</").append(name).append('>');
+            }
+        }
+
+
+        private void writeLinkStart(String url) {
+            closeStartTag();
+            sb.append("<a");
+            appendAttribute(sb, "href", url);
+            appendAttribute(sb, "target", "_blank");
+            sb.append('>');
+        }
+
+
+        private void writeLinkEnd() {
+            sb.append("</a>");
+        }
+
+
+        private void writeEvent(XMLStreamReader reader) {
+            switch (reader.getEventType()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    if (reader.getTextLength() == 0) {
+                        return;
+                    }
+                    closeStartTag();
+                    appendEscaped(sb, reader.getText(), false);
+                    break;
+                case XMLStreamConstants.CDATA:
+                    closeStartTag();
+                    sb.append("<![CDATA[").append(reader.getText()).append("]]>");
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    closeStartTag();
+                    sb.append("<!--").append(reader.getText()).append("-->");
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    closeStartTag();
+                    sb.append("<?").append(reader.getPITarget());
+                    String data = reader.getPIData();
+                    if (data != null && ! data.isEmpty()) {
+                        sb.append(' ').append(data);
+                    }
+                    sb.append("?>");
+                    break;
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    closeStartTag();
+                    sb.append('&').append(reader.getLocalName()).append(';');
+                    break;
+                default:
+                    // start/end document and the DTD are not copied
+                    break;
+            }
+        }
+
+
+        private void replace(int start, int end, String text) {
+            replacements.add(new Replacement(start, end, text));
+        }
+
+
+        private void closeStartTag() {
+            if (startTagOpen) {
+                sb.append('>');
+                startTagOpen = false;
+            }
+        }
+
+
+        @Override
+        public String toString() {
+            if (replacements.isEmpty()) {
+                return sb.toString();
+            }
+
+            replacements.sort(Comparator.comparingInt(r -> r.start));
+
+            StringBuilder result = new StringBuilder(sb.length() + replacements.size() * 32);
+            int pos = 0;
+            for (Replacement r : replacements) {
+                result.append(sb, pos, r.start).append(r.text);
+                pos = r.end;
+            }
+            result.append(sb, pos, sb.length());
+            return result.toString();
+        }
     }
 
 }
@@ -0,0 +1,202 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.hierarchy;
+
+import java.util.Arrays;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Computes the transitive closure of a forest described by a primitive
+ * parent index array (i.e. `parents[i]` is the index of the parent of node `i`).
+ *
+ * The ancestors of every node are held top-most first in a single array,
+ * addressed via an offsets array (i.e. a CSR layout).  As the ancestor at
+ * position `n` in a path is always at depth `n + 1`, any (node, ancestor)
+ * pair can be located without searching.
+ *
+ * Nodes are either attached to a root (`NO_PARENT`), detached (the top-most
+ * ancestor refers to a parent which is not part of the forest, `MISSING_PARENT`)
+ * or, if caught up in a cycle, unreachable (depth of zero, no ancestors).
+ */
+public class ClosureTable {
+
+    public static final int NO_PARENT = -1;
+    public static final int MISSING_PARENT = -2;
+
+    private static final byte UNVISITED = 0;
+    private static final byte VISITING = 1;
+    private static final byte VISITED = 2;
+
+    private final int[] depths;
+    private final boolean[] rooted;
+    private final int[] offsets;
+    private final int[] ancestors;
+
+
+    private ClosureTable(int[] depths,
+                         boolean[] rooted,
+                         int[] offsets,
+                         int[] ancestors) {
+        this.depths = depths;
+        this.rooted = rooted;
+        this.offsets = offsets;
+        this.ancestors = ancestors;
+    }
+
+
+    /**
+     * @param parents  index of each nodes parent, or one of `NO_PARENT` / `MISSING_PARENT`
+     */
+    public static ClosureTable build(int[] parents) {
+        checkNotNull(parents, "parents cannot be null");
+
+        int nodeCount = parents.length;
+        for (int parent : parents) {
+            if (parent < MISSING_PARENT || parent >= nodeCount) {
+                throw new IllegalArgumentException("parent index out of range: " + parent);
+            }
+        }
+
+        int[] depths = new int[nodeCount];
+        boolean[] rooted = new boolean[nodeCount];
+        byte[] state = new byte[nodeCount];
+        int[] stack = new int[16];
+
+        for (int start = 0; start < nodeCount; start++) {
+            // walk up until we find a node we already know about (or the top)
+            int stackSize = 0;
+            int current = start;
+            while (current >= 0 && state[current] == UNVISITED) {
+                state[current] = VISITING;
+                if (stackSize == stack.length) {
+                    stack = Arrays.copyOf(stack, stackSize * 2);
+                }
+                stack[stackSize++] = current;
+                current = parents[current];
+            }
+
+            int depth;
+            boolean isRooted;
+            if (current >= 0) {
+                // VISITING means we have looped back on ourselves
+                depth = state[current] == VISITED ? depths[current] : 0;
+                isRooted = rooted[current];
+            } else {
+                depth = 0;
+                isRooted = current == NO_PARENT;
+            }
+
+            // unwind, assigning depths top down
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+                depth = depth == 0 && current >= 0 ? 0 : depth + 1;
+                depths[node] = depth;
+                rooted[node] = isRooted && depth > 0;
+                state[node] = VISITED;
+            }
+        }
+
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] = offsets[i] + Math.max(depths[i] - 1, 0);
+        }
+
+        int[] ancestors = new int[offsets[nodeCount]];
+        for (int i = 0; i < nodeCount; i++) {
+            int pos = offsets[i + 1];
+            int parent = depths[i] > 1 ? parents[i] : NO_PARENT;
+            while (pos > offsets[i]) {
+                ancestors[--pos] = parent;
+                parent = parents[parent];
+            }
+        }
+
+        return new ClosureTable(depths, rooted, offsets, ancestors);
+    }
+
+
+    public int nodeCount() {
+        return depths.length;
+    }
+
+
+    /**
+     * @return total number of (node, ancestor) pairs, excluding nodes paired with themselves
+     */
+    public int size() {
+        return ancestors.length;
+    }
+
+
+    /**
+     * @return depth of the node (1 for top-most nodes) or zero if unreachable
+     */
+    public int getDepth(int node) {
+        return depths[node];
+    }
+
+
+    /**
+     * @return true if the node's top-most ancestor has no parent
+     */
+    public boolean isRooted(int node) {
+        return rooted[node];
+    }
+
+
+    public int getAncestorCount(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+
+    /**
+     * @param position  zero based, the top-most ancestor is at position zero
+     * @return index of the ancestor, its depth is `position + 1`
+     */
+    public int getAncestor(int node, int position) {
+        return ancestors[offsets[node] + position];
+    }
+
+
+    /**
+     * @return position of the (node, ancestor) pair in the range `[0, size())`,
+     *   or -1 if the ancestor is not a (strict) ancestor of the node
+     */
+    public int findPair(int node, int ancestor) {
+        int position = depths[ancestor] - 1;
+        if (position < 0 || position >= getAncestorCount(node)) {
+            return -1;
+        }
+        int pair = offsets[node] + position;
+        return ancestors[pair] == ancestor ? pair : -1;
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ClosureTable{");
+        sb.append("#nodes=").append(depths.length);
+        sb.append(", #pairs=").append(ancestors.length);
+        sb.append('}');
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.hierarchy;
+
+import java.util.Arrays;
+
+
+/**
+ * Compact, immutable index over a closure table of (id, ancestorId) pairs.
+ *
+ * Ids are held in a sorted primitive array and the descendants / ancestors
+ * of each id are packed into a single array per direction, addressed via
+ * an offsets array (i.e. a CSR layout).  This keeps lookups allocation free
+ * apart from the copy of the result.
+ *
+ * Note: as with the `ENTITY_HIERARCHY` table, an id is expected to appear
+ * as its own ancestor, so results include the id being queried.
+ */
+public class HierarchyIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final long[] ids;
+    private final int[] descendantOffsets;
+    private final long[] descendants;
+    private final int[] ancestorOffsets;
+    private final long[] ancestors;
+
+
+    private HierarchyIndex(long[] ids,
+                           int[] descendantOffsets,
+                           long[] descendants,
+                           int[] ancestorOffsets,
+                           long[] ancestors) {
+        this.ids = ids;
+        this.descendantOffsets = descendantOffsets;
+        this.descendants = descendants;
+        this.ancestorOffsets = ancestorOffsets;
+        this.ancestors = ancestors;
+    }
+
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+
+    /**
+     * @param id  node identifier
+     * @return sorted array of all descendant ids (including the id itself),
+     *   or an empty array if the id is unknown
+     */
+    public long[] findDescendants(long id) {
+        return slice(id, descendantOffsets, descendants);
+    }
+
+
+    /**
+     * @param id  node identifier
+     * @return sorted array of all ancestor ids (including the id itself),
+     *   or an empty array if the id is unknown
+     */
+    public long[] findAncestors(long id) {
+        return slice(id, ancestorOffsets, ancestors);
+    }
+
+
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+
+    /**
+     * @return number of distinct ids held in the index
+     */
+    public int size() {
+        return ids.length;
+    }
+
+
+    private long[] slice(long id, int[] offsets, long[] values) {
+        int idx = Arrays.binarySearch(ids, id);
+        return idx < 0
+                ? EMPTY
+                : Arrays.copyOfRange(values, offsets[idx], offsets[idx + 1]);
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("HierarchyIndex{");
+        sb.append("#ids=").append(ids.length);
+        sb.append(", #pairs=").append(descendants.length);
+        sb.append('}');
+        return sb.toString();
+    }
+
+
+    public static class Builder {
+
+        private long[] childIds = new long[1024];
+        private long[] ancestorIds = new long[1024];
+        private int count = 0;
+
+
+        public Builder add(long id, long ancestorId) {
+            if (count == childIds.length) {
+                childIds = Arrays.copyOf(childIds, count * 2);
+                ancestorIds = Arrays.copyOf(ancestorIds, count * 2);
+            }
+            childIds[count] = id;
+            ancestorIds[count] = ancestorId;
+            count++;
+            return this;
+        }
+
+
+        public HierarchyIndex build() {
+            long[] ids = distinctIds();
+
+            int[] descendantOffsets = new int[ids.length + 1];
+            int[] ancestorOffsets = new int[ids.length + 1];
+            int[] childIdx = new int[count];
+            int[] ancestorIdx = new int[count];
+
+            for (int i = 0; i < count; i++) {
+                childIdx[i] = Arrays.binarySearch(ids, childIds[i]);
+                ancestorIdx[i] = Arrays.binarySearch(ids, ancestorIds[i]);
+                descendantOffsets[ancestorIdx[i] + 1]++;
+                ancestorOffsets[childIdx[i] + 1]++;
+            }
+
+            for (int i = 0; i < ids.length; i++) {
+                descendantOffsets[i + 1] += descendantOffsets[i];
+                ancestorOffsets[i + 1] += ancestorOffsets[i];
+            }
+
+            long[] descendants = new long[count];
+            long[] ancestors = new long[count];
+            int[] descendantCursors = Arrays.copyOf(descendantOffsets, ids.length);
+            int[] ancestorCursors = Arrays.copyOf(ancestorOffsets, ids.length);
+
+            for (int i = 0; i < count; i++) {
+                descendants[descendantCursors[ancestorIdx[i]]++] = childIds[i];
+                ancestors[ancestorCursors[childIdx[i]]++] = ancestorIds[i];
+            }
+
+            for (int i = 0; i < ids.length; i++) {
+                Arrays.sort(descendants, descendantOffsets[i], descendantOffsets[i + 1]);
+                Arrays.sort(ancestors, ancestorOffsets[i], ancestorOffsets[i + 1]);
+            }
+
+            return new HierarchyIndex(
+                    ids,
+                    descendantOffsets,
+                    descendants,
+                    ancestorOffsets,
+                    ancestors);
+        }
+
+
+        private long[] distinctIds() {
+            long[] all = new long[count * 2];
+            System.arraycopy(childIds, 0, all, 0, count);
+            System.arraycopy(ancestorIds, 0, all, count, count);
+            Arrays.sort(all);
+
+            int distinctCount = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (i == 0 || all[i] != all[i - 1]) {
+                    all[distinctCount++] = all[i];
+                }
+            }
+            return Arrays.copyOf(all, distinctCount);
+        }
+    }
+
+}
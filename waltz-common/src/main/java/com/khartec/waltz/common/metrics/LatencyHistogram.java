@@ -0,0 +1,151 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Lock free histogram of durations.  Durations are counted in buckets whose
+ * upper bounds double, starting at one microsecond, giving percentiles accurate
+ * to within a factor of two - sufficient to spot queueing or slow queries while
+ * keeping recording cheap enough for every request.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 40;  // 2^39 micros ~ 6 days
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+
+    public void record(long durationNanos) {
+        long nanos = Math.max(0, durationNanos);
+        buckets.incrementAndGet(toBucket(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+
+    public long getCount() {
+        return count.sum();
+    }
+
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0
+                ? 0
+                : toMillis(totalNanos.sum()) / n;
+    }
+
+
+    public double getMaxMillis() {
+        return toMillis(maxNanos.get());
+    }
+
+
+    public double getTotalMillis() {
+        return toMillis(totalNanos.sum());
+    }
+
+
+    /**
+     * @param percentile  between 0 and 100
+     * @return upper bound (in millis) of the bucket containing the percentile,
+     *   capped at the maximum recorded value
+     */
+    public double getPercentileMillis(double percentile) {
+        checkTrue(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(threshold, 1)) {
+                return Math.min(toMillis(upperBoundNanos(i)), getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format(
+                "LatencyHistogram{count=%d, mean=%.2fms, p50=%.2fms, p95=%.2fms, p99=%.2fms, max=%.2fms}",
+                getCount(),
+                getMeanMillis(),
+                getPercentileMillis(50),
+                getPercentileMillis(95),
+                getPercentileMillis(99),
+                getMaxMillis());
+    }
+
+
+    // --- helpers
+
+    private static int toBucket(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = micros <= 1
+                ? 0
+                : 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+
+    private static long upperBoundNanos(int bucket) {
+        return TimeUnit.MICROSECONDS.toNanos(1L << bucket);
+    }
+
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+}
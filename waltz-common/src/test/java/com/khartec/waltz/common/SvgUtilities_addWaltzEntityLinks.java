@@ -0,0 +1,49 @@
+package com.khartec.waltz.common;
+
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class SvgUtilities_addWaltzEntityLinks {
+
+    private static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\">" +
+            "<g id=\"a\" data-appId=\"CAP-1\"><rect/></g>" +
+            "<g id=\"b\" data-appId=\"UNKNOWN\"><rect/></g>" +
+            "<g id=\"c\"><g id=\"d\" data-appId=\"CAP-2\"/></g>" +
+            "</svg>";
+
+    private static final Function<String, Optional<String>> KEY_TO_URL = key -> key.startsWith("CAP")
+            ? Optional.of("http://waltz/entity?key=" + key + "&x=1")
+            : Optional.empty();
+
+
+    @Test
+    public void elementsWithKnownKeysAreWrappedInPlace() throws XMLStreamException {
+        String result = SvgUtilities.addWaltzEntityLinks(SVG, "appId", KEY_TO_URL);
+        assertTrue(result.contains("<svg xmlns=\"http://www.w3.org/2000/svg\">" +
+                "<a href=\"http://waltz/entity?key=CAP-1&amp;x=1\" target=\"_blank\"><g id=\"a\" data-appId=\"CAP-1\"><rect/></g></a>" +
+                "<g id=\"b\""));
+    }
+
+
+    @Test
+    public void nestedElementsAreLinked() throws XMLStreamException {
+        String result = SvgUtilities.addWaltzEntityLinks(SVG, "appId", KEY_TO_URL);
+        assertTrue(result.contains("<g id=\"c\"><a href=\"http://waltz/entity?key=CAP-2&amp;x=1\" target=\"_blank\"><g id=\"d\" data-appId=\"CAP-2\"/></a></g>"));
+    }
+
+
+    @Test
+    public void elementsWithUnknownKeysAreNotLinked() throws XMLStreamException {
+        String result = SvgUtilities.addWaltzEntityLinks(SVG, "appId", KEY_TO_URL);
+        assertTrue(result.contains("<g id=\"b\" data-appId=\"UNKNOWN\"><rect/></g>"));
+        assertFalse(result.contains("UNKNOWN&"));
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.khartec.waltz.common;
+
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class SvgUtilities_convertVisioSvg {
+
+    private static final String SVG = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n" +
+            "<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\" \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n" +
+            "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:v=\"http://schemas.microsoft.com/visio/2003/SVGExtensions/\">" +
+            "<style type=\"text/css\"><![CDATA[ .st1 {fill:#fff} ]]></style>" +
+            "<g id=\"shape1\">" +
+            "<title>A &amp; B</title>" +
+            "<v:custProps>" +
+            "<v:cp v:lbl=\"appId\" v:val=\"VT4(CAP-123)\"/>" +
+            "<v:cp v:lbl=\"other\" v:val=\"VT4(xyz)\"/>" +
+            "</v:custProps>" +
+            "<rect x=\"1\" y=\"2\"/>" +
+            "</g>" +
+            "<g id=\"shape2\" data-appId=\"old\">" +
+            "<v:custProps><v:cp v:lbl=\"appId\" v:val=\"plain\"/></v:custProps>" +
+            "</g>" +
+            "<g id=\"shape3\"><v:custProps><v:cp v:lbl=\"other\" v:val=\"x\"/></v:custProps></g>" +
+            "</svg>";
+
+
+    @Test
+    public void customPropertyIsCopiedToShape() throws XMLStreamException {
+        String result = SvgUtilities.convertVisioSvg("appId", SVG);
+        assertTrue(result.contains("<g id=\"shape1\" data-appId=\"CAP-123\">"));
+    }
+
+
+    @Test
+    public void valuesWithoutBracketsAreCopiedAsIs() throws XMLStreamException {
+        String result = SvgUtilities.convertVisioSvg("appId", SVG);
+        assertTrue(result.contains("<g id=\"shape2\" data-appId=\"plain\">"));
+        assertFalse("existing attribute is replaced", result.contains("old"));
+    }
+
+
+    @Test
+    public void shapesWithoutTheKeyAreUnchanged() throws XMLStreamException {
+        String result = SvgUtilities.convertVisioSvg("appId", SVG);
+        assertTrue(result.contains("<g id=\"shape3\">"));
+        assertFalse(result.contains("data-other"));
+    }
+
+
+    @Test
+    public void remainingMarkupIsPreserved() throws XMLStreamException {
+        String result = SvgUtilities.convertVisioSvg("appId", SVG);
+        assertTrue(result.contains("<title>A &amp; B</title>"));
+        assertTrue(result.contains("<![CDATA[ .st1 {fill:#fff} ]]>"));
+        assertTrue(result.contains("<v:cp v:lbl=\"appId\" v:val=\"VT4(CAP-123)\"/>"));
+        assertTrue(result.contains("<rect x=\"1\" y=\"2\"/>"));
+        assertFalse(result.contains("DOCTYPE"));
+    }
+
+
+    @Test
+    public void unknownKeyLeavesDocumentUnchanged() throws XMLStreamException {
+        String once = SvgUtilities.convertVisioSvg("missing", SVG);
+        assertEquals(once, SvgUtilities.convertVisioSvg("missing", once));
+        assertFalse(once.contains("data-missing"));
+    }
+
+}
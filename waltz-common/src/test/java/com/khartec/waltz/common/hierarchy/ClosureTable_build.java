@@ -0,0 +1,113 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.hierarchy;
+
+import org.junit.Test;
+
+import static com.khartec.waltz.common.hierarchy.ClosureTable.MISSING_PARENT;
+import static com.khartec.waltz.common.hierarchy.ClosureTable.NO_PARENT;
+import static org.junit.Assert.*;
+
+public class ClosureTable_build {
+
+    /**
+     * <pre>
+     *     0
+     *     +- 1
+     *     |  +- 2
+     *     +- 3
+     *     4
+     * </pre>
+     */
+    private static final int[] FOREST = {NO_PARENT, 0, 1, 0, NO_PARENT};
+
+
+    @Test
+    public void emptyForestHasNoPairs() {
+        ClosureTable closure = ClosureTable.build(new int[0]);
+        assertEquals(0, closure.nodeCount());
+        assertEquals(0, closure.size());
+    }
+
+
+    @Test
+    public void depthsStartAtOneForRoots() {
+        ClosureTable closure = ClosureTable.build(FOREST);
+        assertEquals(1, closure.getDepth(0));
+        assertEquals(2, closure.getDepth(1));
+        assertEquals(3, closure.getDepth(2));
+        assertEquals(2, closure.getDepth(3));
+        assertEquals(1, closure.getDepth(4));
+        assertTrue(closure.isRooted(2));
+    }
+
+
+    @Test
+    public void ancestorsAreListedTopMostFirst() {
+        ClosureTable closure = ClosureTable.build(FOREST);
+        assertEquals(4, closure.size());
+        assertEquals(2, closure.getAncestorCount(2));
+        assertEquals(0, closure.getAncestor(2, 0));
+        assertEquals(1, closure.getAncestor(2, 1));
+        assertEquals(0, closure.getAncestorCount(4));
+    }
+
+
+    @Test
+    public void pairsCanBeFound() {
+        ClosureTable closure = ClosureTable.build(FOREST);
+        assertTrue(closure.findPair(2, 0) >= 0);
+        assertTrue(closure.findPair(2, 1) >= 0);
+        assertNotEquals(closure.findPair(2, 0), closure.findPair(2, 1));
+        assertEquals(-1, closure.findPair(2, 3));
+        assertEquals(-1, closure.findPair(2, 2));
+        assertEquals(-1, closure.findPair(0, 1));
+    }
+
+
+    @Test
+    public void missingParentsGiveDetachedTrees() {
+        ClosureTable closure = ClosureTable.build(new int[]{MISSING_PARENT, 0});
+        assertEquals(1, closure.getDepth(0));
+        assertEquals(2, closure.getDepth(1));
+        assertFalse(closure.isRooted(0));
+        assertFalse(closure.isRooted(1));
+        assertEquals(0, closure.getAncestor(1, 0));
+    }
+
+
+    @Test
+    public void cyclesAreUnreachable() {
+        // 0 -> 1 -> 0, with 2 hanging beneath the cycle
+        ClosureTable closure = ClosureTable.build(new int[]{1, 0, 1, NO_PARENT});
+        assertEquals(0, closure.getDepth(0));
+        assertEquals(0, closure.getDepth(1));
+        assertEquals(0, closure.getDepth(2));
+        assertEquals(1, closure.getDepth(3));
+        assertFalse(closure.isRooted(2));
+        assertEquals(0, closure.size());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parentIndexesMustBeInRange() {
+        ClosureTable.build(new int[]{5});
+    }
+
+}
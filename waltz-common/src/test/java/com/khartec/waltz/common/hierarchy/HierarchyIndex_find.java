@@ -0,0 +1,104 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.hierarchy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HierarchyIndex_find {
+
+    /**
+     * Closure rows for:
+     * <pre>
+     *     1
+     *     +- 2
+     *     |  +- 3
+     *     +- 4
+     *     5
+     * </pre>
+     */
+    private static HierarchyIndex mkIndex() {
+        return HierarchyIndex.builder()
+                .add(1, 1)
+                .add(2, 2)
+                .add(2, 1)
+                .add(3, 3)
+                .add(3, 2)
+                .add(3, 1)
+                .add(4, 4)
+                .add(4, 1)
+                .add(5, 5)
+                .build();
+    }
+
+
+    @Test
+    public void emptyIndexHasNoIds() {
+        HierarchyIndex index = HierarchyIndex.builder().build();
+        assertEquals(0, index.size());
+        assertFalse(index.contains(1));
+        assertArrayEquals(new long[0], index.findDescendants(1));
+        assertArrayEquals(new long[0], index.findAncestors(1));
+    }
+
+
+    @Test
+    public void descendantsIncludeSelfAndAreSorted() {
+        HierarchyIndex index = mkIndex();
+        assertArrayEquals(new long[]{1, 2, 3, 4}, index.findDescendants(1));
+        assertArrayEquals(new long[]{2, 3}, index.findDescendants(2));
+        assertArrayEquals(new long[]{3}, index.findDescendants(3));
+        assertArrayEquals(new long[]{5}, index.findDescendants(5));
+    }
+
+
+    @Test
+    public void ancestorsIncludeSelfAndAreSorted() {
+        HierarchyIndex index = mkIndex();
+        assertArrayEquals(new long[]{1, 2, 3}, index.findAncestors(3));
+        assertArrayEquals(new long[]{1, 4}, index.findAncestors(4));
+        assertArrayEquals(new long[]{1}, index.findAncestors(1));
+    }
+
+
+    @Test
+    public void unknownIdsGiveEmptyResults() {
+        HierarchyIndex index = mkIndex();
+        assertEquals(5, index.size());
+        assertFalse(index.contains(99));
+        assertArrayEquals(new long[0], index.findDescendants(99));
+        assertArrayEquals(new long[0], index.findAncestors(99));
+    }
+
+
+    @Test
+    public void builderGrowsBeyondInitialCapacity() {
+        HierarchyIndex.Builder builder = HierarchyIndex.builder();
+        for (long i = 0; i < 5000; i++) {
+            builder.add(i, i);
+            builder.add(i, -1);
+        }
+        HierarchyIndex index = builder.build();
+        assertEquals(5001, index.size());
+        assertEquals(5000, index.findDescendants(-1).length);
+        assertArrayEquals(new long[]{-1, 42}, index.findAncestors(42));
+    }
+
+}
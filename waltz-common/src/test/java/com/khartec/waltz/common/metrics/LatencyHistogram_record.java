@@ -0,0 +1,91 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogram_record {
+
+    private static final double DELTA = 0.0001;
+
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMillis(), DELTA);
+        assertEquals(0, histogram.getMaxMillis(), DELTA);
+        assertEquals(0, histogram.getPercentileMillis(99), DELTA);
+    }
+
+
+    @Test
+    public void tracksCountMeanAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(20, histogram.getMeanMillis(), DELTA);
+        assertEquals(30, histogram.getMaxMillis(), DELTA);
+        assertEquals(40, histogram.getTotalMillis(), DELTA);
+    }
+
+
+    @Test
+    public void percentilesAreWithinAFactorOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        double p50 = histogram.getPercentileMillis(50);
+        double p100 = histogram.getPercentileMillis(100);
+
+        assertTrue(p50 >= 1 && p50 <= 2);
+        assertEquals(500, p100, DELTA);
+    }
+
+
+    @Test
+    public void negativeDurationsAreTreatedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMaxMillis(), DELTA);
+    }
+
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(1));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMillis(), DELTA);
+        assertEquals(0, histogram.getPercentileMillis(50), DELTA);
+    }
+
+}
@@ -24,5 +24,19 @@ import java.util.concurrent.Future;
 
 public interface DBExecutorPoolInterface {
 
+    /**
+     * Submits a task on behalf of an interactive (user facing) request
+     */
     <T> Future<T> submit(Callable<T> task);
+
+
+    /**
+     * Submits a task which is part of a larger or background workload.
+     * Implementations may run these separately so that they cannot delay
+     * interactive tasks.
+     */
+    default <T> Future<T> submitBatch(Callable<T> task) {
+        return submit(task);
+    }
+
 }
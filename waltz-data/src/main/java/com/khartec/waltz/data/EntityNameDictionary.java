@@ -0,0 +1,400 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.ImmutableEntityReference;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.EnumUtilities.readEnum;
+import static com.khartec.waltz.common.ListUtilities.map;
+
+
+/**
+ * Resident dictionary of entity names, external ids and lifecycle statuses,
+ * keyed by (kind, id).  It covers the same kinds (and columns) as the
+ * {@link InlineSelectFieldFactory} so that heavy listings can select only
+ * entity ids and resolve names in memory rather than asking the database to
+ * evaluate a correlated sub-select per row.
+ *
+ * Each kind is loaded in full the first time it is needed and reloaded once
+ * older than the configured maximum age.  In between, entries are dropped as
+ * the change log reports modifications (see `invalidate`) and ids not yet in
+ * the dictionary are fetched in batches, so newly created entities are picked
+ * up without waiting for a reload.
+ *
+ * The dictionary is disabled by default, callers should check `isEnabled`
+ * and use the inline select fields otherwise.
+ */
+@Repository
+public class EntityNameDictionary {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityNameDictionary.class);
+
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private static final String NAME = "dict_name";
+    private static final String EXTERNAL_ID = "dict_external_id";
+    private static final String LIFECYCLE = "dict_lifecycle";
+
+    /** Recorded against ids which do not exist, avoids re-querying for them on every lookup */
+    private static final Entry MISSING = new Entry(null, null, null);
+
+    private final DSLContext dsl;
+    private final Map<EntityKind, KindEntries> entriesByKind = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private volatile boolean enabled = false;
+    private volatile long maxAgeMillis = 0;
+
+
+    @Autowired
+    public EntityNameDictionary(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * @param enabled  if false the dictionary is emptied and `isEnabled` returns false
+     * @param maxAgeMillis  age after which a kind is reloaded in full, `0` never reloads
+     */
+    public void configure(boolean enabled, long maxAgeMillis) {
+        checkTrue(maxAgeMillis >= 0, "maxAgeMillis cannot be negative");
+        this.maxAgeMillis = maxAgeMillis;
+        this.enabled = enabled;
+        if (! enabled) {
+            clear();
+        }
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    public boolean isSupported(EntityKind kind) {
+        return getSupportedKinds().contains(kind);
+    }
+
+
+    public Set<EntityKind> getSupportedKinds() {
+        Set<EntityKind> kinds = EnumSet.noneOf(EntityKind.class);
+        kinds.addAll(InlineSelectFieldFactory.getNameMappings().keySet());
+        kinds.addAll(InlineSelectFieldFactory.getExternalIdMappings().keySet());
+        kinds.addAll(InlineSelectFieldFactory.getLifecycleMappings().keySet());
+        return kinds;
+    }
+
+
+    /**
+     * Ensures entries for the given refs are resident, loading (or reloading)
+     * kinds in full where needed and fetching any unknown ids.  Callers
+     * enriching many refs should prime them first so lookups are not made
+     * one at a time.
+     */
+    public void prime(Collection<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+        if (! enabled) {
+            return;
+        }
+
+        Map<EntityKind, Set<Long>> idsByKind = refs
+                .stream()
+                .filter(r -> isSupported(r.kind()))
+                .collect(Collectors.groupingBy(
+                        EntityReference::kind,
+                        Collectors.mapping(EntityReference::id, Collectors.toSet())));
+
+        idsByKind.forEach((kind, ids) -> {
+            KindEntries kindEntries = getOrLoadKind(kind);
+            List<Long> unknownIds = ids
+                    .stream()
+                    .filter(id -> ! kindEntries.entries.containsKey(id))
+                    .collect(Collectors.toList());
+            if (! unknownIds.isEmpty()) {
+                missCount.add(unknownIds.size());
+                fetchIds(kind, kindEntries, unknownIds);
+            }
+        });
+    }
+
+
+    /**
+     * @return the ref with its name populated (if it has none and the dictionary
+     *   knows it), all other attributes are left untouched
+     */
+    public EntityReference enrich(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+        if (ref.name().isPresent()) {
+            return ref;
+        }
+        return findName(ref)
+                .map(n -> (EntityReference) ImmutableEntityReference.copyOf(ref).withName(n))
+                .orElse(ref);
+    }
+
+
+    public List<EntityReference> enrich(List<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+        prime(refs);
+        return map(refs, r -> enrich(r));
+    }
+
+
+    public Optional<String> findName(EntityReference ref) {
+        return lookup(ref).map(e -> e.name);
+    }
+
+
+    public Optional<String> findExternalId(EntityReference ref) {
+        return lookup(ref).map(e -> e.externalId);
+    }
+
+
+    public Optional<EntityLifecycleStatus> findEntityLifecycleStatus(EntityReference ref) {
+        return lookup(ref).map(e -> e.lifecycleStatus);
+    }
+
+
+    /**
+     * Drops the entry for the ref, it will be re-fetched the next time it is needed.
+     */
+    public void invalidate(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+        KindEntries kindEntries = entriesByKind.get(ref.kind());
+        if (kindEntries != null) {
+            kindEntries.entries.remove(ref.id());
+        }
+    }
+
+
+    /**
+     * Drops all entries for the kind, it will be reloaded the next time it is needed.
+     */
+    public void invalidate(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        entriesByKind.remove(kind);
+    }
+
+
+    public void clear() {
+        entriesByKind.clear();
+    }
+
+
+    // -- STATS ---
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+
+    public int getEntryCount() {
+        return entriesByKind
+                .values()
+                .stream()
+                .mapToInt(ke -> ke.entries.size())
+                .sum();
+    }
+
+
+    public Set<EntityKind> getLoadedKinds() {
+        return new TreeSet<>(entriesByKind.keySet());
+    }
+
+
+    public void resetStatistics() {
+        hitCount.reset();
+        missCount.reset();
+    }
+
+
+    // -- HELPERS ---
+
+    private Optional<Entry> lookup(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+        if (! enabled || ! isSupported(ref.kind())) {
+            return Optional.empty();
+        }
+
+        KindEntries kindEntries = getOrLoadKind(ref.kind());
+        Entry entry = kindEntries.entries.get(ref.id());
+        if (entry == null) {
+            missCount.increment();
+            fetchIds(ref.kind(), kindEntries, Collections.singletonList(ref.id()));
+            entry = kindEntries.entries.get(ref.id());
+        } else {
+            hitCount.increment();
+        }
+
+        return Optional.ofNullable(entry).filter(e -> e != MISSING);
+    }
+
+
+    private KindEntries getOrLoadKind(EntityKind kind) {
+        KindEntries kindEntries = entriesByKind.get(kind);
+        return kindEntries == null || isExpired(kindEntries)
+                ? loadKind(kind)
+                : kindEntries;
+    }
+
+
+    private synchronized KindEntries loadKind(EntityKind kind) {
+        // another thread may have loaded the kind whilst we waited
+        KindEntries existing = entriesByKind.get(kind);
+        if (existing != null && ! isExpired(existing)) {
+            return existing;
+        }
+
+        long start = System.currentTimeMillis();
+        KindEntries kindEntries = new KindEntries(start);
+        mkQuery(kind, DSL.trueCondition())
+                .forEach(r -> kindEntries.entries.put(r.value1(), toEntry(r)));
+        entriesByKind.put(kind, kindEntries);
+
+        LOG.info(
+                "Loaded {} entries for kind: {} into the entity name dictionary in {}ms",
+                kindEntries.entries.size(),
+                kind,
+                System.currentTimeMillis() - start);
+
+        return kindEntries;
+    }
+
+
+    private void fetchIds(EntityKind kind, KindEntries kindEntries, List<Long> ids) {
+        Field<Long> idField = getMapping(kind, Tuple3::v2);
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_QUERY));
+            Map<Long, Entry> found = new HashMap<>();
+            mkQuery(kind, idField.in(chunk))
+                    .forEach(r -> found.put(r.value1(), toEntry(r)));
+            chunk.forEach(id -> kindEntries.entries.put(id, found.getOrDefault(id, MISSING)));
+        }
+    }
+
+
+    private Result<Record4<Long, String, String, String>> mkQuery(EntityKind kind, Condition condition) {
+        Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> names = InlineSelectFieldFactory.getNameMappings();
+        Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> externalIds = InlineSelectFieldFactory.getExternalIdMappings();
+        Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> lifecycles = InlineSelectFieldFactory.getLifecycleMappings();
+
+        // all mappings for a kind refer to the same table
+        Table table = getMapping(kind, Tuple3::v1);
+        Field<Long> idField = getMapping(kind, Tuple3::v2);
+
+        return dsl
+                .select(idField,
+                        valueOrNull(names.get(kind)).as(NAME),
+                        valueOrNull(externalIds.get(kind)).as(EXTERNAL_ID),
+                        valueOrNull(lifecycles.get(kind)).as(LIFECYCLE))
+                .from(table)
+                .where(condition)
+                .fetch();
+    }
+
+
+    private static <T> T getMapping(EntityKind kind,
+                                    Function<Tuple3<Table, Field<Long>, Field<String>>, T> extractor) {
+        return Stream
+                .of(InlineSelectFieldFactory.getNameMappings(),
+                    InlineSelectFieldFactory.getExternalIdMappings(),
+                    InlineSelectFieldFactory.getLifecycleMappings())
+                .map(mappings -> mappings.get(kind))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .map(extractor)
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported kind: " + kind));
+    }
+
+
+    private static Field<String> valueOrNull(Tuple3<Table, Field<Long>, Field<String>> mapping) {
+        return mapping == null
+                ? DSL.inline(null, String.class)
+                : mapping.v3();
+    }
+
+
+    private static Entry toEntry(Record4<Long, String, String, String> r) {
+        String lifecycle = r.value4();
+        return new Entry(
+                r.value2(),
+                r.value3(),
+                lifecycle == null
+                    ? null
+                    : readEnum(lifecycle, EntityLifecycleStatus.class, s -> EntityLifecycleStatus.ACTIVE));
+    }
+
+
+    private boolean isExpired(KindEntries kindEntries) {
+        return maxAgeMillis > 0
+                && System.currentTimeMillis() - kindEntries.loadedAt > maxAgeMillis;
+    }
+
+
+    private static class KindEntries {
+
+        private final long loadedAt;
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+        private KindEntries(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+    }
+
+
+    private static class Entry {
+
+        private final String name;
+        private final String externalId;
+        private final EntityLifecycleStatus lifecycleStatus;
+
+        private Entry(String name, String externalId, EntityLifecycleStatus lifecycleStatus) {
+            this.name = name;
+            this.externalId = externalId;
+            this.lifecycleStatus = lifecycleStatus;
+        }
+    }
+
+}
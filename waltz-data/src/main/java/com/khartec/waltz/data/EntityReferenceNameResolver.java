@@ -28,7 +28,9 @@ import org.springframework.stereotype.Repository;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.maybeFirst;
@@ -44,19 +46,47 @@ import static com.khartec.waltz.model.EntityReference.mkRef;
 public class EntityReferenceNameResolver {
 
     private final DSLContext dsl;
+    private final EntityNameDictionary nameDictionary;
 
     @Autowired
-    public EntityReferenceNameResolver(DSLContext dsl) {
+    public EntityReferenceNameResolver(DSLContext dsl,
+                                       EntityNameDictionary nameDictionary) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(nameDictionary, "nameDictionary cannot be null");
         this.dsl = dsl;
+        this.nameDictionary = nameDictionary;
     }
 
     public Optional<EntityReference> resolve(EntityReference ref) {
         return maybeFirst(resolve(newArrayList(ref)));
     }
 
+    /**
+     * If the entity name dictionary is enabled names for the kinds it supports are
+     * taken from it, the remainder are resolved via the database.
+     */
     public List<EntityReference> resolve(List<EntityReference> refs) {
         checkNotNull(refs, "refs cannot be null");
-        
+
+        if (! nameDictionary.isEnabled()) {
+            return resolveViaDatabase(refs);
+        }
+
+        Map<Boolean, List<EntityReference>> bySupport = refs
+                .stream()
+                .distinct()
+                .collect(Collectors.partitioningBy(r -> nameDictionary.isSupported(r.kind())));
+
+        List<EntityReference> supported = bySupport.get(true);
+        nameDictionary.prime(supported);
+
+        return ListUtilities.concat(
+                map(supported, r -> mkRef(r.kind(), r.id(), nameDictionary.findName(r).orElse(null))),
+                resolveViaDatabase(bySupport.get(false)));
+    }
+
+
+    private List<EntityReference> resolveViaDatabase(List<EntityReference> refs) {
         Field<Long> idField = DSL.field("tref_id", Long.class);
         Field<String> kindField = DSL.field("tref_kind", String.class);
 
@@ -88,6 +88,21 @@ public class InlineSelectFieldFactory {
     }
 
 
+    // --- Mappings (used by the EntityNameDictionary)
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> getNameMappings() {
+        return NAME_RESOLVER.mappings;
+    }
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> getExternalIdMappings() {
+        return EXTERNAL_ID_RESOLVER.mappings;
+    }
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> getLifecycleMappings() {
+        return LIFECYCLE_RESOLVER.mappings;
+    }
+
+
     // --- Internals ----------------------
 
     private static final InlineSelectFieldFactory NAME_RESOLVER = new InlineSelectFieldFactory(mkNameFieldMappings());
@@ -142,7 +157,7 @@ public class InlineSelectFieldFactory {
 
     private InlineSelectFieldFactory(Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> mappings) {
         checkNotNull(mappings, "mappings cannot be null");
-        this.mappings = mappings;
+        this.mappings = Collections.unmodifiableMap(mappings);
     }
 
     /**
@@ -0,0 +1,228 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.common.metrics.LatencyHistogram;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Executes database tasks on two fixed size pools (lanes), one for interactive
+ * requests and one for batch workloads, so that large fan-outs cannot queue
+ * ahead of user facing requests.  Lanes are sized relative to the connection
+ * pool: interactive tasks may use half of the connections and batch tasks a
+ * quarter, leaving the remainder for requests querying directly.
+ *
+ * Queues are bounded, once a lane's queue is full the submitting thread runs
+ * the task itself which naturally throttles callers.  Once the pool has been
+ * shut down submissions are rejected with a `RejectedExecutionException`.
+ * Queue depth, wait and execution times are recorded per lane.
+ */
+public class InstrumentedDBExecutorPool implements DBExecutorPoolInterface {
+
+    public static class Lane {
+
+        private final String name;
+        private final int queueCapacity;
+        private final ThreadPoolExecutor executor;
+        private final LatencyHistogram waitTimes = new LatencyHistogram();
+        private final LatencyHistogram executionTimes = new LatencyHistogram();
+        private final AtomicLong peakQueueDepth = new AtomicLong();
+        private final LongAdder callerRunsCount = new LongAdder();
+
+
+        private Lane(String name, int threadCount, int queueCapacity) {
+            this.name = name;
+            this.queueCapacity = queueCapacity;
+            this.executor = new ThreadPoolExecutor(
+                    threadCount,
+                    threadCount,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    mkThreadFactory(name),
+                    (runnable, executor) -> {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("DB executor lane '" + name + "' has been shut down");
+                        }
+                        callerRunsCount.increment();
+                        runnable.run();
+                    });
+        }
+
+
+        private <T> Future<T> submit(Callable<T> task) {
+            long submittedAt = System.nanoTime();
+
+            Future<T> future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                waitTimes.record(startedAt - submittedAt);
+                try {
+                    return task.call();
+                } finally {
+                    executionTimes.record(System.nanoTime() - startedAt);
+                }
+            });
+
+            peakQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+            return future;
+        }
+
+
+        public String getName() {
+            return name;
+        }
+
+
+        public int getThreadCount() {
+            return executor.getMaximumPoolSize();
+        }
+
+
+        public int getActiveCount() {
+            return executor.getActiveCount();
+        }
+
+
+        public int getQueueDepth() {
+            return executor.getQueue().size();
+        }
+
+
+        public long getPeakQueueDepth() {
+            return peakQueueDepth.get();
+        }
+
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+
+        public long getCompletedTaskCount() {
+            return executor.getCompletedTaskCount();
+        }
+
+
+        /**
+         * @return number of tasks run by the submitting thread as the queue was full
+         */
+        public long getCallerRunsCount() {
+            return callerRunsCount.sum();
+        }
+
+
+        public LatencyHistogram getWaitTimes() {
+            return waitTimes;
+        }
+
+
+        public LatencyHistogram getExecutionTimes() {
+            return executionTimes;
+        }
+
+
+        private void shutdown() {
+            executor.shutdown();
+        }
+
+
+        public void resetStatistics() {
+            waitTimes.reset();
+            executionTimes.reset();
+            peakQueueDepth.set(getQueueDepth());
+            callerRunsCount.reset();
+        }
+
+
+        @Override
+        public String toString() {
+            return "Lane{" +
+                    "name='" + name + '\'' +
+                    ", threads=" + getThreadCount() +
+                    ", queueDepth=" + getQueueDepth() +
+                    ", waitTimes=" + waitTimes +
+                    ", executionTimes=" + executionTimes +
+                    '}';
+        }
+    }
+
+
+    private final Lane interactiveLane;
+    private final Lane batchLane;
+
+
+    public InstrumentedDBExecutorPool(int dbPoolMax, int queueCapacity) {
+        checkTrue(dbPoolMax > 0, "dbPoolMax must be positive");
+        checkTrue(queueCapacity > 0, "queueCapacity must be positive");
+
+        this.interactiveLane = new Lane("interactive", Integer.max(dbPoolMax / 2, 1), queueCapacity);
+        this.batchLane = new Lane("batch", Integer.max(dbPoolMax / 4, 1), queueCapacity);
+    }
+
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return interactiveLane.submit(task);
+    }
+
+
+    @Override
+    public <T> Future<T> submitBatch(Callable<T> task) {
+        return batchLane.submit(task);
+    }
+
+
+    /**
+     * Stops accepting new tasks, already queued tasks are still executed.
+     */
+    public void shutdown() {
+        interactiveLane.shutdown();
+        batchLane.shutdown();
+    }
+
+
+    public Lane getInteractiveLane() {
+        return interactiveLane;
+    }
+
+
+    public Lane getBatchLane() {
+        return batchLane;
+    }
+
+
+    // --- helpers
+
+    private static ThreadFactory mkThreadFactory(String laneName) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread t = new Thread(runnable, "DB Executor (" + laneName + ") " + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+}
@@ -22,6 +22,12 @@ import com.khartec.waltz.model.HierarchyQueryScope;
 import com.khartec.waltz.model.IdSelectionOptions;
 import com.khartec.waltz.model.application.ApplicationKind;
 import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Row1;
+import org.jooq.Select;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
 
 import java.util.Set;
 
@@ -61,4 +67,31 @@ public class SelectorUtilities {
 
     }
 
+
+    /***
+     * creates a selector over a literal set of ids (rendered inline, not as bind values)
+     * so it may be used wherever a sub-select of ids is expected
+     * @param ids
+     * @return
+     */
+    public static Select<Record1<Long>> mkLiteralIdSelector(long[] ids) {
+        if (ids.length == 0) {
+            return DSL
+                    .select(DSL.inline(-1L))
+                    .where(DSL.falseCondition());
+        }
+
+        Row1<Long>[] rows = new Row1[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rows[i] = DSL.row(DSL.inline(ids[i]));
+        }
+
+        Table<Record1<Long>> literalIds = DSL.values(rows).as("literal_ids", "id");
+        Field<Long> idField = literalIds.field("id", Long.class);
+
+        return DSL
+                .select(idField)
+                .from(literalIds);
+    }
+
 }
@@ -22,23 +22,34 @@ import com.khartec.waltz.model.accesslog.AccessLog;
 import com.khartec.waltz.model.accesslog.AccessTime;
 import com.khartec.waltz.model.accesslog.ImmutableAccessLog;
 import com.khartec.waltz.model.accesslog.ImmutableAccessTime;
+import com.khartec.waltz.schema.tables.records.AccessLogDailyRecord;
 import com.khartec.waltz.schema.tables.records.AccessLogRecord;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.RecordMapper;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Date;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.schema.tables.AccessLog.ACCESS_LOG;
+import static com.khartec.waltz.schema.tables.AccessLogDaily.ACCESS_LOG_DAILY;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
 @Repository
@@ -84,6 +95,23 @@ public class AccessLogDao {
     }
 
 
+    public int[] write(Collection<AccessLog> logEntries) {
+        List<AccessLogRecord> records = logEntries
+                .stream()
+                .map(logEntry -> {
+                    AccessLogRecord record = dsl.newRecord(ACCESS_LOG);
+                    record.setParams(logEntry.params());
+                    record.setState(logEntry.state());
+                    record.setUserId(logEntry.userId());
+                    record.setCreatedAt(Timestamp.valueOf(logEntry.createdAt()));
+                    return record;
+                })
+                .collect(Collectors.toList());
+
+        return dsl.batchInsert(records).execute();
+    }
+
+
     public List<AccessLog> findForUserId(String userId,
                                          Optional<Integer> limit) {
         return dsl.select(ACCESS_LOG.fields())
@@ -105,4 +133,71 @@ public class AccessLogDao {
                 .fetch(TO_ACCESS_TIME);
     }
 
+
+    public Optional<LocalDate> findOldestAccessDate() {
+        Timestamp oldest = dsl
+                .select(DSL.min(ACCESS_LOG.CREATED_AT))
+                .from(ACCESS_LOG)
+                .fetchOne()
+                .value1();
+
+        return Optional
+                .ofNullable(oldest)
+                .map(t -> t.toLocalDateTime().toLocalDate());
+    }
+
+
+    /**
+     * Replaces the access log entries made on the given day with counts per
+     * user and state in `access_log_daily` (adding to any counts already
+     * recorded for the day).
+     *
+     * @return number of access log entries removed
+     */
+    public int rollupDay(LocalDate day) {
+        Date accessDate = Date.valueOf(day);
+        Condition onDay = ACCESS_LOG.CREATED_AT.ge(Timestamp.valueOf(day.atStartOfDay()))
+                .and(ACCESS_LOG.CREATED_AT.lt(Timestamp.valueOf(day.plusDays(1).atStartOfDay())));
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            Map<Tuple2<String, String>, Integer> counts = new HashMap<>();
+
+            tx.select(ACCESS_LOG.USER_ID, ACCESS_LOG.STATE, DSL.count())
+                    .from(ACCESS_LOG)
+                    .where(onDay)
+                    .groupBy(ACCESS_LOG.USER_ID, ACCESS_LOG.STATE)
+                    .forEach(r -> counts.put(tuple(r.value1(), r.value2()), r.value3()));
+
+            tx.select(ACCESS_LOG_DAILY.USER_ID, ACCESS_LOG_DAILY.STATE, ACCESS_LOG_DAILY.ACCESS_COUNT)
+                    .from(ACCESS_LOG_DAILY)
+                    .where(ACCESS_LOG_DAILY.ACCESS_DATE.eq(accessDate))
+                    .forEach(r -> counts.merge(tuple(r.value1(), r.value2()), r.value3(), Integer::sum));
+
+            List<AccessLogDailyRecord> records = counts
+                    .entrySet()
+                    .stream()
+                    .map(e -> {
+                        AccessLogDailyRecord record = tx.newRecord(ACCESS_LOG_DAILY);
+                        record.setAccessDate(accessDate);
+                        record.setUserId(e.getKey().v1);
+                        record.setState(e.getKey().v2);
+                        record.setAccessCount(e.getValue());
+                        return record;
+                    })
+                    .collect(Collectors.toList());
+
+            tx.deleteFrom(ACCESS_LOG_DAILY)
+                    .where(ACCESS_LOG_DAILY.ACCESS_DATE.eq(accessDate))
+                    .execute();
+
+            tx.batchInsert(records).execute();
+
+            return tx.deleteFrom(ACCESS_LOG)
+                    .where(onDay)
+                    .execute();
+        });
+    }
+
 }
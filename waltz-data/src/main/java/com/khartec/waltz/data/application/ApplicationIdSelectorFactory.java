@@ -350,6 +350,8 @@ public class ApplicationIdSelectorFactory implements Function<IdSelectionOptions
 
         Condition applicationConditions = mkApplicationConditions(options);
 
+        // the group's org units are only known to the database, so their descendants
+        // cannot be taken from the resident hierarchy index and are joined instead
         SelectConditionStep<Record1<Long>> associatedOrgUnits = DSL
                 .selectDistinct(ENTITY_HIERARCHY.ID)
                 .from(APPLICATION_GROUP_OU_ENTRY)
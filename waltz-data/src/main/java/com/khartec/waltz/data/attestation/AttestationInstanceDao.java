@@ -25,21 +25,33 @@ import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.attestation.AttestEntityCommand;
 import com.khartec.waltz.model.attestation.AttestationInstance;
 import com.khartec.waltz.model.attestation.ImmutableAttestationInstance;
+import com.khartec.waltz.schema.tables.records.AttestationInstanceRecipientRecord;
 import com.khartec.waltz.schema.tables.records.AttestationInstanceRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple4;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
 @Repository
@@ -101,6 +113,92 @@ public class AttestationInstanceDao {
     }
 
 
+    /**
+     * Creates the given instances, and their recipients, within a single
+     * transaction using batched inserts.  Instance ids are resolved by
+     * re-reading the affected runs rather than storing each record individually.
+     *
+     * @param recipientsByInstance  instance to the user ids who should receive it
+     * @return tuple of (instances created, recipients created)
+     */
+    public Tuple2<Integer, Integer> createInstancesAndRecipients(Map<AttestationInstance, ? extends Collection<String>> recipientsByInstance) {
+        checkNotNull(recipientsByInstance, "recipientsByInstance cannot be null");
+
+        if (recipientsByInstance.isEmpty()) {
+            return tuple(0, 0);
+        }
+
+        Set<Long> runIds = recipientsByInstance
+                .keySet()
+                .stream()
+                .map(AttestationInstance::attestationRunId)
+                .collect(Collectors.toSet());
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            Set<Long> existingInstanceIds = tx
+                    .select(ATTESTATION_INSTANCE.ID)
+                    .from(ATTESTATION_INSTANCE)
+                    .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.in(runIds))
+                    .fetchSet(ATTESTATION_INSTANCE.ID);
+
+            List<AttestationInstanceRecord> instanceRecords = recipientsByInstance
+                    .keySet()
+                    .stream()
+                    .map(instance -> {
+                        AttestationInstanceRecord record = tx.newRecord(ATTESTATION_INSTANCE);
+                        record.setAttestationRunId(instance.attestationRunId());
+                        record.setParentEntityKind(instance.parentEntity().kind().name());
+                        record.setParentEntityId(instance.parentEntity().id());
+                        record.setAttestedEntityKind(instance.attestedEntityKind().name());
+                        return record;
+                    })
+                    .collect(Collectors.toList());
+
+            tx.batchInsert(instanceRecords).execute();
+
+            Map<Tuple4<Long, String, Long, String>, Deque<Long>> instanceIdsByKey = new HashMap<>();
+            tx.select(ATTESTATION_INSTANCE.ID,
+                        ATTESTATION_INSTANCE.ATTESTATION_RUN_ID,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_KIND,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_ID,
+                        ATTESTATION_INSTANCE.ATTESTED_ENTITY_KIND)
+                    .from(ATTESTATION_INSTANCE)
+                    .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.in(runIds))
+                    .forEach(r -> {
+                        if (! existingInstanceIds.contains(r.value1())) {
+                            instanceIdsByKey
+                                    .computeIfAbsent(tuple(r.value2(), r.value3(), r.value4(), r.value5()), k -> new ArrayDeque<>())
+                                    .add(r.value1());
+                        }
+                    });
+
+            List<AttestationInstanceRecipientRecord> recipientRecords = new ArrayList<>();
+            recipientsByInstance.forEach((instance, userIds) -> {
+                Long instanceId = instanceIdsByKey
+                        .get(tuple(
+                                instance.attestationRunId(),
+                                instance.parentEntity().kind().name(),
+                                instance.parentEntity().id(),
+                                instance.attestedEntityKind().name()))
+                        .pop();
+
+                userIds.forEach(userId -> {
+                    AttestationInstanceRecipientRecord record = tx.newRecord(ATTESTATION_INSTANCE_RECIPIENT);
+                    record.setAttestationInstanceId(instanceId);
+                    record.setUserId(userId);
+                    recipientRecords.add(record);
+                });
+            });
+
+            tx.batchInsert(recipientRecords).execute();
+
+            return tuple(instanceRecords.size(), recipientRecords.size());
+        });
+    }
+
+
     public List<AttestationInstance> findByRecipient(String userId, boolean unattestedOnly) {
         Condition condition = ATTESTATION_INSTANCE_RECIPIENT.USER_ID.eq(userId);
         if(unattestedOnly) {
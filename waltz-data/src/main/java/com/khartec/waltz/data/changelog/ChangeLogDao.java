@@ -32,6 +32,7 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -48,6 +49,9 @@ import static com.khartec.waltz.schema.tables.ChangeLog.CHANGE_LOG;
 @Repository
 public class ChangeLogDao {
 
+    // eight bind values per row, keeps each insert within SQL Server's limit of 2100 parameters
+    private static final int INSERT_CHUNK_SIZE = 250;
+
     private final DSLContext dsl;
 
     public static final RecordMapper<? super Record, ChangeLog> TO_DOMAIN_MAPPER = r -> {
@@ -250,22 +254,49 @@ public class ChangeLogDao {
     }
 
 
+    /**
+     * Writes the entries using multi-row inserts of up to `INSERT_CHUNK_SIZE` rows
+     *
+     * @return number of rows written by each insert statement
+     */
     public int[] write(Collection<ChangeLog> changeLogs) {
         checkNotNull(changeLogs, "changeLogs must not be null");
 
-        Query[] queries = changeLogs
-                .stream()
-                .map(changeLog -> DSL.insertInto(CHANGE_LOG)
-                        .set(CHANGE_LOG.MESSAGE, changeLog.message())
-                        .set(CHANGE_LOG.PARENT_ID, changeLog.parentReference().id())
-                        .set(CHANGE_LOG.PARENT_KIND, changeLog.parentReference().kind().name())
-                        .set(CHANGE_LOG.USER_ID, changeLog.userId())
-                        .set(CHANGE_LOG.SEVERITY, changeLog.severity().name())
-                        .set(CHANGE_LOG.CHILD_KIND, changeLog.childKind().map(ck -> ck.name()).orElse(null))
-                        .set(CHANGE_LOG.OPERATION, changeLog.operation().name())
-                        .set(CHANGE_LOG.CREATED_AT, Timestamp.valueOf(changeLog.createdAt())))
-                .toArray(Query[]::new);
-        return dsl.batch(queries).execute();
+        List<ChangeLog> entries = new ArrayList<>(changeLogs);
+        int[] rcs = new int[(entries.size() + INSERT_CHUNK_SIZE - 1) / INSERT_CHUNK_SIZE];
+
+        for (int i = 0; i < rcs.length; i++) {
+            List<ChangeLog> chunk = entries.subList(
+                    i * INSERT_CHUNK_SIZE,
+                    Math.min(entries.size(), (i + 1) * INSERT_CHUNK_SIZE));
+
+            InsertValuesStep8<ChangeLogRecord, String, Long, String, String, String, String, String, Timestamp> insert = dsl
+                    .insertInto(CHANGE_LOG)
+                    .columns(CHANGE_LOG.MESSAGE,
+                            CHANGE_LOG.PARENT_ID,
+                            CHANGE_LOG.PARENT_KIND,
+                            CHANGE_LOG.USER_ID,
+                            CHANGE_LOG.SEVERITY,
+                            CHANGE_LOG.CHILD_KIND,
+                            CHANGE_LOG.OPERATION,
+                            CHANGE_LOG.CREATED_AT);
+
+            for (ChangeLog changeLog : chunk) {
+                insert = insert.values(
+                        changeLog.message(),
+                        changeLog.parentReference().id(),
+                        changeLog.parentReference().kind().name(),
+                        changeLog.userId(),
+                        changeLog.severity().name(),
+                        changeLog.childKind().map(ck -> ck.name()).orElse(null),
+                        changeLog.operation().name(),
+                        Timestamp.valueOf(changeLog.createdAt()));
+            }
+
+            rcs[i] = insert.execute();
+        }
+
+        return rcs;
     }
 
 
@@ -286,4 +317,19 @@ public class ChangeLogDao {
                 .fetch(TO_DOMAIN_MAPPER);
     }
 
+
+    /**
+     * The id of the most recently written change log entry, this increases
+     * with every recorded modification and may be used as a cheap data version.
+     *
+     * @return id of the latest entry or empty if the change log is empty
+     */
+    public Optional<Long> findLatestId() {
+        return Optional.ofNullable(dsl
+                .select(DSL.max(CHANGE_LOG.ID))
+                .from(CHANGE_LOG)
+                .fetchOne()
+                .value1());
+    }
+
 }
@@ -23,9 +23,13 @@ import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.complexity.*;
 import com.khartec.waltz.schema.tables.records.ComplexityScoreRecord;
 import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple3;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +39,7 @@ import java.util.stream.Collectors;
 
 import static com.khartec.waltz.schema.tables.ComplexityScore.COMPLEXITY_SCORE;
 import static java.util.Collections.emptyList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Deprecated
 @Repository
@@ -126,4 +131,84 @@ public class ComplexityScoreDao {
     public int[] bulkInsert(List<ComplexityScoreRecord> records) {
         return dsl.batchInsert(records).execute();
     }
+
+
+    /**
+     * Brings the complexity score table in line with the given records.  The
+     * records are diffed against the existing rows so that only new, changed
+     * and obsolete scores are written.  All changes are applied in a single
+     * transaction, readers never see a partially rebuilt table.
+     *
+     * @return tuple of (inserted, updated, deleted) row counts
+     */
+    public Tuple3<Integer, Integer, Integer> replaceAll(Collection<ComplexityScoreRecord> records) {
+        Checks.checkNotNull(records, "records cannot be null");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            Map<Tuple3<String, Long, String>, BigDecimal> existingScores = tx
+                    .select(COMPLEXITY_SCORE.ENTITY_KIND,
+                            COMPLEXITY_SCORE.ENTITY_ID,
+                            COMPLEXITY_SCORE.COMPLEXITY_KIND,
+                            COMPLEXITY_SCORE.SCORE)
+                    .from(COMPLEXITY_SCORE)
+                    .fetch()
+                    .stream()
+                    .collect(Collectors.toMap(
+                            r -> tuple(r.value1(), r.value2(), r.value3()),
+                            r -> r.value4()));
+
+            List<ComplexityScoreRecord> toInsert = new ArrayList<>();
+            List<Query> toUpdate = new ArrayList<>();
+
+            records.forEach(record -> {
+                Tuple3<String, Long, String> key = tuple(
+                        record.getEntityKind(),
+                        record.getEntityId(),
+                        record.getComplexityKind());
+
+                BigDecimal existingScore = existingScores.remove(key);
+
+                if (existingScore == null) {
+                    toInsert.add(record);
+                } else if (existingScore.compareTo(record.getScore()) != 0) {
+                    toUpdate.add(tx
+                            .update(COMPLEXITY_SCORE)
+                            .set(COMPLEXITY_SCORE.SCORE, record.getScore())
+                            .where(mkKeyCondition(key)));
+                }
+            });
+
+            // anything left over is no longer scored
+            List<Query> toDelete = existingScores
+                    .keySet()
+                    .stream()
+                    .map(key -> tx
+                            .deleteFrom(COMPLEXITY_SCORE)
+                            .where(mkKeyCondition(key)))
+                    .collect(Collectors.toList());
+
+            if (! toDelete.isEmpty()) {
+                tx.batch(toDelete).execute();
+            }
+
+            if (! toUpdate.isEmpty()) {
+                tx.batch(toUpdate).execute();
+            }
+
+            if (! toInsert.isEmpty()) {
+                tx.batchInsert(toInsert).execute();
+            }
+
+            return tuple(toInsert.size(), toUpdate.size(), toDelete.size());
+        });
+    }
+
+
+    private static Condition mkKeyCondition(Tuple3<String, Long, String> key) {
+        return COMPLEXITY_SCORE.ENTITY_KIND.eq(key.v1)
+                .and(COMPLEXITY_SCORE.ENTITY_ID.eq(key.v2))
+                .and(COMPLEXITY_SCORE.COMPLEXITY_KIND.eq(key.v3));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.data_type_usage;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.schema.tables.records.DataTypeUsageQueueRecord;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.schema.tables.DataTypeUsageQueue.DATA_TYPE_USAGE_QUEUE;
+import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Queue of entities (applications and actors) whose data type usages need
+ * recalculating as their logical flows, or flow decorators, have changed.
+ *
+ * An entity may be queued several times, entries are removed individually
+ * once processed so that anything queued during a recalculation is retained.
+ */
+@Repository
+public class DataTypeUsageQueueDao {
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public DataTypeUsageQueueDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public int enqueue(Collection<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+
+        Timestamp now = nowUtcTimestamp();
+
+        List<DataTypeUsageQueueRecord> records = refs
+                .stream()
+                .distinct()
+                .map(ref -> {
+                    DataTypeUsageQueueRecord record = dsl.newRecord(DATA_TYPE_USAGE_QUEUE);
+                    record.setEntityKind(ref.kind().name());
+                    record.setEntityId(ref.id());
+                    record.setQueuedAt(now);
+                    return record;
+                })
+                .collect(Collectors.toList());
+
+        return records.isEmpty()
+                ? 0
+                : dsl.batchInsert(records).execute().length;
+    }
+
+
+    /**
+     * Queues the source and target of each of the selected logical flows
+     */
+    public int enqueueForLogicalFlows(Select<Record1<Long>> logicalFlowIdSelector) {
+        checkNotNull(logicalFlowIdSelector, "logicalFlowIdSelector cannot be null");
+
+        Timestamp now = nowUtcTimestamp();
+
+        return dsl
+                .insertInto(DATA_TYPE_USAGE_QUEUE)
+                .columns(DATA_TYPE_USAGE_QUEUE.ENTITY_KIND,
+                        DATA_TYPE_USAGE_QUEUE.ENTITY_ID,
+                        DATA_TYPE_USAGE_QUEUE.QUEUED_AT)
+                .select(DSL
+                        .select(LOGICAL_FLOW.SOURCE_ENTITY_KIND, LOGICAL_FLOW.SOURCE_ENTITY_ID, DSL.val(now))
+                        .from(LOGICAL_FLOW)
+                        .where(LOGICAL_FLOW.ID.in(logicalFlowIdSelector))
+                        .unionAll(DSL
+                                .select(LOGICAL_FLOW.TARGET_ENTITY_KIND, LOGICAL_FLOW.TARGET_ENTITY_ID, DSL.val(now))
+                                .from(LOGICAL_FLOW)
+                                .where(LOGICAL_FLOW.ID.in(logicalFlowIdSelector))))
+                .execute();
+    }
+
+
+    /**
+     * @param limit  maximum number of queue entries to return
+     * @return oldest queue entries as (entry id, entity) tuples
+     */
+    public List<Tuple2<Long, EntityReference>> findQueued(int limit) {
+        return dsl
+                .select(DATA_TYPE_USAGE_QUEUE.ID,
+                        DATA_TYPE_USAGE_QUEUE.ENTITY_KIND,
+                        DATA_TYPE_USAGE_QUEUE.ENTITY_ID)
+                .from(DATA_TYPE_USAGE_QUEUE)
+                .orderBy(DATA_TYPE_USAGE_QUEUE.ID)
+                .limit(limit)
+                .fetch(r -> tuple(
+                        r.value1(),
+                        mkRef(EntityKind.valueOf(r.value2()), r.value3())));
+    }
+
+
+    public int remove(Collection<Long> entryIds) {
+        checkNotNull(entryIds, "entryIds cannot be null");
+        return dsl
+                .deleteFrom(DATA_TYPE_USAGE_QUEUE)
+                .where(DATA_TYPE_USAGE_QUEUE.ID.in(entryIds))
+                .execute();
+    }
+
+
+    /**
+     * Removes entries queued before the given time, typically because a
+     * full recalculation has since been performed.
+     */
+    public int removeQueuedBefore(Timestamp timestamp) {
+        checkNotNull(timestamp, "timestamp cannot be null");
+        return dsl
+                .deleteFrom(DATA_TYPE_USAGE_QUEUE)
+                .where(DATA_TYPE_USAGE_QUEUE.QUEUED_AT.lt(timestamp))
+                .execute();
+    }
+
+
+    public int countQueued() {
+        return dsl.fetchCount(DATA_TYPE_USAGE_QUEUE);
+    }
+
+}
@@ -23,6 +23,8 @@ import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityLifecycleStatus;
 import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.DecoratorRatingCandidate;
+import com.khartec.waltz.model.authoritativesource.ImmutableDecoratorRatingCandidate;
 import com.khartec.waltz.model.datatype.DataTypeDecorator;
 import com.khartec.waltz.model.datatype.DataTypeUsageCharacteristics;
 import com.khartec.waltz.model.datatype.ImmutableDataTypeDecorator;
@@ -37,11 +39,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
-import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.data.logical_flow.LogicalFlowDao.LOGICAL_NOT_REMOVED;
@@ -55,6 +55,8 @@ import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static com.khartec.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
 import static com.khartec.waltz.schema.tables.PhysicalSpecDataType.PHYSICAL_SPEC_DATA_TYPE;
 import static java.lang.String.format;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 
 
@@ -95,8 +97,36 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
         return r;
     };
 
+
+    private static final RecordMapper<Record, DecoratorRatingCandidate> TO_RATING_CANDIDATE_MAPPER = r -> {
+        boolean isSourceApp = EntityKind.APPLICATION.name().equals(r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND));
+        boolean isDataType = DATA_TYPE.name().equals(r.get(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND));
+
+        return ImmutableDecoratorRatingCandidate.builder()
+                .decoratorId(r.get(LOGICAL_FLOW_DECORATOR.ID))
+                .rating(AuthoritativenessRating.valueOf(r.get(LOGICAL_FLOW_DECORATOR.RATING)))
+                .sourceApplicationId(isSourceApp
+                        ? Optional.ofNullable(r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID))
+                        : Optional.empty())
+                .targetOrgUnitId(Optional.ofNullable(r.get(APPLICATION.ORGANISATIONAL_UNIT_ID)))
+                .dataTypeId(isDataType
+                        ? Optional.of(r.get(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID))
+                        : Optional.empty())
+                .build();
+    };
+
+
+    private static final Condition IS_RATEABLE = LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(EntityKind.APPLICATION.name())
+            .and(APPLICATION.ID.isNotNull())
+            .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()));
+
+
+    private static final int RATING_UPDATE_BATCH_SIZE = 1000;
+
+
     private final DSLContext dsl;
 
+
     @Autowired
     public LogicalFlowDecoratorDao(DSLContext dsl) {
         checkNotNull(dsl, "dsl cannot be null");
@@ -280,6 +310,78 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
     }
 
 
+    /**
+     * Finds every decorator which may need its authoritativeness rating changing:
+     * data type decorators on application to application flows, plus any other
+     * decorators which currently have a rating other than NO_OPINION.
+     */
+    public List<DecoratorRatingCandidate> findRatingCandidates() {
+        return findRatingCandidates(IS_RATEABLE.or(LOGICAL_FLOW_DECORATOR.RATING.ne(AuthoritativenessRating.NO_OPINION.name())));
+    }
+
+
+    /**
+     * Finds data type decorators on application to application flows where the
+     * target application's org unit and the data type are in the given selections.
+     */
+    public List<DecoratorRatingCandidate> findRatingCandidates(Select<Record1<Long>> targetOrgUnitIdSelector,
+                                                               Select<Record1<Long>> dataTypeIdSelector) {
+        checkNotNull(targetOrgUnitIdSelector, "targetOrgUnitIdSelector cannot be null");
+        checkNotNull(dataTypeIdSelector, "dataTypeIdSelector cannot be null");
+
+        return findRatingCandidates(IS_RATEABLE
+                .and(APPLICATION.ORGANISATIONAL_UNIT_ID.in(targetOrgUnitIdSelector))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.in(dataTypeIdSelector)));
+    }
+
+
+    /**
+     * Sets the ratings of the given decorators.  Decorators are grouped by their
+     * new rating and updated in batches of `UPDATE ... WHERE id IN (...)` statements.
+     */
+    public int updateRatings(Map<Long, AuthoritativenessRating> ratingsByDecoratorId) {
+        checkNotNull(ratingsByDecoratorId, "ratingsByDecoratorId cannot be null");
+
+        Map<AuthoritativenessRating, List<Long>> decoratorIdsByRating = ratingsByDecoratorId
+                .entrySet()
+                .stream()
+                .collect(groupingBy(Map.Entry::getValue, mapping(Map.Entry::getKey, toList())));
+
+        List<Update<LogicalFlowDecoratorRecord>> updates = new ArrayList<>();
+        decoratorIdsByRating.forEach((rating, ids) -> {
+            for (int i = 0; i < ids.size(); i += RATING_UPDATE_BATCH_SIZE) {
+                List<Long> batch = ids.subList(i, Math.min(i + RATING_UPDATE_BATCH_SIZE, ids.size()));
+                updates.add(dsl
+                        .update(LOGICAL_FLOW_DECORATOR)
+                        .set(LOGICAL_FLOW_DECORATOR.RATING, rating.name())
+                        .where(LOGICAL_FLOW_DECORATOR.ID.in(batch)));
+            }
+        });
+
+        return IntStream.of(dsl.batch(updates).execute()).sum();
+    }
+
+
+    private List<DecoratorRatingCandidate> findRatingCandidates(Condition condition) {
+        return dsl
+                .select(LOGICAL_FLOW_DECORATOR.ID,
+                        LOGICAL_FLOW_DECORATOR.RATING,
+                        LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND,
+                        LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        APPLICATION.ORGANISATIONAL_UNIT_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .leftJoin(LOGICAL_FLOW)
+                .on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
+                .leftJoin(APPLICATION)
+                .on(APPLICATION.ID.eq(LOGICAL_FLOW.TARGET_ENTITY_ID)
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name())))
+                .where(condition)
+                .fetch(TO_RATING_CANDIDATE_MAPPER);
+    }
+
+
     @Override
     public List<DataTypeUsageCharacteristics> findDatatypeUsageCharacteristics(EntityReference ref) {
 
@@ -20,6 +20,7 @@ package com.khartec.waltz.data.entity_hierarchy;
 
 import com.khartec.waltz.common.Checks;
 import com.khartec.waltz.data.IdSelectorFactory;
+import com.khartec.waltz.data.SelectorUtilities;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.IdSelectionOptions;
 import org.jooq.Record1;
@@ -54,23 +55,41 @@ public abstract class AbstractIdSelectorFactory implements IdSelectorFactory {
 
 
     private Select<Record1<Long>> mkForSelf(IdSelectionOptions options) {
+        return mkForHierarchy(entityKind, options);
+    }
+
+
+    /**
+     * Creates a selector for the given kind using the scope in the options to
+     * navigate the hierarchy.  If a resident index is registered for the kind
+     * (see {@link HierarchyIndexRegistry}) the ids are emitted as a literal set,
+     * otherwise the selector joins to the `ENTITY_HIERARCHY` table.
+     */
+    public static Select<Record1<Long>> mkForHierarchy(EntityKind kind, IdSelectionOptions options) {
+        long id = options.entityReference().id();
 
         Select<Record1<Long>> selector = null;
         switch (options.scope()) {
             case EXACT:
-                selector = DSL.select(DSL.val(options.entityReference().id()));
+                selector = DSL.select(DSL.val(id));
                 break;
             case CHILDREN:
-                selector = DSL.select(ENTITY_HIERARCHY.ID)
-                        .from(ENTITY_HIERARCHY)
-                        .where(ENTITY_HIERARCHY.ANCESTOR_ID.eq(options.entityReference().id()))
-                        .and(ENTITY_HIERARCHY.KIND.eq(entityKind.name()));
+                selector = HierarchyIndexRegistry
+                        .findDescendantIds(kind, id)
+                        .map(SelectorUtilities::mkLiteralIdSelector)
+                        .orElseGet(() -> DSL.select(ENTITY_HIERARCHY.ID)
+                                .from(ENTITY_HIERARCHY)
+                                .where(ENTITY_HIERARCHY.ANCESTOR_ID.eq(id))
+                                .and(ENTITY_HIERARCHY.KIND.eq(kind.name())));
                 break;
             case PARENTS:
-                selector = DSL.select(ENTITY_HIERARCHY.ANCESTOR_ID)
-                        .from(ENTITY_HIERARCHY)
-                        .where(ENTITY_HIERARCHY.ID.eq(options.entityReference().id()))
-                        .and(ENTITY_HIERARCHY.KIND.eq(entityKind.name()));
+                selector = HierarchyIndexRegistry
+                        .findAncestorIds(kind, id)
+                        .map(SelectorUtilities::mkLiteralIdSelector)
+                        .orElseGet(() -> DSL.select(ENTITY_HIERARCHY.ANCESTOR_ID)
+                                .from(ENTITY_HIERARCHY)
+                                .where(ENTITY_HIERARCHY.ID.eq(id))
+                                .and(ENTITY_HIERARCHY.KIND.eq(kind.name())));
                 break;
         }
 
@@ -18,6 +18,8 @@
 
 package com.khartec.waltz.data.entity_hierarchy;
 
+import com.khartec.waltz.common.hierarchy.ClosureTable;
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
 import com.khartec.waltz.data.JooqUtilities;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
@@ -28,8 +30,12 @@ import com.khartec.waltz.schema.tables.EntityHierarchy;
 import com.khartec.waltz.schema.tables.records.ApplicationRecord;
 import com.khartec.waltz.schema.tables.records.EntityHierarchyRecord;
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record;
+import org.jooq.Record2;
+import org.jooq.Record3;
 import org.jooq.RecordMapper;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
@@ -37,11 +43,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.Function;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
-import static com.khartec.waltz.common.ListUtilities.map;
+import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.data.JooqUtilities.TO_STRING_TALLY;
 import static com.khartec.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
 
@@ -52,12 +59,11 @@ public class EntityHierarchyDao {
 
     private static final EntityHierarchy eh = ENTITY_HIERARCHY;
 
-    private static final Function<EntityHierarchyItem, EntityHierarchyRecord> ITEM_TO_RECORD_MAPPER =
-            item -> new EntityHierarchyRecord(
-                    item.kind().name(),
-                    item.id().get(),
-                    item.parentId().orElse(null),
-                    item.level());
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final byte UNSEEN = 0;
+    private static final byte SEEN = 1;
+    private static final byte DUPLICATED = 2;
 
     public static final RecordMapper<Record, EntityHierarchyItem> TO_DOMAIN_MAPPER = record -> {
         EntityHierarchyRecord ehRecord = record.into(ENTITY_HIERARCHY);
@@ -81,25 +87,112 @@ public class EntityHierarchyDao {
     }
 
 
-    public int replaceHierarchy(EntityKind kind, List<EntityHierarchyItem> hierarchyItems, Condition deleteFilter) {
+    /**
+     * Brings the hierarchy rows of the given kind in line with the closure.
+     * Existing rows are compared against the closure so that only rows whose
+     * ancestry (or level) has changed are written.  All changes are applied in
+     * a single transaction.
+     *
+     * Every node is paired with itself, the level of a row is the depth of its
+     * ancestor, or -1 if the node is not attached to a root.
+     *
+     * @param ids  sorted node ids, the position of an id is its index in the closure
+     * @param existingFilter  restricts the existing rows being compared (and possibly removed)
+     * @return number of rows in the hierarchy
+     */
+    public int syncHierarchy(EntityKind kind,
+                             long[] ids,
+                             ClosureTable closure,
+                             Condition existingFilter) {
         checkNotNull(kind, "kind cannot be null");
-        checkNotNull(hierarchyItems, "hierarchyItems cannot be null");
-
-        List<EntityHierarchyRecord> records = map(hierarchyItems, ITEM_TO_RECORD_MAPPER);
-
-        LOG.info("Replacing hierarchy items for kind: {}, inserting new record (#{})", kind, hierarchyItems.size());
-        dsl.transaction(configuration -> {
-            DSLContext txDsl = DSL.using(configuration);
-            txDsl.deleteFrom(ENTITY_HIERARCHY)
-                    .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
-                    .and(deleteFilter)
-                    .execute();
-            txDsl.batchInsert(records)
-                    .execute();
-        });
+        checkNotNull(ids, "ids cannot be null");
+        checkNotNull(closure, "closure cannot be null");
+        checkTrue(ids.length == closure.nodeCount(), "ids and closure must describe the same nodes");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            byte[] selfStates = new byte[ids.length];
+            byte[] pairStates = new byte[closure.size()];
+            List<Query> changes = new ArrayList<>();
+
+            try (Cursor<Record3<Long, Long, Integer>> cursor = tx
+                    .select(eh.ID, eh.ANCESTOR_ID, eh.LEVEL)
+                    .from(eh)
+                    .where(eh.KIND.eq(kind.name()))
+                    .and(existingFilter)
+                    .fetchLazy()) {
+                for (Record3<Long, Long, Integer> r : cursor) {
+                    int node = indexOf(ids, r.value1());
+                    int ancestor = indexOf(ids, r.value2());
+
+                    if (node < 0 || ancestor < 0) {
+                        changes.add(mkDelete(tx, kind, r.value1(), r.value2()));
+                        continue;
+                    }
+
+                    boolean isSelf = node == ancestor;
+                    byte[] states = isSelf ? selfStates : pairStates;
+                    int pos = isSelf ? node : closure.findPair(node, ancestor);
+
+                    if (pos < 0) {
+                        changes.add(mkDelete(tx, kind, r.value1(), r.value2()));
+                    } else if (states[pos] == UNSEEN) {
+                        states[pos] = SEEN;
+                        int level = expectedLevel(closure, node, ancestor);
+                        if (r.value3() == null || r.value3() != level) {
+                            changes.add(tx
+                                    .update(eh)
+                                    .set(eh.LEVEL, level)
+                                    .where(eh.KIND.eq(kind.name()))
+                                    .and(eh.ID.eq(r.value1()))
+                                    .and(eh.ANCESTOR_ID.eq(r.value2())));
+                        }
+                    } else if (states[pos] == SEEN) {
+                        // duplicate rows, remove all copies and insert afresh
+                        states[pos] = DUPLICATED;
+                        changes.add(mkDelete(tx, kind, r.value1(), r.value2()));
+                    }
+                }
+            }
 
-        return records.size();
+            int changeCount = changes.size();
+            for (int i = 0; i < changes.size(); i += BATCH_SIZE) {
+                tx.batch(changes.subList(i, Math.min(changes.size(), i + BATCH_SIZE))).execute();
+            }
 
+            List<EntityHierarchyRecord> inserts = new ArrayList<>();
+            int insertCount = 0;
+            for (int node = 0; node < ids.length; node++) {
+                if (selfStates[node] != SEEN) {
+                    inserts.add(new EntityHierarchyRecord(kind.name(), ids[node], ids[node], expectedLevel(closure, node, node)));
+                }
+                for (int position = 0; position < closure.getAncestorCount(node); position++) {
+                    int ancestor = closure.getAncestor(node, position);
+                    if (pairStates[closure.findPair(node, ancestor)] != SEEN) {
+                        inserts.add(new EntityHierarchyRecord(kind.name(), ids[node], ids[ancestor], expectedLevel(closure, node, ancestor)));
+                    }
+                }
+                if (inserts.size() >= BATCH_SIZE) {
+                    insertCount += inserts.size();
+                    tx.batchInsert(inserts).execute();
+                    inserts.clear();
+                }
+            }
+
+            if (! inserts.isEmpty()) {
+                insertCount += inserts.size();
+                tx.batchInsert(inserts).execute();
+            }
+
+            LOG.info("Synchronised hierarchy for kind: {}, {}, updated/deleted: {}, inserted: {}",
+                    kind,
+                    closure,
+                    changeCount,
+                    insertCount);
+
+            return ids.length + closure.size();
+        });
     }
 
 
@@ -127,4 +220,56 @@ public class EntityHierarchyDao {
                 .fetch(TO_DOMAIN_MAPPER);
     }
 
+
+    /**
+     * Streams the closure rows for the given kind into a compact, resident index.
+     * @param kind  the hierarchy to load
+     * @return index of ids to descendants / ancestors
+     */
+    public HierarchyIndex loadIndex(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+
+        HierarchyIndex.Builder builder = HierarchyIndex.builder();
+
+        try (Cursor<Record2<Long, Long>> cursor = dsl
+                .select(eh.ID, eh.ANCESTOR_ID)
+                .from(eh)
+                .where(eh.KIND.eq(kind.name()))
+                .and(eh.ANCESTOR_ID.isNotNull())
+                .fetchLazy()) {
+            for (Record2<Long, Long> r : cursor) {
+                builder.add(r.value1(), r.value2());
+            }
+        }
+
+        return builder.build();
+    }
+
+
+    private static int expectedLevel(ClosureTable closure, int node, int ancestor) {
+        return closure.isRooted(node)
+                ? closure.getDepth(ancestor)
+                : -1;
+    }
+
+
+    private static int indexOf(long[] ids, Long id) {
+        if (id == null) {
+            return -1;
+        }
+        int idx = Arrays.binarySearch(ids, id);
+        return idx < 0 ? -1 : idx;
+    }
+
+
+    private static Query mkDelete(DSLContext tx, EntityKind kind, Long id, Long ancestorId) {
+        return tx
+                .deleteFrom(eh)
+                .where(eh.KIND.eq(kind.name()))
+                .and(eh.ID.eq(id))
+                .and(ancestorId == null
+                        ? eh.ANCESTOR_ID.isNull()
+                        : eh.ANCESTOR_ID.eq(ancestorId));
+    }
+
 }
@@ -0,0 +1,92 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_hierarchy;
+
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
+import com.khartec.waltz.model.EntityKind;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Holds the resident hierarchy indexes (one per entity kind) which the
+ * id selector factories consult before falling back to joining against
+ * the `ENTITY_HIERARCHY` table.
+ *
+ * Selector factories are created directly (rather than via Spring) throughout
+ * the codebase, hence the static registry.  Indexes are swapped in whole, so a
+ * reader sees either the previous or the new hierarchy, never a mixture.
+ */
+public class HierarchyIndexRegistry {
+
+    /**
+     * Literal id sets larger than this are not emitted as they become
+     * expensive for the database to parse, the `ENTITY_HIERARCHY` join is
+     * used instead.
+     */
+    public static final int MAX_LITERAL_IDS = 1000;
+
+    private static final Map<EntityKind, HierarchyIndex> INDEXES = new ConcurrentHashMap<>();
+
+
+    public static void register(EntityKind kind, HierarchyIndex index) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(index, "index cannot be null");
+        INDEXES.put(kind, index);
+    }
+
+
+    public static void unregister(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        INDEXES.remove(kind);
+    }
+
+
+    public static Optional<HierarchyIndex> findIndex(EntityKind kind) {
+        return Optional.ofNullable(INDEXES.get(kind));
+    }
+
+
+    /**
+     * @return descendant ids (inclusive) if the kind is indexed, the id is known
+     *   to the index and the result is small enough to be used as a literal set
+     */
+    public static Optional<long[]> findDescendantIds(EntityKind kind, long id) {
+        return findIndex(kind)
+                .filter(idx -> idx.contains(id))
+                .map(idx -> idx.findDescendants(id))
+                .filter(ids -> ids.length <= MAX_LITERAL_IDS);
+    }
+
+
+    /**
+     * @return ancestor ids (inclusive) if the kind is indexed and the id is known
+     */
+    public static Optional<long[]> findAncestorIds(EntityKind kind, long id) {
+        return findIndex(kind)
+                .filter(idx -> idx.contains(id))
+                .map(idx -> idx.findAncestors(id))
+                .filter(ids -> ids.length <= MAX_LITERAL_IDS);
+    }
+
+}
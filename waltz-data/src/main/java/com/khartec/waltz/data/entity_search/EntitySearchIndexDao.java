@@ -0,0 +1,187 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_search;
+
+import com.khartec.waltz.common.StringUtilities;
+import com.khartec.waltz.data.application.ApplicationDao;
+import com.khartec.waltz.data.change_initiative.ChangeInitiativeDao;
+import com.khartec.waltz.data.data_type.DataTypeDao;
+import com.khartec.waltz.data.measurable.MeasurableDao;
+import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
+import com.khartec.waltz.data.person.PersonDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.ExternalIdProvider;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.schema.Tables.*;
+import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Loads the values held by the in-memory entity search index.  Each entry is
+ * a tuple of (entity reference, codes, aliases) where codes are the external
+ * identifiers of the entity (asset codes, employee ids, emails etc.).
+ *
+ * The entity references are built exactly as the corresponding domain objects
+ * would build them so that indexed and database searches give identical results.
+ */
+@Repository
+public class EntitySearchIndexDao {
+
+    public static final Set<EntityKind> SUPPORTED_KINDS = asSet(
+            EntityKind.APPLICATION,
+            EntityKind.CHANGE_INITIATIVE,
+            EntityKind.DATA_TYPE,
+            EntityKind.MEASURABLE,
+            EntityKind.ORG_UNIT,
+            EntityKind.PERSON);
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public EntitySearchIndexDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public List<Tuple3<EntityReference, List<String>, List<String>>> findAll(EntityKind kind) {
+        return find(kind, idField -> DSL.trueCondition());
+    }
+
+
+    public List<Tuple3<EntityReference, List<String>, List<String>>> findByIds(EntityKind kind,
+                                                                                Collection<Long> ids) {
+        checkNotNull(ids, "ids cannot be null");
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return find(kind, idField -> idField.in(ids));
+    }
+
+
+    // --- helpers
+
+    private List<Tuple3<EntityReference, List<String>, List<String>>> find(EntityKind kind,
+                                                                           Function<Field<Long>, Condition> idConditionFn) {
+        checkNotNull(kind, "kind cannot be null");
+
+        Map<Long, List<String>> aliasesById = dsl
+                .select(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS)
+                .from(ENTITY_ALIAS)
+                .where(ENTITY_ALIAS.KIND.eq(kind.name()))
+                .and(idConditionFn.apply(ENTITY_ALIAS.ID))
+                .fetchGroups(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS);
+
+        return findEntitiesWithCodes(kind, idConditionFn)
+                .map(t -> t.concat(aliasesById.getOrDefault(t.v1.id(), Collections.emptyList())))
+                .collect(toList());
+    }
+
+
+    private Stream<Tuple2<EntityReference, List<String>>> findEntitiesWithCodes(EntityKind kind,
+                                                                              Function<Field<Long>, Condition> idConditionFn) {
+        switch (kind) {
+            case APPLICATION:
+                return dsl
+                        .select(APPLICATION.fields())
+                        .from(APPLICATION)
+                        .where(idConditionFn.apply(APPLICATION.ID))
+                        .fetch(ApplicationDao.TO_DOMAIN_MAPPER)
+                        .stream()
+                        .map(d -> tuple(d.entityReference(), mkCodes(d)));
+            case CHANGE_INITIATIVE:
+                return dsl
+                        .select(CHANGE_INITIATIVE.fields())
+                        .from(CHANGE_INITIATIVE)
+                        .where(idConditionFn.apply(CHANGE_INITIATIVE.ID))
+                        .fetch(ChangeInitiativeDao.TO_DOMAIN_MAPPER)
+                        .stream()
+                        .map(d -> tuple(d.entityReference(), mkCodes(d)));
+            case DATA_TYPE:
+                return dsl
+                        .select(DATA_TYPE.fields())
+                        .from(DATA_TYPE)
+                        .where(idConditionFn.apply(DATA_TYPE.ID))
+                        .fetch(DataTypeDao.TO_DOMAIN)
+                        .stream()
+                        .map(d -> tuple(d.entityReference(), mkCodes(d.code())));
+            case MEASURABLE:
+                return dsl
+                        .select(MEASURABLE.fields())
+                        .from(MEASURABLE)
+                        .where(idConditionFn.apply(MEASURABLE.ID))
+                        .fetch(MeasurableDao.TO_DOMAIN_MAPPER)
+                        .stream()
+                        .map(d -> tuple(d.entityReference(), mkCodes(d)));
+            case ORG_UNIT:
+                return dsl
+                        .select(ORGANISATIONAL_UNIT.fields())
+                        .from(ORGANISATIONAL_UNIT)
+                        .where(idConditionFn.apply(ORGANISATIONAL_UNIT.ID))
+                        .fetch(OrganisationalUnitDao.TO_DOMAIN_MAPPER)
+                        .stream()
+                        .map(d -> tuple(d.entityReference(), mkCodes(d)));
+            case PERSON:
+                return dsl
+                        .select(PERSON.fields())
+                        .from(PERSON)
+                        .where(idConditionFn.apply(PERSON.ID))
+                        .fetch(PersonDao.personMapper)
+                        .stream()
+                        .map(d -> tuple(d.entityReference(), mkCodes(d.email(), d.employeeId())));
+            default:
+                throw new UnsupportedOperationException("Cannot index entities of kind: " + kind);
+        }
+    }
+
+
+    private static List<String> mkCodes(ExternalIdProvider d) {
+        return mkCodes(d.externalId().orElse(null));
+    }
+
+
+    private static List<String> mkCodes(String... codes) {
+        return Stream
+                .of(codes)
+                .filter(StringUtilities::notEmpty)
+                .collect(toList());
+    }
+
+}
@@ -0,0 +1,623 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_statistic;
+
+import com.khartec.waltz.data.SelectorUtilities;
+import com.khartec.waltz.data.orgunit.OrganisationalUnitIdSelectorFactory;
+import com.khartec.waltz.model.Duration;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.model.ImmutableIdSelectionOptions;
+import com.khartec.waltz.model.application.ApplicationKind;
+import com.khartec.waltz.model.entity_statistic.RollupKind;
+import com.khartec.waltz.model.tally.ImmutableTally;
+import com.khartec.waltz.model.tally.ImmutableTallyPack;
+import com.khartec.waltz.model.tally.Tally;
+import com.khartec.waltz.model.tally.TallyPack;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.common.SetUtilities.minus;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static com.khartec.waltz.schema.tables.EntityStatisticDefinition.ENTITY_STATISTIC_DEFINITION;
+import static com.khartec.waltz.schema.tables.EntityStatisticRollup.ENTITY_STATISTIC_ROLLUP;
+import static com.khartec.waltz.schema.tables.EntityStatisticRollupState.ENTITY_STATISTIC_ROLLUP_STATE;
+import static com.khartec.waltz.schema.tables.EntityStatisticValue.ENTITY_STATISTIC_VALUE;
+import static java.util.stream.Collectors.*;
+import static org.jooq.impl.DSL.*;
+
+
+/**
+ * Pre-aggregated entity statistic values, one cell per
+ * statistic × org unit × app lifecycle status × app kind × outcome × day × current.
+ *
+ * Cells are derived from application values only and are rebuilt a day at a time,
+ * the `entity_statistic_rollup_state` table records (per statistic) the id of the
+ * last value considered so that newly loaded values can be rolled up incrementally.
+ * It also records when the statistic was last rebuilt in full and when applications
+ * or org units last changed, as cells keyed by a since changed application must not
+ * be served until they have been rebuilt.
+ *
+ * Tallies for org unit based selectors can be served by summing cells, other
+ * selectors must be aggregated from the raw values (see `EntityStatisticSummaryDao`).
+ */
+@Repository
+public class EntityStatisticRollupDao {
+
+    private static final com.khartec.waltz.schema.tables.EntityStatisticValue esv = ENTITY_STATISTIC_VALUE.as("esv");
+
+    private static final DataType<BigDecimal> decimalValueDataType = SQLDataType.DECIMAL(38, 12);
+    private static final Field<Date> esvCreatedAtDate = cast(esv.CREATED_AT, Date.class);
+    private static final Field<Long> maxValueId = max(esv.ID).as("max_value_id");
+
+    private static final Field<BigDecimal> entityCountSum = sum(ENTITY_STATISTIC_ROLLUP.ENTITY_COUNT).as("entity_count");
+    private static final Field<BigDecimal> valueCountSum = sum(ENTITY_STATISTIC_ROLLUP.VALUE_COUNT).as("value_count");
+    private static final Field<BigDecimal> valueTotalSum = sum(ENTITY_STATISTIC_ROLLUP.VALUE_TOTAL).as("value_total");
+    private static final Field<Timestamp> maxCreatedAt = max(ENTITY_STATISTIC_ROLLUP.MAX_CREATED_AT).as("max_created_at");
+
+    private static final Set<String> NUMERIC_ROLLUP_KINDS = asSet(
+            RollupKind.SUM_BY_VALUE.name(),
+            RollupKind.AVG_BY_VALUE.name());
+
+    private static final Condition rebuiltSinceInvalidated = ENTITY_STATISTIC_ROLLUP_STATE.REBUILT_AT.isNotNull()
+            .and(ENTITY_STATISTIC_ROLLUP_STATE.INVALIDATED_AT.isNull()
+                    .or(ENTITY_STATISTIC_ROLLUP_STATE.INVALIDATED_AT.lt(ENTITY_STATISTIC_ROLLUP_STATE.REBUILT_AT)));
+
+    private static final OrganisationalUnitIdSelectorFactory orgUnitIdSelectorFactory = new OrganisationalUnitIdSelectorFactory();
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public EntityStatisticRollupDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * Cells are keyed by the org unit (and status/kind) of each application,
+     * therefore only org unit selections can be answered from the rollup.
+     */
+    public static boolean canServe(IdSelectionOptions options) {
+        return options.entityReference().kind() == EntityKind.ORG_UNIT;
+    }
+
+
+    // --- maintenance
+
+    public long getMaxValueId() {
+        Long maxId = dsl
+                .select(max(ENTITY_STATISTIC_VALUE.ID))
+                .from(ENTITY_STATISTIC_VALUE)
+                .fetchOne()
+                .value1();
+        return maxId == null ? 0 : maxId;
+    }
+
+
+    /**
+     * @return id of the last value rolled up, keyed by statistic id
+     */
+    public Map<Long, Long> findWatermarks() {
+        return dsl
+                .select(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID, ENTITY_STATISTIC_ROLLUP_STATE.MAX_VALUE_ID)
+                .from(ENTITY_STATISTIC_ROLLUP_STATE)
+                .fetchMap(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID, ENTITY_STATISTIC_ROLLUP_STATE.MAX_VALUE_ID);
+    }
+
+
+    /**
+     * @return ids of the statistics with values loaded after the given value id
+     */
+    public Set<Long> findStatisticIdsWithValuesAfter(long valueId) {
+        return dsl
+                .selectDistinct(esv.STATISTIC_ID)
+                .from(esv)
+                .where(esv.ID.gt(valueId))
+                .fetchSet(esv.STATISTIC_ID);
+    }
+
+
+    /**
+     * @return ids of the statistics which need a full rebuild as applications or
+     * org units have changed since they were last rebuilt
+     */
+    public Set<Long> findInvalidatedStatisticIds() {
+        return dsl
+                .select(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID)
+                .from(ENTITY_STATISTIC_ROLLUP_STATE)
+                .where(DSL.not(rebuiltSinceInvalidated))
+                .fetchSet(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID);
+    }
+
+
+    /**
+     * Of the given statistics returns those with an up to date rollup, i.e.
+     * those which have been rebuilt since `rebuiltAfter` (and not invalidated
+     * since) and have had no values loaded since they were last rolled up.
+     */
+    public Set<Long> findCurrentStatisticIds(Collection<Long> statisticIds, Timestamp rebuiltAfter) {
+        checkNotNull(statisticIds, "statisticIds cannot be null");
+        checkNotNull(rebuiltAfter, "rebuiltAfter cannot be null");
+
+        if (statisticIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Map<Long, Long> watermarks = dsl
+                .select(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID, ENTITY_STATISTIC_ROLLUP_STATE.MAX_VALUE_ID)
+                .from(ENTITY_STATISTIC_ROLLUP_STATE)
+                .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.in(statisticIds))
+                .and(rebuiltSinceInvalidated)
+                .and(ENTITY_STATISTIC_ROLLUP_STATE.REBUILT_AT.ge(rebuiltAfter))
+                .fetchMap(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID, ENTITY_STATISTIC_ROLLUP_STATE.MAX_VALUE_ID);
+
+        if (watermarks.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        // watermarks are advanced together so this is a short range scan over recently loaded values
+        long oldestWatermark = Collections.min(watermarks.values());
+
+        Map<Long, Long> latestValueIds = dsl
+                .select(esv.STATISTIC_ID, maxValueId)
+                .from(esv)
+                .where(esv.ID.gt(oldestWatermark))
+                .and(esv.STATISTIC_ID.in(watermarks.keySet()))
+                .groupBy(esv.STATISTIC_ID)
+                .fetchMap(esv.STATISTIC_ID, maxValueId);
+
+        return watermarks
+                .entrySet()
+                .stream()
+                .filter(e -> latestValueIds.getOrDefault(e.getKey(), e.getValue()) <= e.getValue())
+                .map(Map.Entry::getKey)
+                .collect(toSet());
+    }
+
+
+    /**
+     * Replaces all cells for the statistic and records `upToValueId` as its watermark.
+     * The rebuild time recorded is taken before the cells are read so that changes
+     * made while rebuilding leave the statistic invalidated.
+     * @return number of cells written
+     */
+    public int rebuildStatistic(long statisticId, long upToValueId) {
+        Timestamp rebuiltAt = nowUtcTimestamp();
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            int cells = replaceCells(tx, statisticId, DSL.trueCondition(), DSL.trueCondition());
+            recordWatermark(tx, statisticId, upToValueId);
+            tx.update(ENTITY_STATISTIC_ROLLUP_STATE)
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.REBUILT_AT, rebuiltAt)
+                    .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.eq(statisticId))
+                    .execute();
+            return cells;
+        });
+    }
+
+
+    /**
+     * Replaces the statistic's cells for each day with values loaded after
+     * `sinceValueId`.  The days holding `current` cells are also replaced as
+     * loading new values typically retires the previously current ones.
+     *
+     * @return number of cells written
+     */
+    public int refreshStatistic(long statisticId, long sinceValueId, long upToValueId) {
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            Set<Date> days = new HashSet<>(tx
+                    .selectDistinct(esvCreatedAtDate)
+                    .from(esv)
+                    .where(esv.ID.gt(sinceValueId))
+                    .and(esv.STATISTIC_ID.eq(statisticId))
+                    .fetchSet(esvCreatedAtDate));
+
+            if (! days.isEmpty()) {
+                days.addAll(tx
+                        .selectDistinct(ENTITY_STATISTIC_ROLLUP.VALUE_DATE)
+                        .from(ENTITY_STATISTIC_ROLLUP)
+                        .where(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID.eq(statisticId))
+                        .and(ENTITY_STATISTIC_ROLLUP.CURRENT.eq(true))
+                        .fetchSet(ENTITY_STATISTIC_ROLLUP.VALUE_DATE));
+            }
+
+            int cells = days.isEmpty()
+                    ? 0
+                    : replaceCells(
+                        tx,
+                        statisticId,
+                        ENTITY_STATISTIC_ROLLUP.VALUE_DATE.in(days),
+                        esvCreatedAtDate.in(days));
+
+            recordWatermark(tx, statisticId, upToValueId);
+            return cells;
+        });
+    }
+
+
+    /**
+     * Advances the watermark of statistics which have no new values to roll up
+     */
+    public int advanceWatermarks(Collection<Long> statisticIds, long upToValueId) {
+        checkNotNull(statisticIds, "statisticIds cannot be null");
+        return dsl
+                .update(ENTITY_STATISTIC_ROLLUP_STATE)
+                .set(ENTITY_STATISTIC_ROLLUP_STATE.MAX_VALUE_ID, upToValueId)
+                .set(ENTITY_STATISTIC_ROLLUP_STATE.REFRESHED_AT, nowUtcTimestamp())
+                .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.in(statisticIds))
+                .and(ENTITY_STATISTIC_ROLLUP_STATE.MAX_VALUE_ID.lt(upToValueId))
+                .execute();
+    }
+
+
+    /**
+     * Marks every statistic as invalidated so that tallies are aggregated from
+     * the raw values until the next refresh has rebuilt them.
+     * @return number of statistics invalidated
+     */
+    public int invalidateAll() {
+        return dsl
+                .update(ENTITY_STATISTIC_ROLLUP_STATE)
+                .set(ENTITY_STATISTIC_ROLLUP_STATE.INVALIDATED_AT, nowUtcTimestamp())
+                .execute();
+    }
+
+
+    /**
+     * Removes cells (and watermarks) for any statistic not in the given collection
+     */
+    public int removeStatisticsOtherThan(Collection<Long> statisticIds) {
+        checkNotNull(statisticIds, "statisticIds cannot be null");
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            tx.deleteFrom(ENTITY_STATISTIC_ROLLUP_STATE)
+                    .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.notIn(statisticIds))
+                    .execute();
+            return tx.deleteFrom(ENTITY_STATISTIC_ROLLUP)
+                    .where(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID.notIn(statisticIds))
+                    .execute();
+        });
+    }
+
+
+    // --- tallies
+
+    public List<TallyPack<String>> generateSummaries(Collection<Long> statisticIds,
+                                                     RollupKind rollupKind,
+                                                     IdSelectionOptions options) {
+        checkNotNull(statisticIds, "statisticIds cannot be null");
+        checkNotNull(rollupKind, "rollupKind cannot be null");
+        checkNotNull(options, "options cannot be null");
+
+        if (statisticIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, List<Record6<Long, String, BigDecimal, BigDecimal, BigDecimal, Timestamp>>> cellsByStatisticId = dsl
+                .select(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID,
+                        ENTITY_STATISTIC_ROLLUP.OUTCOME,
+                        entityCountSum,
+                        valueCountSum,
+                        valueTotalSum,
+                        maxCreatedAt)
+                .from(ENTITY_STATISTIC_ROLLUP)
+                .where(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID.in(statisticIds))
+                .and(ENTITY_STATISTIC_ROLLUP.CURRENT.eq(true))
+                .and(mkSelectionCondition(options))
+                .groupBy(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID, ENTITY_STATISTIC_ROLLUP.OUTCOME)
+                .fetch()
+                .stream()
+                .collect(groupingBy(r -> r.get(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID)));
+
+        return statisticIds
+                .stream()
+                .map(statisticId -> {
+                    List<Record6<Long, String, BigDecimal, BigDecimal, BigDecimal, Timestamp>> cells = cellsByStatisticId
+                            .getOrDefault(statisticId, Collections.emptyList());
+
+                    List<Tally<String>> tallies = cells
+                            .stream()
+                            .map(r -> mkTally(rollupKind, r))
+                            .collect(toList());
+
+                    return ImmutableTallyPack.<String>builder()
+                            .entityReference(EntityReference.mkRef(EntityKind.ENTITY_STATISTIC, statisticId))
+                            .tallies(tallies)
+                            .lastUpdatedAt(cells
+                                    .stream()
+                                    .map(r -> r.get(maxCreatedAt).toLocalDateTime())
+                                    .max(Comparable::compareTo)
+                                    .orElse(nowUtc()))
+                            .build();
+                })
+                .collect(toList());
+    }
+
+
+    /**
+     * As with `EntityStatisticSummaryDao` the history covers values created after
+     * `now - duration`.  Cells hold whole days, so the day containing that cut off
+     * is aggregated from the raw values (created after the cut off) and the
+     * following days are summed from the cells.
+     */
+    public List<TallyPack<String>> generateHistoricSummary(long statisticId,
+                                                           RollupKind rollupKind,
+                                                           IdSelectionOptions options,
+                                                           Duration duration) {
+        checkNotNull(rollupKind, "rollupKind cannot be null");
+        checkNotNull(options, "options cannot be null");
+        checkNotNull(duration, "duration cannot be null");
+
+        Map<LocalDate, List<Tally<String>>> talliesByDay = new LinkedHashMap<>();
+        Condition durationCondition = DSL.trueCondition();
+
+        if (duration != Duration.ALL) {
+            // inlined, as per EntityStatisticSummaryDao
+            Field<Timestamp> cutOff = currentTimestamp().minus(inline(duration.numDays()));
+            Field<Date> cutOffDay = cast(cutOff, Date.class);
+            durationCondition = ENTITY_STATISTIC_ROLLUP.VALUE_DATE.gt(cutOffDay);
+
+            Result<Record5<Date, String, BigDecimal, BigDecimal, BigDecimal>> cutOffDayValues = dsl
+                    .select(esvCreatedAtDate,
+                            esv.OUTCOME,
+                            cast(count(), decimalValueDataType).as(entityCountSum.getName()),
+                            cast(count(esv.VALUE), decimalValueDataType).as(valueCountSum.getName()),
+                            mkValueTotal(rollupKind.name()).as(valueTotalSum.getName()))
+                    .from(esv)
+                    .innerJoin(APPLICATION).on(APPLICATION.ID.eq(esv.ENTITY_ID))
+                    .where(esv.STATISTIC_ID.eq(statisticId))
+                    .and(esv.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                    .and(esv.CURRENT.eq(false))
+                    .and(esv.CREATED_AT.gt(cutOff))
+                    .and(esvCreatedAtDate.eq(cutOffDay))
+                    .and(mkApplicationSelectionCondition(options))
+                    .groupBy(esvCreatedAtDate, esv.OUTCOME)
+                    .fetch();
+
+            cutOffDayValues.forEach(r -> talliesByDay
+                    .computeIfAbsent(r.value1().toLocalDate(), d -> new ArrayList<>())
+                    .add(mkTally(rollupKind, r.value2(), r.value3(), r.value4(), r.value5())));
+        }
+
+        dsl
+                .select(ENTITY_STATISTIC_ROLLUP.VALUE_DATE,
+                        ENTITY_STATISTIC_ROLLUP.OUTCOME,
+                        entityCountSum,
+                        valueCountSum,
+                        valueTotalSum)
+                .from(ENTITY_STATISTIC_ROLLUP)
+                .where(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID.eq(statisticId))
+                .and(ENTITY_STATISTIC_ROLLUP.CURRENT.eq(false))
+                .and(mkSelectionCondition(options))
+                .and(durationCondition)
+                .groupBy(ENTITY_STATISTIC_ROLLUP.VALUE_DATE, ENTITY_STATISTIC_ROLLUP.OUTCOME)
+                .orderBy(ENTITY_STATISTIC_ROLLUP.VALUE_DATE.asc())
+                .fetch()
+                .forEach(r -> talliesByDay
+                        .computeIfAbsent(r.get(ENTITY_STATISTIC_ROLLUP.VALUE_DATE).toLocalDate(), d -> new ArrayList<>())
+                        .add(mkTally(rollupKind, r)));
+
+        return talliesByDay
+                .entrySet()
+                .stream()
+                .map(e -> ImmutableTallyPack.<String>builder()
+                        .entityReference(EntityReference.mkRef(EntityKind.ENTITY_STATISTIC, statisticId))
+                        .tallies(e.getValue())
+                        .lastUpdatedAt(e.getKey().atStartOfDay())
+                        .build())
+                .collect(toList());
+    }
+
+
+    // --- helpers
+
+    private static int replaceCells(DSLContext tx,
+                                    long statisticId,
+                                    Condition cellCondition,
+                                    Condition valueCondition) {
+
+        String rollupKind = tx
+                .select(ENTITY_STATISTIC_DEFINITION.ROLLUP_KIND)
+                .from(ENTITY_STATISTIC_DEFINITION)
+                .where(ENTITY_STATISTIC_DEFINITION.ID.eq(statisticId))
+                .fetchOne(ENTITY_STATISTIC_DEFINITION.ROLLUP_KIND);
+
+        Field<BigDecimal> valueTotal = mkValueTotal(rollupKind);
+
+        tx.deleteFrom(ENTITY_STATISTIC_ROLLUP)
+                .where(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID.eq(statisticId))
+                .and(cellCondition)
+                .execute();
+
+        SelectHavingStep<Record11<Long, Long, String, String, String, Date, Boolean, Integer, Integer, BigDecimal, Timestamp>> cells = DSL
+                .select(esv.STATISTIC_ID,
+                        APPLICATION.ORGANISATIONAL_UNIT_ID,
+                        APPLICATION.ENTITY_LIFECYCLE_STATUS,
+                        APPLICATION.KIND,
+                        esv.OUTCOME,
+                        esvCreatedAtDate,
+                        esv.CURRENT,
+                        count(),
+                        count(esv.VALUE),
+                        valueTotal,
+                        max(esv.CREATED_AT))
+                .from(esv)
+                .innerJoin(APPLICATION).on(APPLICATION.ID.eq(esv.ENTITY_ID))
+                .where(esv.STATISTIC_ID.eq(statisticId))
+                .and(esv.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                .and(valueCondition)
+                .groupBy(esv.STATISTIC_ID,
+                        APPLICATION.ORGANISATIONAL_UNIT_ID,
+                        APPLICATION.ENTITY_LIFECYCLE_STATUS,
+                        APPLICATION.KIND,
+                        esv.OUTCOME,
+                        esvCreatedAtDate,
+                        esv.CURRENT);
+
+        return tx
+                .insertInto(ENTITY_STATISTIC_ROLLUP)
+                .columns(ENTITY_STATISTIC_ROLLUP.STATISTIC_ID,
+                        ENTITY_STATISTIC_ROLLUP.ORG_UNIT_ID,
+                        ENTITY_STATISTIC_ROLLUP.ENTITY_LIFECYCLE_STATUS,
+                        ENTITY_STATISTIC_ROLLUP.APPLICATION_KIND,
+                        ENTITY_STATISTIC_ROLLUP.OUTCOME,
+                        ENTITY_STATISTIC_ROLLUP.VALUE_DATE,
+                        ENTITY_STATISTIC_ROLLUP.CURRENT,
+                        ENTITY_STATISTIC_ROLLUP.ENTITY_COUNT,
+                        ENTITY_STATISTIC_ROLLUP.VALUE_COUNT,
+                        ENTITY_STATISTIC_ROLLUP.VALUE_TOTAL,
+                        ENTITY_STATISTIC_ROLLUP.MAX_CREATED_AT)
+                .select(cells)
+                .execute();
+    }
+
+
+    private static Field<BigDecimal> mkValueTotal(String rollupKind) {
+        // only attempt to interpret values as numbers when the statistic is summed or averaged
+        return NUMERIC_ROLLUP_KINDS.contains(rollupKind)
+                ? sum(cast(esv.VALUE, decimalValueDataType))
+                : castNull(decimalValueDataType);
+    }
+
+
+    private static void recordWatermark(DSLContext tx, long statisticId, long upToValueId) {
+        Timestamp now = nowUtcTimestamp();
+
+        int updated = tx
+                .update(ENTITY_STATISTIC_ROLLUP_STATE)
+                .set(ENTITY_STATISTIC_ROLLUP_STATE.MAX_VALUE_ID, upToValueId)
+                .set(ENTITY_STATISTIC_ROLLUP_STATE.REFRESHED_AT, now)
+                .where(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID.eq(statisticId))
+                .execute();
+
+        if (updated == 0) {
+            tx.insertInto(ENTITY_STATISTIC_ROLLUP_STATE)
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.STATISTIC_ID, statisticId)
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.MAX_VALUE_ID, upToValueId)
+                    .set(ENTITY_STATISTIC_ROLLUP_STATE.REFRESHED_AT, now)
+                    .execute();
+        }
+    }
+
+
+    /**
+     * As `mkSelectionCondition` but against the application table, for reading raw values
+     */
+    private static Condition mkApplicationSelectionCondition(IdSelectionOptions options) {
+        IdSelectionOptions orgUnitOptions = ImmutableIdSelectionOptions.builder()
+                .entityReference(options.entityReference())
+                .scope(options.scope())
+                .build();
+
+        return APPLICATION.ORGANISATIONAL_UNIT_ID.in(orgUnitIdSelectorFactory.apply(orgUnitOptions))
+                .and(SelectorUtilities.mkApplicationConditions(options));
+    }
+
+
+    /**
+     * Mirrors the conditions applied by the application selector for org units
+     */
+    private static Condition mkSelectionCondition(IdSelectionOptions options) {
+        IdSelectionOptions orgUnitOptions = ImmutableIdSelectionOptions.builder()
+                .entityReference(options.entityReference())
+                .scope(options.scope())
+                .build();
+
+        Condition condition = ENTITY_STATISTIC_ROLLUP.ORG_UNIT_ID.in(orgUnitIdSelectorFactory.apply(orgUnitOptions))
+                .and(ENTITY_STATISTIC_ROLLUP.ENTITY_LIFECYCLE_STATUS.in(options.entityLifecycleStatuses()));
+
+        if (options.filters().omitApplicationKinds().isEmpty()) {
+            return condition;
+        } else {
+            Set<ApplicationKind> applicationKinds = minus(
+                    asSet(ApplicationKind.values()),
+                    options.filters().omitApplicationKinds());
+
+            return condition.and(ENTITY_STATISTIC_ROLLUP.APPLICATION_KIND.in(applicationKinds));
+        }
+    }
+
+
+    private static Tally<String> mkTally(RollupKind rollupKind, Record r) {
+        return mkTally(
+                rollupKind,
+                r.get(ENTITY_STATISTIC_ROLLUP.OUTCOME),
+                r.get(entityCountSum),
+                r.get(valueCountSum),
+                r.get(valueTotalSum));
+    }
+
+
+    private static Tally<String> mkTally(RollupKind rollupKind,
+                                         String outcome,
+                                         BigDecimal entityCount,
+                                         BigDecimal valueCount,
+                                         BigDecimal valueTotal) {
+        double count;
+        switch (rollupKind) {
+            case COUNT_BY_ENTITY:
+                count = entityCount.doubleValue();
+                break;
+            case SUM_BY_VALUE:
+                count = valueTotal == null
+                        ? 0
+                        : valueTotal.setScale(2, RoundingMode.HALF_UP).doubleValue();
+                break;
+            case AVG_BY_VALUE:
+                count = valueTotal == null || valueCount.signum() == 0
+                        ? 0
+                        : valueTotal.divide(valueCount, 2, RoundingMode.HALF_UP).doubleValue();
+                break;
+            default:
+                throw new UnsupportedOperationException(String.format("Rollup kind [%s] not supported.", rollupKind));
+        }
+
+        return ImmutableTally.<String>builder()
+                .id(outcome)
+                .count(count)
+                .build();
+    }
+
+}
@@ -145,7 +145,7 @@ public class EntityStatisticSummaryDao {
         }
 
         List<Future<TallyPack<String>>> summaryFutures = statisticIds.stream()
-                .map(statId -> dbExecutorPool.submit(() ->
+                .map(statId -> dbExecutorPool.submitBatch(() ->
                         generateWithNoRollup(statId, entityReference)))
                 .collect(toList());
 
@@ -283,7 +283,7 @@ public class EntityStatisticSummaryDao {
         }
 
         List<Future<TallyPack<String>>> summaryFutures = statisticIds.stream()
-                .map(statId -> dbExecutorPool.submit(() ->
+                .map(statId -> dbExecutorPool.submitBatch(() ->
                         generateSummary(statId, appIdSelector, aggregateField, toTally)))
                 .collect(toList());
 
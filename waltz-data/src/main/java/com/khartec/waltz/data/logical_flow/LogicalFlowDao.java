@@ -18,6 +18,7 @@
 
 package com.khartec.waltz.data.logical_flow;
 
+import com.khartec.waltz.data.EntityNameDictionary;
 import com.khartec.waltz.data.InlineSelectFieldFactory;
 import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlow;
@@ -36,6 +37,7 @@ import java.sql.Timestamp;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.map;
@@ -59,6 +61,8 @@ public class LogicalFlowDao {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogicalFlowDao.class);
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private static final Field<String> SOURCE_NAME_FIELD = InlineSelectFieldFactory.mkNameField(
             LOGICAL_FLOW.SOURCE_ENTITY_ID,
             LOGICAL_FLOW.SOURCE_ENTITY_KIND,
@@ -79,12 +83,12 @@ public class LogicalFlowDao {
                 .source(ImmutableEntityReference.builder()
                         .kind(EntityKind.valueOf(record.getSourceEntityKind()))
                         .id(record.getSourceEntityId())
-                        .name(ofNullable(r.getValue(SOURCE_NAME_FIELD)))
+                        .name(readName(r, SOURCE_NAME_FIELD))
                         .build())
                 .target(ImmutableEntityReference.builder()
                         .kind(EntityKind.valueOf(record.getTargetEntityKind()))
                         .id(record.getTargetEntityId())
-                        .name(ofNullable(r.getValue(TARGET_NAME_FIELD)))
+                        .name(readName(r, TARGET_NAME_FIELD))
                         .build())
                 .entityLifecycleStatus(readEnum(record.getEntityLifecycleStatus(), EntityLifecycleStatus.class, s -> EntityLifecycleStatus.ACTIVE))
                 .lastUpdatedBy(record.getLastUpdatedBy())
@@ -126,20 +130,24 @@ public class LogicalFlowDao {
     public static final Condition SPEC_NOT_REMOVED = PHYSICAL_SPECIFICATION.IS_REMOVED.isFalse();
 
     private final DSLContext dsl;
+    private final EntityNameDictionary nameDictionary;
 
 
     @Autowired
-    public LogicalFlowDao(DSLContext dsl) {
+    public LogicalFlowDao(DSLContext dsl,
+                          EntityNameDictionary nameDictionary) {
         checkNotNull(dsl, "dsl must not be null");
+        checkNotNull(nameDictionary, "nameDictionary must not be null");
         this.dsl = dsl;
+        this.nameDictionary = nameDictionary;
     }
 
 
     public List<LogicalFlow> findByEntityReference(EntityReference ref) {
-        return baseQuery()
+        return withNames(listingQuery()
                 .where(isSourceOrTargetCondition(ref))
                 .and(LOGICAL_NOT_REMOVED)
-                .fetch(TO_DOMAIN_MAPPER);
+                .fetch(TO_DOMAIN_MAPPER));
     }
 
 
@@ -184,11 +192,30 @@ public class LogicalFlowDao {
                         .and(LOGICAL_FLOW.TARGET_ENTITY_ID.in(map(entry.getValue(), ref -> ref.id()))))
                 .collect(Collectors.reducing(DSL.falseCondition(), (acc, c) -> acc.or(c)));
 
-        return baseQuery()
+        return withNames(listingQuery()
                 .where(anyTargetMatches)
                 .and(LogicalFlowDao.LOGICAL_NOT_REMOVED)
                 .fetch()
-                .map(TO_DOMAIN_MAPPER);
+                .map(TO_DOMAIN_MAPPER));
+    }
+
+
+    public Collection<LogicalFlow> findDownstreamFlowsForEntityReferences(List<EntityReference> references) {
+
+        Map<EntityKind, Collection<EntityReference>> refsByKind = groupBy(ref -> ref.kind(), references);
+
+        Condition anySourceMatches = refsByKind
+                .entrySet()
+                .stream()
+                .map(entry -> LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(entry.getKey().name())
+                        .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(map(entry.getValue(), ref -> ref.id()))))
+                .collect(Collectors.reducing(DSL.falseCondition(), (acc, c) -> acc.or(c)));
+
+        return withNames(listingQuery()
+                .where(anySourceMatches)
+                .and(LogicalFlowDao.LOGICAL_NOT_REMOVED)
+                .fetch()
+                .map(TO_DOMAIN_MAPPER));
     }
 
 
@@ -299,9 +326,9 @@ public class LogicalFlowDao {
 
 
     public List<LogicalFlow> findAllActive() {
-        return baseQuery()
+        return withNames(listingQuery()
                 .where(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.eq(EntityLifecycleStatus.ACTIVE.name()))
-                .fetch(TO_DOMAIN_MAPPER);
+                .fetch(TO_DOMAIN_MAPPER));
     }
 
 
@@ -316,9 +343,23 @@ public class LogicalFlowDao {
 
 
     public List<LogicalFlow> findBySelector(Select<Record1<Long>> flowIdSelector) {
+        return withNames(listingQuery()
+                .where(LOGICAL_FLOW.ID.in(flowIdSelector))
+                .fetch(TO_DOMAIN_MAPPER));
+    }
+
+
+    /**
+     * Lazy equivalent of {@link #findBySelector(Select)}, rows are mapped as they
+     * are read from the cursor.  The caller must close the stream to release the
+     * underlying connection.
+     */
+    public Stream<LogicalFlow> streamBySelector(Select<Record1<Long>> flowIdSelector) {
         return baseQuery()
                 .where(LOGICAL_FLOW.ID.in(flowIdSelector))
-                .fetch(TO_DOMAIN_MAPPER);
+                .fetchSize(STREAM_FETCH_SIZE)
+                .fetchStream()
+                .map(TO_DOMAIN_MAPPER::map);
     }
 
 
@@ -405,11 +446,50 @@ public class LogicalFlowDao {
     }
 
 
+    /**
+     * Query for potentially large result sets.  If the entity name dictionary is
+     * enabled the source and target names are not selected, the results should be
+     * passed through `withNames` to populate them.
+     */
+    private SelectJoinStep<Record> listingQuery() {
+        return nameDictionary.isEnabled()
+                ? dsl.select(LOGICAL_FLOW.fields()).from(LOGICAL_FLOW)
+                : baseQuery();
+    }
+
+
+    private List<LogicalFlow> withNames(List<LogicalFlow> flows) {
+        if (! nameDictionary.isEnabled()) {
+            return flows;
+        }
+
+        nameDictionary.prime(flows
+                .stream()
+                .flatMap(f -> Stream.of(f.source(), f.target()))
+                .collect(toList()));
+
+        return flows
+                .stream()
+                .map(f -> ImmutableLogicalFlow
+                        .copyOf(f)
+                        .withSource(nameDictionary.enrich(f.source()))
+                        .withTarget(nameDictionary.enrich(f.target())))
+                .collect(toList());
+    }
+
+
+    private static Optional<String> readName(Record r, Field<String> nameField) {
+        return r.field(nameField) == null
+                ? Optional.empty()
+                : ofNullable(r.getValue(nameField));
+    }
+
+
     private List<LogicalFlow> findByFlowIdsWithCondition(Collection<Long> dataFlowIds, Condition condition) {
-        return baseQuery()
+        return withNames(listingQuery()
                 .where(LOGICAL_FLOW.ID.in(dataFlowIds))
                 .and(condition)
-                .fetch(TO_DOMAIN_MAPPER);
+                .fetch(TO_DOMAIN_MAPPER));
     }
 
 
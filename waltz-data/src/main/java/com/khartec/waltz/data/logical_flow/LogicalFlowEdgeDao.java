@@ -0,0 +1,141 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.logical_flow;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlowEdge;
+import com.khartec.waltz.model.logical_flow.LogicalFlowEdge;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.MapUtilities.groupBy;
+import static com.khartec.waltz.common.SetUtilities.map;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
+import static com.khartec.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Loads the active logical flows, with their data type decorations, in the
+ * compact form needed to build the in-memory flow graph.
+ */
+@Repository
+public class LogicalFlowEdgeDao {
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public LogicalFlowEdgeDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public List<LogicalFlowEdge> findAll() {
+        return findByCondition(DSL.trueCondition());
+    }
+
+
+    /**
+     * @return active flows which have any of the given entities as their source or target
+     */
+    public List<LogicalFlowEdge> findByEntityReferences(Collection<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+
+        if (refs.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Condition anyEndMatches = groupBy(EntityReference::kind, refs)
+                .entrySet()
+                .stream()
+                .map(e -> {
+                    Set<Long> ids = map(e.getValue(), EntityReference::id);
+                    return LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(e.getKey().name())
+                            .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(ids))
+                            .or(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(e.getKey().name())
+                                    .and(LOGICAL_FLOW.TARGET_ENTITY_ID.in(ids)));
+                })
+                .reduce(DSL.falseCondition(), Condition::or);
+
+        return findByCondition(anyEndMatches);
+    }
+
+
+    /**
+     * Resolves an application selector to the ids of existing applications
+     */
+    public Set<Long> findApplicationIds(Select<Record1<Long>> appIdSelector) {
+        checkNotNull(appIdSelector, "appIdSelector cannot be null");
+
+        return dsl
+                .select(APPLICATION.ID)
+                .from(APPLICATION)
+                .where(APPLICATION.ID.in(appIdSelector))
+                .fetchSet(APPLICATION.ID);
+    }
+
+
+    // --- helpers
+
+    private List<LogicalFlowEdge> findByCondition(Condition condition) {
+        Condition flowCondition = condition.and(LogicalFlowDao.LOGICAL_NOT_REMOVED);
+
+        Map<Long, List<Long>> dataTypeIdsByFlowId = dsl
+                .select(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .innerJoin(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
+                .where(dsl.renderInlined(flowCondition))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
+                .fetchGroups(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID);
+
+        return dsl
+                .select(LOGICAL_FLOW.ID,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID)
+                .from(LOGICAL_FLOW)
+                .where(dsl.renderInlined(flowCondition))
+                .fetch()
+                .stream()
+                .map(r -> ImmutableLogicalFlowEdge
+                        .builder()
+                        .flowId(r.get(LOGICAL_FLOW.ID))
+                        .source(mkRef(
+                                EntityKind.valueOf(r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND)),
+                                r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID)))
+                        .target(mkRef(
+                                EntityKind.valueOf(r.get(LOGICAL_FLOW.TARGET_ENTITY_KIND)),
+                                r.get(LOGICAL_FLOW.TARGET_ENTITY_ID)))
+                        .dataTypeIds(dataTypeIdsByFlowId.getOrDefault(r.get(LOGICAL_FLOW.ID), Collections.emptyList()))
+                        .build())
+                .collect(toList());
+    }
+
+}
@@ -21,6 +21,7 @@ package com.khartec.waltz.data.measurable;
 
 import com.khartec.waltz.data.IdSelectorFactory;
 import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.entity_hierarchy.AbstractIdSelectorFactory;
 import com.khartec.waltz.data.orgunit.OrganisationalUnitIdSelectorFactory;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.HierarchyQueryScope;
@@ -164,6 +165,7 @@ public class MeasurableIdSelectorFactory implements IdSelectorFactory {
                 .from(MEASURABLE_RATING)
                 .where(MEASURABLE_RATING.ENTITY_ID.in(validAppIdsInGroup));
 
+        // ancestors of a set of measurables (see `mkBaseRatingBasedSelector`)
         return DSL
                 .selectDistinct(ENTITY_HIERARCHY.ANCESTOR_ID)
                 .from(ENTITY_HIERARCHY)
@@ -189,6 +191,7 @@ public class MeasurableIdSelectorFactory implements IdSelectorFactory {
                 .where(MEASURABLE_RATING.ENTITY_ID.eq(options.entityReference().id())
                         .and(MEASURABLE_RATING.ENTITY_KIND.eq(options.entityReference().kind().name())));
 
+        // ancestors of a set of measurables (see `mkBaseRatingBasedSelector`)
         return DSL
                 .selectDistinct(MEASURABLE.ID)
                 .from(MEASURABLE)
@@ -223,6 +226,10 @@ public class MeasurableIdSelectorFactory implements IdSelectorFactory {
      * Returns ID's of all measurables (and their parents) related to a base set
      * of ids provided by joining to MEASURE_RATING.  Use this by adding on additional
      * joins or restrictions over the MEASURE_RATING table.
+     *
+     * The rated measurables are only known to the database, so unlike the single
+     * id lookups in `AbstractIdSelectorFactory` their ancestors cannot be emitted
+     * from the resident hierarchy index and the `ENTITY_HIERARCHY` join remains.
      */
     private SelectOnConditionStep<Record1<Long>> mkBaseRatingBasedSelector() {
         return DSL
@@ -238,27 +245,7 @@ public class MeasurableIdSelectorFactory implements IdSelectorFactory {
 
 
     private Select<Record1<Long>> mkForMeasurable(IdSelectionOptions options) {
-        Select<Record1<Long>> selector = null;
-        final Condition isMeasurable = ENTITY_HIERARCHY.KIND.eq(EntityKind.MEASURABLE.name());
-        switch (options.scope()) {
-            case EXACT:
-                selector = DSL.select(DSL.val(options.entityReference().id()));
-                break;
-            case CHILDREN:
-                selector = DSL.select(ENTITY_HIERARCHY.ID)
-                        .from(ENTITY_HIERARCHY)
-                        .where(ENTITY_HIERARCHY.ANCESTOR_ID.eq(options.entityReference().id()))
-                        .and(isMeasurable);
-                break;
-            case PARENTS:
-                selector = DSL.select(ENTITY_HIERARCHY.ANCESTOR_ID)
-                        .from(ENTITY_HIERARCHY)
-                        .where(ENTITY_HIERARCHY.ID.eq(options.entityReference().id()))
-                        .and(isMeasurable);
-                break;
-        }
-
-        return selector;
+        return AbstractIdSelectorFactory.mkForHierarchy(EntityKind.MEASURABLE, options);
     }
 
 }
@@ -0,0 +1,529 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.physical_flow;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.physical_flow.PhysicalFlow;
+import com.khartec.waltz.model.physical_flow.PhysicalFlowParsed;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import com.khartec.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
+import com.khartec.waltz.schema.tables.records.LogicalFlowRecord;
+import com.khartec.waltz.schema.tables.records.PhysicalFlowRecord;
+import com.khartec.waltz.schema.tables.records.PhysicalSpecDataTypeRecord;
+import com.khartec.waltz.schema.tables.records.PhysicalSpecificationRecord;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.jooq.lambda.tuple.Tuple6;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.function.Function;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.data.physical_flow.PhysicalFlowDao.PHYSICAL_FLOW_NOT_REMOVED;
+import static com.khartec.waltz.data.physical_specification.PhysicalSpecificationDao.PHYSICAL_SPEC_NOT_REMOVED;
+import static com.khartec.waltz.model.EntityLifecycleStatus.ACTIVE;
+import static com.khartec.waltz.model.EntityLifecycleStatus.REMOVED;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
+import static com.khartec.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
+import static com.khartec.waltz.schema.tables.PhysicalFlow.PHYSICAL_FLOW;
+import static com.khartec.waltz.schema.tables.PhysicalSpecDataType.PHYSICAL_SPEC_DATA_TYPE;
+import static com.khartec.waltz.schema.tables.PhysicalSpecification.PHYSICAL_SPECIFICATION;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Set based persistence for bulk physical flow uploads.
+ *
+ * Rather than resolving each uploaded row with its own queries, existing logical flows,
+ * specifications, data types and physical flows are looked up in bulk by their natural
+ * keys.  Anything missing is batch inserted and the keys re-read to obtain the new ids.
+ */
+@Repository
+public class PhysicalFlowUploadDao {
+
+    /**
+     * Upper bound on the number of ids in a single `in` clause
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public PhysicalFlowUploadDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * Finds existing (active) physical flows which match the parsed flows.  A match
+     * requires the same source and target, a specification with the same owner, format
+     * and name (which has the data type) and the same flow attributes.
+     *
+     * @param flows  parsed flows, typically from a validated upload
+     * @return existing physical flows keyed by the parsed flow they match
+     */
+    public Map<PhysicalFlowParsed, PhysicalFlow> findByParsedFlows(Collection<PhysicalFlowParsed> flows) {
+        checkNotNull(flows, "flows cannot be null");
+
+        Map<Tuple2<EntityReference, EntityReference>, Long> logicalFlowIds = new HashMap<>();
+        loadLogicalFlows(dsl, flows).forEach((k, v) -> {
+            if (! v.v2) {
+                logicalFlowIds.put(k, v.v1);
+            }
+        });
+
+        Map<Tuple3<EntityReference, String, String>, Long> specIds = loadSpecifications(dsl, flows);
+        Set<Tuple2<Long, Long>> specDataTypes = loadSpecDataTypes(dsl, specIds.values());
+        Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlow> physicalFlows = loadPhysicalFlows(dsl, logicalFlowIds.values());
+
+        Map<PhysicalFlowParsed, PhysicalFlow> result = new HashMap<>();
+        flows.forEach(f -> {
+            Long logicalFlowId = logicalFlowIds.get(mkLogicalKey(f));
+            Long specId = specIds.get(mkSpecKey(f));
+            if (logicalFlowId == null
+                    || specId == null
+                    || ! specDataTypes.contains(tuple(specId, f.dataType().id()))) {
+                return;
+            }
+            PhysicalFlow existing = physicalFlows.get(mkPhysicalKey(logicalFlowId, specId, f));
+            if (existing != null) {
+                result.put(f, existing);
+            }
+        });
+
+        return result;
+    }
+
+
+    /**
+     * Ensures logical flows, specifications, data type associations and physical flows
+     * exist for all of the given parsed flows, within a single transaction.  Removed
+     * logical flows are restored rather than duplicated.
+     *
+     * Logical flow data types are added with a rating of `NO_OPINION`, callers should
+     * recalculate ratings as required.
+     *
+     * @param flows  parsed (and validated) flows
+     * @param username  user performing the upload
+     * @return physical flows, in the same order as the given parsed flows
+     */
+    public List<PhysicalFlow> upload(List<PhysicalFlowParsed> flows, String username) {
+        checkNotNull(flows, "flows cannot be null");
+        checkNotNull(username, "username cannot be null");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            Timestamp now = Timestamp.valueOf(nowUtc());
+
+            Map<Tuple2<EntityReference, EntityReference>, Long> logicalFlowIds = ensureLogicalFlows(tx, flows, username, now);
+            ensureLogicalFlowDataTypes(tx, flows, logicalFlowIds, username, now);
+
+            Map<Tuple3<EntityReference, String, String>, Long> specIds = ensureSpecifications(tx, flows, username, now);
+            ensureSpecDataTypes(tx, flows, specIds, username, now);
+
+            Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlow> physicalFlows = ensurePhysicalFlows(
+                    tx,
+                    flows,
+                    logicalFlowIds,
+                    specIds,
+                    username,
+                    now);
+
+            List<PhysicalFlow> result = new ArrayList<>(flows.size());
+            flows.forEach(f -> result.add(physicalFlows.get(mkPhysicalKey(
+                    logicalFlowIds.get(mkLogicalKey(f)),
+                    specIds.get(mkSpecKey(f)),
+                    f))));
+            return result;
+        });
+    }
+
+
+    // -- logical flows
+
+    private Map<Tuple2<EntityReference, EntityReference>, Long> ensureLogicalFlows(DSLContext tx,
+                                                                                  List<PhysicalFlowParsed> flows,
+                                                                                  String username,
+                                                                                  Timestamp now) {
+        Map<Tuple2<EntityReference, EntityReference>, Tuple2<Long, Boolean>> existing = loadLogicalFlows(tx, flows);
+
+        List<Long> idsToRestore = new ArrayList<>();
+        existing.values().forEach(t -> {
+            if (t.v2) {
+                idsToRestore.add(t.v1);
+            }
+        });
+
+        chunk(idsToRestore).forEach(ids -> tx
+                .update(LOGICAL_FLOW)
+                .set(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS, ACTIVE.name())
+                .set(LOGICAL_FLOW.IS_REMOVED, false)
+                .set(LOGICAL_FLOW.LAST_UPDATED_BY, username)
+                .set(LOGICAL_FLOW.LAST_UPDATED_AT, now)
+                .where(LOGICAL_FLOW.ID.in(ids))
+                .execute());
+
+        Map<Tuple2<EntityReference, EntityReference>, LogicalFlowRecord> toInsert = new LinkedHashMap<>();
+        flows.forEach(f -> {
+            Tuple2<EntityReference, EntityReference> key = mkLogicalKey(f);
+            if (! existing.containsKey(key) && ! toInsert.containsKey(key)) {
+                LogicalFlowRecord record = tx.newRecord(LOGICAL_FLOW);
+                record.setSourceEntityKind(key.v1.kind().name());
+                record.setSourceEntityId(key.v1.id());
+                record.setTargetEntityKind(key.v2.kind().name());
+                record.setTargetEntityId(key.v2.id());
+                record.setEntityLifecycleStatus(ACTIVE.name());
+                record.setIsRemoved(false);
+                record.setIsReadonly(false);
+                record.setProvenance("waltz");
+                record.setLastUpdatedBy(username);
+                record.setLastUpdatedAt(now);
+                record.setCreatedBy(username);
+                record.setCreatedAt(now);
+                toInsert.put(key, record);
+            }
+        });
+
+        if (toInsert.isEmpty()) {
+            return mapValues(existing, t -> t.v1);
+        }
+
+        tx.batchInsert(toInsert.values()).execute();
+        return mapValues(loadLogicalFlows(tx, flows), t -> t.v1);
+    }
+
+
+    /**
+     * @return (id, isRemoved) keyed by (source, target), active flows are preferred over removed ones
+     */
+    private Map<Tuple2<EntityReference, EntityReference>, Tuple2<Long, Boolean>> loadLogicalFlows(DSLContext ctx,
+                                                                                                 Collection<PhysicalFlowParsed> flows) {
+        Set<Tuple2<EntityReference, EntityReference>> wanted = new HashSet<>();
+        Set<Long> sourceIds = new HashSet<>();
+        flows.forEach(f -> {
+            wanted.add(mkLogicalKey(f));
+            sourceIds.add(f.source().id());
+        });
+
+        Map<Tuple2<EntityReference, EntityReference>, Tuple2<Long, Boolean>> result = new HashMap<>();
+        chunk(sourceIds).forEach(ids -> ctx
+                .select(LOGICAL_FLOW.ID,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID,
+                        LOGICAL_FLOW.IS_REMOVED,
+                        LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(ids))
+                .forEach(r -> {
+                    Tuple2<EntityReference, EntityReference> key = tuple(
+                            mkRef(EntityKind.valueOf(r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND)), r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID)),
+                            mkRef(EntityKind.valueOf(r.get(LOGICAL_FLOW.TARGET_ENTITY_KIND)), r.get(LOGICAL_FLOW.TARGET_ENTITY_ID)));
+                    if (! wanted.contains(key)) {
+                        return;
+                    }
+                    boolean removed = r.get(LOGICAL_FLOW.IS_REMOVED)
+                            || REMOVED.name().equals(r.get(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS));
+                    Tuple2<Long, Boolean> current = result.get(key);
+                    if (current == null || (current.v2 && ! removed)) {
+                        result.put(key, tuple(r.get(LOGICAL_FLOW.ID), removed));
+                    }
+                }));
+
+        return result;
+    }
+
+
+    private void ensureLogicalFlowDataTypes(DSLContext tx,
+                                            List<PhysicalFlowParsed> flows,
+                                            Map<Tuple2<EntityReference, EntityReference>, Long> logicalFlowIds,
+                                            String username,
+                                            Timestamp now) {
+        Set<Tuple2<Long, Long>> existing = new HashSet<>();
+        chunk(logicalFlowIds.values()).forEach(ids -> tx
+                .select(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
+                .and(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.in(ids))
+                .forEach(r -> existing.add(tuple(r.value1(), r.value2()))));
+
+        List<LogicalFlowDecoratorRecord> toInsert = new ArrayList<>();
+        flows.forEach(f -> {
+            Tuple2<Long, Long> key = tuple(logicalFlowIds.get(mkLogicalKey(f)), f.dataType().id());
+            if (existing.add(key)) {
+                LogicalFlowDecoratorRecord record = tx.newRecord(LOGICAL_FLOW_DECORATOR);
+                record.setLogicalFlowId(key.v1);
+                record.setDecoratorEntityKind(EntityKind.DATA_TYPE.name());
+                record.setDecoratorEntityId(key.v2);
+                record.setRating(AuthoritativenessRating.NO_OPINION.name());
+                record.setProvenance("waltz");
+                record.setLastUpdatedBy(username);
+                record.setLastUpdatedAt(now);
+                record.setIsReadonly(false);
+                toInsert.add(record);
+            }
+        });
+
+        if (! toInsert.isEmpty()) {
+            tx.batchInsert(toInsert).execute();
+        }
+    }
+
+
+    // -- specifications
+
+    private Map<Tuple3<EntityReference, String, String>, Long> ensureSpecifications(DSLContext tx,
+                                                                                   List<PhysicalFlowParsed> flows,
+                                                                                   String username,
+                                                                                   Timestamp now) {
+        Map<Tuple3<EntityReference, String, String>, Long> existing = loadSpecifications(tx, flows);
+
+        Map<Tuple3<EntityReference, String, String>, PhysicalSpecificationRecord> toInsert = new LinkedHashMap<>();
+        flows.forEach(f -> {
+            Tuple3<EntityReference, String, String> key = mkSpecKey(f);
+            if (! existing.containsKey(key) && ! toInsert.containsKey(key)) {
+                PhysicalSpecificationRecord record = tx.newRecord(PHYSICAL_SPECIFICATION);
+                record.setOwningEntityKind(key.v1.kind().name());
+                record.setOwningEntityId(key.v1.id());
+                record.setFormat(key.v2);
+                record.setName(key.v3);
+                record.setExternalId(Optional.ofNullable(f.specExternalId()).orElse(""));
+                record.setDescription(Optional.ofNullable(f.specDescription()).orElse(""));
+                record.setIsRemoved(false);
+                record.setProvenance("waltz");
+                record.setLastUpdatedBy(username);
+                record.setLastUpdatedAt(now);
+                record.setCreatedBy(username);
+                record.setCreatedAt(now);
+                toInsert.put(key, record);
+            }
+        });
+
+        if (toInsert.isEmpty()) {
+            return existing;
+        }
+
+        tx.batchInsert(toInsert.values()).execute();
+        return loadSpecifications(tx, flows);
+    }
+
+
+    /**
+     * @return ids of active specifications keyed by (owner, format, name)
+     */
+    private Map<Tuple3<EntityReference, String, String>, Long> loadSpecifications(DSLContext ctx,
+                                                                                 Collection<PhysicalFlowParsed> flows) {
+        Set<Tuple3<EntityReference, String, String>> wanted = new HashSet<>();
+        Set<Long> ownerIds = new HashSet<>();
+        flows.forEach(f -> {
+            wanted.add(mkSpecKey(f));
+            ownerIds.add(f.owner().id());
+        });
+
+        Map<Tuple3<EntityReference, String, String>, Long> result = new HashMap<>();
+        chunk(ownerIds).forEach(ids -> ctx
+                .select(PHYSICAL_SPECIFICATION.ID,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+                        PHYSICAL_SPECIFICATION.FORMAT,
+                        PHYSICAL_SPECIFICATION.NAME)
+                .from(PHYSICAL_SPECIFICATION)
+                .where(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID.in(ids))
+                .and(PHYSICAL_SPEC_NOT_REMOVED)
+                .forEach(r -> {
+                    Tuple3<EntityReference, String, String> key = tuple(
+                            mkRef(EntityKind.valueOf(r.get(PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND)), r.get(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID)),
+                            r.get(PHYSICAL_SPECIFICATION.FORMAT),
+                            r.get(PHYSICAL_SPECIFICATION.NAME));
+                    if (wanted.contains(key)) {
+                        result.putIfAbsent(key, r.get(PHYSICAL_SPECIFICATION.ID));
+                    }
+                }));
+
+        return result;
+    }
+
+
+    private void ensureSpecDataTypes(DSLContext tx,
+                                     List<PhysicalFlowParsed> flows,
+                                     Map<Tuple3<EntityReference, String, String>, Long> specIds,
+                                     String username,
+                                     Timestamp now) {
+        Set<Tuple2<Long, Long>> existing = loadSpecDataTypes(tx, specIds.values());
+
+        List<PhysicalSpecDataTypeRecord> toInsert = new ArrayList<>();
+        flows.forEach(f -> {
+            Tuple2<Long, Long> key = tuple(specIds.get(mkSpecKey(f)), f.dataType().id());
+            if (existing.add(key)) {
+                PhysicalSpecDataTypeRecord record = tx.newRecord(PHYSICAL_SPEC_DATA_TYPE);
+                record.setSpecificationId(key.v1);
+                record.setDataTypeId(key.v2);
+                record.setProvenance("waltz");
+                record.setLastUpdatedBy(username);
+                record.setLastUpdatedAt(now);
+                record.setIsReadonly(false);
+                toInsert.add(record);
+            }
+        });
+
+        if (! toInsert.isEmpty()) {
+            tx.batchInsert(toInsert).execute();
+        }
+    }
+
+
+    /**
+     * @return (specification id, data type id) pairs
+     */
+    private Set<Tuple2<Long, Long>> loadSpecDataTypes(DSLContext ctx, Collection<Long> specIds) {
+        Set<Tuple2<Long, Long>> result = new HashSet<>();
+        chunk(specIds).forEach(ids -> ctx
+                .select(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID, PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)
+                .from(PHYSICAL_SPEC_DATA_TYPE)
+                .where(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.in(ids))
+                .forEach(r -> result.add(tuple(r.value1(), r.value2()))));
+        return result;
+    }
+
+
+    // -- physical flows
+
+    private Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlow> ensurePhysicalFlows(DSLContext tx,
+                                                                                                     List<PhysicalFlowParsed> flows,
+                                                                                                     Map<Tuple2<EntityReference, EntityReference>, Long> logicalFlowIds,
+                                                                                                     Map<Tuple3<EntityReference, String, String>, Long> specIds,
+                                                                                                     String username,
+                                                                                                     Timestamp now) {
+        Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlow> existing = loadPhysicalFlows(tx, logicalFlowIds.values());
+
+        Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlowRecord> toInsert = new LinkedHashMap<>();
+        flows.forEach(f -> {
+            Long logicalFlowId = logicalFlowIds.get(mkLogicalKey(f));
+            Long specId = specIds.get(mkSpecKey(f));
+            Tuple6<Long, Long, Integer, String, String, String> key = mkPhysicalKey(logicalFlowId, specId, f);
+            if (! existing.containsKey(key) && ! toInsert.containsKey(key)) {
+                PhysicalFlowRecord record = tx.newRecord(PHYSICAL_FLOW);
+                record.setLogicalFlowId(logicalFlowId);
+                record.setSpecificationId(specId);
+                record.setBasisOffset(f.basisOffset());
+                record.setFrequency(f.frequency().name());
+                record.setTransport(f.transport());
+                record.setCriticality(f.criticality().name());
+                record.setDescription(f.description());
+                record.setExternalId(f.externalId());
+                record.setEntityLifecycleStatus(ACTIVE.name());
+                record.setIsRemoved(false);
+                record.setIsReadonly(false);
+                record.setProvenance("waltz");
+                record.setLastUpdatedBy(username);
+                record.setLastUpdatedAt(now);
+                record.setCreatedBy(username);
+                record.setCreatedAt(now);
+                toInsert.put(key, record);
+            }
+        });
+
+        if (toInsert.isEmpty()) {
+            return existing;
+        }
+
+        tx.batchInsert(toInsert.values()).execute();
+        return loadPhysicalFlows(tx, logicalFlowIds.values());
+    }
+
+
+    private Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlow> loadPhysicalFlows(DSLContext ctx,
+                                                                                                   Collection<Long> logicalFlowIds) {
+        Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlow> result = new HashMap<>();
+        chunk(logicalFlowIds).forEach(ids -> ctx
+                .select(PHYSICAL_FLOW.fields())
+                .from(PHYSICAL_FLOW)
+                .where(PHYSICAL_FLOW.LOGICAL_FLOW_ID.in(ids))
+                .and(PHYSICAL_FLOW_NOT_REMOVED)
+                .fetch(PhysicalFlowDao.TO_DOMAIN_MAPPER)
+                .forEach(pf -> result.putIfAbsent(
+                        tuple(pf.logicalFlowId(),
+                                pf.specificationId(),
+                                pf.basisOffset(),
+                                pf.frequency().name(),
+                                pf.transport(),
+                                pf.criticality().name()),
+                        pf)));
+        return result;
+    }
+
+
+    // -- helpers
+
+    private static Tuple2<EntityReference, EntityReference> mkLogicalKey(PhysicalFlowParsed flow) {
+        return tuple(
+                mkRef(flow.source().kind(), flow.source().id()),
+                mkRef(flow.target().kind(), flow.target().id()));
+    }
+
+
+    private static Tuple3<EntityReference, String, String> mkSpecKey(PhysicalFlowParsed flow) {
+        return tuple(
+                mkRef(flow.owner().kind(), flow.owner().id()),
+                flow.format().name(),
+                flow.name());
+    }
+
+
+    private static Tuple6<Long, Long, Integer, String, String, String> mkPhysicalKey(Long logicalFlowId,
+                                                                                   Long specId,
+                                                                                   PhysicalFlowParsed flow) {
+        return tuple(
+                logicalFlowId,
+                specId,
+                flow.basisOffset(),
+                flow.frequency().name(),
+                flow.transport(),
+                flow.criticality().name());
+    }
+
+
+    private static <K, V, V2> Map<K, V2> mapValues(Map<K, V> map, Function<V, V2> fn) {
+        Map<K, V2> result = new HashMap<>();
+        map.forEach((k, v) -> result.put(k, fn.apply(v)));
+        return result;
+    }
+
+
+    private static <T> List<List<T>> chunk(Collection<T> items) {
+        List<T> all = new ArrayList<>(items);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += CHUNK_SIZE) {
+            chunks.add(all.subList(i, Math.min(all.size(), i + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+}
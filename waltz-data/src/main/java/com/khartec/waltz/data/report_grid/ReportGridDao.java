@@ -20,6 +20,7 @@ package com.khartec.waltz.data.report_grid;
 
 
 import com.khartec.waltz.common.SetUtilities;
+import com.khartec.waltz.data.DBExecutorPoolInterface;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.report_grid.*;
@@ -27,6 +28,7 @@ import com.khartec.waltz.schema.Tables;
 import com.khartec.waltz.schema.tables.records.ReportGridRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.Unchecked;
 import org.jooq.lambda.tuple.Tuple2;
 import org.jooq.lambda.tuple.Tuple3;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,17 +36,22 @@ import org.springframework.stereotype.Repository;
 
 import java.util.Comparator;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
+import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.DateTimeUtilities.toLocalDateTime;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.MapUtilities.groupBy;
 import static com.khartec.waltz.common.SetUtilities.map;
 import static com.khartec.waltz.common.SetUtilities.union;
 import static com.khartec.waltz.model.EntityReference.mkRef;
 import static com.khartec.waltz.schema.Tables.*;
 import static com.khartec.waltz.schema.tables.InvolvementKind.INVOLVEMENT_KIND;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toMap;
@@ -54,6 +61,7 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 public class ReportGridDao {
 
     private final DSLContext dsl;
+    private final DBExecutorPoolInterface dbExecutorPool;
 
     private final com.khartec.waltz.schema.tables.Measurable m = MEASURABLE.as("m");
     private final com.khartec.waltz.schema.tables.MeasurableRating mr = MEASURABLE_RATING.as("mr");
@@ -72,8 +80,11 @@ public class ReportGridDao {
 
 
     @Autowired
-    public ReportGridDao(DSLContext dsl) {
+    public ReportGridDao(DSLContext dsl, DBExecutorPoolInterface dbExecutorPool) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         this.dsl = dsl;
+        this.dbExecutorPool = dbExecutorPool;
     }
 
 
@@ -96,6 +107,25 @@ public class ReportGridDao {
     }
 
 
+    /**
+     * Fetches the cells of a grid for all applications, intended for materialising
+     * the grid (see {@link #findCellDataForMaterialisation(ReportGridDefinition, Select)}).
+     */
+    public Tuple2<Set<ReportGridCell>, Map<ReportGridCell, Integer>> findAllCellDataForMaterialisation(ReportGridDefinition gridDefn) {
+        return findCellDataForMaterialisation(
+                gridDefn,
+                DSL.select(APPLICATION.ID).from(APPLICATION));
+    }
+
+
+    public Tuple2<Set<ReportGridCell>, Map<ReportGridCell, Integer>> findCellDataForMaterialisation(ReportGridDefinition gridDefn,
+                                                                                                 Set<Long> applicationIds) {
+        return findCellDataForMaterialisation(
+                gridDefn,
+                DSL.select(APPLICATION.ID).from(APPLICATION).where(APPLICATION.ID.in(applicationIds)));
+    }
+
+
     public ReportGridDefinition getGridDefinitionById(long id) {
         return getGridDefinitionByCondition(rg.ID.eq(id));
     }
@@ -193,17 +223,44 @@ public class ReportGridDao {
                                                             Select<Record1<Long>> appSelector) {
 
         ReportGridDefinition gridDefn = getGridDefinitionByCondition(gridCondition);
+        Set<Long> requiredCostKinds = findColumnEntityIds(gridDefn, EntityKind.COST_KIND);
 
-        Map<EntityKind, Collection<ReportGridColumnDefinition>> colsByKind = groupBy(
-                gridDefn.columnDefinitions(),
-                cd -> cd.columnEntityReference().kind());
+        Future<Set<ReportGridCell>> costData = dbExecutorPool.submit(() -> fetchCostData(appSelector, requiredCostKinds));
+        List<Future<Set<ReportGridCell>>> otherData = submitNonCostFetches(gridDefn, appSelector, dbExecutorPool::submit);
 
-        Set<Long> requiredAssessmentDefinitions = map(
-                colsByKind.getOrDefault(EntityKind.ASSESSMENT_DEFINITION, emptySet()),
-                cd -> cd.columnEntityReference().id());
+        return union(
+                awaitAll(otherData),
+                await(costData));
+    }
+
+
+    /**
+     * Unlike {@link #findCellDataByGridCondition(Condition, Select)} costs are given for
+     * each application's own latest year, rather than the latest year across all
+     * selected applications.  The year is returned with each cost cell so that a
+     * reader can determine the latest year for any subset of the applications.
+     *
+     * @return tuple of (non cost cells, cost cells -> year)
+     */
+    private Tuple2<Set<ReportGridCell>, Map<ReportGridCell, Integer>> findCellDataForMaterialisation(ReportGridDefinition gridDefn,
+                                                                                                  Select<Record1<Long>> appSelector) {
+        Set<Long> requiredCostKinds = findColumnEntityIds(gridDefn, EntityKind.COST_KIND);
+
+        Future<Map<ReportGridCell, Integer>> costData = dbExecutorPool.submitBatch(() -> fetchLatestCostDataPerApplication(appSelector, requiredCostKinds));
+        List<Future<Set<ReportGridCell>>> otherData = submitNonCostFetches(gridDefn, appSelector, dbExecutorPool::submitBatch);
+
+        return tuple(
+                awaitAll(otherData),
+                await(costData));
+    }
+
+
+    private List<Future<Set<ReportGridCell>>> submitNonCostFetches(ReportGridDefinition gridDefn,
+                                                                   Select<Record1<Long>> appSelector,
+                                                                   Function<Callable<Set<ReportGridCell>>, Future<Set<ReportGridCell>>> submitter) {
 
         Map<RatingRollupRule, Collection<ReportGridColumnDefinition>> measurableColumnsByRollupKind = groupBy(
-                colsByKind.getOrDefault(EntityKind.MEASURABLE, emptySet()),
+                findColumnDefinitions(gridDefn, EntityKind.MEASURABLE),
                 ReportGridColumnDefinition::ratingRollupRule);
 
         Set<Long> exactMeasurableIds = map(
@@ -218,21 +275,44 @@ public class ReportGridDao {
                 measurableColumnsByRollupKind.get(RatingRollupRule.PICK_LOWEST),
                 cd -> cd.columnEntityReference().id());
 
-        Set<Long> requiredCostKinds = map(
-                colsByKind.getOrDefault(EntityKind.COST_KIND, emptySet()),
-                cd -> cd.columnEntityReference().id());
+        Set<Long> requiredAssessmentDefinitions = findColumnEntityIds(gridDefn, EntityKind.ASSESSMENT_DEFINITION);
+        Set<Long> requiredInvolvementKinds = findColumnEntityIds(gridDefn, EntityKind.INVOLVEMENT_KIND);
+
+        return newArrayList(
+                submitter.apply(() -> fetchSummaryMeasurableData(appSelector, summaryMeasurableIdsUsingHighest, summaryMeasurableIdsUsingLowest)),
+                submitter.apply(() -> fetchAssessmentData(appSelector, requiredAssessmentDefinitions)),
+                submitter.apply(() -> fetchExactMeasurableData(appSelector, exactMeasurableIds)),
+                submitter.apply(() -> fetchInvolvementData(appSelector, requiredInvolvementKinds)));
+    }
+
+
+    private static List<ReportGridColumnDefinition> findColumnDefinitions(ReportGridDefinition gridDefn,
+                                                                          EntityKind columnKind) {
+        return gridDefn
+                .columnDefinitions()
+                .stream()
+                .filter(cd -> cd.columnEntityReference().kind() == columnKind)
+                .collect(Collectors.toList());
+    }
+
 
-        Set<Long> requiredInvolvementKinds = map(
-                colsByKind.getOrDefault(EntityKind.INVOLVEMENT_KIND, emptySet()),
+    private static Set<Long> findColumnEntityIds(ReportGridDefinition gridDefn,
+                                                 EntityKind columnKind) {
+        return map(
+                findColumnDefinitions(gridDefn, columnKind),
                 cd -> cd.columnEntityReference().id());
+    }
 
 
-        return union(
-                fetchSummaryMeasurableData(appSelector, summaryMeasurableIdsUsingHighest, summaryMeasurableIdsUsingLowest),
-                fetchAssessmentData(appSelector, requiredAssessmentDefinitions),
-                fetchExactMeasurableData(appSelector, exactMeasurableIds),
-                fetchCostData(appSelector, requiredCostKinds),
-                fetchInvolvementData(appSelector, requiredInvolvementKinds));
+    private static Set<ReportGridCell> awaitAll(List<Future<Set<ReportGridCell>>> futures) {
+        Set<ReportGridCell> result = new HashSet<>();
+        futures.forEach(f -> result.addAll(await(f)));
+        return result;
+    }
+
+
+    private static <T> T await(Future<T> future) {
+        return Unchecked.supplier(future::get).get();
     }
 
 
@@ -299,16 +379,56 @@ public class ReportGridDao {
                     .where(dsl.renderInlined(c.COST_KIND_ID.in(requiredCostKinds)
                             .and(c.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
                             .and(c.ENTITY_ID.in(appSelector))))
-                    .fetchSet(r -> ImmutableReportGridCell.builder()
-                            .applicationId(r.get(c.ENTITY_ID))
-                            .columnEntityId(r.get(c.COST_KIND_ID))
-                            .columnEntityKind(EntityKind.COST_KIND)
-                            .value(r.get(c.AMOUNT))
-                            .build());
+                    .fetchSet(this::mkCostCell);
         }
     }
 
 
+    private Map<ReportGridCell, Integer> fetchLatestCostDataPerApplication(Select<Record1<Long>> appSelector,
+                                                                           Set<Long> requiredCostKinds) {
+        if (requiredCostKinds.size() == 0) {
+            return emptyMap();
+        }
+
+        SelectHavingStep<Record3<Long, Long, Integer>> latestYearForAppAndKind = dsl
+                .select(COST.ENTITY_ID, COST.COST_KIND_ID, DSL.max(COST.YEAR).as("latest_year"))
+                .from(COST)
+                .where(dsl.renderInlined(COST.ENTITY_ID.in(appSelector)
+                        .and(COST.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                        .and(COST.COST_KIND_ID.in(requiredCostKinds))))
+                .groupBy(COST.ENTITY_ID, COST.COST_KIND_ID);
+
+        Condition latestYearForAppAndKindCondition = c.ENTITY_ID.eq(latestYearForAppAndKind.field(COST.ENTITY_ID))
+                .and(c.COST_KIND_ID.eq(latestYearForAppAndKind.field(COST.COST_KIND_ID)))
+                .and(c.YEAR.eq(latestYearForAppAndKind.field("latest_year", Integer.class)));
+
+        return dsl
+                .select(c.ENTITY_ID,
+                        c.COST_KIND_ID,
+                        c.AMOUNT,
+                        c.YEAR)
+                .from(c)
+                .innerJoin(latestYearForAppAndKind).on(latestYearForAppAndKindCondition)
+                .where(c.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                .fetch()
+                .stream()
+                .collect(toMap(
+                        this::mkCostCell,
+                        r -> r.get(c.YEAR),
+                        (a, b) -> a));
+    }
+
+
+    private ReportGridCell mkCostCell(Record r) {
+        return ImmutableReportGridCell.builder()
+                .applicationId(r.get(c.ENTITY_ID))
+                .columnEntityId(r.get(c.COST_KIND_ID))
+                .columnEntityKind(EntityKind.COST_KIND)
+                .value(r.get(c.AMOUNT))
+                .build();
+    }
+
+
     private Set<ReportGridCell> fetchSummaryMeasurableData(Select<Record1<Long>> appSelector,
                                                            Set<Long> measurableIdsUsingHighest,
                                                            Set<Long> measurableIdsUsingLowest) {
@@ -21,12 +21,20 @@ package com.khartec.waltz.data.scheduled_job;
 
 import com.khartec.waltz.model.scheduled_job.JobKey;
 import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import com.khartec.waltz.model.scheduled_job.ScheduledJobRun;
+import com.khartec.waltz.schema.tables.records.ScheduledJobRecord;
 import org.jooq.DSLContext;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+import static com.khartec.waltz.common.StringUtilities.limit;
+import static com.khartec.waltz.schema.tables.ScheduledJob.SCHEDULED_JOB;
 import static com.khartec.waltz.schema.tables.Settings.SETTINGS;
 
 @Repository
@@ -68,4 +76,48 @@ public class ScheduledJobDao {
                 .where(SETTINGS.NAME.eq(jobKey.name()))
                 .execute();
     }
+
+
+    public void recordJobStarted(JobKey jobKey, LocalDateTime startedAt) {
+        checkNotNull(jobKey, "jobKey cannot be null");
+        checkNotNull(startedAt, "startedAt cannot be null");
+
+        int updated = dsl
+                .update(SCHEDULED_JOB)
+                .set(SCHEDULED_JOB.LAST_STATUS, JobLifecycleStatus.RUNNING.name())
+                .set(SCHEDULED_JOB.LAST_STARTED_AT, Timestamp.valueOf(startedAt))
+                .where(SCHEDULED_JOB.JOB_KEY.eq(jobKey.name()))
+                .execute();
+
+        if (updated == 0) {
+            ScheduledJobRecord record = dsl.newRecord(SCHEDULED_JOB);
+            record.setJobKey(jobKey.name());
+            record.setLastStatus(JobLifecycleStatus.RUNNING.name());
+            record.setLastStartedAt(Timestamp.valueOf(startedAt));
+            record.insert();
+        }
+    }
+
+
+    /**
+     * Records the outcome of a run, the job is expected to have been
+     * registered via {@link #recordJobStarted(JobKey, LocalDateTime)}
+     */
+    public void recordJobRun(ScheduledJobRun run) {
+        checkNotNull(run, "run cannot be null");
+
+        boolean errored = run.status() == JobLifecycleStatus.ERRORED;
+
+        dsl.update(SCHEDULED_JOB)
+                .set(SCHEDULED_JOB.LAST_STATUS, run.status().name())
+                .set(SCHEDULED_JOB.LAST_STARTED_AT, Timestamp.valueOf(run.startedAt()))
+                .set(SCHEDULED_JOB.LAST_COMPLETED_AT, nowUtcTimestamp())
+                .set(SCHEDULED_JOB.LAST_DURATION_MILLIS, run.durationMillis())
+                .set(SCHEDULED_JOB.LAST_ROW_COUNT, run.rowCount().orElse(null))
+                .set(SCHEDULED_JOB.LAST_ERROR, run.error().map(e -> limit(e, 4000)).orElse(null))
+                .set(SCHEDULED_JOB.RUN_COUNT, SCHEDULED_JOB.RUN_COUNT.plus(1))
+                .set(SCHEDULED_JOB.ERROR_COUNT, SCHEDULED_JOB.ERROR_COUNT.plus(errored ? 1 : 0))
+                .where(SCHEDULED_JOB.JOB_KEY.eq(run.jobKey().name()))
+                .execute();
+    }
 }
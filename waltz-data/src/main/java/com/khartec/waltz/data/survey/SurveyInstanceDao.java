@@ -27,13 +27,17 @@ import com.khartec.waltz.schema.tables.records.SurveyInstanceRecipientRecord;
 import com.khartec.waltz.schema.tables.records.SurveyInstanceRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +49,7 @@ import static com.khartec.waltz.common.DateTimeUtilities.toSqlDate;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.schema.Tables.*;
 import static java.util.Optional.ofNullable;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class SurveyInstanceDao {
@@ -179,6 +184,87 @@ public class SurveyInstanceDao {
     }
 
 
+    /**
+     * Replaces all instances (and their recipients) of a survey run within a
+     * single transaction.  Instances and recipients are written with batched
+     * inserts, instance ids are then resolved by re-reading the run rather than
+     * storing each record individually.
+     *
+     * Each entry is an instance and the ids of the people who should receive it.
+     * Duplicate instances (e.g. individual issuance) are permitted, each entry
+     * results in a separate instance.
+     *
+     * @return tuple of (instances created, recipients created)
+     */
+    public Tuple2<Integer, Integer> replaceForSurveyRun(long surveyRunId,
+                                                       List<Tuple2<SurveyInstance, List<Long>>> instancesAndRecipients) {
+        checkNotNull(instancesAndRecipients, "instancesAndRecipients cannot be null");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            tx.deleteFrom(SURVEY_INSTANCE_RECIPIENT)
+                    .where(SURVEY_INSTANCE_RECIPIENT.SURVEY_INSTANCE_ID.in(DSL
+                            .select(SURVEY_INSTANCE.ID)
+                            .from(SURVEY_INSTANCE)
+                            .where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId))))
+                    .execute();
+
+            tx.deleteFrom(SURVEY_INSTANCE)
+                    .where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId))
+                    .execute();
+
+            if (instancesAndRecipients.isEmpty()) {
+                return tuple(0, 0);
+            }
+
+            List<SurveyInstanceRecord> instanceRecords = instancesAndRecipients
+                    .stream()
+                    .map(t -> {
+                        SurveyInstanceRecord record = tx.newRecord(SURVEY_INSTANCE);
+                        record.setSurveyRunId(surveyRunId);
+                        record.setEntityKind(t.v1.surveyEntity().kind().name());
+                        record.setEntityId(t.v1.surveyEntity().id());
+                        record.setStatus(t.v1.status().name());
+                        record.setDueDate(toSqlDate(t.v1.dueDate()));
+                        return record;
+                    })
+                    .collect(Collectors.toList());
+
+            tx.batchInsert(instanceRecords).execute();
+
+            // all instances for an entity within a run share status and due date, so
+            // are interchangeable, therefore ids only need resolving per entity
+            Map<Tuple2<String, Long>, Deque<Long>> instanceIdsByEntity = new HashMap<>();
+            tx.select(SURVEY_INSTANCE.ID, SURVEY_INSTANCE.ENTITY_KIND, SURVEY_INSTANCE.ENTITY_ID)
+                    .from(SURVEY_INSTANCE)
+                    .where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId))
+                    .forEach(r -> instanceIdsByEntity
+                            .computeIfAbsent(tuple(r.value2(), r.value3()), k -> new ArrayDeque<>())
+                            .add(r.value1()));
+
+            List<SurveyInstanceRecipientRecord> recipientRecords = new ArrayList<>();
+            instancesAndRecipients.forEach(t -> {
+                EntityReference entity = t.v1.surveyEntity();
+                Long instanceId = instanceIdsByEntity
+                        .get(tuple(entity.kind().name(), entity.id()))
+                        .pop();
+
+                t.v2.forEach(personId -> {
+                    SurveyInstanceRecipientRecord record = tx.newRecord(SURVEY_INSTANCE_RECIPIENT);
+                    record.setSurveyInstanceId(instanceId);
+                    record.setPersonId(personId);
+                    recipientRecords.add(record);
+                });
+            });
+
+            tx.batchInsert(recipientRecords).execute();
+
+            return tuple(instanceRecords.size(), recipientRecords.size());
+        });
+    }
+
+
     public int updateStatus(long instanceId, SurveyInstanceStatus newStatus) {
         checkNotNull(newStatus, "newStatus cannot be null");
 
@@ -0,0 +1,171 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.khartec.waltz.common.ListUtilities.map;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static org.junit.Assert.*;
+
+public class EntityNameDictionaryTest {
+
+    private final EntityReference alpha = mkRef(EntityKind.APPLICATION, 1L);
+    private final EntityReference beta = mkRef(EntityKind.APPLICATION, 2L);
+    private final EntityReference gamma = mkRef(EntityKind.APPLICATION, 3L);
+    private final EntityReference delta = mkRef(EntityKind.APPLICATION, 4L);
+    private final EntityReference unknown = mkRef(EntityKind.APPLICATION, 99L);
+
+    private FakeEntityNameDatabase db;
+    private EntityNameDictionary dictionary;
+
+
+    @Before
+    public void setUp() {
+        db = new FakeEntityNameDatabase();
+        db.putApplication(1L, "Alpha", "A-1", EntityLifecycleStatus.ACTIVE);
+        db.putApplication(2L, "Beta", "B-2", EntityLifecycleStatus.PENDING);
+
+        dictionary = new EntityNameDictionary(db.mkDsl());
+        dictionary.configure(true, 0);
+    }
+
+
+    @Test
+    public void kindsAreLoadedInFullWhenFirstNeeded() {
+        assertEquals(Optional.of("Alpha"), dictionary.findName(alpha));
+        assertEquals(1, db.getQueryCount());
+
+        assertEquals(Optional.of("Beta"), dictionary.findName(beta));
+        assertEquals(Optional.of("B-2"), dictionary.findExternalId(beta));
+        assertEquals(Optional.of(EntityLifecycleStatus.PENDING), dictionary.findEntityLifecycleStatus(beta));
+        assertEquals("subsequent lookups should be served from memory", 1, db.getQueryCount());
+
+        assertEquals(2, dictionary.getEntryCount());
+        assertEquals(asSet(EntityKind.APPLICATION), dictionary.getLoadedKinds());
+        assertEquals(4, dictionary.getHitCount());
+    }
+
+
+    @Test
+    public void idsUnknownToALoadedKindAreFetchedIndividually() {
+        dictionary.findName(alpha);
+        db.putApplication(3L, "Gamma", "G-3", EntityLifecycleStatus.ACTIVE);
+
+        assertEquals(Optional.of("Gamma"), dictionary.findName(gamma));
+        assertEquals("only the unknown id should be fetched", 2, db.getQueryCount());
+        assertEquals(3, dictionary.getEntryCount());
+        assertEquals(1, dictionary.getMissCount());
+    }
+
+
+    @Test
+    public void missingIdsAreOnlyQueriedOnce() {
+        dictionary.findName(alpha);
+
+        assertEquals(Optional.empty(), dictionary.findName(unknown));
+        assertEquals(Optional.empty(), dictionary.findName(unknown));
+        assertEquals(2, db.getQueryCount());
+    }
+
+
+    @Test
+    public void primingFetchesUnknownIdsInOneBatch() {
+        dictionary.findName(alpha);
+        db.putApplication(3L, "Gamma", "G-3", EntityLifecycleStatus.ACTIVE);
+        db.putApplication(4L, "Delta", "D-4", EntityLifecycleStatus.REMOVED);
+
+        List<EntityReference> enriched = dictionary.enrich(Arrays.asList(alpha, gamma, delta, unknown));
+
+        assertEquals(
+                Arrays.asList(Optional.of("Alpha"), Optional.of("Gamma"), Optional.of("Delta"), Optional.empty()),
+                map(enriched, EntityReference::name));
+        assertEquals("the load plus a single batch for the unknown ids", 2, db.getQueryCount());
+    }
+
+
+    @Test
+    public void invalidatedEntriesAreRefetched() {
+        assertEquals(Optional.of("Alpha"), dictionary.findName(alpha));
+        db.putApplication(1L, "Alpha (renamed)", "A-1", EntityLifecycleStatus.ACTIVE);
+        assertEquals("changes are not seen until invalidated", Optional.of("Alpha"), dictionary.findName(alpha));
+
+        dictionary.invalidate(alpha);
+
+        assertEquals(Optional.of("Alpha (renamed)"), dictionary.findName(alpha));
+        assertEquals(Optional.of("Beta"), dictionary.findName(beta));
+        assertEquals("only the invalidated entry should be fetched", 2, db.getQueryCount());
+    }
+
+
+    @Test
+    public void invalidatedKindsAreReloadedInFull() {
+        dictionary.findName(alpha);
+
+        dictionary.invalidate(EntityKind.APPLICATION);
+        assertTrue(dictionary.getLoadedKinds().isEmpty());
+        assertEquals(0, dictionary.getEntryCount());
+
+        db.putApplication(2L, "Beta (renamed)", "B-2", EntityLifecycleStatus.ACTIVE);
+        assertEquals(Optional.of("Beta (renamed)"), dictionary.findName(beta));
+        assertEquals(2, db.getQueryCount());
+        assertEquals(2, dictionary.getEntryCount());
+    }
+
+
+    @Test
+    public void enrichingKeepsExistingNames() {
+        EntityReference named = mkRef(EntityKind.APPLICATION, 1L, "Already named");
+        assertSame(named, dictionary.enrich(named));
+        assertEquals(0, db.getQueryCount());
+    }
+
+
+    @Test
+    public void disabledDictionaryResolvesNothing() {
+        dictionary.findName(alpha);
+        dictionary.configure(false, 0);
+
+        assertFalse(dictionary.isEnabled());
+        assertEquals(0, dictionary.getEntryCount());
+        assertEquals(Optional.empty(), dictionary.findName(alpha));
+        assertSame(beta, dictionary.enrich(beta));
+        assertEquals(1, db.getQueryCount());
+    }
+
+
+    @Test
+    public void unsupportedKindsAreNotQueried() {
+        EntityReference run = mkRef(EntityKind.SURVEY_RUN, 1L);
+
+        assertFalse(dictionary.isSupported(EntityKind.SURVEY_RUN));
+        assertEquals(Optional.empty(), dictionary.findName(run));
+        assertEquals(0, db.getQueryCount());
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.common.SetUtilities;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntityReferenceNameResolverTest {
+
+    private final EntityReference alpha = mkRef(EntityKind.APPLICATION, 1L);
+    private final EntityReference beta = mkRef(EntityKind.APPLICATION, 2L);
+    private final EntityReference surveyRun = mkRef(EntityKind.SURVEY_RUN, 7L);
+
+    private FakeEntityNameDatabase db;
+    private EntityNameDictionary dictionary;
+    private EntityReferenceNameResolver resolver;
+
+
+    @Before
+    public void setUp() {
+        db = new FakeEntityNameDatabase();
+        db.putApplication(1L, "Alpha", "A-1", EntityLifecycleStatus.ACTIVE);
+        db.putApplication(2L, "Beta", "B-2", EntityLifecycleStatus.ACTIVE);
+
+        dictionary = new EntityNameDictionary(db.mkDsl());
+        resolver = new EntityReferenceNameResolver(db.mkDsl(), dictionary);
+    }
+
+
+    @Test
+    public void namesOfSupportedKindsAreTakenFromTheDictionary() {
+        dictionary.configure(true, 0);
+
+        List<EntityReference> resolved = resolver.resolve(Arrays.asList(alpha, beta, alpha));
+
+        assertEquals(asSet("APPLICATION/1/Alpha", "APPLICATION/2/Beta"), describe(resolved));
+        assertEquals("duplicates should be resolved once", 2, resolved.size());
+        assertEquals("only the dictionary load should be executed", 1, db.getQueryCount());
+        assertFalse(db.getExecutedSql().get(0).contains("temp_refs"));
+    }
+
+
+    @Test
+    public void unsupportedKindsAreResolvedViaTheDatabase() {
+        dictionary.configure(true, 0);
+        db.putOtherName(surveyRun, "Annual review");
+
+        List<EntityReference> resolved = resolver.resolve(Arrays.asList(alpha, surveyRun));
+
+        assertEquals(asSet("APPLICATION/1/Alpha", "SURVEY_RUN/7/Annual review"), describe(resolved));
+        assertEquals(2, db.getQueryCount());
+        assertTrue(db.getExecutedSql().get(1).contains("temp_refs"));
+    }
+
+
+    @Test
+    public void allNamesAreResolvedViaTheDatabaseIfTheDictionaryIsDisabled() {
+        db.putOtherName(alpha, "Alpha");
+
+        assertEquals(
+                Optional.of("Alpha"),
+                resolver.resolve(alpha).flatMap(EntityReference::name));
+        assertEquals(1, db.getQueryCount());
+        assertTrue(db.getExecutedSql().get(0).contains("temp_refs"));
+        assertTrue(dictionary.getLoadedKinds().isEmpty());
+    }
+
+
+    // -- helpers
+
+    /**
+     * Names are not part of reference equality, hence comparing descriptions
+     */
+    private static Set<String> describe(Collection<EntityReference> refs) {
+        return SetUtilities.map(refs, r -> r.kind() + "/" + r.id() + "/" + r.name().orElse(null));
+    }
+
+}
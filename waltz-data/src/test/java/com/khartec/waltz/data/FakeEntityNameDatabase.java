@@ -0,0 +1,115 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockExecuteContext;
+import org.jooq.tools.jdbc.MockResult;
+
+import java.util.*;
+
+/**
+ * Stands in for the database queried by the entity name dictionary and the
+ * name resolver.  Dictionary queries are answered from the applications held
+ * in memory (restricted to the bound ids, if any), the resolver's fallback
+ * query from the names registered for other kinds.
+ */
+class FakeEntityNameDatabase implements MockDataProvider {
+
+    private static final DSLContext create = DSL.using(SQLDialect.POSTGRES);
+
+    private static final Field<Long> ID = DSL.field("id", Long.class);
+    private static final Field<String> NAME = DSL.field("name", String.class);
+    private static final Field<String> EXTERNAL_ID = DSL.field("external_id", String.class);
+    private static final Field<String> LIFECYCLE = DSL.field("lifecycle", String.class);
+
+    private static final Field<Long> REF_ID = DSL.field("tref_id", Long.class);
+    private static final Field<String> REF_KIND = DSL.field("tref_kind", String.class);
+
+    private final Map<Long, Record4<Long, String, String, String>> applications = new LinkedHashMap<>();
+    private final Map<EntityReference, String> otherNames = new LinkedHashMap<>();
+    private final List<String> executedSql = new ArrayList<>();
+
+
+    DSLContext mkDsl() {
+        return DSL.using(new MockConnection(this), SQLDialect.POSTGRES);
+    }
+
+
+    void putApplication(long id, String name, String assetCode, EntityLifecycleStatus status) {
+        Record4<Long, String, String, String> record = create.newRecord(ID, NAME, EXTERNAL_ID, LIFECYCLE);
+        record.values(id, name, assetCode, status.name());
+        applications.put(id, record);
+    }
+
+
+    void putOtherName(EntityReference ref, String name) {
+        otherNames.put(ref, name);
+    }
+
+
+    List<String> getExecutedSql() {
+        return executedSql;
+    }
+
+
+    int getQueryCount() {
+        return executedSql.size();
+    }
+
+
+    @Override
+    public synchronized MockResult[] execute(MockExecuteContext ctx) {
+        executedSql.add(ctx.sql());
+
+        Result<?> result = ctx.sql().contains("temp_refs")
+                ? mkOtherNamesResult()
+                : mkApplicationResult(new HashSet<>(Arrays.asList(ctx.bindings())));
+
+        return new MockResult[] { new MockResult(result.size(), result) };
+    }
+
+
+    private Result<Record4<Long, String, String, String>> mkApplicationResult(Set<Object> boundIds) {
+        Result<Record4<Long, String, String, String>> result = create.newResult(ID, NAME, EXTERNAL_ID, LIFECYCLE);
+        applications.forEach((id, record) -> {
+            if (boundIds.isEmpty() || boundIds.contains(id)) {
+                result.add(record);
+            }
+        });
+        return result;
+    }
+
+
+    private Result<Record3<Long, String, String>> mkOtherNamesResult() {
+        Result<Record3<Long, String, String>> result = create.newResult(REF_ID, REF_KIND, NAME);
+        otherNames.forEach((ref, name) -> {
+            Record3<Long, String, String> record = create.newRecord(REF_ID, REF_KIND, NAME);
+            record.values(ref.id(), ref.kind().name(), name);
+            result.add(record);
+        });
+        return result;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import org.junit.Test;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class InstrumentedDBExecutorPoolTest {
+
+    @Test
+    public void tasksAreExecuted() throws Exception {
+        InstrumentedDBExecutorPool pool = new InstrumentedDBExecutorPool(4, 10);
+        try {
+            assertEquals("a", pool.submit(() -> "a").get(5, TimeUnit.SECONDS));
+            assertEquals("b", pool.submitBatch(() -> "b").get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @Test
+    public void submittingToASaturatedLaneRunsOnTheCaller() throws Exception {
+        InstrumentedDBExecutorPool pool = new InstrumentedDBExecutorPool(2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pool.submit(() -> release.await(5, TimeUnit.SECONDS));  // occupies the only thread
+            pool.submit(() -> "queued");                          // fills the queue
+
+            Future<String> callerRun = pool.submit(() -> Thread.currentThread().getName());
+            assertEquals(Thread.currentThread().getName(), callerRun.get(5, TimeUnit.SECONDS));
+            assertEquals(1, pool.getInteractiveLane().getCallerRunsCount());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+
+    @Test
+    public void submittingAfterShutdownFails() throws Exception {
+        InstrumentedDBExecutorPool pool = new InstrumentedDBExecutorPool(4, 10);
+        pool.shutdown();
+
+        try {
+            Future<String> future = pool.submit(() -> "never");
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected submission to be rejected once the pool has been shut down");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        try {
+            pool.submitBatch(() -> "never").get(5, TimeUnit.SECONDS);
+            fail("Expected batch submission to be rejected once the pool has been shut down");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.integration_test.data_type_usage;
+
+import com.khartec.waltz.data.data_type_usage.DataTypeUsageQueueDao;
+import com.khartec.waltz.integration_test.BaseIntegrationTest;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.schema.tables.records.DataTypeUsageQueueRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Set;
+
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.common.SetUtilities.map;
+import static com.khartec.waltz.model.EntityKind.APPLICATION;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.schema.Tables.DATA_TYPE_USAGE_QUEUE;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+
+public class DataTypeUsageQueueDaoTest extends BaseIntegrationTest {
+
+    private final EntityReference staleApp = mkRef(APPLICATION, 1L);
+    private final EntityReference queuedDuringRecalcApp = mkRef(APPLICATION, 2L);
+    private final EntityReference queuedLaterApp = mkRef(APPLICATION, 3L);
+
+
+    @Before
+    public void clearQueue() {
+        getDsl().deleteFrom(DATA_TYPE_USAGE_QUEUE).execute();
+    }
+
+
+    @Test
+    public void removingQueuedBeforeACutoffKeepsEntriesQueuedAfterIt() {
+        DataTypeUsageQueueDao dao = ctx.getBean(DataTypeUsageQueueDao.class);
+
+        // the cutoff is captured, as the full recalculation does, before any work starts
+        Timestamp cutoff = nowUtcTimestamp();
+
+        insertQueueEntry(staleApp, minus(cutoff, Duration.ofMinutes(1)));
+        dao.enqueue(singletonList(queuedDuringRecalcApp));
+        insertQueueEntry(queuedLaterApp, plus(cutoff, Duration.ofHours(1)));
+
+        int removed = dao.removeQueuedBefore(cutoff);
+
+        Set<EntityReference> remaining = map(dao.findQueued(10), t -> t.v2);
+        assertEquals("only the entry queued before the cutoff should be removed", 1, removed);
+        assertEquals(asSet(queuedDuringRecalcApp, queuedLaterApp), remaining);
+    }
+
+
+    // -- helpers
+
+    private void insertQueueEntry(EntityReference ref, Timestamp queuedAt) {
+        DataTypeUsageQueueRecord record = getDsl().newRecord(DATA_TYPE_USAGE_QUEUE);
+        record.setEntityKind(ref.kind().name());
+        record.setEntityId(ref.id());
+        record.setQueuedAt(queuedAt);
+        record.insert();
+    }
+
+
+    private static Timestamp minus(Timestamp ts, Duration duration) {
+        return Timestamp.valueOf(ts.toLocalDateTime().minus(duration));
+    }
+
+
+    private static Timestamp plus(Timestamp ts, Duration duration) {
+        return Timestamp.valueOf(ts.toLocalDateTime().plus(duration));
+    }
+
+}
@@ -0,0 +1,287 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.integration_test.entity_statistic;
+
+import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.entity_statistic.EntityStatisticDefinitionDao;
+import com.khartec.waltz.data.entity_statistic.EntityStatisticRollupDao;
+import com.khartec.waltz.data.entity_statistic.EntityStatisticSummaryDao;
+import com.khartec.waltz.data.entity_statistic.EntityStatisticValueDao;
+import com.khartec.waltz.integration_test.BaseIntegrationTest;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.HierarchyQueryScope;
+import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.model.entity_statistic.*;
+import com.khartec.waltz.model.tally.Tally;
+import com.khartec.waltz.model.tally.TallyPack;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
+import static com.khartec.waltz.schema.Tables.ENTITY_STATISTIC_ROLLUP;
+import static com.khartec.waltz.schema.Tables.ENTITY_STATISTIC_ROLLUP_STATE;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EntityStatisticRollupDaoTest extends BaseIntegrationTest {
+
+    private static final long STATISTIC_ID = 42L;
+
+    private static final long COUNT_STATISTIC_ID = 4_200_001L;
+    private static final long SUM_STATISTIC_ID = 4_200_002L;
+    private static final long AVG_STATISTIC_ID = 4_200_003L;
+
+
+    @Before
+    public void clearRollup() {
+        getDsl().deleteFrom(ENTITY_STATISTIC_ROLLUP).execute();
+        getDsl().deleteFrom(ENTITY_STATISTIC_ROLLUP_STATE).execute();
+    }
+
+
+    @Test
+    public void rebuiltStatisticsAreCurrent() {
+        EntityStatisticRollupDao dao = ctx.getBean(EntityStatisticRollupDao.class);
+
+        dao.rebuildStatistic(STATISTIC_ID, dao.getMaxValueId());
+
+        assertEquals(asSet(STATISTIC_ID), findCurrent(dao, minus(nowUtcTimestamp(), Duration.ofHours(1))));
+        assertTrue(dao.findInvalidatedStatisticIds().isEmpty());
+    }
+
+
+    @Test
+    public void invalidatedStatisticsAreNotCurrentUntilRebuilt() {
+        EntityStatisticRollupDao dao = ctx.getBean(EntityStatisticRollupDao.class);
+        Timestamp anHourAgo = minus(nowUtcTimestamp(), Duration.ofHours(1));
+
+        dao.rebuildStatistic(STATISTIC_ID, dao.getMaxValueId());
+        dao.invalidateAll();
+
+        assertEquals("invalidated statistics must fall back to the raw values", emptySet(), findCurrent(dao, anHourAgo));
+        assertEquals(asSet(STATISTIC_ID), dao.findInvalidatedStatisticIds());
+
+        // backdate the change so the rebuild below unambiguously follows it
+        getDsl().update(ENTITY_STATISTIC_ROLLUP_STATE)
+                .set(ENTITY_STATISTIC_ROLLUP_STATE.INVALIDATED_AT, minus(nowUtcTimestamp(), Duration.ofMinutes(1)))
+                .execute();
+        dao.rebuildStatistic(STATISTIC_ID, dao.getMaxValueId());
+
+        assertEquals(asSet(STATISTIC_ID), findCurrent(dao, anHourAgo));
+        assertTrue(dao.findInvalidatedStatisticIds().isEmpty());
+    }
+
+
+    @Test
+    public void statisticsRebuiltBeforeTheMaxAgeAreNotCurrent() {
+        EntityStatisticRollupDao dao = ctx.getBean(EntityStatisticRollupDao.class);
+
+        dao.rebuildStatistic(STATISTIC_ID, dao.getMaxValueId());
+
+        assertEquals(emptySet(), findCurrent(dao, plus(nowUtcTimestamp(), Duration.ofHours(1))));
+    }
+
+
+    @Test
+    public void rollupTalliesMatchTheRawValueTallies() {
+        EntityStatisticRollupDao rollupDao = ctx.getBean(EntityStatisticRollupDao.class);
+        EntityStatisticSummaryDao summaryDao = ctx.getBean(EntityStatisticSummaryDao.class);
+
+        Long parentOu = createOrgUnit("rollupParent", null);
+        Long childOu = createOrgUnit("rollupChild", parentOu);
+        rebuildHierarachy(EntityKind.ORG_UNIT);
+
+        List<EntityReference> apps = newArrayList(
+                createNewApp("rollupA", parentOu),
+                createNewApp("rollupB", childOu),
+                createNewApp("rollupC", childOu));
+
+        createDefinition(COUNT_STATISTIC_ID, RollupKind.COUNT_BY_ENTITY);
+        createDefinition(SUM_STATISTIC_ID, RollupKind.SUM_BY_VALUE);
+        createDefinition(AVG_STATISTIC_ID, RollupKind.AVG_BY_VALUE);
+        createValues(apps);
+
+        long upToValueId = rollupDao.getMaxValueId();
+        rollupDao.rebuildStatistic(COUNT_STATISTIC_ID, upToValueId);
+        rollupDao.rebuildStatistic(SUM_STATISTIC_ID, upToValueId);
+        rollupDao.rebuildStatistic(AVG_STATISTIC_ID, upToValueId);
+
+        for (IdSelectionOptions options : newArrayList(
+                mkOpts(mkRef(EntityKind.ORG_UNIT, parentOu), HierarchyQueryScope.CHILDREN),
+                mkOpts(mkRef(EntityKind.ORG_UNIT, childOu), HierarchyQueryScope.EXACT))) {
+
+            Select<Record1<Long>> appIdSelector = new ApplicationIdSelectorFactory().apply(options);
+
+            assertEquals(
+                    toCounts(summaryDao.generateWithCountByEntity(COUNT_STATISTIC_ID, appIdSelector)),
+                    toCounts(rollupDao.generateSummaries(singletonList(COUNT_STATISTIC_ID), RollupKind.COUNT_BY_ENTITY, options).get(0)));
+            assertEquals(
+                    toCounts(summaryDao.generateWithSumByValue(SUM_STATISTIC_ID, appIdSelector)),
+                    toCounts(rollupDao.generateSummaries(singletonList(SUM_STATISTIC_ID), RollupKind.SUM_BY_VALUE, options).get(0)));
+            assertEquals(
+                    toCounts(summaryDao.generateWithAvgByValue(AVG_STATISTIC_ID, appIdSelector)),
+                    toCounts(rollupDao.generateSummaries(singletonList(AVG_STATISTIC_ID), RollupKind.AVG_BY_VALUE, options).get(0)));
+
+            for (com.khartec.waltz.model.Duration duration : newArrayList(
+                    com.khartec.waltz.model.Duration.WEEK,
+                    com.khartec.waltz.model.Duration.MONTH,
+                    com.khartec.waltz.model.Duration.ALL)) {
+
+                assertEquals(
+                        "count history for " + duration,
+                        toCountsByDay(summaryDao.generateHistoricWithCountByEntity(COUNT_STATISTIC_ID, appIdSelector, duration)),
+                        toCountsByDay(rollupDao.generateHistoricSummary(COUNT_STATISTIC_ID, RollupKind.COUNT_BY_ENTITY, options, duration)));
+                assertEquals(
+                        "sum history for " + duration,
+                        toCountsByDay(summaryDao.generateHistoricWithSumByValue(SUM_STATISTIC_ID, appIdSelector, duration)),
+                        toCountsByDay(rollupDao.generateHistoricSummary(SUM_STATISTIC_ID, RollupKind.SUM_BY_VALUE, options, duration)));
+                assertEquals(
+                        "avg history for " + duration,
+                        toCountsByDay(summaryDao.generateHistoricWithAvgByValue(AVG_STATISTIC_ID, appIdSelector, duration)),
+                        toCountsByDay(rollupDao.generateHistoricSummary(AVG_STATISTIC_ID, RollupKind.AVG_BY_VALUE, options, duration)));
+            }
+        }
+    }
+
+
+    // -- helpers
+
+    private void createDefinition(long id, RollupKind rollupKind) {
+        ctx.getBean(EntityStatisticDefinitionDao.class).insert(ImmutableEntityStatisticDefinition.builder()
+                .id(id)
+                .name("rollup test " + rollupKind)
+                .description("rollup test")
+                .category(StatisticCategory.COMPLIANCE)
+                .type(rollupKind == RollupKind.COUNT_BY_ENTITY ? StatisticType.ENUM : StatisticType.NUMERIC)
+                .rollupKind(rollupKind)
+                .active(true)
+                .renderer("bar")
+                .historicRenderer("bar")
+                .entityVisibility(true)
+                .rollupVisibility(true)
+                .provenance(PROVENANCE)
+                .build());
+    }
+
+
+    /**
+     * Historic values are spread over the last few weeks, including values either
+     * side of the one week cut off (which fall on the same day, unless run just
+     * after midnight).
+     */
+    private void createValues(List<EntityReference> apps) {
+        LocalDateTime now = getDsl()
+                .select(DSL.currentLocalDateTime())
+                .fetchOne()
+                .value1();
+
+        LocalDateTime weekAgo = now.minusDays(7);
+
+        List<LocalDateTime> historicTimes = newArrayList(
+                now.minusHours(1),
+                now.minusDays(3),
+                weekAgo.plusMinutes(5),
+                weekAgo.minusMinutes(5),
+                now.minusDays(20));
+
+        List<EntityStatisticValue> values = new ArrayList<>();
+        int i = 0;
+        for (EntityReference app : apps) {
+            for (LocalDateTime createdAt : historicTimes) {
+                i++;
+                values.addAll(mkValues(app, String.valueOf(i % 4), i % 2 == 0 ? "PASS" : "FAIL", createdAt, false));
+            }
+            values.addAll(mkValues(app, String.valueOf(i), "PASS", now, true));
+        }
+
+        ctx.getBean(EntityStatisticValueDao.class).bulkSaveValues(values);
+    }
+
+
+    private static List<EntityStatisticValue> mkValues(EntityReference app,
+                                                       String value,
+                                                       String outcome,
+                                                       LocalDateTime createdAt,
+                                                       boolean current) {
+        List<EntityStatisticValue> values = new ArrayList<>();
+        for (long statisticId : new long[] { COUNT_STATISTIC_ID, SUM_STATISTIC_ID, AVG_STATISTIC_ID }) {
+            values.add(ImmutableEntityStatisticValue.builder()
+                    .statisticId(statisticId)
+                    .entity(app)
+                    .value(value)
+                    .outcome(outcome)
+                    .state(StatisticValueState.PROVIDED)
+                    .createdAt(createdAt)
+                    .current(current)
+                    .provenance(PROVENANCE)
+                    .build());
+        }
+        return values;
+    }
+
+
+    private static Map<String, Double> toCounts(TallyPack<String> pack) {
+        return pack
+                .tallies()
+                .stream()
+                .collect(toMap(Tally::id, Tally::count));
+    }
+
+
+    private static Map<LocalDate, Map<String, Double>> toCountsByDay(List<TallyPack<String>> packs) {
+        return packs
+                .stream()
+                .collect(toMap(
+                        p -> p.lastUpdatedAt().toLocalDate(),
+                        EntityStatisticRollupDaoTest::toCounts));
+    }
+
+
+    private static Set<Long> findCurrent(EntityStatisticRollupDao dao, Timestamp rebuiltAfter) {
+        return dao.findCurrentStatisticIds(singletonList(STATISTIC_ID), rebuiltAfter);
+    }
+
+
+    private static Timestamp minus(Timestamp ts, Duration duration) {
+        return Timestamp.valueOf(ts.toLocalDateTime().minus(duration));
+    }
+
+
+    private static Timestamp plus(Timestamp ts, Duration duration) {
+        return Timestamp.valueOf(ts.toLocalDateTime().plus(duration));
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.integration_test.physical_flow;
+
+import com.khartec.waltz.data.physical_flow.PhysicalFlowUploadDao;
+import com.khartec.waltz.integration_test.BaseIntegrationTest;
+import com.khartec.waltz.model.Criticality;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.model.physical_flow.FrequencyKind;
+import com.khartec.waltz.model.physical_flow.ImmutablePhysicalFlowParsed;
+import com.khartec.waltz.model.physical_flow.PhysicalFlow;
+import com.khartec.waltz.model.physical_flow.PhysicalFlowParsed;
+import com.khartec.waltz.model.physical_specification.DataFormatKind;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.khartec.waltz.common.ListUtilities.map;
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.model.EntityLifecycleStatus.REMOVED;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.schema.Tables.*;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class PhysicalFlowUploadDaoTest extends BaseIntegrationTest {
+
+    private static final String USER = "uploader";
+
+    private final EntityReference dataTypeA = mkRef(EntityKind.DATA_TYPE, 9_100_001L);
+    private final EntityReference dataTypeB = mkRef(EntityKind.DATA_TYPE, 9_100_002L);
+
+
+    @Test
+    public void uploadCreatesMissingFlowsWhichCanThenBeFound() {
+        PhysicalFlowUploadDao dao = ctx.getBean(PhysicalFlowUploadDao.class);
+
+        EntityReference source = createNewApp("uploadSourceA", null);
+        EntityReference target = createNewApp("uploadTargetA", null);
+
+        PhysicalFlowParsed trades = mkParsed(source, target, "trades", dataTypeA);
+        PhysicalFlowParsed positions = mkParsed(source, target, "positions", dataTypeB);
+
+        assertTrue("nothing should exist before the upload", dao.findByParsedFlows(newArrayList(trades, positions)).isEmpty());
+
+        List<PhysicalFlow> uploaded = dao.upload(newArrayList(trades, positions), USER);
+
+        assertEquals(2, uploaded.size());
+        assertEquals("both flows share the logical flow", uploaded.get(0).logicalFlowId(), uploaded.get(1).logicalFlowId());
+        assertNotEquals("each name has its own specification", uploaded.get(0).specificationId(), uploaded.get(1).specificationId());
+
+        Map<PhysicalFlowParsed, PhysicalFlow> found = dao.findByParsedFlows(newArrayList(trades, positions));
+        assertEquals(uploaded.get(0).id(), found.get(trades).id());
+        assertEquals(uploaded.get(1).id(), found.get(positions).id());
+
+        long logicalFlowId = uploaded.get(0).logicalFlowId();
+        assertEquals(
+                "the logical flow should be decorated with both data types",
+                asSet(dataTypeA.id(), dataTypeB.id()),
+                findLogicalFlowDataTypes(logicalFlowId));
+        assertEquals(asSet(dataTypeA.id()), findSpecDataTypes(uploaded.get(0).specificationId()));
+        assertEquals(asSet(dataTypeB.id()), findSpecDataTypes(uploaded.get(1).specificationId()));
+    }
+
+
+    @Test
+    public void uploadingTheSameFlowsAgainReusesTheExistingRows() {
+        PhysicalFlowUploadDao dao = ctx.getBean(PhysicalFlowUploadDao.class);
+
+        EntityReference source = createNewApp("uploadSourceB", null);
+        EntityReference target = createNewApp("uploadTargetB", null);
+        List<PhysicalFlowParsed> flows = singletonList(mkParsed(source, target, "balances", dataTypeA));
+
+        List<PhysicalFlow> first = dao.upload(flows, USER);
+        int physicalFlowCount = countPhysicalFlows(first.get(0).logicalFlowId());
+
+        List<PhysicalFlow> second = dao.upload(flows, USER);
+
+        assertEquals(map(first, PhysicalFlow::id), map(second, PhysicalFlow::id));
+        assertEquals(1, physicalFlowCount);
+        assertEquals(physicalFlowCount, countPhysicalFlows(second.get(0).logicalFlowId()));
+        assertEquals(asSet(dataTypeA.id()), findLogicalFlowDataTypes(second.get(0).logicalFlowId()));
+    }
+
+
+    @Test
+    public void uploadRestoresRemovedLogicalFlowsRatherThanDuplicatingThem() {
+        PhysicalFlowUploadDao dao = ctx.getBean(PhysicalFlowUploadDao.class);
+
+        EntityReference source = createNewApp("uploadSourceC", null);
+        EntityReference target = createNewApp("uploadTargetC", null);
+
+        LogicalFlow removed = createLogicalFlow(source, target);
+        long removedId = removed.id().get();
+        getDsl()
+                .update(LOGICAL_FLOW)
+                .set(LOGICAL_FLOW.IS_REMOVED, true)
+                .set(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS, REMOVED.name())
+                .where(LOGICAL_FLOW.ID.eq(removedId))
+                .execute();
+
+        List<PhysicalFlow> uploaded = dao.upload(singletonList(mkParsed(source, target, "prices", dataTypeA)), USER);
+
+        assertEquals(removedId, uploaded.get(0).logicalFlowId());
+        assertFalse(getDsl()
+                .select(LOGICAL_FLOW.IS_REMOVED)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.ID.eq(removedId))
+                .fetchOne(LOGICAL_FLOW.IS_REMOVED));
+        assertEquals(
+                "no further logical flows should be created between the apps",
+                1,
+                getDsl().fetchCount(
+                        LOGICAL_FLOW,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID.eq(source.id())
+                                .and(LOGICAL_FLOW.TARGET_ENTITY_ID.eq(target.id()))));
+    }
+
+
+    @Test
+    public void findByParsedFlowsRequiresMatchingAttributesAndDataType() {
+        PhysicalFlowUploadDao dao = ctx.getBean(PhysicalFlowUploadDao.class);
+
+        EntityReference source = createNewApp("uploadSourceD", null);
+        EntityReference target = createNewApp("uploadTargetD", null);
+
+        PhysicalFlowParsed original = mkParsed(source, target, "orders", dataTypeA);
+        dao.upload(singletonList(original), USER);
+
+        PhysicalFlowParsed otherFrequency = ImmutablePhysicalFlowParsed.copyOf(original).withFrequency(FrequencyKind.WEEKLY);
+        PhysicalFlowParsed otherDataType = ImmutablePhysicalFlowParsed.copyOf(original).withDataType(dataTypeB);
+        PhysicalFlowParsed otherTarget = ImmutablePhysicalFlowParsed.copyOf(original).withTarget(source);
+
+        Map<PhysicalFlowParsed, PhysicalFlow> found = dao.findByParsedFlows(newArrayList(
+                original,
+                otherFrequency,
+                otherDataType,
+                otherTarget));
+
+        assertEquals(asSet(original), found.keySet());
+    }
+
+
+    // -- helpers
+
+    private static PhysicalFlowParsed mkParsed(EntityReference source,
+                                               EntityReference target,
+                                               String name,
+                                               EntityReference dataType) {
+        return ImmutablePhysicalFlowParsed.builder()
+                .source(source)
+                .target(target)
+                .owner(source)
+                .name(name)
+                .format(DataFormatKind.FLAT_FILE)
+                .dataType(dataType)
+                .description(name + " flow")
+                .basisOffset(0)
+                .criticality(Criticality.MEDIUM)
+                .frequency(FrequencyKind.DAILY)
+                .transport("FILE_TRANSPORT")
+                .build();
+    }
+
+
+    private Set<Long> findLogicalFlowDataTypes(long logicalFlowId) {
+        return getDsl()
+                .select(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.eq(logicalFlowId))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
+                .fetchSet(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID);
+    }
+
+
+    private Set<Long> findSpecDataTypes(long specificationId) {
+        return getDsl()
+                .select(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)
+                .from(PHYSICAL_SPEC_DATA_TYPE)
+                .where(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.eq(specificationId))
+                .fetchSet(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID);
+    }
+
+
+    private int countPhysicalFlows(long logicalFlowId) {
+        return getDsl().fetchCount(PHYSICAL_FLOW, PHYSICAL_FLOW.LOGICAL_FLOW_ID.eq(logicalFlowId));
+    }
+
+}
@@ -43,14 +43,15 @@ public class OrgUnitGenerator implements SampleDataGenerator {
         return StringUtilities.parseLong(value, null);
     }
 
-    @Override
-    public Map<String, Integer> create(ApplicationContext ctx) {
-
-        DSLContext dsl = getDsl(ctx);
-        Supplier<List<String>> lineSupplier = Unchecked.supplier(() -> readLines(getClass().getResourceAsStream("/org-units.csv")));
-
-
-        List<OrganisationalUnitRecord> records = lineSupplier
+    /**
+     * Parses the sample org unit hierarchy (`/org-units.csv`) into
+     * (unsaved) records.
+     * @return org unit records, ids and parent ids are taken from the file
+     */
+    public static List<OrganisationalUnitRecord> mkOrgUnitRecords() {
+        Supplier<List<String>> lineSupplier = Unchecked.supplier(() -> readLines(OrgUnitGenerator.class.getResourceAsStream("/org-units.csv")));
+
+        return lineSupplier
                 .get()
                 .stream()
                 .skip(1)
@@ -68,6 +69,14 @@ public class OrgUnitGenerator implements SampleDataGenerator {
                     return record;
                 })
                 .collect(Collectors.toList());
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+
+        DSLContext dsl = getDsl(ctx);
+        List<OrganisationalUnitRecord> records = mkOrgUnitRecords();
 
 
         log("Inserting new OU's");
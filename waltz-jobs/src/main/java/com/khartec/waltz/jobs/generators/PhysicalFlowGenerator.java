@@ -31,6 +31,7 @@ import org.jooq.lambda.tuple.Tuple;
 import org.jooq.lambda.tuple.Tuple3;
 import org.springframework.context.ApplicationContext;
 
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -39,7 +40,6 @@ import static com.khartec.waltz.common.CollectionUtilities.isEmpty;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtcTimestamp;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.common.MapUtilities.groupBy;
-import static com.khartec.waltz.common.RandomUtilities.randomPick;
 import static com.khartec.waltz.data.physical_specification.PhysicalSpecificationDao.owningEntityNameField;
 import static com.khartec.waltz.schema.tables.EnumValue.ENUM_VALUE;
 import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
@@ -72,28 +72,40 @@ public class PhysicalFlowGenerator implements SampleDataGenerator {
             EntityLifecycleStatus.PENDING);
 
 
-    private static List<PhysicalFlowRecord> mkPhysicalFlowRecords(PhysicalSpecification spec,
-                                                                  List<Long> logicalFlowIds,
-                                                                  List<String> transportKinds) {
+    public static List<PhysicalFlowRecord> mkPhysicalFlowRecords(PhysicalSpecification spec,
+                                                                 List<Long> logicalFlowIds,
+                                                                 List<String> transportKinds) {
+        return mkPhysicalFlowRecords(spec, logicalFlowIds, transportKinds, rnd, nowUtcTimestamp());
+    }
+
 
+    /**
+     * As above but drawing from the given random source and stamping records with
+     * the given creation time, callers wanting repeatable data supply a seeded random.
+     */
+    public static List<PhysicalFlowRecord> mkPhysicalFlowRecords(PhysicalSpecification spec,
+                                                                 List<Long> logicalFlowIds,
+                                                                 List<String> transportKinds,
+                                                                 Random random,
+                                                                 Timestamp createdAt) {
 
         return IntStream.range(0, logicalFlowIds.size() - 1)
                 .mapToObj(i -> {
-                    Long logicalFlowId = logicalFlowIds.remove(rnd.nextInt(logicalFlowIds.size() - 1));
+                    Long logicalFlowId = logicalFlowIds.remove(random.nextInt(logicalFlowIds.size() - 1));
 
                     PhysicalFlowRecord record = new PhysicalFlowRecord();
                     record.setSpecificationId(spec.id().get());
                     record.setLogicalFlowId(logicalFlowId);
                     record.setDescription("Description: " + spec + " - " + logicalFlowId.toString());
                     record.setProvenance(SAMPLE_DATA_PROVENANCE);
-                    record.setBasisOffset(randomPick(newArrayList(0, 0, 0, 0, 1, 1, 2, -1)));
-                    record.setTransport(randomPick(transportKinds));
-                    record.setFrequency(randomPick(FrequencyKind.values()).name());
-                    record.setCriticality(randomPick(criticalityDistribution).name());
-                    record.setEntityLifecycleStatus(randomPick(lifecycleStatusDistribution).name());
+                    record.setBasisOffset(pick(random, newArrayList(0, 0, 0, 0, 1, 1, 2, -1)));
+                    record.setTransport(pick(random, transportKinds));
+                    record.setFrequency(pick(random, Arrays.asList(FrequencyKind.values())).name());
+                    record.setCriticality(pick(random, criticalityDistribution).name());
+                    record.setEntityLifecycleStatus(pick(random, lifecycleStatusDistribution).name());
                     record.setLastUpdatedBy("admin");
                     record.setCreatedBy("admin");
-                    record.setCreatedAt(nowUtcTimestamp());
+                    record.setCreatedAt(createdAt);
                     return record;
                 })
                 .collect(Collectors.toList());
@@ -157,6 +169,11 @@ public class PhysicalFlowGenerator implements SampleDataGenerator {
     }
 
 
+    private static <T> T pick(Random random, List<T> xs) {
+        return xs.get(random.nextInt(xs.size()));
+    }
+
+
     @Override
     public boolean remove(ApplicationContext ctx) {
         DSLContext dsl = getDsl(ctx);
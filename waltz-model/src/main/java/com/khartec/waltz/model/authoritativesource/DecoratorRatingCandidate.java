@@ -0,0 +1,45 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.authoritativesource;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+
+/**
+ * The facts about a logical flow decorator needed to determine its
+ * authoritativeness rating.  The optional values are only present when
+ * the flow is between applications and the decorator is a data type.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableDecoratorRatingCandidate.class)
+@JsonDeserialize(as = ImmutableDecoratorRatingCandidate.class)
+public abstract class DecoratorRatingCandidate {
+
+    public abstract long decoratorId();
+    public abstract AuthoritativenessRating rating();
+    public abstract Optional<Long> sourceApplicationId();
+    public abstract Optional<Long> targetOrgUnitId();
+    public abstract Optional<Long> dataTypeId();
+
+}
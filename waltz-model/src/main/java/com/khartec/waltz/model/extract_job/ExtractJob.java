@@ -0,0 +1,63 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.extract_job;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+
+/**
+ * Progress of a data extract which is being prepared asynchronously.  Once
+ * completed the extract may be downloaded until it expires from the cache.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableExtractJob.class)
+@JsonDeserialize(as = ImmutableExtractJob.class)
+public abstract class ExtractJob {
+
+    public abstract String id();
+    public abstract String extractor();
+    public abstract String format();
+    public abstract String submittedBy();
+    public abstract LocalDateTime submittedAt();
+
+    public abstract JobLifecycleStatus status();
+
+    /**
+     * Name of the generated report (without a file extension), populated once the job has completed
+     */
+    public abstract Optional<String> name();
+
+    public abstract Optional<LocalDateTime> completedAt();
+    public abstract Optional<String> error();
+
+    /**
+     * True if an identical extract, prepared against the same data, was served from the cache
+     */
+    @Value.Default
+    public boolean fromCache() {
+        return false;
+    }
+
+}
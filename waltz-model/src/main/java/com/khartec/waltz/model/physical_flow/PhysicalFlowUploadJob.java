@@ -0,0 +1,59 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.physical_flow;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * Progress of a physical flow upload which is being processed asynchronously
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutablePhysicalFlowUploadJob.class)
+@JsonDeserialize(as = ImmutablePhysicalFlowUploadJob.class)
+public abstract class PhysicalFlowUploadJob {
+
+    public abstract String id();
+    public abstract String submittedBy();
+    public abstract LocalDateTime submittedAt();
+    public abstract int commandCount();
+
+    public abstract JobLifecycleStatus status();
+
+    /**
+     * Describes the step currently being performed, e.g. `Validating`
+     */
+    public abstract Optional<String> stage();
+
+    public abstract Optional<LocalDateTime> completedAt();
+    public abstract Optional<String> error();
+
+    /**
+     * Outcome of each command, populated once the job has completed
+     */
+    public abstract List<PhysicalFlowUploadCommandResponse> results();
+
+}
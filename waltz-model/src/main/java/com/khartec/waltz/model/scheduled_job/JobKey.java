@@ -32,5 +32,7 @@ public enum JobKey {
     AUTH_SOURCE_RECALC_FLOW_RATINGS,
     LOGICAL_FLOW_CLEANUP_ORPHANS,
     ATTESTATION_CLEANUP_ORPHANS,
-    ATTESTATION_ISSUE_INSTANCES
+    ATTESTATION_ISSUE_INSTANCES,
+    ENTITY_STATISTIC_ROLLUP_REFRESH,
+    ACCESS_LOG_ROLLUP
 }
@@ -0,0 +1,52 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.scheduled_job;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+
+/**
+ * Outcome of a single execution of a scheduled job
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableScheduledJobRun.class)
+@JsonDeserialize(as = ImmutableScheduledJobRun.class)
+public abstract class ScheduledJobRun {
+
+    public abstract JobKey jobKey();
+
+    /**
+     * Either `COMPLETED` or `ERRORED` (which includes cancelled runs)
+     */
+    public abstract JobLifecycleStatus status();
+    public abstract LocalDateTime startedAt();
+    public abstract long durationMillis();
+
+    /**
+     * Number of rows affected, if reported by the job
+     */
+    public abstract Optional<Integer> rowCount();
+    public abstract Optional<String> error();
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.sql_latency;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+
+/**
+ * Latency statistics for all executions of a query 'shape', i.e. sql which
+ * differs only in bind values / literals.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableSqlShapeStatistics.class)
+@JsonDeserialize(as = ImmutableSqlShapeStatistics.class)
+public abstract class SqlShapeStatistics {
+
+    public abstract String fingerprint();
+    public abstract long executionCount();
+    public abstract long errorCount();
+    public abstract long slowCount();
+    public abstract long rowCount();
+
+    public abstract double totalMillis();
+    public abstract double meanMillis();
+    public abstract double p50Millis();
+    public abstract double p95Millis();
+    public abstract double p99Millis();
+    public abstract double maxMillis();
+
+    public abstract double meanConnectionAcquireMillis();
+    public abstract double maxConnectionAcquireMillis();
+
+    /**
+     * The most recently sampled slow execution with bind values inlined
+     */
+    public abstract Optional<String> sampleSql();
+
+}
@@ -62,9 +62,16 @@ export function store($http, BaseApiUrl) {
     };
 
 
-    const findUpstreamFlowsForEntityReferences = (refs = []) => {
+    const findUpstreamFlowsForEntityReferences = (refs = [], hops = 1) => {
         return $http
-            .post(`${BASE}/find-upstream-flows`, refs)
+            .post(`${BASE}/find-upstream-flows`, refs, { params: { hops } })
+            .then(result => result.data);
+    };
+
+
+    const findDownstreamFlowsForEntityReferences = (refs = [], hops = 1) => {
+        return $http
+            .post(`${BASE}/find-downstream-flows`, refs, { params: { hops } })
             .then(result => result.data);
     };
 
@@ -108,6 +115,7 @@ export function store($http, BaseApiUrl) {
         findByEntityReference,
         findBySourceAndTargetEntityReferences,
         findUpstreamFlowsForEntityReferences,
+        findDownstreamFlowsForEntityReferences,
         calculateStats,
         countByDataType,
         removeFlow,
@@ -156,7 +164,12 @@ export const LogicalFlowStore_API = {
     findUpstreamFlowsForEntityReferences: {
         serviceName,
         serviceFnName: "findUpstreamFlowsForEntityReferences",
-        description: "findUpstreamFlowsForEntityReferences - given a list of entity reference returns all flows feeding any of those apps"
+        description: "findUpstreamFlowsForEntityReferences - given a list of entity reference (and optional number of hops) returns all flows feeding any of those apps"
+    },
+    findDownstreamFlowsForEntityReferences: {
+        serviceName,
+        serviceFnName: "findDownstreamFlowsForEntityReferences",
+        description: "findDownstreamFlowsForEntityReferences - given a list of entity reference (and optional number of hops) returns all flows fed by any of those apps"
     },
     calculateStats: {
         serviceName,
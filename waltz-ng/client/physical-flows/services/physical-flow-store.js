@@ -130,6 +130,20 @@ export function store($http, baseApiUrl) {
     };
 
 
+    const submitUpload = (commands) => {
+        return $http
+            .post(`${base}/upload/async`, commands)
+            .then(r => r.data);
+    };
+
+
+    const getUploadJob = (jobId) => {
+        return $http
+            .get(`${base}/upload/job/${jobId}`)
+            .then(r => r.data);
+    };
+
+
     const cleanupOrphans = () => $http
         .get(`${base}/cleanup-orphans`)
         .then(r => r.data);
@@ -151,6 +165,8 @@ export function store($http, baseApiUrl) {
         updateAttribute,
         validateUpload,
         upload,
+        submitUpload,
+        getUploadJob,
         cleanupOrphans
     };
 }
@@ -242,6 +258,16 @@ export const PhysicalFlowStore_API = {
         serviceFnName: "upload",
         description: "executes upload"
     },
+    submitUpload: {
+        serviceName,
+        serviceFnName: "submitUpload",
+        description: "submits an upload to run in the background, returns a job to poll"
+    },
+    getUploadJob: {
+        serviceName,
+        serviceFnName: "getUploadJob",
+        description: "executes getUploadJob [jobId]"
+    },
     cleanupOrphans: {
         serviceName,
         serviceFnName: "cleanupOrphans",
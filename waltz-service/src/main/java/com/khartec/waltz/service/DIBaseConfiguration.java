@@ -19,8 +19,8 @@
 package com.khartec.waltz.service;
 
 
-import com.khartec.waltz.data.DBExecutorPool;
-import com.khartec.waltz.data.DBExecutorPoolInterface;
+import com.khartec.waltz.data.InstrumentedDBExecutorPool;
+import com.khartec.waltz.service.sql_latency.SqlLatencyListener;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.jooq.DSLContext;
@@ -36,6 +36,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 
 import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @PropertySource(value = "classpath:waltz.properties", ignoreResourceNotFound = true)
@@ -66,13 +67,22 @@ public class DIBaseConfiguration {
     @Value("${database.pool.min:2}")
     private int dbPoolMin;
 
+    @Value("${database.executor.queue.capacity:1000}")
+    private int dbExecutorQueueCapacity;
+
     @Value("${jooq.dialect}")
     private String dialect;
 
     @Value("${database.performance.query.slow.threshold:10}")
     private int databasePerformanceQuerySlowThreshold;
 
-    @Bean
+    @Value("${database.performance.query.slow.threshold.millis:-1}")
+    private long databasePerformanceQuerySlowThresholdMillis;
+
+    @Value("${database.performance.query.bind.sample.rate:1.0}")
+    private double databasePerformanceQueryBindSampleRate;
+
+    @Bean(destroyMethod = "close")
     public DataSource dataSource() {
 
         HikariConfig dsConfig = new HikariConfig();
@@ -86,15 +96,25 @@ public class DIBaseConfiguration {
     }
 
 
+    @Bean(destroyMethod = "shutdown")
+    public InstrumentedDBExecutorPool dbExecutorPool() {
+        return new InstrumentedDBExecutorPool(dbPoolMax, dbExecutorQueueCapacity);
+    }
+
+
     @Bean
-    public DBExecutorPoolInterface dbExecutorPool() {
-        return new DBExecutorPool(dbPoolMin, dbPoolMax);
+    public SqlLatencyListener sqlLatencyListener() {
+        long slowQueryThresholdMillis = databasePerformanceQuerySlowThresholdMillis >= 0
+                ? databasePerformanceQuerySlowThresholdMillis
+                : TimeUnit.SECONDS.toMillis(databasePerformanceQuerySlowThreshold);
+
+        return new SqlLatencyListener(slowQueryThresholdMillis, databasePerformanceQueryBindSampleRate);
     }
 
 
     @Bean
     @Autowired
-    public DSLContext dsl(DataSource dataSource) {
+    public DSLContext dsl(DataSource dataSource, SqlLatencyListener sqlLatencyListener) {
         try {
             SQLDialect.valueOf(dialect);
         } catch (IllegalArgumentException iae) {
@@ -116,7 +136,7 @@ public class DIBaseConfiguration {
                 .set(dataSource)
                 .set(SQLDialect.valueOf(dialect))
                 .set(dslSettings)
-                .set(new SlowQueryListener(databasePerformanceQuerySlowThreshold));
+                .set(sqlLatencyListener);
 
         return DSL.using(configuration);
     }
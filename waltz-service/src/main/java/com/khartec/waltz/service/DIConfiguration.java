@@ -18,13 +18,33 @@
 
 package com.khartec.waltz.service;
 
+import com.khartec.waltz.data.EntityNameDictionary;
+import com.khartec.waltz.data.InstrumentedDBExecutorPool;
+import com.khartec.waltz.data.changelog.ChangeLogDao;
 import com.khartec.waltz.model.ImmutableWaltzVersionInfo;
 import com.khartec.waltz.model.WaltzVersionInfo;
 import com.khartec.waltz.model.settings.ImmutableSetting;
 import com.khartec.waltz.model.settings.Setting;
+import com.khartec.waltz.service.changelog.ChangeLogWriter;
 import com.khartec.waltz.service.email.DummyJavaMailSender;
+import com.khartec.waltz.service.extract_job.ExtractArtifactCache;
+import com.khartec.waltz.service.extract_job.ExtractJobRunner;
+import com.khartec.waltz.service.jmx.ChangeLogWriterMaintenance;
+import com.khartec.waltz.service.jmx.DBExecutorPoolMaintenance;
+import com.khartec.waltz.service.jmx.EntityNameDictionaryMaintenance;
+import com.khartec.waltz.service.jmx.ExtractJobMaintenance;
 import com.khartec.waltz.service.jmx.PersonMaintenance;
+import com.khartec.waltz.service.jmx.ReportGridMaintenance;
+import com.khartec.waltz.service.jmx.ResultCacheMaintenance;
+import com.khartec.waltz.service.jmx.ScheduledJobMaintenance;
+import com.khartec.waltz.service.jmx.SqlLatencyMaintenance;
 import com.khartec.waltz.service.person_hierarchy.PersonHierarchyService;
+import com.khartec.waltz.service.report_grid.ReportGridService;
+import com.khartec.waltz.service.result_cache.LruResultCache;
+import com.khartec.waltz.service.result_cache.ResultCache;
+import com.khartec.waltz.service.scheduled_job.ScheduledJobRunner;
+import com.khartec.waltz.service.scheduled_job.ScheduledJobService;
+import com.khartec.waltz.service.sql_latency.SqlLatencyService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
@@ -39,7 +59,9 @@ import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
+import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -74,6 +96,53 @@ public class DIConfiguration implements SchedulingConfigurer {
     @Value("${settings.override:#{null}}")
     private String settingsOverrideStr;
 
+    // -- CACHING ---
+
+    @Value("${waltz.cache.results.max-entries:0}")
+    private int resultCacheMaxEntries;
+
+    @Value("${waltz.cache.results.ttl-seconds:600}")
+    private int resultCacheTtlSeconds;
+
+    // -- SCHEDULED JOBS ---
+
+    @Value("${waltz.scheduled-jobs.threads:4}")
+    private int scheduledJobThreads;
+
+    @Value("${waltz.scheduler.threads:6}")
+    private int schedulerThreads;
+
+    // -- CHANGE LOG ---
+
+    @Value("${waltz.change-log.async.enabled:false}")
+    private boolean changeLogAsync;
+
+    @Value("${waltz.change-log.async.queue-capacity:10000}")
+    private int changeLogQueueCapacity;
+
+    @Value("${waltz.change-log.async.batch-size:250}")
+    private int changeLogBatchSize;
+
+    @Value("${waltz.change-log.async.offer-timeout-ms:100}")
+    private long changeLogOfferTimeoutMillis;
+
+    @Value("${waltz.change-log.async.shutdown-timeout-seconds:30}")
+    private long changeLogShutdownTimeoutSeconds;
+
+    // -- EXTRACTS ---
+
+    @Value("${waltz.extract.jobs.threads:2}")
+    private int extractJobThreads;
+
+    @Value("${waltz.extract.jobs.queue-capacity:20}")
+    private int extractJobQueueCapacity;
+
+    @Value("${waltz.extract.cache.directory:#{null}}")
+    private String extractCacheDirectory;
+
+    @Value("${waltz.extract.cache.ttl-minutes:60}")
+    private long extractCacheTtlMinutes;
+
     @Bean
     public WaltzVersionInfo waltzBuildInfo() {
         return ImmutableWaltzVersionInfo.builder()
@@ -119,6 +188,108 @@ public class DIConfiguration implements SchedulingConfigurer {
     }
 
 
+    @Bean
+    @Autowired
+    public ReportGridMaintenance reportGridMaintenance(ReportGridService reportGridService) {
+        return new ReportGridMaintenance(reportGridService);
+    }
+
+
+    @Bean
+    public ResultCache resultCache() {
+        return new LruResultCache(resultCacheMaxEntries, resultCacheTtlSeconds);
+    }
+
+
+    @Bean
+    @Autowired
+    public ResultCacheMaintenance resultCacheMaintenance(ResultCache resultCache) {
+        return new ResultCacheMaintenance(resultCache);
+    }
+
+
+    @Bean
+    @Autowired
+    public DBExecutorPoolMaintenance dbExecutorPoolMaintenance(InstrumentedDBExecutorPool dbExecutorPool) {
+        return new DBExecutorPoolMaintenance(dbExecutorPool);
+    }
+
+
+    @Bean
+    @Autowired
+    public SqlLatencyMaintenance sqlLatencyMaintenance(SqlLatencyService sqlLatencyService) {
+        return new SqlLatencyMaintenance(sqlLatencyService);
+    }
+
+
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledJobRunner scheduledJobRunner() {
+        return new ScheduledJobRunner(scheduledJobThreads);
+    }
+
+
+    @Bean
+    @Autowired
+    public ScheduledJobMaintenance scheduledJobMaintenance(ScheduledJobService scheduledJobService) {
+        return new ScheduledJobMaintenance(scheduledJobService);
+    }
+
+
+    @Bean(destroyMethod = "shutdown")
+    @Autowired
+    public ChangeLogWriter changeLogWriter(ChangeLogDao changeLogDao) {
+        return new ChangeLogWriter(
+                changeLogDao,
+                changeLogAsync,
+                changeLogQueueCapacity,
+                changeLogBatchSize,
+                changeLogOfferTimeoutMillis,
+                TimeUnit.SECONDS.toMillis(changeLogShutdownTimeoutSeconds));
+    }
+
+
+    @Bean
+    @Autowired
+    public ChangeLogWriterMaintenance changeLogWriterMaintenance(ChangeLogWriter changeLogWriter) {
+        return new ChangeLogWriterMaintenance(changeLogWriter);
+    }
+
+
+    @Bean
+    public ExtractArtifactCache extractArtifactCache() {
+        return new ExtractArtifactCache(
+                extractCacheDirectory == null
+                    ? Paths.get(System.getProperty("java.io.tmpdir"), "waltz-extracts")
+                    : Paths.get(extractCacheDirectory),
+                TimeUnit.MINUTES.toMillis(extractCacheTtlMinutes));
+    }
+
+
+    @Bean(destroyMethod = "shutdown")
+    @Autowired
+    public ExtractJobRunner extractJobRunner(ExtractArtifactCache extractArtifactCache) {
+        return new ExtractJobRunner(
+                extractArtifactCache,
+                extractJobThreads,
+                extractJobQueueCapacity);
+    }
+
+
+    @Bean
+    @Autowired
+    public ExtractJobMaintenance extractJobMaintenance(ExtractJobRunner extractJobRunner,
+                                                       ExtractArtifactCache extractArtifactCache) {
+        return new ExtractJobMaintenance(extractJobRunner, extractArtifactCache);
+    }
+
+
+    @Bean
+    @Autowired
+    public EntityNameDictionaryMaintenance entityNameDictionaryMaintenance(EntityNameDictionary entityNameDictionary) {
+        return new EntityNameDictionaryMaintenance(entityNameDictionary);
+    }
+
+
     @Bean
     public JavaMailSender mailSender() {
         if (smtpHost == null) {
@@ -135,6 +306,8 @@ public class DIConfiguration implements SchedulingConfigurer {
     @Bean
     public TaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.max(1, schedulerThreads));
+        scheduler.setThreadNamePrefix("WaltzScheduler-");
         scheduler.setDaemon(true);
         return scheduler;
     }
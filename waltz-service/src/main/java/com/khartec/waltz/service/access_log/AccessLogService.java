@@ -21,13 +21,29 @@ package com.khartec.waltz.service.access_log;
 import com.khartec.waltz.data.access_log.AccessLogDao;
 import com.khartec.waltz.model.accesslog.AccessLog;
 import com.khartec.waltz.model.accesslog.AccessTime;
+import com.khartec.waltz.model.accesslog.ImmutableAccessTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotEmpty;
 import static com.khartec.waltz.common.Checks.checkNotNull;
@@ -37,7 +53,41 @@ import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
 @Service
 public class AccessLogService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AccessLogService.class);
+
+    private static final BinaryOperator<LocalDateTime> LATEST = (a, b) -> a.isAfter(b) ? a : b;
+
+    /**
+     * If enabled, entries are buffered and written in batches (by the periodic
+     * flush or, once the buffer is full, by the request adding the entry).  If a
+     * batch cannot be written its entries are put back in the buffer, as far as
+     * the buffer limit allows, and retried on the next flush.  Recent
+     * activity is then also tracked in memory, resynchronised with the database
+     * on each flush so entries written by other instances are included.
+     */
+    @Value("${waltz.access-log.buffer.enabled:false}")
+    private boolean bufferEnabled;
+
+    @Value("${waltz.access-log.buffer.max-entries:500}")
+    private int maxBufferedEntries;
+
+    @Value("${waltz.access-log.buffer.flush-interval-ms:5000}")
+    private long flushIntervalMillis;
+
+    @Value("${waltz.access-log.active-users.window-minutes:1440}")
+    private int activeUserWindowMinutes;
+
+    @Value("${waltz.access-log.retention-days:0}")
+    private int retentionDays;
+
     private final AccessLogDao accessLogDao;
+    private final Queue<AccessLog> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferSize = new AtomicInteger();
+    private final LongAdder droppedCount = new LongAdder();
+    private volatile long lastFailedFlushAt = 0;
+    private final Map<String, LocalDateTime> lastAccessByUser = new ConcurrentHashMap<>();
+    private volatile LocalDateTime activeUsersSyncedAt = null;
+
 
     @Autowired
     public AccessLogService(AccessLogDao accessLogDao) {
@@ -45,9 +95,28 @@ public class AccessLogService {
     }
 
 
+    /**
+     * @return 1 if the entry was buffered, otherwise the number of rows written
+     */
     public int write(AccessLog logEntry) {
         checkNotNull(logEntry, "logEntry must not be null");
-        return accessLogDao.write(logEntry);
+
+        if (! bufferEnabled) {
+            return accessLogDao.write(logEntry);
+        }
+
+        buffer.add(logEntry);
+        lastAccessByUser.merge(logEntry.userId(), logEntry.createdAt(), LATEST);
+
+        if (bufferSize.incrementAndGet() >= maxBufferedEntries) {
+            if (isRetryDue()) {
+                flush();
+            } else {
+                dropOldest(bufferSize.get() - maxBufferedEntries);
+            }
+        }
+
+        return 1;
     }
 
 
@@ -60,7 +129,170 @@ public class AccessLogService {
 
     public List<AccessTime> findActiveUsersSince(Duration duration) {
         LocalDateTime sinceTime = nowUtc().minus(duration);
-        return accessLogDao.findActiveUsersSince(sinceTime);
+
+        boolean withinWindow = bufferEnabled
+                && activeUsersSyncedAt != null
+                && duration.toMinutes() <= activeUserWindowMinutes;
+
+        if (! withinWindow) {
+            return accessLogDao.findActiveUsersSince(sinceTime);
+        }
+
+        return lastAccessByUser
+                .entrySet()
+                .stream()
+                .filter(e -> ! e.getValue().isBefore(sinceTime))
+                .sorted(Map.Entry.<String, LocalDateTime>comparingByValue().reversed())
+                .map(e -> ImmutableAccessTime.builder()
+                        .userId(e.getKey())
+                        .createdAt(e.getValue())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Writes any buffered entries as a single batch.  If the write fails the
+     * entries are requeued (see `requeue`) for the next attempt.
+     * @return number of entries written
+     */
+    public int flush() {
+        List<AccessLog> entries = new ArrayList<>();
+        AccessLog entry;
+        while ((entry = buffer.poll()) != null) {
+            entries.add(entry);
+        }
+
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        bufferSize.addAndGet(-entries.size());
+
+        try {
+            accessLogDao.write(entries);
+            lastFailedFlushAt = 0;
+            return entries.size();
+        } catch (Exception e) {
+            lastFailedFlushAt = System.currentTimeMillis();
+            int requeued = requeue(entries);
+            LOG.warn("Failed to write {} access log entries, {} requeued for retry", entries.size(), requeued, e);
+            return 0;
+        }
+    }
+
+
+    /**
+     * @return number of entries discarded as the buffer was full and could not be written
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+
+    @Scheduled(fixedDelayString = "${waltz.access-log.buffer.flush-interval-ms:5000}")
+    public void flushAndSyncActiveUsers() {
+        if (bufferEnabled) {
+            flush();
+            syncActiveUsers();
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        int flushed = flush();
+        if (flushed > 0) {
+            LOG.info("Wrote {} buffered access log entries on shutdown", flushed);
+        }
+    }
+
+
+    /**
+     * Rolls up access log entries older than the retention period into daily
+     * counts per user and state, a day at a time.
+     *
+     * @return number of access log entries rolled up
+     */
+    public int rollupExpiredEntries() {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+
+        LocalDate cutoff = nowUtc().toLocalDate().minusDays(retentionDays);
+        Optional<LocalDate> oldest = accessLogDao.findOldestAccessDate();
+
+        int rolledUp = 0;
+        for (LocalDate day = oldest.orElse(cutoff);
+             day.isBefore(cutoff) && ! Thread.currentThread().isInterrupted();
+             day = day.plusDays(1)) {
+            rolledUp += accessLogDao.rollupDay(day);
+        }
+
+        LOG.info("Rolled up {} access log entries made before {}", rolledUp, cutoff);
+        return rolledUp;
+    }
+
+
+    // --- helpers
+
+    /**
+     * After a failed flush, requests filling the buffer do not retry the
+     * write themselves until the flush interval has passed.
+     */
+    private boolean isRetryDue() {
+        return System.currentTimeMillis() - lastFailedFlushAt >= flushIntervalMillis;
+    }
+
+
+    /**
+     * Puts entries from a failed batch back into the buffer, keeping the most
+     * recent entries which fit within the buffer limit.
+     * @param entries  the failed batch, oldest first
+     * @return number of entries requeued
+     */
+    private int requeue(List<AccessLog> entries) {
+        int room = Math.max(0, maxBufferedEntries - bufferSize.get());
+        int toKeep = Math.min(room, entries.size());
+        int toDrop = entries.size() - toKeep;
+
+        buffer.addAll(entries.subList(toDrop, entries.size()));
+        bufferSize.addAndGet(toKeep);
+
+        if (toDrop > 0) {
+            droppedCount.add(toDrop);
+            LOG.warn("Access log buffer is full, discarded {} entries", toDrop);
+        }
+        return toKeep;
+    }
+
+
+    private void dropOldest(int count) {
+        int dropped = 0;
+        while (dropped < count && buffer.poll() != null) {
+            dropped++;
+        }
+        bufferSize.addAndGet(-dropped);
+        droppedCount.add(dropped);
+    }
+
+
+    private void syncActiveUsers() {
+        LocalDateTime now = nowUtc();
+        LocalDateTime windowStart = now.minusMinutes(activeUserWindowMinutes);
+
+        // re-read a little before the last sync as other instances flush their entries late
+        Duration overlap = Duration.ofMillis(Math.max(60_000, 2 * flushIntervalMillis));
+        LocalDateTime since = activeUsersSyncedAt == null
+                ? windowStart
+                : LATEST.apply(windowStart, activeUsersSyncedAt.minus(overlap));
+
+        accessLogDao
+                .findActiveUsersSince(since)
+                .forEach(t -> lastAccessByUser.merge(t.userId(), t.createdAt(), LATEST));
+
+        lastAccessByUser.values().removeIf(t -> t.isBefore(windowStart));
+        activeUsersSyncedAt = now;
     }
 
 }
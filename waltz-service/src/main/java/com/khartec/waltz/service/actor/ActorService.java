@@ -31,6 +31,8 @@ import com.khartec.waltz.model.command.CommandOutcome;
 import com.khartec.waltz.model.command.CommandResponse;
 import com.khartec.waltz.model.command.ImmutableCommandResponse;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -46,25 +48,36 @@ public class ActorService {
 
     private final ActorDao actorDao;
     private final ActorSearchDao actorSearchDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public ActorService(ActorDao actorDao, ActorSearchDao actorSearchDao) {
+    public ActorService(ActorDao actorDao,
+                        ActorSearchDao actorSearchDao,
+                        ReferenceDataService referenceDataService) {
         checkNotNull(actorDao, "actorDao cannot be null");
         checkNotNull(actorSearchDao, "actorSearchDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.actorDao = actorDao;
         this.actorSearchDao = actorSearchDao;
+        this.referenceDataService = referenceDataService;
     }
 
 
     public List<Actor> findAll() {
-        return actorDao.findAll();
+        return referenceDataService
+                .findSnapshot()
+                .map(ReferenceDataSnapshot::actors)
+                .orElseGet(actorDao::findAll);
     }
 
 
     public Actor getById(long id) {
-        return actorDao.getById(id);
+        return referenceDataService
+                .findSnapshot()
+                .flatMap(s -> s.findActorById(id))
+                .orElseGet(() -> actorDao.getById(id));
     }
 
 
@@ -72,7 +85,9 @@ public class ActorService {
         checkNotNull(command, "command cannot be null");
         checkNotNull(username, "username cannot be null");
 
-        return actorDao.create(command, username);
+        Long id = actorDao.create(command, username);
+        referenceDataService.markStale();
+        return id;
     }
 
 
@@ -85,6 +100,7 @@ public class ActorService {
                 .withLastUpdate(UserTimestamp.mkForUser(username));
 
         boolean success = actorDao.update(updateCommand);
+        referenceDataService.markStale();
         return ImmutableCommandResponse.<ActorChangeCommand>builder()
                 .originalCommand(command)
                 .entityReference(EntityReference.mkRef(EntityKind.ACTOR, command.id()))
@@ -94,7 +110,9 @@ public class ActorService {
 
 
     public boolean delete(long id) {
-        return actorDao.deleteIfNotUsed(id);
+        boolean deleted = actorDao.deleteIfNotUsed(id);
+        referenceDataService.markStale();
+        return deleted;
     }
 
 
@@ -32,6 +32,7 @@ import com.khartec.waltz.model.application.Application;
 import com.khartec.waltz.model.application.AssetCodeRelationshipKind;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
 import com.khartec.waltz.model.tally.Tally;
+import com.khartec.waltz.service.entity_statistic.EntityStatisticService;
 import com.khartec.waltz.service.tag.TagService;
 import org.jooq.Record1;
 import org.jooq.Select;
@@ -60,6 +61,7 @@ public class ApplicationService {
     private final TagService tagService;
     private final EntityAliasDao entityAliasDao;
     private final ApplicationSearchDao appSearchDao;
+    private final EntityStatisticService entityStatisticService;
     private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
 
 
@@ -67,16 +69,19 @@ public class ApplicationService {
     public ApplicationService(ApplicationDao appDao,
                               TagService tagService,
                               EntityAliasDao entityAliasDao,
-                              ApplicationSearchDao appSearchDao) {
+                              ApplicationSearchDao appSearchDao,
+                              EntityStatisticService entityStatisticService) {
         checkNotNull(appDao, "appDao must not be null");
         checkNotNull(tagService, "tagService must not be null");
         checkNotNull(entityAliasDao, "entityAliasDao must not be null");
         checkNotNull(appSearchDao, "appSearchDao must not be null");
+        checkNotNull(entityStatisticService, "entityStatisticService must not be null");
 
         this.applicationDao = appDao;
         this.tagService = tagService;
         this.entityAliasDao = entityAliasDao;
         this.appSearchDao = appSearchDao;
+        this.entityStatisticService = entityStatisticService;
     }
 
 
@@ -138,7 +143,10 @@ public class ApplicationService {
 
 
     public Integer update(Application application) {
-        return applicationDao.update(application);
+        Application existing = applicationDao.getById(application.id().get());
+        int rc = applicationDao.update(application);
+        entityStatisticService.markApplicationChanged(existing, application);
+        return rc;
     }
 
 
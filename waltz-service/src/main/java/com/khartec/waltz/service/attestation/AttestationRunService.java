@@ -22,7 +22,6 @@ package com.khartec.waltz.service.attestation;
 import com.khartec.waltz.data.GenericSelector;
 import com.khartec.waltz.data.GenericSelectorFactory;
 import com.khartec.waltz.data.attestation.AttestationInstanceDao;
-import com.khartec.waltz.data.attestation.AttestationInstanceRecipientDao;
 import com.khartec.waltz.data.attestation.AttestationRunDao;
 import com.khartec.waltz.data.involvement.InvolvementDao;
 import com.khartec.waltz.model.*;
@@ -31,6 +30,9 @@ import com.khartec.waltz.model.person.Person;
 import com.khartec.waltz.service.email.EmailService;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -48,16 +50,19 @@ import static com.khartec.waltz.model.EntityReference.mkRef;
 import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
 import static com.khartec.waltz.model.attestation.AttestationStatus.ISSUED;
 import static com.khartec.waltz.model.attestation.AttestationStatus.ISSUING;
+import static com.khartec.waltz.model.attestation.AttestationStatus.PENDING;
 import static com.khartec.waltz.model.utils.IdUtilities.toIds;
 import static java.util.Optional.empty;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 
 @Service
 public class AttestationRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AttestationRunService.class);
+
     private final AttestationInstanceDao attestationInstanceDao;
-    private final AttestationInstanceRecipientDao attestationInstanceRecipientDao;
     private final AttestationRunDao attestationRunDao;
     private final EmailService emailService;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
@@ -65,18 +70,15 @@ public class AttestationRunService {
 
     @Autowired
     public AttestationRunService(AttestationInstanceDao attestationInstanceDao,
-                                 AttestationInstanceRecipientDao attestationInstanceRecipientDao,
                                  AttestationRunDao attestationRunDao,
                                  EmailService emailService,
                                  InvolvementDao involvementDao) {
-        checkNotNull(attestationInstanceRecipientDao, "attestationInstanceRecipientDao cannot be null");
         checkNotNull(attestationInstanceDao, "attestationInstanceDao cannot be null");
         checkNotNull(attestationRunDao, "attestationRunDao cannot be null");
         checkNotNull(emailService, "emailService cannot be null");
         checkNotNull(involvementDao, "involvementDao cannot be null");
 
         this.attestationInstanceDao = attestationInstanceDao;
-        this.attestationInstanceRecipientDao = attestationInstanceRecipientDao;
         this.attestationRunDao = attestationRunDao;
         this.emailService = emailService;
         this.involvementDao = involvementDao;
@@ -231,24 +233,22 @@ public class AttestationRunService {
 
     private void createAttestationInstancesAndRecipients(List<AttestationInstanceRecipient> instanceRecipients) {
 
-        Map<AttestationInstance, List<AttestationInstanceRecipient>> instancesAndRecipientsToSave = instanceRecipients
+        Map<AttestationInstance, List<String>> recipientsByInstance = instanceRecipients
                 .stream()
                 .collect(groupingBy(
                         AttestationInstanceRecipient::attestationInstance,
-                        toList()
-                ));
-
-
-        // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k, v) -> {
-                    // create instance
-                    long instanceId = attestationInstanceDao.create(k);
-
-                    // create recipients for the instance
-                    v.forEach(r -> attestationInstanceRecipientDao.create(instanceId, r.userId()));
-                }
-        );
+                        mapping(AttestationInstanceRecipient::userId, toList())));
+
+        // insert new instances and recipients in a single transaction
+        long start = System.currentTimeMillis();
+        Tuple2<Integer, Integer> counts = attestationInstanceDao.createInstancesAndRecipients(recipientsByInstance);
+        long duration = Math.max(1, System.currentTimeMillis() - start);
+
+        LOG.info("Issued {} attestation instances and {} recipients in {}ms ({} rows/sec)",
+                counts.v1,
+                counts.v2,
+                duration,
+                (counts.v1 + counts.v2) * 1000L / duration);
     }
 
 
@@ -295,7 +295,13 @@ public class AttestationRunService {
         attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUING);
 
         if(!isEmpty(instanceRecipients)){
-            createAttestationInstancesAndRecipients(instanceRecipients);
+            try {
+                createAttestationInstancesAndRecipients(instanceRecipients);
+            } catch (RuntimeException e) {
+                // nothing was written, return the runs to pending so they are retried
+                attestationRunDao.updateStatusForRunIds(runsBeingIssued, PENDING);
+                throw e;
+            }
         }
 
         return attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUED);
@@ -0,0 +1,145 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.authoritative_source;
+
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.DecoratorRatingCandidate;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Calculates the authoritativeness ratings of logical flow decorators in memory.
+ *
+ * Vantage points are applied in the order given (most specific first), matching
+ * the successive per vantage point updates this replaces: a decorator is covered
+ * by a vantage point if the target app's org unit and the decorator's data type
+ * are within the vantage point's org unit and data type.  Each covering vantage
+ * point rates the decorator, if it is still NO_OPINION or DISCOURAGED, as either
+ * the vantage point rating (if the flow source is the authoritative app) or as
+ * DISCOURAGED.
+ *
+ * Instances cache intermediate results and are not thread safe, create one per
+ * recalculation.
+ */
+public class AuthSourceRatingDeltaCalculator {
+
+    private final List<AuthoritativeRatingVantagePoint> vantagePoints;
+    private final Map<Tuple2<Long, Long>, List<Integer>> vantagePointIdxsByOrgUnitAndDataType = new HashMap<>();
+    private final Map<Tuple2<Long, Long>, List<AuthoritativeRatingVantagePoint>> coveringVantagePoints = new HashMap<>();
+    private final HierarchyIndex orgUnitHierarchy;
+    private final HierarchyIndex dataTypeHierarchy;
+
+
+    /**
+     * @param vantagePoints  ordered most specific first
+     * @param orgUnitHierarchy  used to find the ancestors of the target apps org unit
+     * @param dataTypeHierarchy  used to find the ancestors of the decorator data type
+     */
+    public AuthSourceRatingDeltaCalculator(List<AuthoritativeRatingVantagePoint> vantagePoints,
+                                           HierarchyIndex orgUnitHierarchy,
+                                           HierarchyIndex dataTypeHierarchy) {
+        checkNotNull(vantagePoints, "vantagePoints cannot be null");
+        checkNotNull(orgUnitHierarchy, "orgUnitHierarchy cannot be null");
+        checkNotNull(dataTypeHierarchy, "dataTypeHierarchy cannot be null");
+
+        this.vantagePoints = new ArrayList<>(vantagePoints);
+        this.orgUnitHierarchy = orgUnitHierarchy;
+        this.dataTypeHierarchy = dataTypeHierarchy;
+
+        for (int i = 0; i < this.vantagePoints.size(); i++) {
+            AuthoritativeRatingVantagePoint vp = this.vantagePoints.get(i);
+            vantagePointIdxsByOrgUnitAndDataType
+                    .computeIfAbsent(tuple(vp.vantagePoint().id(), vp.dataType().id()), k -> new ArrayList<>())
+                    .add(i);
+        }
+    }
+
+
+    public AuthoritativenessRating calculate(DecoratorRatingCandidate candidate) {
+        checkNotNull(candidate, "candidate cannot be null");
+
+        if (! (candidate.sourceApplicationId().isPresent()
+                && candidate.targetOrgUnitId().isPresent()
+                && candidate.dataTypeId().isPresent())) {
+            return AuthoritativenessRating.NO_OPINION;
+        }
+
+        Long sourceAppId = candidate.sourceApplicationId().get();
+        List<AuthoritativeRatingVantagePoint> covering = findCoveringVantagePoints(
+                candidate.targetOrgUnitId().get(),
+                candidate.dataTypeId().get());
+
+        AuthoritativenessRating rating = AuthoritativenessRating.NO_OPINION;
+        for (AuthoritativeRatingVantagePoint vp : covering) {
+            if (rating == AuthoritativenessRating.NO_OPINION || rating == AuthoritativenessRating.DISCOURAGED) {
+                rating = sourceAppId.equals(vp.applicationId())
+                        ? vp.rating()
+                        : AuthoritativenessRating.DISCOURAGED;
+            }
+        }
+        return rating;
+    }
+
+
+    /**
+     * @return new ratings, keyed by decorator id, for those candidates whose
+     *   rating differs from the calculated one
+     */
+    public Map<Long, AuthoritativenessRating> calculateChanges(Collection<DecoratorRatingCandidate> candidates) {
+        checkNotNull(candidates, "candidates cannot be null");
+
+        Map<Long, AuthoritativenessRating> changes = new HashMap<>();
+        for (DecoratorRatingCandidate candidate : candidates) {
+            AuthoritativenessRating rating = calculate(candidate);
+            if (rating != candidate.rating()) {
+                changes.put(candidate.decoratorId(), rating);
+            }
+        }
+        return changes;
+    }
+
+
+    private List<AuthoritativeRatingVantagePoint> findCoveringVantagePoints(long orgUnitId, long dataTypeId) {
+        return coveringVantagePoints.computeIfAbsent(
+                tuple(orgUnitId, dataTypeId),
+                k -> {
+                    List<Integer> idxs = new ArrayList<>();
+                    for (long ouAncestorId : orgUnitHierarchy.findAncestors(orgUnitId)) {
+                        for (long dtAncestorId : dataTypeHierarchy.findAncestors(dataTypeId)) {
+                            idxs.addAll(vantagePointIdxsByOrgUnitAndDataType.getOrDefault(
+                                    tuple(ouAncestorId, dtAncestorId),
+                                    Collections.emptyList()));
+                        }
+                    }
+                    Collections.sort(idxs);
+
+                    List<AuthoritativeRatingVantagePoint> covering = new ArrayList<>(idxs.size());
+                    idxs.forEach(idx -> covering.add(vantagePoints.get(idx)));
+                    return covering;
+                });
+    }
+
+}
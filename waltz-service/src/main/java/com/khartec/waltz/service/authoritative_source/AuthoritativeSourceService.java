@@ -18,6 +18,7 @@
 
 package com.khartec.waltz.service.authoritative_source;
 
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
 import com.khartec.waltz.data.GenericSelector;
 import com.khartec.waltz.data.GenericSelectorFactory;
 import com.khartec.waltz.data.application.ApplicationDao;
@@ -25,7 +26,10 @@ import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.authoritative_source.AuthoritativeSourceDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.data_type.DataTypeIdSelectorFactory;
+import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import com.khartec.waltz.data.entity_hierarchy.HierarchyIndexRegistry;
 import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
+import com.khartec.waltz.data.orgunit.OrganisationalUnitIdSelectorFactory;
 import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
 import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.application.Application;
@@ -51,6 +55,8 @@ import java.util.List;
 import java.util.Map;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.model.HierarchyQueryScope.CHILDREN;
+import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
 import static com.khartec.waltz.model.EntityKind.ORG_UNIT;
 import static com.khartec.waltz.model.EntityReference.mkRef;
 import static com.khartec.waltz.schema.tables.AuthoritativeSource.AUTHORITATIVE_SOURCE;
@@ -70,7 +76,9 @@ public class AuthoritativeSourceService {
     private final AuthSourceRatingCalculator ratingCalculator;
     private final ChangeLogService changeLogService;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final EntityHierarchyDao entityHierarchyDao;
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
+    private final OrganisationalUnitIdSelectorFactory orgUnitIdSelectorFactory = new OrganisationalUnitIdSelectorFactory();
     private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
 
@@ -82,7 +90,8 @@ public class AuthoritativeSourceService {
                                       ApplicationDao applicationDao,
                                       AuthSourceRatingCalculator ratingCalculator,
                                       ChangeLogService changeLogService,
-                                      LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                                      LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                      EntityHierarchyDao entityHierarchyDao) {
         checkNotNull(authoritativeSourceDao, "authoritativeSourceDao must not be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
         checkNotNull(organisationalUnitDao, "organisationalUnitDao cannot be null");
@@ -90,6 +99,7 @@ public class AuthoritativeSourceService {
         checkNotNull(ratingCalculator, "ratingCalculator cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
 
         this.authoritativeSourceDao = authoritativeSourceDao;
         this.dataTypeDao = dataTypeDao;
@@ -98,6 +108,7 @@ public class AuthoritativeSourceService {
         this.ratingCalculator = ratingCalculator;
         this.changeLogService = changeLogService;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.entityHierarchyDao = entityHierarchyDao;
     }
 
 
@@ -127,7 +138,7 @@ public class AuthoritativeSourceService {
                 .id()
                 .orElseThrow(() -> new IllegalArgumentException("cannot update an auth source without an id"));
         AuthoritativeSource updatedAuthSource = getById(authSourceId);
-        ratingCalculator.update(updatedAuthSource.dataType(), updatedAuthSource.parentReference());
+        recalculateFlowRatings(updatedAuthSource);
         logUpdate(command, username);
         return updateCount;
     }
@@ -135,7 +146,7 @@ public class AuthoritativeSourceService {
 
     public int insert(AuthoritativeSourceCreateCommand command, String username) {
         int insertedCount = authoritativeSourceDao.insert(command);
-        ratingCalculator.update(command.dataTypeId(), mkRef(ORG_UNIT, command.orgUnitId()));
+        recalculateFlowRatings(mkRef(ORG_UNIT, command.orgUnitId()), command.dataTypeId());
         logInsert(command, username);
         return insertedCount;
     }
@@ -146,7 +157,7 @@ public class AuthoritativeSourceService {
         logRemoval(id, username);
         AuthoritativeSource authSourceToDelete = getById(id);
         int deletedCount = authoritativeSourceDao.remove(id);
-        ratingCalculator.update(authSourceToDelete.dataType(), authSourceToDelete.parentReference());
+        recalculateFlowRatings(authSourceToDelete);
         return deletedCount;
     }
 
@@ -167,18 +178,37 @@ public class AuthoritativeSourceService {
     }
 
 
+    /**
+     * Recalculates the rating of every logical flow decorator.  Ratings are
+     * calculated in memory and only those which differ from the stored
+     * values are written back.
+     */
     public boolean fastRecalculateAllFlowRatings() {
-        logicalFlowDecoratorDao.updateRatingsByCondition(AuthoritativenessRating.NO_OPINION, DSL.trueCondition());
-        List<AuthoritativeRatingVantagePoint> authoritativeRatingVantagePoints = authoritativeSourceDao.findAuthoritativeRatingVantagePoints();
-        authoritativeRatingVantagePoints.forEach(a -> {
-            LOG.info("Updating decorators for: {}", a);
-            int updateCount = logicalFlowDecoratorDao.updateDecoratorsForAuthSource(a);
-            LOG.info("Updated {} decorators for: {}", updateCount, a);
-        });
+        int updateCount = applyRatingChanges(logicalFlowDecoratorDao.findRatingCandidates());
+        LOG.info("Recalculated all flow ratings, updated {} decorators", updateCount);
         return true;
     }
 
 
+    /**
+     * Recalculates the ratings of decorators for the data type (and its descendants)
+     * on flows into applications belonging to the org unit (and its descendants).
+     * Used when a single authoritative source is registered, modified or removed.
+     *
+     * @return the number of decorators whose rating changed
+     */
+    public int recalculateFlowRatings(EntityReference orgUnitRef, long dataTypeId) {
+        checkNotNull(orgUnitRef, "orgUnitRef cannot be null");
+
+        Select<Record1<Long>> orgUnitIdSelector = orgUnitIdSelectorFactory.apply(mkOpts(orgUnitRef, CHILDREN));
+        Select<Record1<Long>> dataTypeIdSelector = dataTypeIdSelectorFactory.apply(mkOpts(mkRef(EntityKind.DATA_TYPE, dataTypeId), CHILDREN));
+
+        int updateCount = applyRatingChanges(logicalFlowDecoratorDao.findRatingCandidates(orgUnitIdSelector, dataTypeIdSelector));
+        LOG.info("Recalculated flow ratings for org unit: {} and data type: {}, updated {} decorators", orgUnitRef, dataTypeId, updateCount);
+        return updateCount;
+    }
+
+
     public Map<EntityReference, Collection<EntityReference>> calculateConsumersForDataTypeIdSelector(
             IdSelectionOptions options) {
         Select<Record1<Long>> selector = dataTypeIdSelectorFactory.apply(options);
@@ -275,6 +305,39 @@ public class AuthoritativeSourceService {
 
     // -- HELPERS
 
+    private void recalculateFlowRatings(AuthoritativeSource authSource) {
+        DataType dataType = dataTypeDao.getByCode(authSource.dataType());
+        if (dataType == null) {
+            LOG.error("Cannot recalculate flow ratings for auth source: {} as cannot find corresponding data type", authSource);
+            return;
+        }
+        recalculateFlowRatings(authSource.parentReference(), dataType.id().get());
+    }
+
+
+    private int applyRatingChanges(List<DecoratorRatingCandidate> candidates) {
+        AuthSourceRatingDeltaCalculator calculator = new AuthSourceRatingDeltaCalculator(
+                authoritativeSourceDao.findAuthoritativeRatingVantagePoints(),
+                findHierarchyIndex(ORG_UNIT),
+                findHierarchyIndex(EntityKind.DATA_TYPE));
+
+        Map<Long, AuthoritativenessRating> changes = calculator.calculateChanges(candidates);
+
+        LOG.debug("{} of {} candidate decorators require new ratings", changes.size(), candidates.size());
+
+        return changes.isEmpty()
+                ? 0
+                : logicalFlowDecoratorDao.updateRatings(changes);
+    }
+
+
+    private HierarchyIndex findHierarchyIndex(EntityKind kind) {
+        return HierarchyIndexRegistry
+                .findIndex(kind)
+                .orElseGet(() -> entityHierarchyDao.loadIndex(kind));
+    }
+
+
     private Condition mkConsumerSelectionCondition(IdSelectionOptions options) {
         Select<Record1<Long>> appIdSelector = applicationIdSelectorFactory.apply(options);
         return AuthoritativeSourceDao.CONSUMER_APP.ID.in(appIdSelector);
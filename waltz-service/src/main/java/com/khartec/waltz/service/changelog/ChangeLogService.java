@@ -40,6 +40,11 @@ import com.khartec.waltz.model.measurable_rating_replacement.MeasurableRatingRep
 import com.khartec.waltz.model.physical_flow.PhysicalFlow;
 import com.khartec.waltz.model.physical_specification.PhysicalSpecification;
 import com.khartec.waltz.model.tally.DateTally;
+import com.khartec.waltz.service.entity_name.EntityNameDictionaryService;
+import com.khartec.waltz.service.entity_search.EntitySearchIndexService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.report_grid.ReportGridCellStoreService;
+import com.khartec.waltz.service.result_cache.ResultCacheService;
 import org.jooq.lambda.Unchecked;
 import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
@@ -64,6 +69,7 @@ public class ChangeLogService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ChangeLogService.class);
     private final ChangeLogDao changeLogDao;
+    private final ChangeLogWriter changeLogWriter;
     private final ChangeLogSummariesDao changeLogSummariesDao;
     private final DBExecutorPoolInterface dbExecutorPool;
     private final PhysicalFlowDao physicalFlowDao;
@@ -73,10 +79,16 @@ public class ChangeLogService {
     private final MeasurableRatingReplacementDao measurableRatingReplacementdao;
     private final MeasurableRatingPlannedDecommissionDao measurableRatingPlannedDecommissionDao;
     private final EntityReferenceNameResolver nameResolver;
+    private final ResultCacheService resultCacheService;
+    private final EntitySearchIndexService entitySearchIndexService;
+    private final ReportGridCellStoreService reportGridCellStoreService;
+    private final EntityNameDictionaryService entityNameDictionaryService;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
     public ChangeLogService(ChangeLogDao changeLogDao,
+                            ChangeLogWriter changeLogWriter,
                             ChangeLogSummariesDao changeLogSummariesDao,
                             DBExecutorPoolInterface dbExecutorPool,
                             PhysicalFlowDao physicalFlowDao,
@@ -85,8 +97,14 @@ public class ChangeLogService {
                             ApplicationDao applicationDao,
                             MeasurableRatingReplacementDao measurableRatingReplacementDao,
                             MeasurableRatingPlannedDecommissionDao measurableRatingPlannedDecommissionDao,
-                            EntityReferenceNameResolver nameResolver) {
+                            EntityReferenceNameResolver nameResolver,
+                            ResultCacheService resultCacheService,
+                            EntitySearchIndexService entitySearchIndexService,
+                            ReportGridCellStoreService reportGridCellStoreService,
+                            EntityNameDictionaryService entityNameDictionaryService,
+                            ReferenceDataService referenceDataService) {
         checkNotNull(changeLogDao, "changeLogDao must not be null");
+        checkNotNull(changeLogWriter, "changeLogWriter must not be null");
         checkNotNull(changeLogSummariesDao, "changeLogSummariesDao must not be null");
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
@@ -95,8 +113,14 @@ public class ChangeLogService {
         checkNotNull(measurableRatingReplacementDao, "measurableRatingReplacementDao cannot be null");
         checkNotNull(measurableRatingPlannedDecommissionDao, "measurableRatingPlannedDecommissionDao cannot be null");
         checkNotNull(nameResolver, "nameResolver cannot be null");
+        checkNotNull(resultCacheService, "resultCacheService cannot be null");
+        checkNotNull(entitySearchIndexService, "entitySearchIndexService cannot be null");
+        checkNotNull(reportGridCellStoreService, "reportGridCellStoreService cannot be null");
+        checkNotNull(entityNameDictionaryService, "entityNameDictionaryService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.changeLogDao = changeLogDao;
+        this.changeLogWriter = changeLogWriter;
         this.changeLogSummariesDao = changeLogSummariesDao;
         this.dbExecutorPool = dbExecutorPool;
         this.physicalFlowDao = physicalFlowDao;
@@ -106,6 +130,11 @@ public class ChangeLogService {
         this.measurableRatingReplacementdao = measurableRatingReplacementDao;
         this.measurableRatingPlannedDecommissionDao = measurableRatingPlannedDecommissionDao;
         this.nameResolver = nameResolver;
+        this.resultCacheService = resultCacheService;
+        this.entitySearchIndexService = entitySearchIndexService;
+        this.reportGridCellStoreService = reportGridCellStoreService;
+        this.entityNameDictionaryService = entityNameDictionaryService;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -135,13 +164,31 @@ public class ChangeLogService {
     }
 
 
+    /**
+     * Entries may be written asynchronously (see `ChangeLogWriter`), caches and
+     * indexes are notified of the change immediately regardless.
+     */
     public int write(ChangeLog changeLog) {
-        return changeLogDao.write(changeLog);
+        int rc = changeLogWriter.write(changeLog);
+        resultCacheService.invalidate(changeLog);
+        entitySearchIndexService.markChanged(changeLog.parentReference());
+        reportGridCellStoreService.markChanged(changeLog);
+        entityNameDictionaryService.invalidate(changeLog);
+        referenceDataService.markChanged(changeLog);
+        return rc;
     }
 
 
     public int[] write(Collection<ChangeLog> changeLogs) {
-        return changeLogDao.write(changeLogs);
+        int[] rcs = changeLogWriter.write(changeLogs);
+        changeLogs.forEach(cl -> {
+            resultCacheService.invalidate(cl);
+            entitySearchIndexService.markChanged(cl.parentReference());
+            reportGridCellStoreService.markChanged(cl);
+            entityNameDictionaryService.invalidate(cl);
+            referenceDataService.markChanged(cl);
+        });
+        return rcs;
     }
 
 
@@ -0,0 +1,345 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.changelog;
+
+import com.khartec.waltz.common.metrics.LatencyHistogram;
+import com.khartec.waltz.data.changelog.ChangeLogDao;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Writes change log entries, either directly or (if asynchronous writing is
+ * enabled) via a bounded queue drained by a single writer thread using
+ * multi-row inserts.
+ *
+ * When the queue is full callers wait briefly for space and then write the
+ * entry themselves, throttling bulk operations rather than dropping entries.
+ * On shutdown the writer stops accepting entries and drains the queue, anything
+ * still queued when the shutdown timeout expires is written by the thread
+ * performing the shutdown.
+ */
+public class ChangeLogWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogWriter.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 250;
+
+    private final ChangeLogDao changeLogDao;
+    private final boolean async;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final BlockingQueue<ChangeLog> queue;
+    private final Thread writerThread;
+
+    private final LatencyHistogram flushTimes = new LatencyHistogram();
+    private final AtomicLong peakQueueDepth = new AtomicLong();
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder callerWritesCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final AtomicLong queueSequence = new AtomicLong();
+
+    private volatile boolean accepting;
+
+
+    public ChangeLogWriter(ChangeLogDao changeLogDao,
+                           boolean async,
+                           int queueCapacity,
+                           int batchSize,
+                           long offerTimeoutMillis,
+                           long shutdownTimeoutMillis) {
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+        checkTrue(queueCapacity > 0, "queueCapacity must be positive");
+        checkTrue(batchSize > 0, "batchSize must be positive");
+
+        this.changeLogDao = changeLogDao;
+        this.async = async;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+
+        if (async) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.writerThread = new Thread(this::drain, "WaltzChangeLogWriter");
+            this.writerThread.setDaemon(true);
+            this.accepting = true;
+            this.writerThread.start();
+        } else {
+            this.queue = null;
+            this.writerThread = null;
+            this.accepting = false;
+        }
+    }
+
+
+    /**
+     * @return 1 if the entry was queued, otherwise the number of rows written
+     */
+    public int write(ChangeLog changeLog) {
+        checkNotNull(changeLog, "changeLog cannot be null");
+
+        if (accepting && enqueue(changeLog)) {
+            return 1;
+        }
+
+        if (async) {
+            callerWritesCount.increment();
+        }
+        return changeLogDao.write(changeLog);
+    }
+
+
+    /**
+     * Entries are queued in order, once the queue is full the remainder are
+     * written by the caller.
+     *
+     * @return one element per entry queued followed by the counts of any rows written directly
+     */
+    public int[] write(Collection<ChangeLog> changeLogs) {
+        checkNotNull(changeLogs, "changeLogs cannot be null");
+
+        if (! accepting) {
+            return changeLogDao.write(changeLogs);
+        }
+
+        int queued = 0;
+        Iterator<ChangeLog> iterator = changeLogs.iterator();
+        while (iterator.hasNext() && enqueue(iterator.next())) {
+            queued++;
+        }
+
+        int[] rcs = new int[queued];
+        Arrays.fill(rcs, 1);
+
+        if (queued == changeLogs.size()) {
+            return rcs;
+        }
+
+        // the entry which could not be queued, plus everything after it
+        List<ChangeLog> remainder = new ArrayList<>(changeLogs).subList(queued, changeLogs.size());
+        callerWritesCount.add(remainder.size());
+        int[] written = changeLogDao.write(remainder);
+        int[] result = Arrays.copyOf(rcs, rcs.length + written.length);
+        System.arraycopy(written, 0, result, rcs.length, written.length);
+        return result;
+    }
+
+
+    /**
+     * Writes any queued entries using the calling thread
+     * @return number of entries written
+     */
+    public int flush() {
+        if (queue == null) {
+            return 0;
+        }
+
+        int flushed = 0;
+        List<ChangeLog> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flushed += batch.size();
+            writeBatch(batch);
+            batch.clear();
+        }
+        return flushed;
+    }
+
+
+    /**
+     * Stops accepting entries and waits (up to the shutdown timeout) for the
+     * writer thread to drain the queue, then writes anything left directly.
+     */
+    public void shutdown() {
+        if (! accepting) {
+            return;
+        }
+
+        LOG.info("Shutting down change log writer, {} entries queued", queue.size());
+        accepting = false;
+
+        try {
+            writerThread.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int remaining = flush();
+        if (remaining > 0) {
+            LOG.warn("Change log writer did not drain in time, wrote {} remaining entries directly", remaining);
+        }
+    }
+
+
+    // --- metrics
+
+    public boolean isAsync() {
+        return async;
+    }
+
+
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+
+    public int getQueueCapacity() {
+        return queue == null ? 0 : queue.size() + queue.remainingCapacity();
+    }
+
+
+    public long getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+
+    public long getQueuedCount() {
+        return queuedCount.sum();
+    }
+
+
+    /**
+     * Number of entries ever queued by this writer.  Unlike the statistics this
+     * is never reset, so it may be combined with the latest change log id to
+     * detect changes which have been accepted but not yet written.
+     */
+    public long getQueueSequence() {
+        return queueSequence.get();
+    }
+
+
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+
+    public long getCallerWritesCount() {
+        return callerWritesCount.sum();
+    }
+
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+
+    public LatencyHistogram getFlushTimes() {
+        return flushTimes;
+    }
+
+
+    public void resetStatistics() {
+        flushTimes.reset();
+        peakQueueDepth.set(getQueueDepth());
+        queuedCount.reset();
+        writtenCount.reset();
+        callerWritesCount.reset();
+        failedCount.reset();
+    }
+
+
+    // --- helpers
+
+    private boolean enqueue(ChangeLog changeLog) {
+        boolean queued;
+        try {
+            queued = queue.offer(changeLog, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if (queued) {
+            queueSequence.incrementAndGet();
+            queuedCount.increment();
+            peakQueueDepth.accumulateAndGet(queue.size(), Math::max);
+            if (! accepting) {
+                // raced with shutdown, the writer thread may already have finished
+                flush();
+            }
+        }
+
+        return queued;
+    }
+
+
+    private void drain() {
+        List<ChangeLog> batch = new ArrayList<>(batchSize);
+        while (accepting || ! queue.isEmpty()) {
+            try {
+                ChangeLog first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                LOG.warn("Change log writer interrupted, remaining entries will be written on shutdown");
+                return;
+            } catch (Exception e) {
+                LOG.error("Unexpected error in change log writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+
+    private void writeBatch(List<ChangeLog> batch) {
+        long start = System.nanoTime();
+        try {
+            changeLogDao.write(batch);
+            writtenCount.add(batch.size());
+        } catch (Exception e) {
+            LOG.warn("Failed to write batch of {} change log entries, retrying individually", batch.size(), e);
+            batch.forEach(this::writeSingle);
+        } finally {
+            flushTimes.record(System.nanoTime() - start);
+        }
+    }
+
+
+    private void writeSingle(ChangeLog changeLog) {
+        try {
+            changeLogDao.write(changeLog);
+            writtenCount.increment();
+        } catch (Exception e) {
+            failedCount.increment();
+            LOG.error("Failed to write change log entry: {}", changeLog, e);
+        }
+    }
+
+}
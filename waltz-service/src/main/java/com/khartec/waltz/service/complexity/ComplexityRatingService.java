@@ -18,6 +18,7 @@
 package com.khartec.waltz.service.complexity;
 
 import com.khartec.waltz.common.ListUtilities;
+import com.khartec.waltz.data.DBExecutorPoolInterface;
 import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.complexity.ComplexityScoreDao;
 import com.khartec.waltz.model.EntityKind;
@@ -30,13 +31,20 @@ import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.SelectJoinStep;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.Unchecked;
+import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.ListUtilities.map;
@@ -53,6 +61,9 @@ public class ComplexityRatingService {
     private final MeasurableComplexityService measurableComplexityService;
     private final ConnectionComplexityService connectionComplexityService;
     private final ServerComplexityService serverComplexityService;
+    private final DBExecutorPoolInterface dbExecutorPool;
+
+    private volatile Map<String, Long> lastRebuildTimings = Collections.emptyMap();
 
     private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
 
@@ -61,17 +72,20 @@ public class ComplexityRatingService {
     public ComplexityRatingService(ComplexityScoreDao complexityScoreDao,
                                    MeasurableComplexityService measurableComplexityService,
                                    ConnectionComplexityService connectionComplexityService,
-                                   ServerComplexityService serverComplexityService) {
+                                   ServerComplexityService serverComplexityService,
+                                   DBExecutorPoolInterface dbExecutorPool) {
 
         checkNotNull(complexityScoreDao, "complexityScoreDao cannot be null");
         checkNotNull(measurableComplexityService, "measurableComplexityService cannot be null");
         checkNotNull(connectionComplexityService, "connectionComplexityService cannot be null");
         checkNotNull(serverComplexityService, "serverComplexityService cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
 
         this.complexityScoreDao = complexityScoreDao;
         this.measurableComplexityService = measurableComplexityService;
         this.connectionComplexityService = connectionComplexityService;
         this.serverComplexityService = serverComplexityService;
+        this.dbExecutorPool = dbExecutorPool;
     }
 
 
@@ -95,28 +109,76 @@ public class ComplexityRatingService {
     }
 
 
+    /**
+     * Recomputes all complexity scores.  The connection, server and measurable
+     * scores are computed concurrently and then written as a delta against the
+     * existing table in a single transaction.
+     *
+     * @return number of rows inserted, updated or deleted
+     */
     public int rebuild() {
 
         LOG.info("Rebuild complexity score table");
+        Map<String, Long> timings = new LinkedHashMap<>();
+        long start = System.currentTimeMillis();
+
         SelectJoinStep<Record1<Long>> appIdSelector = DSL.select(APPLICATION.ID).from(APPLICATION);
 
-        List<ComplexityScore> connectionScores = connectionComplexityService.findByAppIdSelector(appIdSelector);
-        List<ComplexityScore> serverScores = serverComplexityService.findByAppIdSelector(appIdSelector);
-        List<ComplexityScore> measurableScores = measurableComplexityService.findByAppIdSelector(appIdSelector);
+        Future<List<ComplexityScoreRecord>> connectionScores = dbExecutorPool.submitBatch(() -> timePhase(
+                timings,
+                "connection",
+                () -> map(connectionComplexityService.findByAppIdSelector(appIdSelector), r -> buildComplexityScoreRecord(r, ComplexityType.CONNECTION))));
+
+        Future<List<ComplexityScoreRecord>> serverScores = dbExecutorPool.submitBatch(() -> timePhase(
+                timings,
+                "server",
+                () -> map(serverComplexityService.findByAppIdSelector(appIdSelector), r -> buildComplexityScoreRecord(r, ComplexityType.SERVER))));
+
+        Future<List<ComplexityScoreRecord>> measurableScores = dbExecutorPool.submitBatch(() -> timePhase(
+                timings,
+                "measurable",
+                () -> map(measurableComplexityService.findByAppIdSelector(appIdSelector), r -> buildComplexityScoreRecord(r, ComplexityType.MEASURABLE))));
+
+        List<ComplexityScoreRecord> records = Unchecked.supplier(() -> ListUtilities.concat(
+                    serverScores.get(),
+                    connectionScores.get(),
+                    measurableScores.get()))
+                .get();
+
+        LOG.info("Writing changes from {} computed scores to complexity score table", records.size());
+        Tuple3<Integer, Integer, Integer> counts = timePhase(
+                timings,
+                "write",
+                () -> complexityScoreDao.replaceAll(records));
+
+        timings.put("total", System.currentTimeMillis() - start);
+        lastRebuildTimings = Collections.unmodifiableMap(timings);
+
+        LOG.info("Completed complexity score rebuild, inserted: {}, updated: {}, deleted: {}, timings (ms): {}",
+                counts.v1,
+                counts.v2,
+                counts.v3,
+                timings);
+
+        return counts.v1 + counts.v2 + counts.v3;
+    }
 
-        List<ComplexityScoreRecord> records = ListUtilities.concat(
-                map(serverScores, r -> buildComplexityScoreRecord(r, ComplexityType.SERVER)),
-                map(connectionScores, r -> buildComplexityScoreRecord(r, ComplexityType.CONNECTION)),
-                map(measurableScores, r -> buildComplexityScoreRecord(r, ComplexityType.MEASURABLE)));
 
-        LOG.info("Scrubbing existing complexity score table");
-        complexityScoreDao.deleteAll();
+    /**
+     * @return duration, in milliseconds, of each phase of the most recent rebuild
+     */
+    public Map<String, Long> getLastRebuildTimings() {
+        return lastRebuildTimings;
+    }
 
-        LOG.info("Inserting {} new records into complexity score table", records.size());
-        int[] results = complexityScoreDao.bulkInsert(records);
 
-        LOG.info("Completed insertion of new records, results: {}", results.length);
-        return results.length;
+    private static <T> T timePhase(Map<String, Long> timings, String phase, Supplier<T> supplier) {
+        long start = System.currentTimeMillis();
+        T result = supplier.get();
+        synchronized (timings) {
+            timings.put(phase, System.currentTimeMillis() - start);
+        }
+        return result;
     }
 
 
@@ -39,7 +39,9 @@ import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlowMeasures;
 import com.khartec.waltz.model.logical_flow.LogicalFlow;
 import com.khartec.waltz.model.rating.AuthoritativenessRating;
 import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
 import com.khartec.waltz.service.logical_flow.LogicalFlowService;
+import com.khartec.waltz.service.result_cache.ResultCacheService;
 import com.khartec.waltz.service.usage_info.DataTypeUsageService;
 import org.jooq.Record1;
 import org.jooq.Select;
@@ -69,6 +71,12 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 @Service
 public class LogicalFlowDecoratorService {
 
+    private static final Set<EntityKind> SUMMARY_DEPENDENCIES = asSet(
+            EntityKind.APPLICATION,
+            EntityKind.AUTHORITATIVE_SOURCE,
+            EntityKind.DATA_TYPE,
+            EntityKind.LOGICAL_DATA_FLOW);
+
     private final LogicalFlowDecoratorSummaryDao logicalFlowDecoratorSummaryDao;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
     private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
@@ -77,6 +85,8 @@ public class LogicalFlowDecoratorService {
     private final DataTypeDao dataTypeDao;
     private final LogicalFlowDao logicalFlowDao;
     private final ChangeLogService changeLogService;
+    private final ResultCacheService resultCacheService;
+    private final LogicalFlowGraphService logicalFlowGraphService;
 
 
     @Autowired
@@ -88,7 +98,9 @@ public class LogicalFlowDecoratorService {
                                        LogicalFlowDao logicalFlowDao,
                                        LogicalFlowService logicalFlowService,
                                        LogicalFlowStatsDao logicalFlowStatsDao,
-                                       ChangeLogService changeLogService) {
+                                       ChangeLogService changeLogService,
+                                       ResultCacheService resultCacheService,
+                                       LogicalFlowGraphService logicalFlowGraphService) {
 
         checkNotNull(logicalFlowDecoratorSummaryDao, "logicalFlowDecoratorDao cannot be null");
         checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
@@ -98,6 +110,8 @@ public class LogicalFlowDecoratorService {
         checkNotNull(logicalFlowService, "logicalFlowService cannot be null");
         checkNotNull(logicalFlowStatsDao, "logicalFlowStatsDao cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(resultCacheService, "resultCacheService cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
 
         this.logicalFlowDecoratorSummaryDao = logicalFlowDecoratorSummaryDao;
         this.ratingsCalculator = ratingsCalculator;
@@ -106,6 +120,8 @@ public class LogicalFlowDecoratorService {
         this.logicalFlowDao = logicalFlowDao;
         this.changeLogService = changeLogService;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.resultCacheService = resultCacheService;
+        this.logicalFlowGraphService = logicalFlowGraphService;
     }
 
 
@@ -142,6 +158,7 @@ public class LogicalFlowDecoratorService {
                 .flatMap(f -> Stream.of(f.source(), f.target()))
                 .collect(Collectors.toList());
 
+        logicalFlowGraphService.markChanged(effectedEntities.toArray(new EntityReference[0]));
         dataTypeUsageService.recalculateForApplications(effectedEntities);
         bulkAudit(actions, username, effectedFlows);
 
@@ -151,8 +168,14 @@ public class LogicalFlowDecoratorService {
 
     public List<DecoratorRatingSummary> summarizeInboundForSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
-        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
-        return logicalFlowDecoratorSummaryDao.summarizeInboundForSelector(selector);
+        return resultCacheService.get(
+                "LogicalFlowDecoratorService.summarizeInboundForSelector",
+                options,
+                SUMMARY_DEPENDENCIES,
+                () -> {
+                    Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
+                    return logicalFlowDecoratorSummaryDao.summarizeInboundForSelector(selector);
+                });
     }
 
 
@@ -36,6 +36,7 @@ import com.khartec.waltz.model.rating.AuthoritativenessRating;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
 import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorService;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
 import com.khartec.waltz.service.logical_flow.LogicalFlowService;
 import com.khartec.waltz.service.physical_flow.PhysicalFlowService;
 import com.khartec.waltz.service.usage_info.DataTypeUsageService;
@@ -66,6 +67,7 @@ public class DataTypeDecoratorService {
     private final DataTypeDecoratorDaoSelectorFactory dataTypeDecoratorDaoSelectorFactory;
     private final LogicalFlowDao logicalFlowDao;
     private final LogicalFlowService logicalFlowService;
+    private final LogicalFlowGraphService logicalFlowGraphService;
     private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
     private final DataTypeUsageService dataTypeUsageService;
     private final DataTypeService dataTypeService;
@@ -80,6 +82,7 @@ public class DataTypeDecoratorService {
                                     DataTypeDecoratorDaoSelectorFactory dataTypeDecoratorDaoSelectorFactory,
                                     LogicalFlowDao logicalFlowDao,
                                     LogicalFlowService logicalFlowService,
+                                    LogicalFlowGraphService logicalFlowGraphService,
                                     LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
                                     DataTypeUsageService dataTypeUsageService,
                                     DataTypeService dataTypeService,
@@ -87,11 +90,13 @@ public class DataTypeDecoratorService {
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(logicalFlowDecoratorService, "logicalFlowDecoratorService cannot be null");
         checkNotNull(physicalFlowService, "physicalFlowService cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
 
         this.changeLogService = changeLogService;
         this.physicalFlowService = physicalFlowService;
         this.logicalFlowDao = logicalFlowDao;
         this.logicalFlowService = logicalFlowService;
+        this.logicalFlowGraphService = logicalFlowGraphService;
         this.ratingsCalculator = ratingsCalculator;
         this.dataTypeUsageService = dataTypeUsageService;
         this.dataTypeService = dataTypeService;
@@ -209,6 +214,7 @@ public class DataTypeDecoratorService {
     private void recalculateDataTypeUsageForApplications(EntityReference associatedEntityReference) {
         if(LOGICAL_DATA_FLOW.equals(associatedEntityReference.kind())) {
             LogicalFlow flow = logicalFlowDao.getByFlowId(associatedEntityReference.id());
+            logicalFlowGraphService.markChanged(flow.source(), flow.target());
             dataTypeUsageService.recalculateForApplications(newArrayList(flow.source(), flow.target()));
         }
     }
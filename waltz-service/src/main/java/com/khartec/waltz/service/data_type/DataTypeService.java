@@ -23,6 +23,8 @@ import com.khartec.waltz.data.data_type.search.DataTypeSearchDao;
 import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,30 +42,44 @@ public class DataTypeService {
 
     private final DataTypeDao dataTypeDao;
     private final DataTypeSearchDao searchDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public DataTypeService(DataTypeDao dataTypeDao, DataTypeSearchDao searchDao) {
+    public DataTypeService(DataTypeDao dataTypeDao,
+                           DataTypeSearchDao searchDao,
+                           ReferenceDataService referenceDataService) {
         checkNotNull(dataTypeDao, "dataTypeDao must not be null");
         checkNotNull(searchDao, "searchDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.dataTypeDao = dataTypeDao;
         this.searchDao = searchDao;
+        this.referenceDataService = referenceDataService;
     }
 
 
     public List<DataType> findAll() {
-        return dataTypeDao.findAll();
+        return referenceDataService
+                .findSnapshot()
+                .map(ReferenceDataSnapshot::dataTypes)
+                .orElseGet(dataTypeDao::findAll);
     }
 
 
     public DataType getDataTypeById(long dataTypeId) {
-        return dataTypeDao.getById(dataTypeId);
+        return referenceDataService
+                .findSnapshot()
+                .flatMap(s -> s.findDataTypeById(dataTypeId))
+                .orElseGet(() -> dataTypeDao.getById(dataTypeId));
     }
 
 
     public DataType getDataTypeByCode(String code) {
-        return dataTypeDao.getByCode(code);
+        return referenceDataService
+                .findSnapshot()
+                .flatMap(s -> s.findDataTypeByCode(code))
+                .orElseGet(() -> dataTypeDao.getByCode(code));
     }
 
     public List<EntityReference> findByIdSelector(Select<Record1<Long>> selector) {
@@ -80,8 +96,7 @@ public class DataTypeService {
      * @return `Optional.of(unknownDataType)` if an unknown datatype has been defined otherwise `Optional.empty()`.
      */
     public Optional<DataType> getUnknownDataType() {
-        return dataTypeDao
-                .findAll()
+        return findAll()
                 .stream()
                 .filter(DataType::unknown)
                 .findFirst();
@@ -19,36 +19,38 @@
 package com.khartec.waltz.service.entity_hierarchy;
 
 import com.khartec.waltz.common.ListUtilities;
-import com.khartec.waltz.common.hierarchy.FlatNode;
-import com.khartec.waltz.common.hierarchy.Forest;
-import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
-import com.khartec.waltz.common.hierarchy.Node;
+import com.khartec.waltz.common.hierarchy.ClosureTable;
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
 import com.khartec.waltz.data.change_initiative.ChangeInitiativeDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import com.khartec.waltz.data.entity_hierarchy.HierarchyIndexRegistry;
 import com.khartec.waltz.data.entity_hierarchy.EntityRootsSelectorFactory;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticDao;
 import com.khartec.waltz.data.measurable.MeasurableDao;
 import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
-import com.khartec.waltz.model.entity_hierarchy.EntityHierarchyItem;
-import com.khartec.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
 import com.khartec.waltz.model.tally.ImmutableTally;
 import com.khartec.waltz.model.tally.Tally;
 import com.khartec.waltz.schema.Tables;
 import com.khartec.waltz.service.person_hierarchy.PersonHierarchyService;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.SetUtilities.asSet;
 import static com.khartec.waltz.model.EntityKind.PERSON;
 import static com.khartec.waltz.schema.Tables.ENTITY_HIERARCHY;
 import static com.khartec.waltz.schema.Tables.MEASURABLE;
@@ -57,6 +59,18 @@ import static org.jooq.impl.DSL.select;
 @Service
 public class EntityHierarchyService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntityHierarchyService.class);
+
+    private static final Set<EntityKind> INDEXABLE_KINDS = asSet(
+            EntityKind.CHANGE_INITIATIVE,
+            EntityKind.DATA_TYPE,
+            EntityKind.ENTITY_STATISTIC,
+            EntityKind.MEASURABLE,
+            EntityKind.ORG_UNIT);
+
+    @Value("${waltz.hierarchy.index.enabled:false}")
+    private boolean indexEnabled;
+
     private final DSLContext dsl;
     private final ChangeInitiativeDao changeInitiativeDao;
     private final DataTypeDao dataTypeDao;
@@ -141,95 +155,99 @@ public class EntityHierarchyService {
 
     public int buildFor(EntityKind kind) {
         if (kind == PERSON) {
-            int[] rc = personHierarchyService.build();
-            return rc.length;
+            return personHierarchyService.build();
         } else {
             Table table = determineTableToRebuild(kind);
-            return buildFor(table, kind, DSL.trueCondition(), DSL.trueCondition());
+            int rc = buildFor(table, kind, DSL.trueCondition(), DSL.trueCondition());
+            refreshIndex(kind);
+            return rc;
         }
     }
 
 
     public int buildForMeasurableByCategory(long categoryId) {
-        return buildFor(MEASURABLE,
-                        EntityKind.MEASURABLE,
-                        MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId),
-                        ENTITY_HIERARCHY.ID.in(select(MEASURABLE.ID)
-                                                .from(MEASURABLE)
-                                                .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId))));
+        int rc = buildFor(MEASURABLE,
+                          EntityKind.MEASURABLE,
+                          MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId),
+                          ENTITY_HIERARCHY.ID.in(select(MEASURABLE.ID)
+                                                  .from(MEASURABLE)
+                                                  .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId))));
+        refreshIndex(EntityKind.MEASURABLE);
+        return rc;
     }
 
 
-    private int buildFor(Table table,
-                         EntityKind kind,
-                         Condition selectFilter,
-                         Condition deleteFilter) {
-        Collection<FlatNode<Long, Long>> flatNodes = fetchFlatNodes(table, selectFilter);
-        List<EntityHierarchyItem> hierarchyItems = convertFlatNodesToHierarchyItems(kind, flatNodes);
+    /**
+     * Reloads the resident hierarchy indexes used by the id selector factories.
+     * Runs periodically so that hierarchies rebuilt by other Waltz instances
+     * are eventually picked up.
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = 300_000)
+    public void refreshIndexes() {
+        INDEXABLE_KINDS.forEach(this::refreshIndex);
+    }
 
-        return entityHierarchyDao.replaceHierarchy(kind, hierarchyItems, deleteFilter);
+
+    public void refreshIndex(EntityKind kind) {
+        if (! indexEnabled || ! INDEXABLE_KINDS.contains(kind)) {
+            return;
+        }
+
+        HierarchyIndex index = entityHierarchyDao.loadIndex(kind);
+        HierarchyIndexRegistry.register(kind, index);
+        LOG.info("Refreshed hierarchy index for kind: {}, {}", kind, index);
     }
 
 
-    private List<FlatNode<Long, Long>> fetchFlatNodes(Table table, Condition selectFilter) {
+    private int buildFor(Table table,
+                         EntityKind kind,
+                         Condition selectFilter,
+                         Condition existingFilter) {
         Field<Long> idField = table.field("id", Long.class);
         Field<Long> parentIdField = table.field("parent_id", Long.class);
 
         checkNotNull(idField, "cannot find id column");
         checkNotNull(parentIdField, "cannot find parent_id column");
 
-        return dsl.select(idField, parentIdField)
+        long[] ids = new long[1024];
+        long[] parentIds = new long[1024];
+        boolean[] hasParent = new boolean[1024];
+        int count = 0;
+
+        try (Cursor<Record2<Long, Long>> cursor = dsl
+                .select(idField, parentIdField)
                 .from(table)
                 .where(selectFilter)
-                .fetch(r -> new FlatNode<>(
-                        r.value1(),
-                        Optional.ofNullable(r.value2()),
-                        r.value1()));
-    }
-
-
-    private List<EntityHierarchyItem> convertFlatNodesToHierarchyItems(EntityKind kind, Collection<FlatNode<Long, Long>> flatNodes) {
-        Forest<Long, Long> forest = HierarchyUtilities.toForest(flatNodes);
-        Node<Long, Long> r = forest.getAllNodes().get(811L);
-        Map<Long, Integer> idToLevel = HierarchyUtilities.assignDepths(forest);
-
-        return forest.getAllNodes()
-                .values()
-                .stream()
-                .flatMap(streamItemsForNode(kind, idToLevel))
-                .collect(Collectors.toList());
-    }
-
-
-    private Function<Node<Long, Long>, Stream<? extends EntityHierarchyItem>> streamItemsForNode(EntityKind kind, Map<Long, Integer> idToLevel) {
-        return node -> Stream.concat(
-                streamAncestors(kind, idToLevel, node),
-                streamSelf(kind, idToLevel, node));
-    }
-
-
-    private Stream<EntityHierarchyItem> streamSelf(EntityKind kind, Map<Long, Integer> idToLevel, Node<Long, Long> node) {
-        Long nodeId = node.getId();
-        Integer level = idToLevel.get(nodeId);
-        ImmutableEntityHierarchyItem selfAsEntityHierarchyItem = ImmutableEntityHierarchyItem.builder()
-                .id(nodeId)
-                .parentId(nodeId)
-                .level(level == null ? -1 : level)
-                .kind(kind)
-                .build();
-        return Stream.of(selfAsEntityHierarchyItem);
-    }
+                .orderBy(idField)
+                .fetchLazy()) {
+            for (Record2<Long, Long> r : cursor) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    parentIds = Arrays.copyOf(parentIds, count * 2);
+                    hasParent = Arrays.copyOf(hasParent, count * 2);
+                }
+                ids[count] = r.value1();
+                hasParent[count] = r.value2() != null && ! r.value2().equals(r.value1());
+                parentIds[count] = hasParent[count] ? r.value2() : 0;
+                count++;
+            }
+        }
 
+        ids = Arrays.copyOf(ids, count);
+
+        int[] parents = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (hasParent[i]) {
+                int parentIdx = Arrays.binarySearch(ids, parentIds[i]);
+                // parents outside of the selection do not make the node a root
+                parents[i] = parentIdx < 0 ? ClosureTable.MISSING_PARENT : parentIdx;
+            } else {
+                parents[i] = ClosureTable.NO_PARENT;
+            }
+        }
 
-    private Stream<EntityHierarchyItem> streamAncestors(EntityKind kind, Map<Long, Integer> idToLevel, Node<Long, Long> node) {
-        return HierarchyUtilities.parents(node)
-            .stream()
-            .map(p -> ImmutableEntityHierarchyItem.builder()
-                    .id(node.getId())
-                    .parentId(p.getId())
-                    .level(idToLevel.get(p.getId()))
-                    .kind(kind)
-                    .build());
+        ClosureTable closure = ClosureTable.build(parents);
+        return entityHierarchyDao.syncHierarchy(kind, ids, closure, existingFilter);
     }
 
 
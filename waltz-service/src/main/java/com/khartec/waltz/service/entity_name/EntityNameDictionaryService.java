@@ -0,0 +1,80 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_name;
+
+import com.khartec.waltz.data.EntityNameDictionary;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Configures the resident {@link EntityNameDictionary} and keeps it in step
+ * with the change log.
+ */
+@Service
+public class EntityNameDictionaryService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityNameDictionaryService.class);
+
+    @Value("${waltz.entity-name-dictionary.enabled:false}")
+    private boolean dictionaryEnabled;
+
+    @Value("${waltz.entity-name-dictionary.max-age-minutes:60}")
+    private long maxAgeMinutes;
+
+    private final EntityNameDictionary entityNameDictionary;
+
+
+    @Autowired
+    public EntityNameDictionaryService(EntityNameDictionary entityNameDictionary) {
+        checkNotNull(entityNameDictionary, "entityNameDictionary cannot be null");
+        this.entityNameDictionary = entityNameDictionary;
+    }
+
+
+    @PostConstruct
+    public void init() {
+        LOG.info("Entity name dictionary enabled: {}, max age: {} minutes", dictionaryEnabled, maxAgeMinutes);
+        entityNameDictionary.configure(
+                dictionaryEnabled,
+                TimeUnit.MINUTES.toMillis(maxAgeMinutes));
+    }
+
+
+    /**
+     * Drops the dictionary entry for the entity the change log entry refers to,
+     * it will be re-read when next needed.
+     */
+    public void invalidate(ChangeLog changeLog) {
+        checkNotNull(changeLog, "changeLog cannot be null");
+        if (entityNameDictionary.isEnabled()) {
+            entityNameDictionary.invalidate(changeLog.parentReference());
+        }
+    }
+
+}
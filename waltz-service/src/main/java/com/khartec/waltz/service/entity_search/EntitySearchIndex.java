@@ -0,0 +1,386 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_search;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Immutable, in-memory, trigram index over entity names, codes and aliases.
+ *
+ * Matching mirrors the database searches: every search term must appear (case
+ * insensitively) within the name, one of the codes or one of the aliases of an
+ * entity.  Trigram postings are used to narrow the candidates, which are then
+ * verified by substring matching.
+ *
+ * Changes are applied via {@link #withChanges(Collection, Collection)}, which returns
+ * a new index sharing the base postings with this one and recording the changes in
+ * a small overlay.  Once the overlay exceeds {@link #MAX_OVERLAY_SIZE} entries the
+ * index is rebuilt.
+ */
+public class EntitySearchIndex {
+
+    public static final int MAX_OVERLAY_SIZE = 1000;
+
+    private static final int GRAM_SIZE = 3;
+
+
+    public static class Entry {
+
+        private final EntityReference ref;
+        private final String name;
+        private final String[] codes;
+        private final String[] aliases;
+
+
+        public Entry(EntityReference ref,
+                     Collection<String> codes,
+                     Collection<String> aliases) {
+            checkNotNull(ref, "ref cannot be null");
+            checkNotNull(codes, "codes cannot be null");
+            checkNotNull(aliases, "aliases cannot be null");
+
+            this.ref = ref;
+            this.name = ref.name().orElse("").toLowerCase();
+            this.codes = lowerAll(codes);
+            this.aliases = lowerAll(aliases);
+        }
+
+
+        public EntityReference getRef() {
+            return ref;
+        }
+
+
+        private Stream<String> values() {
+            return Stream.concat(
+                    Stream.of(name),
+                    Stream.concat(Stream.of(codes), Stream.of(aliases)));
+        }
+
+
+        private boolean matches(String term) {
+            return name.contains(term)
+                    || containsTerm(codes, term)
+                    || containsTerm(aliases, term);
+        }
+
+
+        private boolean matchesAll(List<String> terms) {
+            for (String term : terms) {
+                if (! matches(term)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        /**
+         * Entities whose codes start with the term are the most relevant, followed
+         * by those with the term in their name, lastly those matching via an alias.
+         */
+        private int rank(String term) {
+            for (String code : codes) {
+                if (code.startsWith(term)) {
+                    return 0;
+                }
+            }
+            return name.contains(term) ? 1 : 2;
+        }
+
+
+        private static boolean containsTerm(String[] values, String term) {
+            for (String value : values) {
+                if (value.contains(term)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        private static String[] lowerAll(Collection<String> values) {
+            return values
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .map(String::toLowerCase)
+                    .toArray(String[]::new);
+        }
+    }
+
+
+    private final Entry[] entries;
+    private final Map<String, int[]> postings;
+    private final Map<Tuple2<EntityKind, Long>, Optional<Entry>> overlay;
+
+
+    private EntitySearchIndex(Entry[] entries,
+                              Map<String, int[]> postings,
+                              Map<Tuple2<EntityKind, Long>, Optional<Entry>> overlay) {
+        this.entries = entries;
+        this.postings = postings;
+        this.overlay = overlay;
+    }
+
+
+    public static EntitySearchIndex build(Collection<Entry> entries) {
+        checkNotNull(entries, "entries cannot be null");
+
+        // last entry wins if an entity appears more than once
+        Map<Tuple2<EntityKind, Long>, Entry> byKey = new LinkedHashMap<>();
+        entries.forEach(e -> byKey.put(toKey(e.ref), e));
+
+        Entry[] indexed = byKey.values().toArray(new Entry[0]);
+        Map<String, IntList> gramSlots = new HashMap<>();
+
+        for (int slot = 0; slot < indexed.length; slot++) {
+            int currentSlot = slot;
+            indexed[slot]
+                    .values()
+                    .flatMap(EntitySearchIndex::toGrams)
+                    .distinct()
+                    .forEach(g -> gramSlots
+                            .computeIfAbsent(g, k -> new IntList())
+                            .add(currentSlot));
+        }
+
+        Map<String, int[]> postings = new HashMap<>(gramSlots.size());
+        gramSlots.forEach((g, slots) -> postings.put(g, slots.toArray()));
+
+        return new EntitySearchIndex(indexed, postings, Collections.emptyMap());
+    }
+
+
+    /**
+     * @param upserts  new or modified entries
+     * @param removals  references to entities which no longer exist
+     * @return a new index reflecting the changes, this index is unaltered
+     */
+    public EntitySearchIndex withChanges(Collection<Entry> upserts,
+                                         Collection<EntityReference> removals) {
+        checkNotNull(upserts, "upserts cannot be null");
+        checkNotNull(removals, "removals cannot be null");
+
+        Map<Tuple2<EntityKind, Long>, Optional<Entry>> updatedOverlay = new HashMap<>(overlay);
+        removals.forEach(r -> updatedOverlay.put(toKey(r), Optional.empty()));
+        upserts.forEach(e -> updatedOverlay.put(toKey(e.ref), Optional.of(e)));
+
+        EntitySearchIndex updated = new EntitySearchIndex(entries, postings, updatedOverlay);
+
+        return updatedOverlay.size() > MAX_OVERLAY_SIZE
+                ? build(updated.liveEntries().collect(toList()))
+                : updated;
+    }
+
+
+    /**
+     * @param kinds  kinds of entity to return
+     * @param terms  search terms, all of which must match
+     * @param lifecycleStatuses  permissible lifecycle statuses
+     * @param limit  maximum number of results per kind
+     * @return matching references, grouped by kind and ordered by relevance
+     */
+    public Map<EntityKind, List<EntityReference>> search(Collection<EntityKind> kinds,
+                                                         List<String> terms,
+                                                         Collection<EntityLifecycleStatus> lifecycleStatuses,
+                                                         int limit) {
+        checkNotNull(kinds, "kinds cannot be null");
+        checkNotNull(terms, "terms cannot be null");
+        checkNotNull(lifecycleStatuses, "lifecycleStatuses cannot be null");
+
+        if (terms.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<String> lowerTerms = terms
+                .stream()
+                .map(String::toLowerCase)
+                .collect(toList());
+
+        Predicate<Entry> isMatch = e -> kinds.contains(e.ref.kind())
+                && lifecycleStatuses.contains(e.ref.entityLifecycleStatus())
+                && e.matchesAll(lowerTerms);
+
+        Map<EntityKind, List<Entry>> matchesByKind = new EnumMap<>(EntityKind.class);
+        Consumer<Entry> collector = e -> matchesByKind
+                .computeIfAbsent(e.ref.kind(), k -> new ArrayList<>())
+                .add(e);
+
+        for (int slot : findCandidateSlots(lowerTerms)) {
+            Entry entry = entries[slot];
+            if (isMatch.test(entry) && ! overlay.containsKey(toKey(entry.ref))) {
+                collector.accept(entry);
+            }
+        }
+
+        overlay.values()
+                .stream()
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .filter(isMatch)
+                .forEach(collector);
+
+        Comparator<Entry> relevancyComparator = mkRelevancyComparator(lowerTerms.get(0));
+
+        Map<EntityKind, List<EntityReference>> result = new EnumMap<>(EntityKind.class);
+        matchesByKind.forEach((kind, matches) -> result.put(
+                kind,
+                matches.stream()
+                        .sorted(relevancyComparator)
+                        .limit(limit)
+                        .map(Entry::getRef)
+                        .collect(toList())));
+
+        return result;
+    }
+
+
+    public int size() {
+        return (int) liveEntries().count();
+    }
+
+
+    @Override
+    public String toString() {
+        return "EntitySearchIndex{" +
+                "entries=" + entries.length +
+                ", grams=" + postings.size() +
+                ", overlay=" + overlay.size() +
+                '}';
+    }
+
+
+    // --- helpers
+
+    private Stream<Entry> liveEntries() {
+        Stream<Entry> baseEntries = Stream
+                .of(entries)
+                .filter(e -> ! overlay.containsKey(toKey(e.ref)));
+
+        Stream<Entry> overlayEntries = overlay
+                .values()
+                .stream()
+                .filter(Optional::isPresent)
+                .map(Optional::get);
+
+        return Stream.concat(baseEntries, overlayEntries);
+    }
+
+
+    /**
+     * Intersects the postings of the grams of each term.  Terms shorter than a
+     * gram cannot narrow the search, if no term is long enough every base
+     * entry is a candidate.
+     */
+    private int[] findCandidateSlots(List<String> lowerTerms) {
+        List<int[]> slotLists = lowerTerms
+                .stream()
+                .flatMap(EntitySearchIndex::toGrams)
+                .distinct()
+                .map(g -> postings.getOrDefault(g, new int[0]))
+                .sorted(Comparator.comparingInt(slots -> slots.length))
+                .collect(toList());
+
+        if (slotLists.isEmpty()) {
+            return IntStream.range(0, entries.length).toArray();
+        }
+
+        int[] candidates = slotLists.get(0);
+        for (int i = 1; i < slotLists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, slotLists.get(i));
+        }
+        return candidates;
+    }
+
+
+    private static Comparator<Entry> mkRelevancyComparator(String term) {
+        return Comparator
+                .<Entry>comparingInt(e -> e.rank(term))
+                .thenComparingInt(e -> {
+                    int idx = e.name.indexOf(term);
+                    return idx == -1 ? Integer.MAX_VALUE : idx;
+                })
+                .thenComparing(e -> e.name);
+    }
+
+
+    private static Stream<String> toGrams(String value) {
+        return IntStream
+                .rangeClosed(0, value.length() - GRAM_SIZE)
+                .mapToObj(i -> value.substring(i, i + GRAM_SIZE));
+    }
+
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+
+    private static Tuple2<EntityKind, Long> toKey(EntityReference ref) {
+        return tuple(ref.kind(), ref.id());
+    }
+
+
+    private static class IntList {
+
+        private int[] values = new int[4];
+        private int size = 0;
+
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+}
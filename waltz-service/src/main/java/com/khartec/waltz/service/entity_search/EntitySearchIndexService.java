@@ -0,0 +1,178 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_search;
+
+import com.khartec.waltz.common.StringUtilities;
+import com.khartec.waltz.data.entity_search.EntitySearchIndexDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.SetUtilities.minus;
+import static com.khartec.waltz.data.SearchUtilities.mkTerms;
+import static java.util.stream.Collectors.*;
+
+
+/**
+ * Maintains an optional, in-memory, search index for the most commonly searched
+ * entity kinds.  The index is fully rebuilt periodically and is updated in between
+ * as the change log records modifications to indexed entities.
+ *
+ * When disabled (the default) {@link #isAvailable()} is false and searches should
+ * go to the database.
+ */
+@Service
+public class EntitySearchIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchIndexService.class);
+
+    @Value("${waltz.search.index.enabled:false}")
+    private boolean indexEnabled;
+
+    private final EntitySearchIndexDao entitySearchIndexDao;
+    private final Set<EntityReference> pendingRefs = ConcurrentHashMap.newKeySet();
+
+    private volatile EntitySearchIndex index = null;
+
+
+    @Autowired
+    public EntitySearchIndexService(EntitySearchIndexDao entitySearchIndexDao) {
+        checkNotNull(entitySearchIndexDao, "entitySearchIndexDao cannot be null");
+        this.entitySearchIndexDao = entitySearchIndexDao;
+    }
+
+
+    public boolean isAvailable() {
+        return indexEnabled && index != null;
+    }
+
+
+    public Set<EntityKind> getIndexedKinds() {
+        return EntitySearchIndexDao.SUPPORTED_KINDS;
+    }
+
+
+    /**
+     * Searches the indexed kinds requested in the options, callers should first
+     * check the index is available.
+     *
+     * @return matching references, grouped by kind
+     */
+    public Map<EntityKind, List<EntityReference>> search(EntitySearchOptions options) {
+        checkNotNull(options, "options cannot be null");
+
+        EntitySearchIndex currentIndex = index;
+        if (currentIndex == null || StringUtilities.isEmpty(options.searchQuery())) {
+            return Collections.emptyMap();
+        }
+
+        return currentIndex.search(
+                options.entityKinds(),
+                mkTerms(options.searchQuery()),
+                options.entityLifecycleStatuses(),
+                options.limit());
+    }
+
+
+    /**
+     * Notes that the referenced entity may have changed, the index
+     * is updated on the next call to {@link #applyPendingChanges()}.
+     */
+    public void markChanged(EntityReference ref) {
+        if (indexEnabled && ref != null && getIndexedKinds().contains(ref.kind())) {
+            pendingRefs.add(ref);
+        }
+    }
+
+
+    /**
+     * Reloads all indexed entities.  Runs periodically to pick up changes which are
+     * not recorded in the change log (e.g. bulk loads) or were made via other instances.
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = 900_000)
+    public synchronized void rebuild() {
+        if (! indexEnabled) {
+            return;
+        }
+
+        List<EntitySearchIndex.Entry> entries = getIndexedKinds()
+                .stream()
+                .flatMap(k -> entitySearchIndexDao.findAll(k).stream())
+                .map(EntitySearchIndexService::toEntry)
+                .collect(toList());
+
+        index = EntitySearchIndex.build(entries);
+        LOG.info("Rebuilt entity search index: {}", index);
+    }
+
+
+    @Scheduled(initialDelay = 10_000, fixedDelay = 10_000)
+    public synchronized void applyPendingChanges() {
+        EntitySearchIndex currentIndex = index;
+        if (currentIndex == null || pendingRefs.isEmpty()) {
+            return;
+        }
+
+        Set<EntityReference> refs = new HashSet<>(pendingRefs);
+        pendingRefs.removeAll(refs);
+
+        Map<EntityKind, Set<Long>> idsByKind = refs
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())));
+
+        List<EntitySearchIndex.Entry> upserts = new ArrayList<>();
+        List<EntityReference> removals = new ArrayList<>();
+
+        idsByKind.forEach((kind, ids) -> {
+            List<EntitySearchIndex.Entry> found = entitySearchIndexDao
+                    .findByIds(kind, ids)
+                    .stream()
+                    .map(EntitySearchIndexService::toEntry)
+                    .collect(toList());
+
+            Set<Long> foundIds = found
+                    .stream()
+                    .map(e -> e.getRef().id())
+                    .collect(toSet());
+
+            upserts.addAll(found);
+            minus(ids, foundIds).forEach(id -> removals.add(EntityReference.mkRef(kind, id)));
+        });
+
+        index = currentIndex.withChanges(upserts, removals);
+        LOG.debug("Applied {} changes to entity search index: {}", refs.size(), index);
+    }
+
+
+    private static EntitySearchIndex.Entry toEntry(Tuple3<EntityReference, List<String>, List<String>> t) {
+        return new EntitySearchIndex.Entry(t.v1, t.v2, t.v3);
+    }
+
+}
@@ -39,20 +39,20 @@ import com.khartec.waltz.service.software_catalog.SoftwareCatalogService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.jooq.lambda.Unchecked.supplier;
 
 @Service
 public class EntitySearchService {
 
     private final DBExecutorPoolInterface dbExecutorPool;
+    private final EntitySearchIndexService entitySearchIndexService;
     private final ActorService actorService;
     private final ApplicationService applicationService;
     private final AppGroupService appGroupService;
@@ -82,7 +82,8 @@ public class EntitySearchService {
                                PhysicalSpecificationService physicalSpecificationService,
                                RoadmapService roadmapService,
                                ServerInformationService serverInformationService,
-                               SoftwareCatalogService softwareCatalogService) {
+                               SoftwareCatalogService softwareCatalogService,
+                               EntitySearchIndexService entitySearchIndexService) {
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(actorService, "actorService cannot be null");
         checkNotNull(applicationService, "applicationService cannot be null");
@@ -97,6 +98,7 @@ public class EntitySearchService {
         checkNotNull(roadmapService, "roadmapService cannot be null");
         checkNotNull(serverInformationService, "serverInformationService cannot be null");
         checkNotNull(softwareCatalogService, "softwareCatalogService cannot be null");
+        checkNotNull(entitySearchIndexService, "entitySearchIndexService cannot be null");
 
         this.actorService = actorService;
         this.dbExecutorPool = dbExecutorPool;
@@ -112,9 +114,16 @@ public class EntitySearchService {
         this.roadmapService = roadmapService;
         this.serverInformationService = serverInformationService;
         this.softwareCatalogService = softwareCatalogService;
+        this.entitySearchIndexService = entitySearchIndexService;
     }
 
 
+    /**
+     * Every kind is searched via the database, as this also matches descriptions
+     * and (for some kinds) full-text.  Where the search index is available its
+     * name, code and alias matches are listed first, followed by any further
+     * database matches.
+     */
     public List<EntityReference> search(EntitySearchOptions options) {
         checkNotNull(options, "options cannot be null");
 
@@ -123,16 +132,50 @@ public class EntitySearchService {
             return Collections.emptyList();
         }
 
-        List<Future<Collection<? extends WaltzEntity>>> futures = options
+        Map<EntityKind, Future<Collection<? extends WaltzEntity>>> futures = options
                 .entityKinds()
                 .stream()
-                .map(ek -> dbExecutorPool.submit(mkCallable(ek, options)))
+                .distinct()
+                .collect(toMap(ek -> ek, ek -> dbExecutorPool.submit(mkCallable(ek, options))));
+
+        Map<EntityKind, List<EntityReference>> indexedResults = entitySearchIndexService.isAvailable()
+                ? entitySearchIndexService.search(options)
+                : Collections.emptyMap();
+
+        return options
+                .entityKinds()
+                .stream()
+                .distinct()
+                .flatMap(ek -> mergeResults(
+                        indexedResults.getOrDefault(ek, Collections.emptyList()),
+                        supplier(futures.get(ek)::get).get(),
+                        options.limit()).stream())
                 .collect(toList());
+    }
 
-        return futures
+
+    /**
+     * @return index hits followed by database hits not already present, at most `limit` in total
+     */
+    static List<EntityReference> mergeResults(List<EntityReference> indexed,
+                                              Collection<? extends WaltzEntity> fromDatabase,
+                                              int limit) {
+        if (indexed.isEmpty()) {
+            return fromDatabase
+                    .stream()
+                    .map(WaltzEntity::entityReference)
+                    .collect(toList());
+        }
+
+        Set<EntityReference> merged = new LinkedHashSet<>(indexed);
+        fromDatabase
                 .stream()
-                .flatMap(f -> supplier(f::get).get().stream())
                 .map(WaltzEntity::entityReference)
+                .forEach(merged::add);
+
+        return merged
+                .stream()
+                .limit(limit)
                 .collect(toList());
     }
 
@@ -22,6 +22,7 @@ import com.khartec.waltz.common.Checks;
 import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticDao;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticDefinitionDao;
+import com.khartec.waltz.data.entity_statistic.EntityStatisticRollupDao;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticSummaryDao;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticValueDao;
 import com.khartec.waltz.model.Duration;
@@ -37,25 +38,64 @@ import com.khartec.waltz.model.immediate_hierarchy.ImmediateHierarchyUtilities;
 import com.khartec.waltz.model.tally.TallyPack;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
 import static com.khartec.waltz.common.ListUtilities.concat;
 import static com.khartec.waltz.common.MapUtilities.groupBy;
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.partitioningBy;
+import static java.util.stream.Collectors.toSet;
 
 @Service
 public class EntityStatisticService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntityStatisticService.class);
+
+    /**
+     * If enabled, tallies for org unit selections are summed from the pre-aggregated
+     * rollup (for statistics with an up to date rollup) rather than aggregated from
+     * the raw statistic values.
+     */
+    @Value("${waltz.entity-statistic.rollup.enabled:false}")
+    private boolean rollupEnabled;
+
+    @Value("${waltz.entity-statistic.rollup.full-rebuild-interval-minutes:1440}")
+    private int rollupFullRebuildIntervalMinutes;
+
+    /**
+     * Statistics not rebuilt in full within this period are aggregated from the raw
+     * values, bounding staleness should the refresh job stop running.
+     */
+    @Value("${waltz.entity-statistic.rollup.max-age-minutes:2880}")
+    private int rollupMaxAgeMinutes;
+
+    private volatile long lastRollupRebuildAt = 0;
+    private final AtomicBoolean invalidationPending = new AtomicBoolean(false);
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
     private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
     private final EntityStatisticValueDao valueDao;
     private final EntityStatisticDefinitionDao definitionDao;
     private final EntityStatisticSummaryDao summaryDao;
+    private final EntityStatisticRollupDao rollupDao;
     private final EntityStatisticDao statisticDao;
 
 
@@ -63,16 +103,19 @@ public class EntityStatisticService {
     public EntityStatisticService(EntityStatisticValueDao valueDao,
                                   EntityStatisticDefinitionDao definitionDao,
                                   EntityStatisticSummaryDao summaryDao,
+                                  EntityStatisticRollupDao rollupDao,
                                   EntityStatisticDao statisticDao)
     {
         checkNotNull(valueDao, "valueDao cannot be null");
         checkNotNull(definitionDao, "definitionDao cannot be null");
         checkNotNull(summaryDao, "summaryDao cannot be null");
+        checkNotNull(rollupDao, "rollupDao cannot be null");
         checkNotNull(statisticDao, "statisticDao cannot be null");
 
         this.valueDao = valueDao;
         this.definitionDao = definitionDao;
         this.summaryDao = summaryDao;
+        this.rollupDao = rollupDao;
         this.statisticDao = statisticDao;
 
     }
@@ -115,17 +158,27 @@ public class EntityStatisticService {
                 d -> d.id().orElse(null),
                 definitionDao.findByIds(statisticIds));
 
+        Set<Long> rolledUpIds = findRolledUpStatisticIds(statisticIds, options);
 
         return concat(
-                summaryDao.generateWithCountByEntity(
+                generateTallies(
+                        RollupKind.COUNT_BY_ENTITY,
                         definitionIdsByRollupKind.getOrDefault(RollupKind.COUNT_BY_ENTITY, emptyList()),
-                        appIdSelector),
-                summaryDao.generateWithSumByValue(
+                        options,
+                        appIdSelector,
+                        rolledUpIds),
+                generateTallies(
+                        RollupKind.SUM_BY_VALUE,
                         definitionIdsByRollupKind.getOrDefault(RollupKind.SUM_BY_VALUE, emptyList()),
-                        appIdSelector),
-                summaryDao.generateWithAvgByValue(
+                        options,
+                        appIdSelector,
+                        rolledUpIds),
+                generateTallies(
+                        RollupKind.AVG_BY_VALUE,
                         definitionIdsByRollupKind.getOrDefault(RollupKind.AVG_BY_VALUE, emptyList()),
-                        appIdSelector),
+                        options,
+                        appIdSelector,
+                        rolledUpIds),
                 summaryDao.generateWithNoRollup(
                         definitionIdsByRollupKind.getOrDefault(RollupKind.NONE, emptyList()),
                         options.entityReference())
@@ -139,6 +192,12 @@ public class EntityStatisticService {
         Checks.checkNotNull(options, "options cannot be null");
         Checks.checkNotNull(rollupKind, "rollupKind cannot be null");
 
+        if (rollupKind != RollupKind.NONE && isRolledUp(statisticId, options)) {
+            return rollupDao
+                    .generateSummaries(Collections.singletonList(statisticId), rollupKind, options)
+                    .get(0);
+        }
+
         Select<Record1<Long>> appIdSelector = factory.apply(options);
 
         switch(rollupKind) {
@@ -165,6 +224,10 @@ public class EntityStatisticService {
         Checks.checkNotNull(options, "options cannot be null");
         Checks.checkNotNull(duration, "duration cannot be null");
 
+        if (rollupKind != RollupKind.NONE && isRolledUp(statisticId, options)) {
+            return rollupDao.generateHistoricSummary(statisticId, rollupKind, options, duration);
+        }
+
         Select<Record1<Long>> appIdSelector = factory.apply(options);
 
         switch(rollupKind) {
@@ -190,4 +253,187 @@ public class EntityStatisticService {
     public List<EntityStatisticDefinition> findAllActiveDefinitions(boolean rollupOnly) {
         return definitionDao.findAllActiveDefinitions(rollupOnly);
     }
+
+
+    /**
+     * Rollup cells are keyed by the org unit, kind and lifecycle status of each
+     * application.  If an update changes any of these the rollup is invalidated,
+     * statistics are then served from the raw values until the next refresh has
+     * rebuilt them.  Org unit hierarchy changes need no invalidation as the
+     * hierarchy is applied when cells are read.
+     *
+     * The invalidation itself is deferred to `applyPendingInvalidation` so that it
+     * happens off the request thread, once for any number of changed applications.
+     */
+    public void markApplicationChanged(Application before, Application after) {
+        if (! rollupEnabled || before == null || after == null) {
+            return;
+        }
+
+        boolean movesCell = ! Objects.equals(before.organisationalUnitId(), after.organisationalUnitId())
+                || before.applicationKind() != after.applicationKind()
+                || before.entityLifecycleStatus() != after.entityLifecycleStatus();
+
+        if (movesCell) {
+            invalidationPending.set(true);
+        }
+    }
+
+
+    @Scheduled(initialDelay = 10_000, fixedDelay = 10_000)
+    public void applyPendingInvalidation() {
+        if (! invalidationPending.getAndSet(false)) {
+            return;
+        }
+
+        try {
+            int invalidated = rollupDao.invalidateAll();
+            LOG.info("Invalidated entity statistic rollup for {} statistics following application changes", invalidated);
+        } catch (RuntimeException e) {
+            invalidationPending.set(true);
+            LOG.warn("Failed to invalidate entity statistic rollup, will retry", e);
+        }
+    }
+
+
+    @Scheduled(initialDelay = 60_000, fixedDelayString = "${waltz.entity-statistic.rollup.refresh-interval-ms:900000}")
+    public void scheduledRefreshRollup() {
+        refreshRollup();
+    }
+
+
+    /**
+     * Entry point for the rollup maintenance, run periodically and also available
+     * as the `ENTITY_STATISTIC_ROLLUP_REFRESH` scheduled job.  Statistics with newly
+     * loaded values have the affected days rolled up again.  Statistics invalidated
+     * by application changes are rebuilt, as is every statistic if the last full
+     * rebuild is older than the configured interval (picking up changes made
+     * outside of Waltz).  If a refresh is already in progress this returns immediately.
+     *
+     * @return number of rollup cells written
+     */
+    public int refreshRollup() {
+        if (! rollupEnabled) {
+            return 0;
+        }
+
+        if (! refreshLock.tryLock()) {
+            LOG.info("Entity statistic rollup refresh already in progress, skipping");
+            return 0;
+        }
+
+        try {
+            return doRefreshRollup();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+
+    // --- helpers
+
+    private int doRefreshRollup() {
+        long start = System.currentTimeMillis();
+        boolean fullRebuildDue = start - lastRollupRebuildAt
+                > TimeUnit.MINUTES.toMillis(rollupFullRebuildIntervalMinutes);
+
+        Set<Long> statisticIds = definitionDao
+                .findAllActiveDefinitions(false)
+                .stream()
+                .filter(d -> d.rollupKind() != RollupKind.NONE)
+                .map(d -> d.id().get())
+                .collect(toSet());
+
+        // read before looking for changes, values loaded in the meantime are picked up next time
+        long upToValueId = rollupDao.getMaxValueId();
+        Map<Long, Long> watermarks = rollupDao.findWatermarks();
+        Set<Long> invalidatedStatisticIds = fullRebuildDue
+                ? Collections.emptySet()
+                : rollupDao.findInvalidatedStatisticIds();
+
+        Set<Long> changedStatisticIds = fullRebuildDue || watermarks.isEmpty()
+                ? Collections.emptySet()
+                : rollupDao.findStatisticIdsWithValuesAfter(Collections.min(watermarks.values()));
+
+        int cells = 0;
+        int rebuilt = 0;
+        int refreshed = 0;
+
+        for (Long statisticId : statisticIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                LOG.warn("Entity statistic rollup refresh interrupted after {} statistics", rebuilt + refreshed);
+                return cells;
+            }
+
+            Long watermark = watermarks.get(statisticId);
+            if (fullRebuildDue || watermark == null || invalidatedStatisticIds.contains(statisticId)) {
+                cells += rollupDao.rebuildStatistic(statisticId, upToValueId);
+                rebuilt++;
+            } else if (changedStatisticIds.contains(statisticId)) {
+                cells += rollupDao.refreshStatistic(statisticId, watermark, upToValueId);
+                refreshed++;
+            }
+        }
+
+        rollupDao.advanceWatermarks(statisticIds, upToValueId);
+        rollupDao.removeStatisticsOtherThan(statisticIds);
+
+        if (fullRebuildDue) {
+            lastRollupRebuildAt = start;
+        }
+
+        LOG.info("Entity statistic rollup: rebuilt {} and refreshed {} statistics, writing {} cells in {}ms",
+                rebuilt,
+                refreshed,
+                cells,
+                System.currentTimeMillis() - start);
+
+        return cells;
+    }
+
+
+    private boolean isRolledUp(long statisticId, IdSelectionOptions options) {
+        return findRolledUpStatisticIds(Collections.singletonList(statisticId), options).contains(statisticId);
+    }
+
+
+    private Set<Long> findRolledUpStatisticIds(Collection<Long> statisticIds, IdSelectionOptions options) {
+        return rollupEnabled && EntityStatisticRollupDao.canServe(options)
+                ? rollupDao.findCurrentStatisticIds(
+                        statisticIds,
+                        Timestamp.valueOf(nowUtc().minusMinutes(rollupMaxAgeMinutes)))
+                : Collections.emptySet();
+    }
+
+
+    private List<TallyPack<String>> generateTallies(RollupKind rollupKind,
+                                                    Collection<Long> statisticIds,
+                                                    IdSelectionOptions options,
+                                                    Select<Record1<Long>> appIdSelector,
+                                                    Set<Long> rolledUpIds) {
+        Map<Boolean, List<Long>> idsByRolledUp = statisticIds
+                .stream()
+                .collect(partitioningBy(rolledUpIds::contains));
+
+        List<Long> rawIds = idsByRolledUp.get(false);
+        List<TallyPack<String>> rawTallies;
+
+        switch (rollupKind) {
+            case COUNT_BY_ENTITY:
+                rawTallies = summaryDao.generateWithCountByEntity(rawIds, appIdSelector);
+                break;
+            case SUM_BY_VALUE:
+                rawTallies = summaryDao.generateWithSumByValue(rawIds, appIdSelector);
+                break;
+            case AVG_BY_VALUE:
+                rawTallies = summaryDao.generateWithAvgByValue(rawIds, appIdSelector);
+                break;
+            default:
+                throw new UnsupportedOperationException(String.format("Rollup kind [%s] not supported.", rollupKind));
+        }
+
+        return concat(
+                rollupDao.generateSummaries(idsByRolledUp.get(true), rollupKind, options),
+                rawTallies);
+    }
 }
@@ -21,6 +21,8 @@ package com.khartec.waltz.service.enum_value;
 
 import com.khartec.waltz.data.enum_value.EnumValueDao;
 import com.khartec.waltz.model.EnumValue;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -32,17 +34,24 @@ import static com.khartec.waltz.common.Checks.checkNotNull;
 public class EnumValueService {
 
     private final EnumValueDao enumValueDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public EnumValueService(EnumValueDao enumValueDao) {
+    public EnumValueService(EnumValueDao enumValueDao,
+                            ReferenceDataService referenceDataService) {
         checkNotNull(enumValueDao, "enumValueDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
         this.enumValueDao = enumValueDao;
+        this.referenceDataService = referenceDataService;
     }
 
 
     public List<EnumValue> findAll() {
-        return enumValueDao.findAll();
+        return referenceDataService
+                .findSnapshot()
+                .map(ReferenceDataSnapshot::enumValues)
+                .orElseGet(enumValueDao::findAll);
     }
 
 }
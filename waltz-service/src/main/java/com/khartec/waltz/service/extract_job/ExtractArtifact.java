@@ -0,0 +1,88 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.extract_job;
+
+import java.nio.file.Path;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * A prepared extract held in the {@link ExtractArtifactCache}, the content
+ * lives on disk at {@link #path()}.
+ */
+public final class ExtractArtifact {
+
+    private final String key;
+    private final String name;
+    private final String format;
+    private final Path path;
+    private final long sizeBytes;
+    private final long createdAtMillis;
+
+
+    ExtractArtifact(String key,
+                    String name,
+                    String format,
+                    Path path,
+                    long sizeBytes,
+                    long createdAtMillis) {
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(name, "name cannot be null");
+        checkNotNull(format, "format cannot be null");
+        checkNotNull(path, "path cannot be null");
+        this.key = key;
+        this.name = name;
+        this.format = format;
+        this.path = path;
+        this.sizeBytes = sizeBytes;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+
+    public String key() {
+        return key;
+    }
+
+
+    public String name() {
+        return name;
+    }
+
+
+    public String format() {
+        return format;
+    }
+
+
+    public Path path() {
+        return path;
+    }
+
+
+    public long sizeBytes() {
+        return sizeBytes;
+    }
+
+
+    public long createdAtMillis() {
+        return createdAtMillis;
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.extract_job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Holds prepared extracts on disk, keyed by a digest of whatever identifies
+ * the extract (typically the extractor, its parameters and the version of the
+ * data it was prepared from).  Only the index is kept in memory.
+ *
+ * Entries expire once older than the configured time-to-live.  Expired entries
+ * are never returned and their files are removed by {@link #evictExpired()}.
+ * Files are written under a temporary name and moved into place so readers
+ * never observe a partial artifact.  The index is not persisted, files left
+ * behind by a previous process are removed on start-up.
+ */
+public class ExtractArtifactCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExtractArtifactCache.class);
+
+    private static final String SUFFIX = ".extract";
+
+    private final Path directory;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, ExtractArtifact> artifactsByKey = new ConcurrentHashMap<>();
+
+
+    public ExtractArtifactCache(Path directory, long ttlMillis) {
+        this(directory, ttlMillis, System::currentTimeMillis);
+    }
+
+
+    ExtractArtifactCache(Path directory, long ttlMillis, LongSupplier clock) {
+        checkNotNull(directory, "directory cannot be null");
+        checkNotNull(clock, "clock cannot be null");
+        checkTrue(ttlMillis >= 0, "ttlMillis cannot be negative");
+
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create extract cache directory: " + directory, e);
+        }
+
+        removeOrphanedFiles();
+    }
+
+
+    /**
+     * @param identity  describes the extract, identical extracts must have identical identities
+     * @return the cache key for the extract, safe for use as a file name
+     */
+    public static String mkKey(String identity) {
+        checkNotNull(identity, "identity cannot be null");
+        try {
+            byte[] digest = MessageDigest
+                    .getInstance("SHA-256")
+                    .digest(identity.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+
+    /**
+     * @return the artifact, if present and not expired
+     */
+    public Optional<ExtractArtifact> find(String key) {
+        checkNotNull(key, "key cannot be null");
+        return Optional
+                .ofNullable(artifactsByKey.get(key))
+                .filter(a -> ! isExpired(a))
+                .filter(a -> Files.exists(a.path()));
+    }
+
+
+    /**
+     * Writes the content to disk and indexes it, replacing any existing
+     * artifact with the same key.
+     */
+    public ExtractArtifact put(String key, String name, String format, byte[] content) throws IOException {
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(content, "content cannot be null");
+
+        Path target = directory.resolve(key + SUFFIX);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        ExtractArtifact artifact = new ExtractArtifact(
+                key,
+                name,
+                format,
+                target,
+                content.length,
+                clock.getAsLong());
+
+        artifactsByKey.put(key, artifact);
+        return artifact;
+    }
+
+
+    /**
+     * @return the number of artifacts removed
+     */
+    public int evictExpired() {
+        int evicted = 0;
+        for (ExtractArtifact artifact : artifactsByKey.values()) {
+            if (isExpired(artifact) && artifactsByKey.remove(artifact.key(), artifact)) {
+                delete(artifact.path());
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+
+    public void clear() {
+        artifactsByKey.values().forEach(a -> {
+            if (artifactsByKey.remove(a.key(), a)) {
+                delete(a.path());
+            }
+        });
+    }
+
+
+    public int getEntryCount() {
+        return artifactsByKey.size();
+    }
+
+
+    public long getSizeBytes() {
+        return artifactsByKey
+                .values()
+                .stream()
+                .mapToLong(ExtractArtifact::sizeBytes)
+                .sum();
+    }
+
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+
+    // --- helpers
+
+    private boolean isExpired(ExtractArtifact artifact) {
+        return clock.getAsLong() - artifact.createdAtMillis() >= ttlMillis;
+    }
+
+
+    private void removeOrphanedFiles() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            files.forEach(this::delete);
+        } catch (IOException e) {
+            LOG.warn("Could not remove orphaned extracts from: {}, {}", directory, e.getMessage());
+        }
+    }
+
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Could not remove extract: {}, {}", path, e.getMessage());
+        }
+    }
+
+}
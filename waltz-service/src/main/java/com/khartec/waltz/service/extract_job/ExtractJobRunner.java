@@ -0,0 +1,363 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.extract_job;
+
+import com.khartec.waltz.model.extract_job.ExtractJob;
+import com.khartec.waltz.model.extract_job.ImmutableExtractJob;
+import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+
+
+/**
+ * Prepares extracts on a bounded pool of threads, storing the results in an
+ * {@link ExtractArtifactCache}.
+ *
+ * Submissions are keyed, a submission whose key is already cached completes
+ * immediately and one whose key is already being prepared shares the
+ * in-flight work rather than repeating it.  Once the pool and its queue are
+ * full further submissions are rejected (the job is marked as errored) so
+ * callers can retry later instead of piling up behind the load balancer.
+ */
+public class ExtractJobRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExtractJobRunner.class);
+
+    private static final Duration JOB_RETENTION = Duration.ofHours(1);
+
+    private final ExtractArtifactCache cache;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, ExtractJob> jobsById = new ConcurrentHashMap<>();
+    private final Map<String, String> keysByJobId = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<ExtractArtifact>> inFlight = new HashMap<>();
+    private final Set<String> runningKeys = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder cacheHitCount = new LongAdder();
+    private final LongAdder sharedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+
+    public ExtractJobRunner(ExtractArtifactCache cache,
+                            int threadCount,
+                            int queueCapacity) {
+        checkNotNull(cache, "cache cannot be null");
+        checkTrue(threadCount > 0, "threadCount must be positive");
+        checkTrue(queueCapacity > 0, "queueCapacity must be positive");
+
+        this.cache = cache;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "WaltzExtract-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+
+    /**
+     * Submits an extract for preparation, this method does not wait for it
+     * to complete.
+     *
+     * @param username  user requesting the extract, only they may see the job
+     * @param extractor  name of the extractor, for information only
+     * @param format  format of the extract, for information only
+     * @param key  cache key (see {@link ExtractArtifactCache#mkKey(String)}), identical extracts must share a key
+     * @param work  prepares the extract, returning the report name and content
+     * @return the job, which may be polled via {@link #getJob(String, String)}
+     */
+    public ExtractJob submit(String username,
+                             String extractor,
+                             String format,
+                             String key,
+                             Callable<Tuple2<String, byte[]>> work) {
+        checkNotNull(username, "username cannot be null");
+        checkNotNull(extractor, "extractor cannot be null");
+        checkNotNull(format, "format cannot be null");
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(work, "work cannot be null");
+
+        removeExpiredJobs();
+        submittedCount.increment();
+
+        ImmutableExtractJob job = ImmutableExtractJob.builder()
+                .id(UUID.randomUUID().toString())
+                .extractor(extractor)
+                .format(format)
+                .submittedBy(username)
+                .submittedAt(nowUtc())
+                .status(JobLifecycleStatus.RUNNABLE)
+                .build();
+
+        String jobId = job.id();
+
+        Optional<ExtractArtifact> cached = cache.find(key);
+        if (cached.isPresent()) {
+            cacheHitCount.increment();
+            return register(jobId, key, mkCompleted(job, cached.get()).withFromCache(true));
+        }
+
+        CompletableFuture<ExtractArtifact> future;
+        synchronized (inFlight) {
+            // the work may have finished since the cache was checked
+            cached = cache.find(key);
+            if (cached.isPresent()) {
+                cacheHitCount.increment();
+                return register(jobId, key, mkCompleted(job, cached.get()).withFromCache(true));
+            }
+
+            future = inFlight.get(key);
+            // a completed future may not have been removed yet, its artifact may since have been evicted
+            if (future == null || future.isDone()) {
+                try {
+                    future = start(key, format, work);
+                } catch (RejectedExecutionException e) {
+                    rejectedCount.increment();
+                    if (executor.isShutdown()) {
+                        return register(jobId, key, job
+                                .withStatus(JobLifecycleStatus.ERRORED)
+                                .withCompletedAt(nowUtc())
+                                .withError("Server is shutting down, please try again later"));
+                    }
+                    LOG.warn("Extract queue is full, rejecting {} extract for {}", extractor, username);
+                    return register(jobId, key, job
+                            .withStatus(JobLifecycleStatus.ERRORED)
+                            .withCompletedAt(nowUtc())
+                            .withError("Too many extracts are being prepared, please try again later"));
+                }
+                inFlight.put(key, future);
+                CompletableFuture<ExtractArtifact> started = future;
+                future.whenComplete((artifact, e) -> removeInFlight(key, started));
+            } else {
+                sharedCount.increment();
+            }
+        }
+
+        register(jobId, key, job);
+
+        future.whenComplete((artifact, e) -> {
+            if (e == null) {
+                updateJob(jobId, j -> mkCompleted(j, artifact));
+            } else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null
+                        ? e.getCause()
+                        : e;
+                updateJob(jobId, j -> j
+                        .withStatus(JobLifecycleStatus.ERRORED)
+                        .withCompletedAt(nowUtc())
+                        .withError(Optional.ofNullable(cause.getMessage()).orElse(cause.getClass().getSimpleName())));
+            }
+        });
+
+        return getJob(jobId, username).orElse(job);
+    }
+
+
+    /**
+     * @return the job, if it exists and was submitted by the given user
+     */
+    public Optional<ExtractJob> getJob(String jobId, String username) {
+        checkNotNull(jobId, "jobId cannot be null");
+        return Optional
+                .ofNullable(jobsById.get(jobId))
+                .filter(j -> j.submittedBy().equals(username))
+                .map(j -> j.status() == JobLifecycleStatus.RUNNABLE && isRunning(jobId)
+                        ? ImmutableExtractJob.copyOf(j).withStatus(JobLifecycleStatus.RUNNING)
+                        : j);
+    }
+
+
+    /**
+     * @return the prepared extract, if the job has completed and the extract has not since expired
+     */
+    public Optional<ExtractArtifact> findArtifact(String jobId, String username) {
+        return getJob(jobId, username)
+                .filter(j -> j.status() == JobLifecycleStatus.COMPLETED)
+                .flatMap(j -> Optional.ofNullable(keysByJobId.get(jobId)))
+                .flatMap(cache::find);
+    }
+
+
+    public int evictExpired() {
+        removeExpiredJobs();
+        return cache.evictExpired();
+    }
+
+
+    /**
+     * Stops the pool, extracts which had not started are abandoned and their jobs
+     * marked as errored (rather than being left waiting indefinitely).
+     */
+    public void shutdown() {
+        int notStarted = executor.shutdownNow().size();
+        if (notStarted > 0) {
+            LOG.info("Abandoning {} extracts which had not started", notStarted);
+        }
+
+        Map<String, CompletableFuture<ExtractArtifact>> abandoned;
+        synchronized (inFlight) {
+            abandoned = new HashMap<>(inFlight);
+        }
+        abandoned.forEach((key, future) -> {
+            if (! runningKeys.contains(key)) {
+                future.completeExceptionally(new CancellationException("Server shut down before the extract was prepared"));
+            }
+        });
+    }
+
+
+    // --- statistics
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+
+    public long getCacheHitCount() {
+        return cacheHitCount.sum();
+    }
+
+
+    public long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+
+    // --- helpers
+
+    private CompletableFuture<ExtractArtifact> start(String key,
+                                                     String format,
+                                                     Callable<Tuple2<String, byte[]>> work) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    runningKeys.add(key);
+                    try {
+                        Tuple2<String, byte[]> result = work.call();
+                        return cache.put(key, result.v1, format, result.v2);
+                    } catch (IOException e) {
+                        failedCount.increment();
+                        throw new UncheckedIOException(e);
+                    } catch (RuntimeException e) {
+                        failedCount.increment();
+                        throw e;
+                    } catch (Exception e) {
+                        failedCount.increment();
+                        throw new CompletionException(e);
+                    } finally {
+                        runningKeys.remove(key);
+                    }
+                },
+                executor);
+    }
+
+
+    private ExtractJob register(String jobId, String key, ExtractJob job) {
+        jobsById.put(jobId, job);
+        keysByJobId.put(jobId, key);
+        return job;
+    }
+
+
+    private boolean isRunning(String jobId) {
+        String key = keysByJobId.get(jobId);
+        return key != null && runningKeys.contains(key);
+    }
+
+
+    private void removeInFlight(String key, CompletableFuture<ExtractArtifact> future) {
+        synchronized (inFlight) {
+            inFlight.remove(key, future);
+        }
+    }
+
+
+    private static ImmutableExtractJob mkCompleted(ImmutableExtractJob job, ExtractArtifact artifact) {
+        return job
+                .withStatus(JobLifecycleStatus.COMPLETED)
+                .withName(artifact.name())
+                .withCompletedAt(nowUtc());
+    }
+
+
+    private void updateJob(String jobId,
+                           Function<ImmutableExtractJob, ExtractJob> updater) {
+        jobsById.computeIfPresent(
+                jobId,
+                (id, job) -> updater.apply(ImmutableExtractJob.copyOf(job)));
+    }
+
+
+    private void removeExpiredJobs() {
+        LocalDateTime cutoff = nowUtc().minus(JOB_RETENTION);
+        jobsById.values().removeIf(j -> j
+                .completedAt()
+                .map(t -> t.isBefore(cutoff))
+                .orElse(false));
+        keysByJobId.keySet().retainAll(jobsById.keySet());
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.extract_job;
+
+import com.khartec.waltz.data.changelog.ChangeLogDao;
+import com.khartec.waltz.model.extract_job.ExtractJob;
+import com.khartec.waltz.service.changelog.ChangeLogWriter;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Prepares data extracts in the background.  Extracts are cached against the
+ * latest change log entry, so repeated requests for an extract return the
+ * same artifact until something is modified (or the cache entry expires).
+ * Extractors whose data is modified without change log entries (e.g. survey
+ * responses) must supply their own data version as part of the parameters.
+ */
+@Service
+public class ExtractJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExtractJobService.class);
+
+    private final ExtractJobRunner extractJobRunner;
+    private final ChangeLogDao changeLogDao;
+    private final ChangeLogWriter changeLogWriter;
+
+
+    @Autowired
+    public ExtractJobService(ExtractJobRunner extractJobRunner,
+                             ChangeLogDao changeLogDao,
+                             ChangeLogWriter changeLogWriter) {
+        checkNotNull(extractJobRunner, "extractJobRunner cannot be null");
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+        checkNotNull(changeLogWriter, "changeLogWriter cannot be null");
+        this.extractJobRunner = extractJobRunner;
+        this.changeLogDao = changeLogDao;
+        this.changeLogWriter = changeLogWriter;
+    }
+
+
+    /**
+     * Submits an extract for preparation.  Extracts with the same extractor,
+     * format and parameters, requested while the data is unchanged, are only
+     * prepared once.
+     *
+     * @param username  user requesting the extract
+     * @param extractor  name of the extractor
+     * @param format  format of the extract (e.g. `XLSX`)
+     * @param parameters  everything (other than the format) which influences the content of the extract
+     * @param work  prepares the extract, returning the report name and content.  Must not refer to the web request.
+     * @return the job, which may be polled via {@link #getJob(String, String)}
+     */
+    public ExtractJob submit(String username,
+                             String extractor,
+                             String format,
+                             String parameters,
+                             Callable<Tuple2<String, byte[]>> work) {
+        checkNotNull(parameters, "parameters cannot be null");
+
+        // entries still queued by an async change log writer are not yet reflected in the latest id
+        String dataVersion = changeLogDao
+                .findLatestId()
+                .map(String::valueOf)
+                .orElse("0")
+                + ":" + changeLogWriter.getQueueSequence();
+
+        String key = ExtractArtifactCache.mkKey(String.join(
+                "\n",
+                extractor,
+                format,
+                parameters,
+                dataVersion));
+
+        return extractJobRunner.submit(username, extractor, format, key, work);
+    }
+
+
+    public Optional<ExtractJob> getJob(String jobId, String username) {
+        return extractJobRunner.getJob(jobId, username);
+    }
+
+
+    public Optional<ExtractArtifact> findArtifact(String jobId, String username) {
+        return extractJobRunner.findArtifact(jobId, username);
+    }
+
+
+    @Scheduled(initialDelay = 60_000, fixedDelay = 60_000)
+    public void evictExpired() {
+        int evicted = extractJobRunner.evictExpired();
+        if (evicted > 0) {
+            LOG.debug("Evicted {} expired extracts", evicted);
+        }
+    }
+
+}
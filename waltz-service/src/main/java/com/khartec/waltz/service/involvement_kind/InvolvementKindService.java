@@ -29,6 +29,8 @@ import com.khartec.waltz.model.involvement_kind.ImmutableInvolvementKindChangeCo
 import com.khartec.waltz.model.involvement_kind.InvolvementKind;
 import com.khartec.waltz.model.involvement_kind.InvolvementKindChangeCommand;
 import com.khartec.waltz.model.involvement_kind.InvolvementKindCreateCommand;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -41,23 +43,33 @@ import static com.khartec.waltz.common.FunctionUtilities.time;
 public class InvolvementKindService {
 
     private final InvolvementKindDao involvementKindDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public InvolvementKindService(InvolvementKindDao involvementKindDao) {
+    public InvolvementKindService(InvolvementKindDao involvementKindDao,
+                                  ReferenceDataService referenceDataService) {
         checkNotNull(involvementKindDao, "involvementKindDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.involvementKindDao = involvementKindDao;
+        this.referenceDataService = referenceDataService;
     }
 
 
     public List<InvolvementKind> findAll() {
-        return involvementKindDao.findAll();
+        return referenceDataService
+                .findSnapshot()
+                .map(ReferenceDataSnapshot::involvementKinds)
+                .orElseGet(involvementKindDao::findAll);
     }
 
 
     public InvolvementKind getById(long id) {
-        return involvementKindDao.getById(id);
+        return referenceDataService
+                .findSnapshot()
+                .flatMap(s -> s.findInvolvementKindById(id))
+                .orElseGet(() -> involvementKindDao.getById(id));
     }
 
 
@@ -72,7 +84,9 @@ public class InvolvementKindService {
         checkNotNull(command, "command cannot be null");
         checkNotNull(username, "username cannot be null");
 
-        return involvementKindDao.create(command, username);
+        Long id = involvementKindDao.create(command, username);
+        referenceDataService.markStale();
+        return id;
     }
 
 
@@ -85,6 +99,7 @@ public class InvolvementKindService {
                 .withLastUpdate(UserTimestamp.mkForUser(username));
 
         boolean success = involvementKindDao.update(updateCommand);
+        referenceDataService.markStale();
         return ImmutableCommandResponse.<InvolvementKindChangeCommand>builder()
                 .originalCommand(command)
                 .entityReference(EntityReference.mkRef(EntityKind.INVOLVEMENT_KIND, command.id()))
@@ -94,7 +109,9 @@ public class InvolvementKindService {
 
 
     public boolean delete(long id) {
-        return involvementKindDao.deleteIfNotUsed(id);
+        boolean deleted = involvementKindDao.deleteIfNotUsed(id);
+        referenceDataService.markStale();
+        return deleted;
     }
 
 }
@@ -0,0 +1,115 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.changelog.ChangeLogWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Queue and flush statistics for the Waltz change log writer")
+public class ChangeLogWriterMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogWriterMaintenance.class);
+
+    private final ChangeLogWriter changeLogWriter;
+
+    @Autowired
+    public ChangeLogWriterMaintenance(ChangeLogWriter changeLogWriter) {
+        this.changeLogWriter = changeLogWriter;
+    }
+
+
+    @ManagedOperation(description = "Write all queued entries now, returns the number written")
+    public int flush() {
+        LOG.info("Flushing change log writer (via jmx)");
+        return changeLogWriter.flush();
+    }
+
+
+    @ManagedOperation(description = "Reset latency histogram and counters")
+    public void resetStatistics() {
+        LOG.info("Resetting change log writer statistics (via jmx)");
+        changeLogWriter.resetStatistics();
+    }
+
+
+    @ManagedAttribute
+    public boolean isAsync() {
+        return changeLogWriter.isAsync();
+    }
+
+
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return changeLogWriter.getQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public int getQueueCapacity() {
+        return changeLogWriter.getQueueCapacity();
+    }
+
+
+    @ManagedAttribute
+    public long getPeakQueueDepth() {
+        return changeLogWriter.getPeakQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public long getQueuedCount() {
+        return changeLogWriter.getQueuedCount();
+    }
+
+
+    @ManagedAttribute
+    public long getWrittenCount() {
+        return changeLogWriter.getWrittenCount();
+    }
+
+
+    @ManagedAttribute(description = "Entries written directly by callers as the queue was full")
+    public long getCallerWritesCount() {
+        return changeLogWriter.getCallerWritesCount();
+    }
+
+
+    @ManagedAttribute
+    public long getFailedCount() {
+        return changeLogWriter.getFailedCount();
+    }
+
+
+    @ManagedAttribute
+    public String getFlushTimes() {
+        return changeLogWriter.getFlushTimes().toString();
+    }
+
+
+    @ManagedAttribute
+    public double getFlushTimeP99Millis() {
+        return changeLogWriter.getFlushTimes().getPercentileMillis(99);
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.data.InstrumentedDBExecutorPool;
+import com.khartec.waltz.data.InstrumentedDBExecutorPool.Lane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Queue and latency statistics for the Waltz database executor pool")
+public class DBExecutorPoolMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DBExecutorPoolMaintenance.class);
+
+    private final InstrumentedDBExecutorPool dbExecutorPool;
+
+    @Autowired
+    public DBExecutorPoolMaintenance(InstrumentedDBExecutorPool dbExecutorPool) {
+        this.dbExecutorPool = dbExecutorPool;
+    }
+
+
+    @ManagedOperation(description = "Reset latency histograms and counters")
+    public void resetStatistics() {
+        LOG.info("Resetting db executor pool statistics (via jmx)");
+        interactive().resetStatistics();
+        batch().resetStatistics();
+    }
+
+
+    // -- interactive
+
+    @ManagedAttribute
+    public int getInteractiveThreadCount() {
+        return interactive().getThreadCount();
+    }
+
+
+    @ManagedAttribute
+    public int getInteractiveActiveCount() {
+        return interactive().getActiveCount();
+    }
+
+
+    @ManagedAttribute
+    public int getInteractiveQueueDepth() {
+        return interactive().getQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public long getInteractivePeakQueueDepth() {
+        return interactive().getPeakQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public long getInteractiveCompletedTaskCount() {
+        return interactive().getCompletedTaskCount();
+    }
+
+
+    @ManagedAttribute
+    public long getInteractiveCallerRunsCount() {
+        return interactive().getCallerRunsCount();
+    }
+
+
+    @ManagedAttribute
+    public String getInteractiveWaitTimes() {
+        return interactive().getWaitTimes().toString();
+    }
+
+
+    @ManagedAttribute
+    public String getInteractiveExecutionTimes() {
+        return interactive().getExecutionTimes().toString();
+    }
+
+
+    @ManagedAttribute
+    public double getInteractiveWaitTimeP99Millis() {
+        return interactive().getWaitTimes().getPercentileMillis(99);
+    }
+
+
+    // -- batch
+
+    @ManagedAttribute
+    public int getBatchThreadCount() {
+        return batch().getThreadCount();
+    }
+
+
+    @ManagedAttribute
+    public int getBatchActiveCount() {
+        return batch().getActiveCount();
+    }
+
+
+    @ManagedAttribute
+    public int getBatchQueueDepth() {
+        return batch().getQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public long getBatchPeakQueueDepth() {
+        return batch().getPeakQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public long getBatchCompletedTaskCount() {
+        return batch().getCompletedTaskCount();
+    }
+
+
+    @ManagedAttribute
+    public long getBatchCallerRunsCount() {
+        return batch().getCallerRunsCount();
+    }
+
+
+    @ManagedAttribute
+    public String getBatchWaitTimes() {
+        return batch().getWaitTimes().toString();
+    }
+
+
+    @ManagedAttribute
+    public String getBatchExecutionTimes() {
+        return batch().getExecutionTimes().toString();
+    }
+
+
+    @ManagedAttribute
+    public double getBatchWaitTimeP99Millis() {
+        return batch().getWaitTimes().getPercentileMillis(99);
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "DBExecutorPool";
+    }
+
+
+    // -- helpers
+
+    private Lane interactive() {
+        return dbExecutorPool.getInteractiveLane();
+    }
+
+
+    private Lane batch() {
+        return dbExecutorPool.getBatchLane();
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.data.EntityNameDictionary;
+import com.khartec.waltz.model.EntityKind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Contents and statistics for the Waltz entity name dictionary")
+public class EntityNameDictionaryMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityNameDictionaryMaintenance.class);
+
+    private final EntityNameDictionary entityNameDictionary;
+
+    @Autowired
+    public EntityNameDictionaryMaintenance(EntityNameDictionary entityNameDictionary) {
+        this.entityNameDictionary = entityNameDictionary;
+    }
+
+
+    @ManagedOperation(description = "Discard all entries, kinds are reloaded as they are next needed")
+    public void clear() {
+        LOG.info("Clearing entity name dictionary (via jmx)");
+        entityNameDictionary.clear();
+    }
+
+
+    @ManagedOperation(description = "Discard entries for a kind (e.g. APPLICATION)")
+    public void invalidateKind(String kind) {
+        LOG.info("Invalidating entity name dictionary kind: {} (via jmx)", kind);
+        entityNameDictionary.invalidate(EntityKind.valueOf(kind));
+    }
+
+
+    @ManagedOperation(description = "Reset hit and miss counters")
+    public void resetStatistics() {
+        LOG.info("Resetting entity name dictionary statistics (via jmx)");
+        entityNameDictionary.resetStatistics();
+    }
+
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return entityNameDictionary.isEnabled();
+    }
+
+
+    @ManagedAttribute
+    public int getEntryCount() {
+        return entityNameDictionary.getEntryCount();
+    }
+
+
+    @ManagedAttribute
+    public String getLoadedKinds() {
+        return entityNameDictionary.getLoadedKinds().toString();
+    }
+
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return entityNameDictionary.getHitCount();
+    }
+
+
+    @ManagedAttribute(description = "Lookups for entries not yet resident, each requiring a database query")
+    public long getMissCount() {
+        return entityNameDictionary.getMissCount();
+    }
+
+}
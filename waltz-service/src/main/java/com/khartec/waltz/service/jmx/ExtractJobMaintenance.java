@@ -0,0 +1,106 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.extract_job.ExtractArtifactCache;
+import com.khartec.waltz.service.extract_job.ExtractJobRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Queue and cache statistics for asynchronous Waltz data extracts")
+public class ExtractJobMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExtractJobMaintenance.class);
+
+    private final ExtractJobRunner extractJobRunner;
+    private final ExtractArtifactCache extractArtifactCache;
+
+    @Autowired
+    public ExtractJobMaintenance(ExtractJobRunner extractJobRunner,
+                                 ExtractArtifactCache extractArtifactCache) {
+        this.extractJobRunner = extractJobRunner;
+        this.extractArtifactCache = extractArtifactCache;
+    }
+
+
+    @ManagedOperation(description = "Remove all cached extracts")
+    public void clearCache() {
+        LOG.info("Clearing extract cache (via jmx)");
+        extractArtifactCache.clear();
+    }
+
+
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return extractJobRunner.getQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public int getActiveCount() {
+        return extractJobRunner.getActiveCount();
+    }
+
+
+    @ManagedAttribute
+    public long getSubmittedCount() {
+        return extractJobRunner.getSubmittedCount();
+    }
+
+
+    @ManagedAttribute
+    public long getCacheHitCount() {
+        return extractJobRunner.getCacheHitCount();
+    }
+
+
+    @ManagedAttribute(description = "Submissions which joined an identical extract already being prepared")
+    public long getSharedCount() {
+        return extractJobRunner.getSharedCount();
+    }
+
+
+    @ManagedAttribute(description = "Submissions rejected as the queue was full")
+    public long getRejectedCount() {
+        return extractJobRunner.getRejectedCount();
+    }
+
+
+    @ManagedAttribute
+    public long getFailedCount() {
+        return extractJobRunner.getFailedCount();
+    }
+
+
+    @ManagedAttribute
+    public int getCachedExtractCount() {
+        return extractArtifactCache.getEntryCount();
+    }
+
+
+    @ManagedAttribute
+    public long getCachedExtractBytes() {
+        return extractArtifactCache.getSizeBytes();
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.result_cache.ResultCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Statistics and maintenance functions for the Waltz result cache")
+public class ResultCacheMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResultCacheMaintenance.class);
+
+    private final ResultCache resultCache;
+
+    @Autowired
+    public ResultCacheMaintenance(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+
+    @ManagedOperation(description = "Discard all cached results")
+    public void clear() {
+        LOG.warn("Clearing result cache (via jmx)");
+        resultCache.clear();
+    }
+
+
+    @ManagedAttribute
+    public int getSize() {
+        return resultCache.size();
+    }
+
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return resultCache.getHitCount();
+    }
+
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return resultCache.getMissCount();
+    }
+
+
+    @ManagedAttribute
+    public long getEvictionCount() {
+        return resultCache.getEvictionCount();
+    }
+
+
+    @ManagedAttribute
+    public long getInvalidationCount() {
+        return resultCache.getInvalidationCount();
+    }
+
+
+    @ManagedAttribute
+    public double getHitRatio() {
+        long hits = resultCache.getHitCount();
+        long total = hits + resultCache.getMissCount();
+        return total == 0
+                ? 0
+                : (double) hits / total;
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "ResultCache";
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.model.scheduled_job.JobKey;
+import com.khartec.waltz.service.scheduled_job.ScheduledJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Monitor and cancel running Waltz scheduled jobs")
+public class ScheduledJobMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobMaintenance.class);
+
+    private final ScheduledJobService scheduledJobService;
+
+    @Autowired
+    public ScheduledJobMaintenance(ScheduledJobService scheduledJobService) {
+        this.scheduledJobService = scheduledJobService;
+    }
+
+
+    @ManagedOperation(description = "Cancel a running job (by job key), returns true if the job was running")
+    public boolean cancelJob(String jobKey) {
+        LOG.warn("Cancelling job: {} (via jmx)", jobKey);
+        return scheduledJobService.cancel(JobKey.valueOf(jobKey));
+    }
+
+
+    @ManagedAttribute(description = "Running jobs and their elapsed time in millis")
+    public String getRunningJobs() {
+        return scheduledJobService.findRunningJobs().toString();
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.model.sql_latency.SqlShapeStatistics;
+import com.khartec.waltz.service.sql_latency.SqlLatencyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import static com.khartec.waltz.service.sql_latency.SqlLatencyService.DEFAULT_LIMIT;
+
+@ManagedResource(description = "Latency statistics for sql executed by Waltz, grouped by query shape")
+public class SqlLatencyMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SqlLatencyMaintenance.class);
+
+    private final SqlLatencyService sqlLatencyService;
+
+    @Autowired
+    public SqlLatencyMaintenance(SqlLatencyService sqlLatencyService) {
+        this.sqlLatencyService = sqlLatencyService;
+    }
+
+
+    @ManagedOperation(description = "Discard all recorded statistics")
+    public void reset() {
+        LOG.info("Resetting sql latency statistics (via jmx)");
+        sqlLatencyService.reset();
+    }
+
+
+    @ManagedAttribute
+    public int getShapeCount() {
+        return sqlLatencyService.getShapeCount();
+    }
+
+
+    @ManagedAttribute(description = "Query shapes with the greatest total execution time")
+    public String[] getSlowestShapes() {
+        return sqlLatencyService
+                .findSlowestShapes(DEFAULT_LIMIT)
+                .stream()
+                .map(SqlLatencyMaintenance::summarise)
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "SqlLatency";
+    }
+
+
+    private static String summarise(SqlShapeStatistics stats) {
+        return String.format(
+                "total=%.0fms, count=%d, mean=%.2fms, p95=%.2fms, p99=%.2fms, max=%.2fms, rows=%d, errors=%d :: %s",
+                stats.totalMillis(),
+                stats.executionCount(),
+                stats.meanMillis(),
+                stats.p95Millis(),
+                stats.p99Millis(),
+                stats.maxMillis(),
+                stats.rowCount(),
+                stats.errorCount(),
+                stats.fingerprint());
+    }
+
+}
@@ -0,0 +1,453 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.logical_flow;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlowMeasures;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlowStatistics;
+import com.khartec.waltz.model.logical_flow.LogicalFlowEdge;
+import com.khartec.waltz.model.logical_flow.LogicalFlowStatistics;
+import com.khartec.waltz.model.tally.ImmutableTally;
+import com.khartec.waltz.model.tally.ImmutableTallyPack;
+import com.khartec.waltz.model.tally.Tally;
+import com.khartec.waltz.model.tally.TallyPack;
+
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+
+
+/**
+ * Compact, immutable, in-memory graph of the active logical flows.
+ *
+ * Nodes (applications, actors etc.) are assigned dense indexes and the flows
+ * are held in primitive arrays.  Outbound and inbound adjacency is packed
+ * into a single array per direction, addressed via an offsets array (i.e. a
+ * CSR layout), as are the data type decorations of each flow.
+ *
+ * Updates produce a new graph, readers therefore never observe a partially
+ * applied change.
+ */
+public class LogicalFlowGraph {
+
+    private static final int INTRA = 0;
+    private static final int OUTBOUND = 1;
+    private static final int INBOUND = 2;
+    private static final String[] FLOW_TYPES = {"INTRA", "OUTBOUND", "INBOUND"};
+
+    private final Map<EntityKind, Map<Long, Integer>> nodeIndexes;
+    private final EntityKind[] nodeKinds;
+    private final long[] nodeIds;
+
+    private final long[] flowIds;
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] dataTypeOffsets;
+    private final long[] dataTypeIds;
+
+    private final int[] outOffsets;
+    private final int[] outEdges;
+    private final int[] inOffsets;
+    private final int[] inEdges;
+
+
+    private LogicalFlowGraph(Map<EntityKind, Map<Long, Integer>> nodeIndexes,
+                             EntityKind[] nodeKinds,
+                             long[] nodeIds,
+                             long[] flowIds,
+                             int[] sources,
+                             int[] targets,
+                             int[] dataTypeOffsets,
+                             long[] dataTypeIds) {
+        this.nodeIndexes = nodeIndexes;
+        this.nodeKinds = nodeKinds;
+        this.nodeIds = nodeIds;
+        this.flowIds = flowIds;
+        this.sources = sources;
+        this.targets = targets;
+        this.dataTypeOffsets = dataTypeOffsets;
+        this.dataTypeIds = dataTypeIds;
+
+        this.outOffsets = new int[nodeIds.length + 1];
+        this.inOffsets = new int[nodeIds.length + 1];
+        this.outEdges = new int[flowIds.length];
+        this.inEdges = new int[flowIds.length];
+        pack(sources, outOffsets, outEdges);
+        pack(targets, inOffsets, inEdges);
+    }
+
+
+    public static LogicalFlowGraph build(Collection<LogicalFlowEdge> edges) {
+        checkNotNull(edges, "edges cannot be null");
+
+        Builder builder = new Builder();
+        edges.forEach(builder::add);
+        return builder.build();
+    }
+
+
+    /**
+     * Returns a new graph where all flows touching the given nodes have been
+     * replaced by the given edges (which are expected to be the current flows
+     * touching those nodes).
+     */
+    public LogicalFlowGraph withReplacedNodes(Collection<EntityReference> nodes,
+                                              Collection<LogicalFlowEdge> edgesTouchingNodes) {
+        checkNotNull(nodes, "nodes cannot be null");
+        checkNotNull(edgesTouchingNodes, "edgesTouchingNodes cannot be null");
+
+        boolean[] replaced = new boolean[nodeIds.length];
+        nodes.forEach(ref -> {
+            int idx = indexOf(ref);
+            if (idx >= 0) {
+                replaced[idx] = true;
+            }
+        });
+
+        Builder builder = new Builder();
+        for (int e = 0; e < flowIds.length; e++) {
+            if (! (replaced[sources[e]] || replaced[targets[e]])) {
+                builder.add(
+                        flowIds[e],
+                        nodeKinds[sources[e]],
+                        nodeIds[sources[e]],
+                        nodeKinds[targets[e]],
+                        nodeIds[targets[e]],
+                        Arrays.copyOfRange(dataTypeIds, dataTypeOffsets[e], dataTypeOffsets[e + 1]));
+            }
+        }
+
+        Set<Long> added = new HashSet<>();
+        edgesTouchingNodes
+                .stream()
+                .filter(edge -> added.add(edge.flowId()))
+                .forEach(builder::add);
+
+        return builder.build();
+    }
+
+
+    /**
+     * @return ids of flows which feed the given nodes, directly or (up to
+     *   `maxHops` away) indirectly
+     */
+    public Set<Long> findUpstreamFlowIds(Collection<EntityReference> refs, int maxHops) {
+        return traverse(refs, maxHops, inOffsets, inEdges, sources, -1);
+    }
+
+
+    /**
+     * @return ids of flows which are fed by the given nodes, directly or (up to
+     *   `maxHops` away) indirectly
+     */
+    public Set<Long> findDownstreamFlowIds(Collection<EntityReference> refs, int maxHops) {
+        return traverse(refs, maxHops, outOffsets, outEdges, targets, -1);
+    }
+
+
+    /**
+     * @return true if data can flow from `source` to `target` in at most `maxHops` flows
+     */
+    public boolean isReachable(EntityReference source, EntityReference target, int maxHops) {
+        checkNotNull(source, "source cannot be null");
+        checkNotNull(target, "target cannot be null");
+
+        int targetIdx = indexOf(target);
+        return targetIdx >= 0 && traverse(Collections.singleton(source), maxHops, outOffsets, outEdges, targets, targetIdx) == null;
+    }
+
+
+    /**
+     * Equivalent of the `LogicalFlowStatsDao` calculations, only flows between
+     * applications are considered.
+     *
+     * @param appIds  ids of the (existing) applications in scope
+     */
+    public LogicalFlowStatistics calculateStats(Set<Long> appIds) {
+        checkNotNull(appIds, "appIds cannot be null");
+
+        Map<Long, Integer> appIndexes = nodeIndexes.getOrDefault(EntityKind.APPLICATION, Collections.emptyMap());
+        boolean[] selected = new boolean[nodeIds.length];
+        appIds.forEach(id -> {
+            Integer idx = appIndexes.get(id);
+            if (idx != null) {
+                selected[idx] = true;
+            }
+        });
+
+        boolean[] countedSources = new boolean[nodeIds.length];
+        boolean[] countedTargets = new boolean[nodeIds.length];
+        int inboundApps = 0;
+        int outboundApps = 0;
+        int[] flowCounts = new int[FLOW_TYPES.length];
+        Map<Long, int[]> dataTypeCounts = new HashMap<>();
+
+        for (int e = 0; e < flowIds.length; e++) {
+            int s = sources[e];
+            int t = targets[e];
+            if (nodeKinds[s] != EntityKind.APPLICATION
+                    || nodeKinds[t] != EntityKind.APPLICATION
+                    || ! (selected[s] || selected[t])) {
+                continue;
+            }
+
+            int flowType;
+            if (selected[s] && selected[t]) {
+                flowType = INTRA;
+            } else if (selected[s]) {
+                flowType = OUTBOUND;
+                if (! countedTargets[t]) {
+                    countedTargets[t] = true;
+                    outboundApps++;
+                }
+            } else {
+                flowType = INBOUND;
+                if (! countedSources[s]) {
+                    countedSources[s] = true;
+                    inboundApps++;
+                }
+            }
+
+            flowCounts[flowType]++;
+            for (int d = dataTypeOffsets[e]; d < dataTypeOffsets[e + 1]; d++) {
+                dataTypeCounts.computeIfAbsent(dataTypeIds[d], k -> new int[FLOW_TYPES.length])[flowType]++;
+            }
+        }
+
+        return ImmutableLogicalFlowStatistics.builder()
+                .appCounts(ImmutableLogicalFlowMeasures.builder()
+                        .inbound(inboundApps)
+                        .outbound(outboundApps)
+                        .intra(appIds.size())
+                        .build())
+                .flowCounts(ImmutableLogicalFlowMeasures.builder()
+                        .inbound(flowCounts[INBOUND])
+                        .outbound(flowCounts[OUTBOUND])
+                        .intra(flowCounts[INTRA])
+                        .build())
+                .dataTypeCounts(mkDataTypeTallies(dataTypeCounts))
+                .build();
+    }
+
+
+    public int getNodeCount() {
+        return nodeIds.length;
+    }
+
+
+    public int getFlowCount() {
+        return flowIds.length;
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("LogicalFlowGraph{");
+        sb.append("#nodes=").append(nodeIds.length);
+        sb.append(", #flows=").append(flowIds.length);
+        sb.append(", #decorations=").append(dataTypeIds.length);
+        sb.append('}');
+        return sb.toString();
+    }
+
+
+    // --- helpers
+
+    private int indexOf(EntityReference ref) {
+        Map<Long, Integer> idxs = nodeIndexes.get(ref.kind());
+        Integer idx = idxs == null ? null : idxs.get(ref.id());
+        return idx == null ? -1 : idx;
+    }
+
+
+    /**
+     * Breadth first traversal from the given nodes, following the given
+     * adjacency.  If a `goalIdx` is supplied (i.e. >= 0) the traversal returns
+     * `null` as soon as the goal is reached.
+     */
+    private Set<Long> traverse(Collection<EntityReference> refs,
+                               int maxHops,
+                               int[] offsets,
+                               int[] adjacentEdges,
+                               int[] edgeEnds,
+                               int goalIdx) {
+        checkNotNull(refs, "refs cannot be null");
+        checkTrue(maxHops >= 0, "maxHops cannot be negative");
+
+        boolean[] visited = new boolean[nodeIds.length];
+        int[] frontier = new int[nodeIds.length];
+        int frontierSize = 0;
+
+        for (EntityReference ref : refs) {
+            int idx = indexOf(ref);
+            if (idx >= 0 && ! visited[idx]) {
+                visited[idx] = true;
+                frontier[frontierSize++] = idx;
+            }
+        }
+
+        Set<Long> result = new HashSet<>();
+        int[] next = new int[nodeIds.length];
+        for (int hop = 0; hop < maxHops && frontierSize > 0; hop++) {
+            int nextSize = 0;
+            for (int i = 0; i < frontierSize; i++) {
+                int node = frontier[i];
+                for (int j = offsets[node]; j < offsets[node + 1]; j++) {
+                    int edge = adjacentEdges[j];
+                    int end = edgeEnds[edge];
+                    result.add(flowIds[edge]);
+                    if (end == goalIdx) {
+                        return null;
+                    }
+                    if (! visited[end]) {
+                        visited[end] = true;
+                        next[nextSize++] = end;
+                    }
+                }
+            }
+            int[] tmp = frontier;
+            frontier = next;
+            next = tmp;
+            frontierSize = nextSize;
+        }
+
+        return result;
+    }
+
+
+    private static void pack(int[] edgeNodes, int[] offsets, int[] packed) {
+        for (int node : edgeNodes) {
+            offsets[node + 1]++;
+        }
+        for (int i = 0; i < offsets.length - 1; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] cursors = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int e = 0; e < edgeNodes.length; e++) {
+            packed[cursors[edgeNodes[e]]++] = e;
+        }
+    }
+
+
+    private static List<TallyPack<String>> mkDataTypeTallies(Map<Long, int[]> dataTypeCounts) {
+        List<TallyPack<String>> packs = new ArrayList<>(dataTypeCounts.size());
+        dataTypeCounts.forEach((dataTypeId, counts) -> {
+            List<Tally<String>> tallies = new ArrayList<>();
+            for (int flowType = 0; flowType < FLOW_TYPES.length; flowType++) {
+                if (counts[flowType] > 0) {
+                    tallies.add(ImmutableTally.<String>builder()
+                            .id(FLOW_TYPES[flowType])
+                            .count(counts[flowType])
+                            .build());
+                }
+            }
+            packs.add(ImmutableTallyPack.<String>builder()
+                    .entityReference(mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                    .tallies(tallies)
+                    .build());
+        });
+        return packs;
+    }
+
+
+    private static class Builder {
+
+        private final Map<EntityKind, Map<Long, Integer>> nodeIndexes = new EnumMap<>(EntityKind.class);
+        private EntityKind[] nodeKinds = new EntityKind[1024];
+        private long[] nodeIds = new long[1024];
+        private int nodeCount = 0;
+
+        private long[] flowIds = new long[1024];
+        private int[] sources = new int[1024];
+        private int[] targets = new int[1024];
+        private int[] dataTypeOffsets = new int[1025];
+        private long[] dataTypeIds = new long[1024];
+        private int flowCount = 0;
+
+
+        private void add(LogicalFlowEdge edge) {
+            add(edge.flowId(),
+                edge.source().kind(),
+                edge.source().id(),
+                edge.target().kind(),
+                edge.target().id(),
+                edge.dataTypeIds().stream().mapToLong(Long::longValue).toArray());
+        }
+
+
+        private void add(long flowId,
+                         EntityKind sourceKind,
+                         long sourceId,
+                         EntityKind targetKind,
+                         long targetId,
+                         long[] flowDataTypeIds) {
+            if (flowCount == flowIds.length) {
+                flowIds = Arrays.copyOf(flowIds, flowCount * 2);
+                sources = Arrays.copyOf(sources, flowCount * 2);
+                targets = Arrays.copyOf(targets, flowCount * 2);
+                dataTypeOffsets = Arrays.copyOf(dataTypeOffsets, flowCount * 2 + 1);
+            }
+
+            int dataTypeStart = dataTypeOffsets[flowCount];
+            int dataTypeEnd = dataTypeStart + flowDataTypeIds.length;
+            if (dataTypeEnd > dataTypeIds.length) {
+                dataTypeIds = Arrays.copyOf(dataTypeIds, Math.max(dataTypeIds.length * 2, dataTypeEnd));
+            }
+            System.arraycopy(flowDataTypeIds, 0, dataTypeIds, dataTypeStart, flowDataTypeIds.length);
+
+            flowIds[flowCount] = flowId;
+            sources[flowCount] = nodeIndex(sourceKind, sourceId);
+            targets[flowCount] = nodeIndex(targetKind, targetId);
+            dataTypeOffsets[flowCount + 1] = dataTypeEnd;
+            flowCount++;
+        }
+
+
+        private int nodeIndex(EntityKind kind, long id) {
+            return nodeIndexes
+                    .computeIfAbsent(kind, k -> new HashMap<>())
+                    .computeIfAbsent(id, k -> {
+                        if (nodeCount == nodeIds.length) {
+                            nodeKinds = Arrays.copyOf(nodeKinds, nodeCount * 2);
+                            nodeIds = Arrays.copyOf(nodeIds, nodeCount * 2);
+                        }
+                        nodeKinds[nodeCount] = kind;
+                        nodeIds[nodeCount] = id;
+                        return nodeCount++;
+                    });
+        }
+
+
+        private LogicalFlowGraph build() {
+            return new LogicalFlowGraph(
+                    nodeIndexes,
+                    Arrays.copyOf(nodeKinds, nodeCount),
+                    Arrays.copyOf(nodeIds, nodeCount),
+                    Arrays.copyOf(flowIds, flowCount),
+                    Arrays.copyOf(sources, flowCount),
+                    Arrays.copyOf(targets, flowCount),
+                    Arrays.copyOf(dataTypeOffsets, flowCount + 1),
+                    Arrays.copyOf(dataTypeIds, dataTypeOffsets[flowCount]));
+        }
+    }
+
+}
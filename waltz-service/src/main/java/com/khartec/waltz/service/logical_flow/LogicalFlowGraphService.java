@@ -0,0 +1,163 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.logical_flow;
+
+import com.khartec.waltz.data.logical_flow.LogicalFlowEdgeDao;
+import com.khartec.waltz.model.EntityReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+
+
+/**
+ * Maintains an optional, in-memory, {@link LogicalFlowGraph}.  The graph is
+ * fully rebuilt periodically and, in between, the flows of entities are
+ * reloaded as the logical flow services report modifications to them.
+ *
+ * The graph is only offered to readers when it reflects all reported changes,
+ * otherwise callers should query the database directly.
+ */
+@Service
+public class LogicalFlowGraphService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogicalFlowGraphService.class);
+
+    @Value("${waltz.logical-flow.graph.enabled:false}")
+    private boolean graphEnabled;
+
+    private final LogicalFlowEdgeDao logicalFlowEdgeDao;
+    private final Set<EntityReference> pendingNodes = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile LogicalFlowGraph graph = null;
+
+
+    @Autowired
+    public LogicalFlowGraphService(LogicalFlowEdgeDao logicalFlowEdgeDao) {
+        checkNotNull(logicalFlowEdgeDao, "logicalFlowEdgeDao cannot be null");
+        this.logicalFlowEdgeDao = logicalFlowEdgeDao;
+    }
+
+
+    /**
+     * Pending changes are applied before returning the graph, if that is not
+     * possible (e.g. a refresh is already underway) no graph is returned.
+     */
+    public Optional<LogicalFlowGraph> findGraph() {
+        if (! graphEnabled) {
+            return Optional.empty();
+        }
+
+        if (! pendingNodes.isEmpty()) {
+            if (! refreshLock.tryLock()) {
+                return Optional.empty();
+            }
+            try {
+                applyPendingNodeChanges();
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+
+        return Optional.ofNullable(graph);
+    }
+
+
+    /**
+     * Records that the flows (or flow decorations) touching the given
+     * entities have been modified.
+     */
+    public void markChanged(EntityReference... nodes) {
+        if (! graphEnabled) {
+            return;
+        }
+
+        Stream.of(nodes)
+                .map(ref -> mkRef(ref.kind(), ref.id()))
+                .forEach(pendingNodes::add);
+    }
+
+
+    @Scheduled(initialDelay = 0, fixedDelay = 900_000)
+    public void rebuild() {
+        if (! graphEnabled) {
+            return;
+        }
+
+        refreshLock.lock();
+        try {
+            pendingNodes.clear();
+            graph = LogicalFlowGraph.build(logicalFlowEdgeDao.findAll());
+            LOG.info("Rebuilt logical flow graph: {}", graph);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+
+    @Scheduled(initialDelay = 10_000, fixedDelay = 10_000)
+    public void applyPendingChanges() {
+        if (! graphEnabled) {
+            return;
+        }
+
+        refreshLock.lock();
+        try {
+            applyPendingNodeChanges();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+
+    // --- helpers
+
+    private void applyPendingNodeChanges() {
+        if (pendingNodes.isEmpty() || graph == null) {
+            return;
+        }
+
+        Set<EntityReference> nodes = new HashSet<>(pendingNodes);
+        pendingNodes.removeAll(nodes);
+
+        try {
+            graph = graph.withReplacedNodes(nodes, logicalFlowEdgeDao.findByEntityReferences(nodes));
+        } catch (RuntimeException e) {
+            // retain the changes so the graph is not offered until they have been applied
+            pendingNodes.addAll(nodes);
+            throw e;
+        }
+
+        LOG.debug("Refreshed flows of {} entities in logical flow graph", nodes.size());
+    }
+
+}
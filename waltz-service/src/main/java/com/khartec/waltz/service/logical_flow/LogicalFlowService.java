@@ -24,6 +24,7 @@ import com.khartec.waltz.data.DBExecutorPoolInterface;
 import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.data_type.DataTypeIdSelectorFactory;
 import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.data.logical_flow.LogicalFlowEdgeDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowIdSelectorFactory;
 import com.khartec.waltz.data.logical_flow.LogicalFlowStatsDao;
 import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
@@ -36,6 +37,7 @@ import com.khartec.waltz.model.rating.AuthoritativenessRating;
 import com.khartec.waltz.model.tally.TallyPack;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import com.khartec.waltz.service.data_type.DataTypeService;
+import com.khartec.waltz.service.result_cache.ResultCacheService;
 import com.khartec.waltz.service.usage_info.DataTypeUsageService;
 import org.jooq.Record1;
 import org.jooq.Select;
@@ -45,19 +47,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.CollectionUtilities.isEmpty;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.common.ListUtilities.asList;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.common.SetUtilities.asSet;
 import static com.khartec.waltz.model.EntityKind.DATA_TYPE;
 import static com.khartec.waltz.model.EntityKind.LOGICAL_DATA_FLOW;
 import static com.khartec.waltz.model.EntityReference.mkRef;
@@ -69,13 +72,27 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 @Service
 public class LogicalFlowService {
 
+    /**
+     * Upper bound on the number of hops a lineage traversal may follow
+     */
+    public static final int MAX_HOPS = 10;
+
+    private static final Set<EntityKind> STATS_DEPENDENCIES = asSet(
+            EntityKind.APPLICATION,
+            EntityKind.ACTOR,
+            EntityKind.DATA_TYPE,
+            EntityKind.LOGICAL_DATA_FLOW);
+
     private final ChangeLogService changeLogService;
     private final DataTypeService dataTypeService;
     private final DataTypeUsageService dataTypeUsageService;
     private final DBExecutorPoolInterface dbExecutorPool;
     private final LogicalFlowDao logicalFlowDao;
+    private final LogicalFlowEdgeDao logicalFlowEdgeDao;
+    private final LogicalFlowGraphService logicalFlowGraphService;
     private final LogicalFlowStatsDao logicalFlowStatsDao;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final ResultCacheService resultCacheService;
 
     private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final LogicalFlowIdSelectorFactory logicalFlowIdSelectorFactory = new LogicalFlowIdSelectorFactory();
@@ -88,23 +105,32 @@ public class LogicalFlowService {
                               DataTypeUsageService dataTypeUsageService,
                               DBExecutorPoolInterface dbExecutorPool,
                               LogicalFlowDao logicalFlowDao,
+                              LogicalFlowEdgeDao logicalFlowEdgeDao,
+                              LogicalFlowGraphService logicalFlowGraphService,
                               LogicalFlowStatsDao logicalFlowStatsDao,
-                              LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                              LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                              ResultCacheService resultCacheService) {
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(dataTypeService, "dataTypeService cannot be null");
         checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowDao must not be null");
+        checkNotNull(logicalFlowEdgeDao, "logicalFlowEdgeDao cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDataTypeDecoratorDao cannot be null");
         checkNotNull(logicalFlowStatsDao, "logicalFlowStatsDao cannot be null");
+        checkNotNull(resultCacheService, "resultCacheService cannot be null");
 
         this.changeLogService = changeLogService;
         this.dataTypeService = dataTypeService;
         this.dataTypeUsageService = dataTypeUsageService;
         this.dbExecutorPool = dbExecutorPool;
         this.logicalFlowDao = logicalFlowDao;
+        this.logicalFlowEdgeDao = logicalFlowEdgeDao;
+        this.logicalFlowGraphService = logicalFlowGraphService;
         this.logicalFlowStatsDao = logicalFlowStatsDao;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.resultCacheService = resultCacheService;
     }
 
 
@@ -148,6 +174,15 @@ public class LogicalFlowService {
     }
 
 
+    /**
+     * Streaming equivalent of {@link #findBySelector(IdSelectionOptions)}, the stream
+     * must be closed by the caller.
+     */
+    public Stream<LogicalFlow> streamBySelector(IdSelectionOptions options) {
+        return logicalFlowDao.streamBySelector(logicalFlowIdSelectorFactory.apply(options));
+    }
+
+
     /**
      * Creates a logical flow and creates a default, 'UNKNOWN' data type decoration
      * if possible.
@@ -173,6 +208,8 @@ public class LogicalFlowService {
 
         LogicalFlow logicalFlow = logicalFlowDao.addFlow(flowToAdd);
         attemptToAddUnknownDecoration(logicalFlow, username);
+        logicalFlowGraphService.markChanged(logicalFlow.source(), logicalFlow.target());
+        dataTypeUsageService.markDirty(asList(logicalFlow.source(), logicalFlow.target()));
 
         changeLogService.writeChangeLogEntries(logicalFlow, username, "Added", Operation.ADD);
 
@@ -219,7 +256,14 @@ public class LogicalFlowService {
                         .build())
                 .collect(toList());
 
-        return logicalFlowDao.addFlows(flowsToAdd, username);
+        List<LogicalFlow> addedFlows = logicalFlowDao.addFlows(flowsToAdd, username);
+        addedFlows.forEach(f -> logicalFlowGraphService.markChanged(f.source(), f.target()));
+        dataTypeUsageService.markDirty(addedFlows
+                .stream()
+                .flatMap(f -> Stream.of(f.source(), f.target()))
+                .collect(toList()));
+
+        return addedFlows;
     }
 
 
@@ -247,6 +291,7 @@ public class LogicalFlowService {
         LogicalFlow logicalFlow = logicalFlowDao.getByFlowId(flowId);
 
         int deleted = logicalFlowDao.removeFlow(flowId, username);
+        logicalFlowGraphService.markChanged(logicalFlow.source(), logicalFlow.target());
 
         Set<EntityReference> affectedEntityRefs = SetUtilities.fromArray(logicalFlow.source(), logicalFlow.target());
 
@@ -274,7 +319,11 @@ public class LogicalFlowService {
             case PERSON:
             case SCENARIO:
             case DATA_TYPE:
-                return calculateStatsForAppIdSelector(options);
+                return resultCacheService.get(
+                        "LogicalFlowService.calculateStats",
+                        options,
+                        STATS_DEPENDENCIES,
+                        () -> calculateStatsForAppIdSelector(options));
             default:
                 throw new UnsupportedOperationException("Cannot calculate stats for selector kind: "+ options.entityReference().kind());
         }
@@ -286,6 +335,13 @@ public class LogicalFlowService {
 
         Select<Record1<Long>> appIdSelector = appIdSelectorFactory.apply(options);
 
+        Optional<LogicalFlowGraph> graph = logicalFlowGraphService.findGraph();
+        if (graph.isPresent()) {
+            Set<Long> appIds = logicalFlowEdgeDao.findApplicationIds(appIdSelector);
+            return FunctionUtilities.time("DFS.graphStats",
+                    () -> graph.get().calculateStats(appIds));
+        }
+
         Future<List<TallyPack<String>>> dataTypeCounts = dbExecutorPool.submit(() ->
                 FunctionUtilities.time("DFS.dataTypes",
                     () -> logicalFlowStatsDao.tallyDataTypesByAppIdSelector(appIdSelector)));
@@ -311,6 +367,9 @@ public class LogicalFlowService {
     public boolean restoreFlow(long logicalFlowId, String username) {
         boolean result = logicalFlowDao.restoreFlow(logicalFlowId, username);
         if (result) {
+            LogicalFlow logicalFlow = logicalFlowDao.getByFlowId(logicalFlowId);
+            logicalFlowGraphService.markChanged(logicalFlow.source(), logicalFlow.target());
+            dataTypeUsageService.markDirty(asList(logicalFlow.source(), logicalFlow.target()));
             changeLogService.writeChangeLogEntries(mkRef(LOGICAL_DATA_FLOW, logicalFlowId), username, "Restored", Operation.ADD);
         }
         return result;
@@ -328,11 +387,83 @@ public class LogicalFlowService {
 
 
     public Collection<LogicalFlow> findUpstreamFlowsForEntityReferences(List<EntityReference> references) {
+        return findUpstreamFlowsForEntityReferences(references, 1);
+    }
+
+
+    /**
+     * @param references  entities to trace lineage from
+     * @param maxHops  how many flows away (max: {@link #MAX_HOPS}) to follow, 1 gives only the directly inbound flows
+     * @return flows which, directly or indirectly, feed the given entities
+     */
+    public Collection<LogicalFlow> findUpstreamFlowsForEntityReferences(List<EntityReference> references, int maxHops) {
+        checkHops(maxHops);
         if (isEmpty(references)) {
             return emptyList();
         }
 
-        return logicalFlowDao.findUpstreamFlowsForEntityReferences(references);
+        return logicalFlowGraphService
+                .findGraph()
+                .<Collection<LogicalFlow>>map(g -> logicalFlowDao.findActiveByFlowIds(g.findUpstreamFlowIds(references, maxHops)))
+                .orElseGet(() -> traverse(
+                        references,
+                        maxHops,
+                        logicalFlowDao::findUpstreamFlowsForEntityReferences,
+                        LogicalFlow::source));
+    }
+
+
+    /**
+     * @param references  entities to trace lineage from
+     * @param maxHops  how many flows away (max: {@link #MAX_HOPS}) to follow, 1 gives only the directly outbound flows
+     * @return flows which are, directly or indirectly, fed by the given entities
+     */
+    public Collection<LogicalFlow> findDownstreamFlowsForEntityReferences(List<EntityReference> references, int maxHops) {
+        checkHops(maxHops);
+        if (isEmpty(references)) {
+            return emptyList();
+        }
+
+        return logicalFlowGraphService
+                .findGraph()
+                .<Collection<LogicalFlow>>map(g -> logicalFlowDao.findActiveByFlowIds(g.findDownstreamFlowIds(references, maxHops)))
+                .orElseGet(() -> traverse(
+                        references,
+                        maxHops,
+                        logicalFlowDao::findDownstreamFlowsForEntityReferences,
+                        LogicalFlow::target));
+    }
+
+
+    private void checkHops(int maxHops) {
+        checkTrue(maxHops > 0 && maxHops <= MAX_HOPS, "maxHops must be between 1 and " + MAX_HOPS);
+    }
+
+
+    /**
+     * Database backed equivalent of the graph traversal, one query per hop
+     */
+    private Collection<LogicalFlow> traverse(List<EntityReference> references,
+                                             int maxHops,
+                                             Function<List<EntityReference>, Collection<LogicalFlow>> flowFetcher,
+                                             Function<LogicalFlow, EntityReference> nextNodeFn) {
+        Map<Long, LogicalFlow> flowsById = new HashMap<>();
+        Set<EntityReference> visited = new HashSet<>(SetUtilities.map(references, ref -> mkRef(ref.kind(), ref.id())));
+        List<EntityReference> frontier = new ArrayList<>(visited);
+
+        for (int hop = 0; hop < maxHops && ! frontier.isEmpty(); hop++) {
+            List<EntityReference> next = new ArrayList<>();
+            for (LogicalFlow flow : flowFetcher.apply(frontier)) {
+                flow.id().ifPresent(id -> flowsById.put(id, flow));
+                EntityReference node = nextNodeFn.apply(flow);
+                if (visited.add(mkRef(node.kind(), node.id()))) {
+                    next.add(node);
+                }
+            }
+            frontier = next;
+        }
+
+        return flowsById.values();
     }
 
 
@@ -29,6 +29,8 @@ import com.khartec.waltz.model.changelog.ImmutableChangeLog;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
 import com.khartec.waltz.model.measurable.Measurable;
 import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,27 +53,34 @@ public class MeasurableService {
     private final MeasurableSearchDao measurableSearchDao;
     private final ChangeLogService changeLogService;
     private final EntityReferenceNameResolver nameResolver;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
     public MeasurableService(MeasurableDao measurableDao,
                              MeasurableSearchDao measurableSearchDao,
                              EntityReferenceNameResolver nameResolver,
-                             ChangeLogService changeLogService) {
+                             ChangeLogService changeLogService,
+                             ReferenceDataService referenceDataService) {
         checkNotNull(measurableDao, "measurableDao cannot be null");
         checkNotNull(measurableSearchDao, "measurableSearchDao cannot be null");
         checkNotNull(nameResolver, "nameResolver cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.measurableDao = measurableDao;
         this.measurableSearchDao = measurableSearchDao;
         this.nameResolver = nameResolver;
         this.changeLogService = changeLogService;
+        this.referenceDataService = referenceDataService;
     }
 
 
     public List<Measurable> findAll() {
-        return measurableDao.findAll();
+        return referenceDataService
+                .findSnapshot()
+                .map(ReferenceDataSnapshot::measurables)
+                .orElseGet(measurableDao::findAll);
     }
 
 
@@ -113,7 +122,10 @@ public class MeasurableService {
 
 
     public Measurable getById(long id) {
-        return measurableDao.getById(id);
+        return referenceDataService
+                .findSnapshot()
+                .flatMap(s -> s.findMeasurableById(id))
+                .orElseGet(() -> measurableDao.getById(id));
     }
 
 
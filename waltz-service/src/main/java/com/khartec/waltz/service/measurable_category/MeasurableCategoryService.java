@@ -20,6 +20,8 @@ package com.khartec.waltz.service.measurable_category;
 
 import com.khartec.waltz.data.measurable_category.MeasurableCategoryDao;
 import com.khartec.waltz.model.measurable_category.MeasurableCategory;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -29,19 +31,28 @@ import java.util.Collection;
 public class MeasurableCategoryService {
 
     private final MeasurableCategoryDao measurableCategoryDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public MeasurableCategoryService(MeasurableCategoryDao measurableCategoryDao) {
+    public MeasurableCategoryService(MeasurableCategoryDao measurableCategoryDao,
+                                     ReferenceDataService referenceDataService) {
         this.measurableCategoryDao = measurableCategoryDao;
+        this.referenceDataService = referenceDataService;
     }
 
     public Collection<MeasurableCategory> findAll() {
-        return measurableCategoryDao.findAll();
+        return referenceDataService
+                .findSnapshot()
+                .<Collection<MeasurableCategory>>map(ReferenceDataSnapshot::measurableCategories)
+                .orElseGet(measurableCategoryDao::findAll);
     }
 
     public MeasurableCategory getById(long id) {
-        return measurableCategoryDao.getById(id);
+        return referenceDataService
+                .findSnapshot()
+                .flatMap(s -> s.findMeasurableCategoryById(id))
+                .orElseGet(() -> measurableCategoryDao.getById(id));
     }
 
     public Collection<MeasurableCategory> findCategoriesByDirectOrgUnit(long id) {
@@ -25,6 +25,8 @@ import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.LeveledEntityReference;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
 import com.khartec.waltz.model.orgunit.OrganisationalUnit;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -41,21 +43,28 @@ public class OrganisationalUnitService {
 
     private final OrganisationalUnitDao dao;
     private final OrganisationalUnitSearchDao organisationalUnitSearchDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
     public OrganisationalUnitService(OrganisationalUnitDao dao,
-                                     OrganisationalUnitSearchDao organisationalUnitSearchDao) {
+                                     OrganisationalUnitSearchDao organisationalUnitSearchDao,
+                                     ReferenceDataService referenceDataService) {
         checkNotNull(dao, "dao must not be null");
         checkNotNull(organisationalUnitSearchDao, "organisationalUnitSearchDao must not be null");
+        checkNotNull(referenceDataService, "referenceDataService must not be null");
 
         this.dao = dao;
         this.organisationalUnitSearchDao = organisationalUnitSearchDao;
+        this.referenceDataService = referenceDataService;
     }
 
 
     public List<OrganisationalUnit> findAll() {
-        return dao.findAll();
+        return referenceDataService
+                .findSnapshot()
+                .map(ReferenceDataSnapshot::orgUnits)
+                .orElseGet(dao::findAll);
     }
 
 
@@ -65,7 +74,10 @@ public class OrganisationalUnitService {
 
 
     public OrganisationalUnit getById(long id) {
-        return dao.getById(id);
+        return referenceDataService
+                .findSnapshot()
+                .flatMap(s -> s.findOrgUnitById(id))
+                .orElseGet(() -> dao.getById(id));
     }
 
 
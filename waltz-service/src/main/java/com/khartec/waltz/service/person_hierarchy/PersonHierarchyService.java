@@ -18,16 +18,14 @@
 
 package com.khartec.waltz.service.person_hierarchy;
 
-import com.khartec.waltz.common.ListUtilities;
-import com.khartec.waltz.common.hierarchy.FlatNode;
-import com.khartec.waltz.common.hierarchy.Forest;
-import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
-import com.khartec.waltz.common.hierarchy.Node;
-import com.khartec.waltz.data.person.PersonDao;
-import com.khartec.waltz.model.person.Person;
+import com.khartec.waltz.common.hierarchy.ClosureTable;
 import com.khartec.waltz.schema.tables.records.PersonHierarchyRecord;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Record3;
 import org.jooq.SelectConditionStep;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
@@ -35,73 +33,171 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
+import static com.khartec.waltz.schema.tables.Person.PERSON;
 import static com.khartec.waltz.schema.tables.PersonHierarchy.PERSON_HIERARCHY;
-import static java.util.stream.Collectors.toList;
 
 @Service
 public class PersonHierarchyService {
 
     private static final Logger LOG = LoggerFactory.getLogger(PersonHierarchyService.class);
 
-    private final PersonDao personDao;
+    private static final int BATCH_SIZE = 10_000;
+
     private final DSLContext dsl;
 
 
     @Autowired
-    public PersonHierarchyService(PersonDao personDao, DSLContext dsl) {
-        this.personDao = personDao;
+    public PersonHierarchyService(DSLContext dsl) {
         this.dsl = dsl;
     }
 
 
-    public int[] build() {
+    /**
+     * Rebuilds the person hierarchy (manager, employee, level) closure table.
+     * Existing rows are compared against the computed closure so that only rows
+     * whose ancestry (or level) has changed are written.  All changes are applied
+     * in a single transaction.
+     *
+     * @return number of rows in the hierarchy
+     */
+    public int build() {
         LOG.warn("Building person hierarchy");
-        List<Person> all = personDao.all();
 
-        Forest<Person, String> forest = toForest(all);
+        List<String> employeeIds = new ArrayList<>();
+        List<String> managerIds = new ArrayList<>();
+
+        try (Cursor<Record2<String, String>> cursor = dsl
+                .select(PERSON.EMPLOYEE_ID, PERSON.MANAGER_EMPLOYEE_ID)
+                .from(PERSON)
+                .where(PERSON.IS_REMOVED.eq(false))
+                .fetchLazy()) {
+            for (Record2<String, String> r : cursor) {
+                employeeIds.add(r.value1());
+                managerIds.add(r.value2());
+            }
+        }
+
+        String[] ids = distinctSorted(employeeIds);
+        int[] parents = new int[ids.length];
+        boolean[] assigned = new boolean[ids.length];
+
+        for (int i = 0; i < employeeIds.size(); i++) {
+            int idx = Arrays.binarySearch(ids, employeeIds.get(i));
+            if (assigned[idx]) {
+                continue; // duplicate employee id, first one wins
+            }
+            assigned[idx] = true;
+
+            String managerId = managerIds.get(i);
+            if (managerId == null || managerId.equals(employeeIds.get(i))) {
+                parents[idx] = ClosureTable.NO_PARENT;
+            } else {
+                int parentIdx = Arrays.binarySearch(ids, managerId);
+                parents[idx] = parentIdx < 0 ? ClosureTable.MISSING_PARENT : parentIdx;
+            }
+        }
+
+        ClosureTable closure = ClosureTable.build(parents);
+        return syncHierarchy(ids, closure);
+    }
 
-        List<PersonHierarchyRecord> records = toHierarchyRecords(forest);
 
+    private int syncHierarchy(String[] ids, ClosureTable closure) {
         return dsl.transactionResult(configuration -> {
             DSLContext txDsl = DSL.using(configuration);
-            txDsl.deleteFrom(PERSON_HIERARCHY).execute();
-            return txDsl.batchStore(records).execute();
+
+            boolean[] seen = new boolean[closure.size()];
+            List<Query> changes = new ArrayList<>();
+
+            try (Cursor<Record3<String, String, Integer>> cursor = txDsl
+                    .select(PERSON_HIERARCHY.MANAGER_ID, PERSON_HIERARCHY.EMPLOYEE_ID, PERSON_HIERARCHY.LEVEL)
+                    .from(PERSON_HIERARCHY)
+                    .fetchLazy()) {
+                for (Record3<String, String, Integer> r : cursor) {
+                    int manager = indexOf(ids, r.value1());
+                    int employee = indexOf(ids, r.value2());
+                    int pair = manager < 0 || employee < 0
+                            ? -1
+                            : closure.findPair(employee, manager);
+
+                    if (pair < 0) {
+                        changes.add(txDsl
+                                .deleteFrom(PERSON_HIERARCHY)
+                                .where(PERSON_HIERARCHY.MANAGER_ID.eq(r.value1()))
+                                .and(PERSON_HIERARCHY.EMPLOYEE_ID.eq(r.value2())));
+                    } else {
+                        seen[pair] = true;
+                        int level = closure.getDepth(manager);
+                        if (r.value3() == null || r.value3() != level) {
+                            changes.add(txDsl
+                                    .update(PERSON_HIERARCHY)
+                                    .set(PERSON_HIERARCHY.LEVEL, level)
+                                    .where(PERSON_HIERARCHY.MANAGER_ID.eq(r.value1()))
+                                    .and(PERSON_HIERARCHY.EMPLOYEE_ID.eq(r.value2())));
+                        }
+                    }
+                }
+            }
+
+            for (int i = 0; i < changes.size(); i += BATCH_SIZE) {
+                txDsl.batch(changes.subList(i, Math.min(changes.size(), i + BATCH_SIZE))).execute();
+            }
+
+            List<PersonHierarchyRecord> inserts = new ArrayList<>();
+            int insertCount = 0;
+            for (int employee = 0; employee < ids.length; employee++) {
+                for (int position = 0; position < closure.getAncestorCount(employee); position++) {
+                    int manager = closure.getAncestor(employee, position);
+                    if (! seen[closure.findPair(employee, manager)]) {
+                        inserts.add(new PersonHierarchyRecord(ids[manager], ids[employee], position + 1));
+                    }
+                }
+                if (inserts.size() >= BATCH_SIZE) {
+                    insertCount += inserts.size();
+                    txDsl.batchInsert(inserts).execute();
+                    inserts.clear();
+                }
+            }
+
+            if (! inserts.isEmpty()) {
+                insertCount += inserts.size();
+                txDsl.batchInsert(inserts).execute();
+            }
+
+            LOG.info("Synchronised person hierarchy, {}, updated/deleted: {}, inserted: {}",
+                    closure,
+                    changes.size(),
+                    insertCount);
+
+            return closure.size();
         });
     }
 
 
-    private List<PersonHierarchyRecord> toHierarchyRecords(Forest<Person, String> forest) {
-        List<PersonHierarchyRecord> records = new LinkedList<>();
-
-        for (Node<Person, String> node : forest.getAllNodes().values()) {
-            List<Person> ancestors =
-                    ListUtilities.reverse(
-                            HierarchyUtilities.parents(node)
-                                    .stream()
-                                    .map(Node::getData)
-                                    .collect(Collectors.toList()));
+    private static String[] distinctSorted(List<String> values) {
+        String[] sorted = values.toArray(new String[0]);
+        Arrays.sort(sorted);
 
-            for (int i = 0; i < ancestors.size(); i++) {
-                String ancestorId = ancestors.get(i).employeeId();
-                String selfId = node.getData().employeeId();
-                PersonHierarchyRecord record = new PersonHierarchyRecord(ancestorId, selfId, i + 1);
-                records.add(record);
+        int distinctCount = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || ! sorted[i].equals(sorted[i - 1])) {
+                sorted[distinctCount++] = sorted[i];
             }
         }
-        return records;
+        return Arrays.copyOf(sorted, distinctCount);
     }
 
 
-    private Forest<Person, String> toForest(List<Person> all) {
-        List<FlatNode<Person, String>> allFlatNodes = all.stream()
-                .map(p -> new FlatNode<>(p.employeeId(), p.managerEmployeeId(), p))
-                .collect(toList());
-
-        return HierarchyUtilities.toForest(allFlatNodes);
+    private static int indexOf(String[] ids, String id) {
+        if (id == null) {
+            return -1;
+        }
+        int idx = Arrays.binarySearch(ids, id);
+        return idx < 0 ? -1 : idx;
     }
 
 
@@ -23,41 +23,56 @@ import com.khartec.waltz.common.MapUtilities;
 import com.khartec.waltz.data.actor.ActorDao;
 import com.khartec.waltz.data.application.ApplicationDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
+import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
-import com.khartec.waltz.data.physical_flow.PhysicalFlowDao;
-import com.khartec.waltz.data.physical_specification.PhysicalSpecificationDao;
-import com.khartec.waltz.model.Criticality;
-import com.khartec.waltz.model.EntityKind;
-import com.khartec.waltz.model.EntityReference;
-import com.khartec.waltz.model.UserTimestamp;
+import com.khartec.waltz.data.physical_flow.PhysicalFlowUploadDao;
+import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.actor.Actor;
 import com.khartec.waltz.model.application.Application;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import com.khartec.waltz.model.changelog.ImmutableChangeLog;
 import com.khartec.waltz.model.command.CommandOutcome;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.datatype.DataTypeDecorator;
 import com.khartec.waltz.model.enum_value.EnumValueKind;
-import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlow;
 import com.khartec.waltz.model.logical_flow.LogicalFlow;
 import com.khartec.waltz.model.physical_flow.*;
 import com.khartec.waltz.model.physical_specification.DataFormatKind;
-import com.khartec.waltz.model.physical_specification.ImmutablePhysicalSpecification;
-import com.khartec.waltz.model.physical_specification.PhysicalSpecification;
-import com.khartec.waltz.service.data_type.DataTypeDecoratorService;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
 import com.khartec.waltz.service.enum_value.EnumValueAliasService;
-import com.khartec.waltz.service.physical_specification_data_type.PhysicalSpecDataTypeService;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
+import com.khartec.waltz.service.usage_info.DataTypeUsageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
-import static com.khartec.waltz.common.SetUtilities.fromArray;
+import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.common.StringUtilities.isEmpty;
 import static com.khartec.waltz.common.StringUtilities.lower;
 import static java.util.function.Function.identity;
@@ -67,14 +82,37 @@ import static java.util.stream.Collectors.toList;
 @Service
 public class PhysicalFlowUploadService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PhysicalFlowUploadService.class);
+
+    /**
+     * Completed asynchronous uploads are retained, for polling, for this long
+     */
+    private static final Duration JOB_RETENTION = Duration.ofHours(1);
+
     private final ActorDao actorDao;
     private final ApplicationDao applicationDao;
     private final DataTypeDao dataTypeDao;
     private final LogicalFlowDao logicalFlowDao;
-    private final DataTypeDecoratorService dataTypeDecoratorService;
-    private final PhysicalFlowDao physicalFlowDao;
-    private final PhysicalSpecificationDao physicalSpecificationDao;
+    private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
+    private final LogicalFlowGraphService logicalFlowGraphService;
+    private final DataTypeUsageService dataTypeUsageService;
+    private final PhysicalFlowUploadDao physicalFlowUploadDao;
     private final EnumValueAliasService enumValueAliasService;
+    private final ChangeLogService changeLogService;
+    private final ReferenceDataService referenceDataService;
+
+    /**
+     * Background uploads run on their own bounded pool, once it and its queue are
+     * full further submissions are rejected rather than run on the caller's thread.
+     */
+    private final ThreadPoolExecutor uploadExecutor;
+
+    /**
+     * Jobs are held in memory, so a job can only be polled on the server it was
+     * submitted to (see `waltz.physical-flow.upload.threads`).
+     */
+    private final Map<String, PhysicalFlowUploadJob> jobsById = new ConcurrentHashMap<>();
 
     private final Pattern basisOffsetRegex = Pattern.compile("T?(?<offset>[\\+\\-]?\\d+)");
 
@@ -83,26 +121,55 @@ public class PhysicalFlowUploadService {
                                      ApplicationDao applicationDao,
                                      DataTypeDao dataTypeDao,
                                      LogicalFlowDao logicalFlowDao,
-                                     DataTypeDecoratorService dataTypeDecoratorService,
-                                     PhysicalFlowDao physicalFlowDao,
-                                     PhysicalSpecificationDao physicalSpecificationDao,
-                                     EnumValueAliasService enumValueAliasService) {
+                                     LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                     LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
+                                     LogicalFlowGraphService logicalFlowGraphService,
+                                     DataTypeUsageService dataTypeUsageService,
+                                     PhysicalFlowUploadDao physicalFlowUploadDao,
+                                     EnumValueAliasService enumValueAliasService,
+                                     ChangeLogService changeLogService,
+                                     ReferenceDataService referenceDataService,
+                                     @Value("${waltz.physical-flow.upload.threads:1}") int uploadThreads,
+                                     @Value("${waltz.physical-flow.upload.queue-capacity:10}") int uploadQueueCapacity) {
         checkNotNull(actorDao, "actorDao cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
-        checkNotNull(dataTypeDecoratorService, "dataTypeDecoratorService cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
-        checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
-        checkNotNull(physicalSpecificationDao, "physicalSpecificationDao cannot be null");
+        checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+        checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
+        checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
+        checkNotNull(physicalFlowUploadDao, "physicalFlowUploadDao cannot be null");
         checkNotNull(enumValueAliasService, "enumValueAliasService cannot be null");
+        checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
+        checkTrue(uploadThreads > 0, "uploadThreads must be positive");
+        checkTrue(uploadQueueCapacity > 0, "uploadQueueCapacity must be positive");
         this.actorDao = actorDao;
         this.applicationDao = applicationDao;
         this.dataTypeDao = dataTypeDao;
         this.logicalFlowDao = logicalFlowDao;
-        this.physicalFlowDao = physicalFlowDao;
-        this.physicalSpecificationDao = physicalSpecificationDao;
+        this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.ratingsCalculator = ratingsCalculator;
+        this.logicalFlowGraphService = logicalFlowGraphService;
+        this.dataTypeUsageService = dataTypeUsageService;
+        this.physicalFlowUploadDao = physicalFlowUploadDao;
         this.enumValueAliasService = enumValueAliasService;
-        this.dataTypeDecoratorService = dataTypeDecoratorService;
+        this.changeLogService = changeLogService;
+        this.referenceDataService = referenceDataService;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.uploadExecutor = new ThreadPoolExecutor(
+                uploadThreads,
+                uploadThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(uploadQueueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "WaltzFlowUpload-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
     }
 
 
@@ -135,8 +202,11 @@ public class PhysicalFlowUploadService {
         }
 
         // no parse errors - check for duplicates
+        Map<PhysicalFlowParsed, PhysicalFlow> existingFlows = physicalFlowUploadDao.findByParsedFlows(
+                map(parsedFlows, PhysicalFlowUploadCommandResponse::parsedFlow));
+
         List<PhysicalFlowUploadCommandResponse> responses = parsedFlows.stream()
-                .map(f -> Optional.ofNullable(physicalFlowDao.getByParsedFlow(f.parsedFlow()))
+                .map(f -> Optional.ofNullable(existingFlows.get(f.parsedFlow()))
                     .map(m -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
                             .copyOf(f)
                             .withEntityReference(m.entityReference()))
@@ -146,60 +216,113 @@ public class PhysicalFlowUploadService {
         return responses;
     }
 
-    
+
+    /**
+     * Validates and then creates any missing logical flows, specifications and
+     * physical flows.  All rows are written in a single transaction, either
+     * every flow is created or none are.
+     */
     public List<PhysicalFlowUploadCommandResponse> upload(String username,
                                                           List<PhysicalFlowUploadCommand> cmds) throws Exception {
-        checkNotNull(cmds, "cmds cannot be empty");
+        return upload(username, cmds, stage -> {});
+    }
 
-        // load application and actor maps
-        List<PhysicalFlowUploadCommandResponse> validated = validate(cmds);
 
-        if(validated.stream().anyMatch(v -> v.outcome() == CommandOutcome.FAILURE)) {
-            throw new IllegalArgumentException("Cannot upload flows which contain parse errors, please validate");
+    /**
+     * Starts an upload in the background, the returned job may be polled
+     * (see {@link #getJob(String, String)}) to track progress and obtain the results.
+     * If too many uploads are already waiting the job is returned as errored.
+     */
+    public PhysicalFlowUploadJob submitUpload(String username,
+                                              List<PhysicalFlowUploadCommand> cmds) {
+        checkNotNull(username, "username cannot be null");
+        checkNotNull(cmds, "cmds cannot be null");
+
+        removeExpiredJobs();
+
+        PhysicalFlowUploadJob job = ImmutablePhysicalFlowUploadJob.builder()
+                .id(UUID.randomUUID().toString())
+                .submittedBy(username)
+                .submittedAt(nowUtc())
+                .commandCount(cmds.size())
+                .status(JobLifecycleStatus.RUNNABLE)
+                .build();
+
+        String jobId = job.id();
+        jobsById.put(jobId, job);
+
+        try {
+            uploadExecutor.execute(() -> runUpload(jobId, username, cmds));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Physical flow upload queue is full, rejecting upload of {} flows for {}", cmds.size(), username);
+            updateJob(jobId, j -> j
+                    .withStatus(JobLifecycleStatus.ERRORED)
+                    .withCompletedAt(nowUtc())
+                    .withError("Too many uploads are in progress, please try again later"));
         }
 
-        List<PhysicalFlowUploadCommandResponse> newFlowCmds = validated.stream()
-                .filter(v -> v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)
-                .collect(toList());
+        return jobsById.getOrDefault(jobId, job);
+    }
 
-        // create physical flow with ids from the above two
-        List<PhysicalFlowUploadCommandResponse> created = newFlowCmds.stream()
-                .map(v -> {
-                    if (!(v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)) {
-                        return v;
-                    }
-
-                    PhysicalFlowParsed flow = v.parsedFlow();
-                    LogicalFlow logicalFlow = getOrCreateLogicalFlow(flow.source(), flow.target(), flow.dataType(), username);
-                    PhysicalSpecification specification = getOrCreatePhysicalSpec(flow, username);
-
-                    PhysicalFlow newFlow = ImmutablePhysicalFlow.builder()
-                            .logicalFlowId(logicalFlow.id().get())
-                            .specificationId(specification.id().get())
-                            .basisOffset(flow.basisOffset())
-                            .frequency(flow.frequency())
-                            .transport(flow.transport())
-                            .criticality(flow.criticality())
-                            .description(flow.description())
-                            .externalId(Optional.ofNullable(flow.externalId()))
-                            .lastUpdatedBy(username)
-                            .lastUpdatedAt(nowUtc())
-                            .build();
-
-                    long id = getOrCreatePhysicalFlow(newFlow);
-
-                    return ImmutablePhysicalFlowUploadCommandResponse.copyOf(v)
-                            .withEntityReference(EntityReference.mkRef(EntityKind.PHYSICAL_FLOW, id));
-                })
-                .collect(toList());
 
-        return created;
+    /**
+     * @return the job, if it exists and was submitted by the given user
+     */
+    public Optional<PhysicalFlowUploadJob> getJob(String jobId, String username) {
+        checkNotNull(jobId, "jobId cannot be null");
+        return Optional
+                .ofNullable(jobsById.get(jobId))
+                .filter(j -> j.submittedBy().equals(username));
+    }
+
+
+    /**
+     * Stops the upload pool, uploads which had not started are marked as errored
+     */
+    @PreDestroy
+    public void shutdown() {
+        int notStarted = uploadExecutor.shutdownNow().size();
+        if (notStarted > 0) {
+            LOG.info("Abandoning {} physical flow uploads which had not started", notStarted);
+        }
+        jobsById.replaceAll((id, j) -> j.status() == JobLifecycleStatus.RUNNABLE
+                ? ImmutablePhysicalFlowUploadJob.copyOf(j)
+                    .withStatus(JobLifecycleStatus.ERRORED)
+                    .withCompletedAt(nowUtc())
+                    .withError("Server shut down before the upload started")
+                : j);
     }
 
 
     ////////////////////// PRIVATE //////////////////////
     /////////////////////////////////////////////////////
 
+    private void runUpload(String jobId,
+                           String username,
+                           List<PhysicalFlowUploadCommand> cmds) {
+        updateJob(jobId, j -> j.withStatus(JobLifecycleStatus.RUNNING));
+        try {
+            List<PhysicalFlowUploadCommandResponse> results = upload(
+                    username,
+                    cmds,
+                    stage -> updateJob(jobId, j -> j
+                            .withStatus(JobLifecycleStatus.RUNNING)
+                            .withStage(stage)));
+            updateJob(jobId, j -> j
+                    .withStatus(JobLifecycleStatus.COMPLETED)
+                    .withStage(Optional.empty())
+                    .withCompletedAt(nowUtc())
+                    .withResults(results));
+        } catch (Exception e) {
+            LOG.warn("Physical flow upload {} failed: {}", jobId, e.getMessage());
+            updateJob(jobId, j -> j
+                    .withStatus(JobLifecycleStatus.ERRORED)
+                    .withCompletedAt(nowUtc())
+                    .withError(Optional.ofNullable(e.getMessage()).orElse(e.getClass().getSimpleName())));
+        }
+    }
+
+
     private PhysicalFlowUploadCommandResponse validateCommand(Map<String, Actor> actorsByName,
                                                               Map<String, Application> applicationsByAssetCode,
                                                               Map<String, DataType> dataTypeMap,
@@ -349,12 +472,18 @@ public class PhysicalFlowUploadService {
     private Map<String, Actor> loadActorsByName() {
         return  MapUtilities.indexBy(
                 a -> lower(a.name()),
-                actorDao.findAll());
+                referenceDataService
+                        .findSnapshot()
+                        .map(ReferenceDataSnapshot::actors)
+                        .orElseGet(actorDao::findAll));
     }
 
 
     private Map<String, DataType> loadDataTypesByNameOrCode() {
-        List<DataType> allDataTypes = dataTypeDao.findAll();
+        List<DataType> allDataTypes = referenceDataService
+                .findSnapshot()
+                .map(ReferenceDataSnapshot::dataTypes)
+                .orElseGet(dataTypeDao::findAll);
         Map<String, DataType> dataTypesByName = MapUtilities.indexBy(dt -> lower(dt.name()), identity(), allDataTypes, (d1, d2) -> d2);
         Map<String, DataType> dataTypesByCode = MapUtilities.indexBy(dt -> lower(dt.code()), identity(), allDataTypes, (d1, d2) -> d2);
         dataTypesByName.putAll(dataTypesByCode);
@@ -362,93 +491,117 @@ public class PhysicalFlowUploadService {
     }
 
 
-    private LogicalFlow getOrCreateLogicalFlow(EntityReference source,
-                                               EntityReference target,
-                                               EntityReference dataType,
-                                               String username) {
+    private List<PhysicalFlowUploadCommandResponse> upload(String username,
+                                                           List<PhysicalFlowUploadCommand> cmds,
+                                                           Consumer<String> stageListener) {
+        checkNotNull(cmds, "cmds cannot be empty");
 
-        LogicalFlow flow = logicalFlowDao.getBySourceAndTarget(source, target);
+        stageListener.accept("Validating");
+        List<PhysicalFlowUploadCommandResponse> validated = validate(cmds);
 
-        if (flow == null) {
-            LocalDateTime now = nowUtc();
+        if(validated.stream().anyMatch(v -> v.outcome() == CommandOutcome.FAILURE)) {
+            throw new IllegalArgumentException("Cannot upload flows which contain parse errors, please validate");
+        }
 
-            LogicalFlow flowToAdd = ImmutableLogicalFlow.builder()
-                    .source(source)
-                    .target(target)
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
+        List<PhysicalFlowUploadCommandResponse> newFlowCmds = validated.stream()
+                .filter(v -> v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)
+                .collect(toList());
 
-            flow = logicalFlowDao.addFlow(flowToAdd);
+        if (newFlowCmds.isEmpty()) {
+            return newFlowCmds;
         }
 
+        stageListener.accept("Creating flows");
+        List<PhysicalFlow> physicalFlows = physicalFlowUploadDao.upload(
+                map(newFlowCmds, PhysicalFlowUploadCommandResponse::parsedFlow),
+                username);
 
-        EntityReference logicalFlowEntityRef = EntityReference.mkRef(EntityKind.LOGICAL_DATA_FLOW, flow.id().get());
-        DataTypeDecorator existingDecorator = dataTypeDecoratorService.getByEntityRefAndDataTypeId(
-                logicalFlowEntityRef,
-                dataType.id());
+        stageListener.accept("Updating ratings and usage");
+        applyUploadSideEffects(username, physicalFlows);
 
-        if(existingDecorator == null) {
-            dataTypeDecoratorService
-                    .addDecorators(username, logicalFlowEntityRef, fromArray(dataType.id()));
+        List<PhysicalFlowUploadCommandResponse> created = new ArrayList<>(newFlowCmds.size());
+        for (int i = 0; i < newFlowCmds.size(); i++) {
+            created.add(ImmutablePhysicalFlowUploadCommandResponse
+                    .copyOf(newFlowCmds.get(i))
+                    .withEntityReference(physicalFlows.get(i).entityReference()));
         }
-        return flow;
+        return created;
     }
 
 
-    private PhysicalSpecification getOrCreatePhysicalSpec(PhysicalFlowParsed flow,
-                                                          String username) {
-        EntityReference owner = flow.owner();
-        DataFormatKind format = flow.format();
-        String name = flow.name();
-
-
-        // check database
-        PhysicalSpecification spec = physicalSpecificationDao.getByParsedFlow(flow);
-        if (spec == null) {
-
-            // create
-            LocalDateTime now = nowUtc();
-            PhysicalSpecification specToAdd = ImmutablePhysicalSpecification.builder()
-                    .owningEntity(owner)
-                    .format(format)
-                    .name(name)
-                    .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
-                    .description(Optional.ofNullable(flow.specDescription()).orElse(""))
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
-
-            Long id = physicalSpecificationDao.create(specToAdd);
-            spec = ImmutablePhysicalSpecification
-                    .copyOf(specToAdd)
-                    .withId(id);
-        }
+    /**
+     * Performs, once for the whole upload, the work which would otherwise be done as
+     * each data type decorator is added: rating the new logical flow data types,
+     * recalculating data type usage, updating the flow graph and auditing.
+     */
+    private void applyUploadSideEffects(String username, List<PhysicalFlow> physicalFlows) {
+        Set<Long> logicalFlowIds = physicalFlows
+                .stream()
+                .map(PhysicalFlow::logicalFlowId)
+                .collect(Collectors.toSet());
+
+        List<DataTypeDecorator> unrated = logicalFlowDecoratorDao
+                .findByFlowIds(logicalFlowIds)
+                .stream()
+                .filter(d -> d.decoratorEntity().kind() == EntityKind.DATA_TYPE)
+                .filter(d -> d.rating().map(r -> r == AuthoritativenessRating.NO_OPINION).orElse(true))
+                .collect(toList());
 
-        long dataTypeId = flow.dataType().id();
-        EntityReference specificationEntityRef = EntityReference.mkRef(EntityKind.PHYSICAL_SPECIFICATION, spec.id().get());
+        Map<Long, AuthoritativenessRating> ratingsByDecoratorId = new HashMap<>();
+        ratingsCalculator
+                .calculate(unrated)
+                .forEach(d -> d.id().ifPresent(id -> d.rating()
+                        .filter(r -> r != AuthoritativenessRating.NO_OPINION)
+                        .ifPresent(r -> ratingsByDecoratorId.put(id, r))));
 
-        DataTypeDecorator existingDataType = dataTypeDecoratorService.getByEntityRefAndDataTypeId(specificationEntityRef, dataTypeId);
-        if(existingDataType == null) {
-            dataTypeDecoratorService.addDecorators(username, specificationEntityRef, fromArray(dataTypeId));
+        if (! ratingsByDecoratorId.isEmpty()) {
+            logicalFlowDecoratorDao.updateRatings(ratingsByDecoratorId);
         }
-        return spec;
+
+        List<LogicalFlow> logicalFlows = logicalFlowDao.findActiveByFlowIds(logicalFlowIds);
+        Set<EntityReference> endpoints = new HashSet<>();
+        logicalFlows.forEach(f -> {
+            endpoints.add(f.source());
+            endpoints.add(f.target());
+        });
+
+        logicalFlowGraphService.markChanged(endpoints.toArray(new EntityReference[0]));
+        dataTypeUsageService.recalculateForApplications(endpoints);
+
+        List<ChangeLog> changeLogs = physicalFlows
+                .stream()
+                .map(PhysicalFlow::entityReference)
+                .distinct()
+                .map(ref -> ImmutableChangeLog.builder()
+                        .parentReference(ref)
+                        .severity(Severity.INFORMATION)
+                        .userId(username)
+                        .message("Physical flow created via bulk upload")
+                        .operation(Operation.ADD)
+                        .build())
+                .collect(toList());
+
+        changeLogService.write(changeLogs);
     }
 
 
-    private long getOrCreatePhysicalFlow(PhysicalFlow newFlow) {
-        PhysicalFlow existing = physicalFlowDao.matchPhysicalFlow(newFlow);
-        if (existing != null) {
-            return existing.id().get();
-        } else {
-            return physicalFlowDao.create(newFlow);
-        }
+    private void updateJob(String jobId,
+                           Function<ImmutablePhysicalFlowUploadJob, PhysicalFlowUploadJob> updater) {
+        jobsById.computeIfPresent(
+                jobId,
+                (id, job) -> updater.apply(ImmutablePhysicalFlowUploadJob.copyOf(job)));
     }
 
+
+    private void removeExpiredJobs() {
+        LocalDateTime cutoff = nowUtc().minus(JOB_RETENTION);
+        jobsById.values().removeIf(j -> j
+                .completedAt()
+                .map(t -> t.isBefore(cutoff))
+                .orElse(false));
+    }
+
+
     private Aliases<String> loadTransportAliases() {
         return enumValueAliasService.mkAliases(EnumValueKind.TRANSPORT_KIND);
     }
@@ -19,24 +19,47 @@
 package com.khartec.waltz.service.physical_specification_data_type;
 
 import com.khartec.waltz.data.datatype_decorator.PhysicalSpecDecoratorDao;
+import com.khartec.waltz.service.usage_info.DataTypeUsageService;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
+import static com.khartec.waltz.schema.tables.PhysicalFlow.PHYSICAL_FLOW;
+import static com.khartec.waltz.schema.tables.PhysicalSpecDataType.PHYSICAL_SPEC_DATA_TYPE;
 
 @Service
 public class PhysicalSpecDataTypeService {
 
     private final PhysicalSpecDecoratorDao physicalSpecDecoratorDao;
+    private final DataTypeUsageService dataTypeUsageService;
 
 
     @Autowired
-    public PhysicalSpecDataTypeService(PhysicalSpecDecoratorDao physicalSpecDecoratorDao) {
+    public PhysicalSpecDataTypeService(PhysicalSpecDecoratorDao physicalSpecDecoratorDao,
+                                       DataTypeUsageService dataTypeUsageService) {
         checkNotNull(physicalSpecDecoratorDao, "physicalSpecDataTypeDecoratorDao cannot be null");
+        checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
         this.physicalSpecDecoratorDao = physicalSpecDecoratorDao;
+        this.dataTypeUsageService = dataTypeUsageService;
     }
 
     public int rippleDataTypesToLogicalFlows() {
+        // the endpoints of flows about to gain data types will need their usages recalculating
+        Select<Record1<Long>> flowsToBeDecorated = DSL
+                .selectDistinct(PHYSICAL_FLOW.LOGICAL_FLOW_ID)
+                .from(PHYSICAL_SPEC_DATA_TYPE)
+                .join(PHYSICAL_FLOW).on(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.eq(PHYSICAL_FLOW.SPECIFICATION_ID))
+                .leftJoin(LOGICAL_FLOW_DECORATOR)
+                    .on(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID)
+                            .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.eq(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)))
+                .where(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.isNull());
+
+        dataTypeUsageService.markDirtyForLogicalFlows(flowsToBeDecorated);
+
         return physicalSpecDecoratorDao.rippleDataTypesToLogicalFlows();
     }
 
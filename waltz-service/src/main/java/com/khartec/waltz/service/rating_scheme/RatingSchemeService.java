@@ -22,6 +22,8 @@ import com.khartec.waltz.data.rating_scheme.RatingSchemeDAO;
 import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.rating.RagName;
 import com.khartec.waltz.model.rating.RatingScheme;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -34,18 +36,27 @@ import java.util.Set;
 public class RatingSchemeService {
 
     private final RatingSchemeDAO ratingSchemeDAO;
+    private final ReferenceDataService referenceDataService;
 
     @Autowired
-    public RatingSchemeService(RatingSchemeDAO ratingSchemeDAO) {
+    public RatingSchemeService(RatingSchemeDAO ratingSchemeDAO,
+                               ReferenceDataService referenceDataService) {
         this.ratingSchemeDAO = ratingSchemeDAO;
+        this.referenceDataService = referenceDataService;
     }
 
     public Collection<RatingScheme>  findAll() {
-        return ratingSchemeDAO.findAll();
+        return referenceDataService
+                .findSnapshot()
+                .<Collection<RatingScheme>>map(ReferenceDataSnapshot::ratingSchemes)
+                .orElseGet(ratingSchemeDAO::findAll);
     }
 
     public RatingScheme getById(long id) {
-        return ratingSchemeDAO.getById(id);
+        return referenceDataService
+                .findSnapshot()
+                .flatMap(s -> s.findRatingSchemeById(id))
+                .orElseGet(() -> ratingSchemeDAO.getById(id));
     }
 
     public List<RagName> getAllRatingSchemeItems() {return ratingSchemeDAO.fetchItems(DSL.trueCondition()); }
@@ -0,0 +1,214 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.reference_data;
+
+import com.khartec.waltz.data.actor.ActorDao;
+import com.khartec.waltz.data.data_type.DataTypeDao;
+import com.khartec.waltz.data.enum_value.EnumValueDao;
+import com.khartec.waltz.data.involvement_kind.InvolvementKindDao;
+import com.khartec.waltz.data.measurable.MeasurableDao;
+import com.khartec.waltz.data.measurable_category.MeasurableCategoryDao;
+import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
+import com.khartec.waltz.data.rating_scheme.RatingSchemeDAO;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+
+
+/**
+ * Maintains an optional {@link ReferenceDataSnapshot}.  The snapshot is
+ * replaced (never modified) after taxonomy changes are applied, hierarchies
+ * are rebuilt or the change log records a modification to a reference data
+ * kind.  Readers therefore see either the old or the new data, never a mixture.
+ *
+ * The snapshot is also rebuilt every 15 minutes to pick up data loaded
+ * directly into the database.
+ */
+@Service
+public class ReferenceDataService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceDataService.class);
+
+    private static final Set<EntityKind> REFERENCE_KINDS = EnumSet.of(
+            EntityKind.ACTOR,
+            EntityKind.DATA_TYPE,
+            EntityKind.INVOLVEMENT_KIND,
+            EntityKind.MEASURABLE,
+            EntityKind.MEASURABLE_CATEGORY,
+            EntityKind.ORG_UNIT);
+
+    @Value("${waltz.reference-data.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+
+    private final ActorDao actorDao;
+    private final DataTypeDao dataTypeDao;
+    private final EnumValueDao enumValueDao;
+    private final InvolvementKindDao involvementKindDao;
+    private final MeasurableDao measurableDao;
+    private final MeasurableCategoryDao measurableCategoryDao;
+    private final OrganisationalUnitDao organisationalUnitDao;
+    private final RatingSchemeDAO ratingSchemeDao;
+
+    /**
+     * Distinguishes versions issued by this process from those issued by
+     * earlier runs (or other instances) when used as an ETag
+     */
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    private volatile ReferenceDataSnapshot snapshot = null;
+    private volatile boolean stale = false;
+
+
+    @Autowired
+    public ReferenceDataService(ActorDao actorDao,
+                                DataTypeDao dataTypeDao,
+                                EnumValueDao enumValueDao,
+                                InvolvementKindDao involvementKindDao,
+                                MeasurableDao measurableDao,
+                                MeasurableCategoryDao measurableCategoryDao,
+                                OrganisationalUnitDao organisationalUnitDao,
+                                RatingSchemeDAO ratingSchemeDao) {
+        checkNotNull(actorDao, "actorDao cannot be null");
+        checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
+        checkNotNull(enumValueDao, "enumValueDao cannot be null");
+        checkNotNull(involvementKindDao, "involvementKindDao cannot be null");
+        checkNotNull(measurableDao, "measurableDao cannot be null");
+        checkNotNull(measurableCategoryDao, "measurableCategoryDao cannot be null");
+        checkNotNull(organisationalUnitDao, "organisationalUnitDao cannot be null");
+        checkNotNull(ratingSchemeDao, "ratingSchemeDao cannot be null");
+
+        this.actorDao = actorDao;
+        this.dataTypeDao = dataTypeDao;
+        this.enumValueDao = enumValueDao;
+        this.involvementKindDao = involvementKindDao;
+        this.measurableDao = measurableDao;
+        this.measurableCategoryDao = measurableCategoryDao;
+        this.organisationalUnitDao = organisationalUnitDao;
+        this.ratingSchemeDao = ratingSchemeDao;
+    }
+
+
+    /**
+     * @return the current snapshot, or empty if snapshots are disabled (callers
+     *   should then query the database directly)
+     */
+    public Optional<ReferenceDataSnapshot> findSnapshot() {
+        if (! snapshotEnabled) {
+            return Optional.empty();
+        }
+
+        ReferenceDataSnapshot current = snapshot;
+        return current == null || stale
+                ? Optional.of(loadSnapshot(false))
+                : Optional.of(current);
+    }
+
+
+    /**
+     * @return an ETag value identifying the current snapshot, empty if snapshots are disabled
+     */
+    public Optional<String> findETag() {
+        return findSnapshot()
+                .map(s -> instanceId + "-" + s.version());
+    }
+
+
+    /**
+     * Records that reference data has been modified, the next reader will
+     * cause a new snapshot to be built.
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+
+    public void markChanged(ChangeLog changeLog) {
+        checkNotNull(changeLog, "changeLog cannot be null");
+        boolean isReferenceData = REFERENCE_KINDS.contains(changeLog.parentReference().kind())
+                || changeLog.childKind().map(REFERENCE_KINDS::contains).orElse(false);
+        if (isReferenceData) {
+            markStale();
+        }
+    }
+
+
+    public void markChanged(Collection<EntityKind> kinds) {
+        checkNotNull(kinds, "kinds cannot be null");
+        if (kinds.stream().anyMatch(REFERENCE_KINDS::contains)) {
+            markStale();
+        }
+    }
+
+
+    /**
+     * Builds a new snapshot and swaps it in (if snapshots are enabled).
+     */
+    @Scheduled(initialDelay = 900_000, fixedDelay = 900_000)
+    public void refresh() {
+        if (snapshotEnabled) {
+            loadSnapshot(true);
+        }
+    }
+
+
+    // -- HELPERS ---
+
+    private synchronized ReferenceDataSnapshot loadSnapshot(boolean force) {
+        // another reader may have loaded a snapshot whilst we waited
+        if (! force && snapshot != null && ! stale) {
+            return snapshot;
+        }
+
+        // cleared before loading so modifications made whilst loading trigger a further refresh
+        stale = false;
+
+        long start = System.currentTimeMillis();
+        ReferenceDataSnapshot newSnapshot = new ReferenceDataSnapshot(
+                versionCounter.incrementAndGet(),
+                nowUtc(),
+                measurableDao.findAll(),
+                dataTypeDao.findAll(),
+                organisationalUnitDao.findAll(),
+                measurableCategoryDao.findAll(),
+                ratingSchemeDao.findAll(),
+                involvementKindDao.findAll(),
+                enumValueDao.findAll(),
+                actorDao.findAll());
+
+        snapshot = newSnapshot;
+        LOG.info("Loaded reference data in {}ms: {}", System.currentTimeMillis() - start, newSnapshot);
+        return newSnapshot;
+    }
+
+}
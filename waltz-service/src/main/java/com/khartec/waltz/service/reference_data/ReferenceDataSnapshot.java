@@ -0,0 +1,297 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.reference_data;
+
+import com.khartec.waltz.model.EnumValue;
+import com.khartec.waltz.model.IdProvider;
+import com.khartec.waltz.model.actor.Actor;
+import com.khartec.waltz.model.datatype.DataType;
+import com.khartec.waltz.model.involvement_kind.InvolvementKind;
+import com.khartec.waltz.model.measurable.Measurable;
+import com.khartec.waltz.model.measurable_category.MeasurableCategory;
+import com.khartec.waltz.model.orgunit.OrganisationalUnit;
+import com.khartec.waltz.model.rating.RatingScheme;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * An immutable copy of the rarely changing reference data (taxonomies, categories,
+ * rating schemes, involvement kinds, enum values and actors) with indexes for
+ * lookups by id, code and external id.
+ *
+ * Snapshots are replaced in whole, the version identifies the contents and is
+ * increased each time a new snapshot is built.
+ */
+public class ReferenceDataSnapshot {
+
+    private final long version;
+    private final LocalDateTime loadedAt;
+
+    private final List<Measurable> measurables;
+    private final Map<Long, Measurable> measurablesById;
+    private final Map<String, Measurable> measurablesByExternalId;
+
+    private final List<DataType> dataTypes;
+    private final Map<Long, DataType> dataTypesById;
+    private final Map<String, DataType> dataTypesByCode;
+
+    private final List<OrganisationalUnit> orgUnits;
+    private final Map<Long, OrganisationalUnit> orgUnitsById;
+    private final Map<String, OrganisationalUnit> orgUnitsByExternalId;
+
+    private final List<MeasurableCategory> measurableCategories;
+    private final Map<Long, MeasurableCategory> measurableCategoriesById;
+    private final Map<String, MeasurableCategory> measurableCategoriesByExternalId;
+
+    private final List<RatingScheme> ratingSchemes;
+    private final Map<Long, RatingScheme> ratingSchemesById;
+
+    private final List<InvolvementKind> involvementKinds;
+    private final Map<Long, InvolvementKind> involvementKindsById;
+
+    private final List<EnumValue> enumValues;
+    private final Map<Tuple2<String, String>, EnumValue> enumValuesByTypeAndKey;
+
+    private final List<Actor> actors;
+    private final Map<Long, Actor> actorsById;
+
+
+    public ReferenceDataSnapshot(long version,
+                                 LocalDateTime loadedAt,
+                                 Collection<Measurable> measurables,
+                                 Collection<DataType> dataTypes,
+                                 Collection<OrganisationalUnit> orgUnits,
+                                 Collection<MeasurableCategory> measurableCategories,
+                                 Collection<RatingScheme> ratingSchemes,
+                                 Collection<InvolvementKind> involvementKinds,
+                                 Collection<EnumValue> enumValues,
+                                 Collection<Actor> actors) {
+        checkNotNull(loadedAt, "loadedAt cannot be null");
+
+        this.version = version;
+        this.loadedAt = loadedAt;
+
+        this.measurables = freeze(measurables);
+        this.measurablesById = indexById(this.measurables);
+        this.measurablesByExternalId = index(this.measurables, m -> m.externalId().orElse(null));
+
+        this.dataTypes = freeze(dataTypes);
+        this.dataTypesById = indexById(this.dataTypes);
+        this.dataTypesByCode = index(this.dataTypes, DataType::code);
+
+        this.orgUnits = freeze(orgUnits);
+        this.orgUnitsById = indexById(this.orgUnits);
+        this.orgUnitsByExternalId = index(this.orgUnits, ou -> ou.externalId().orElse(null));
+
+        this.measurableCategories = freeze(measurableCategories);
+        this.measurableCategoriesById = indexById(this.measurableCategories);
+        this.measurableCategoriesByExternalId = index(this.measurableCategories, mc -> mc.externalId().orElse(null));
+
+        this.ratingSchemes = freeze(ratingSchemes);
+        this.ratingSchemesById = indexById(this.ratingSchemes);
+
+        this.involvementKinds = freeze(involvementKinds);
+        this.involvementKindsById = indexById(this.involvementKinds);
+
+        this.enumValues = freeze(enumValues);
+        this.enumValuesByTypeAndKey = index(this.enumValues, ev -> tuple(ev.type(), ev.key()));
+
+        this.actors = freeze(actors);
+        this.actorsById = indexById(this.actors);
+    }
+
+
+    public long version() {
+        return version;
+    }
+
+
+    public LocalDateTime loadedAt() {
+        return loadedAt;
+    }
+
+
+    // -- MEASURABLES ---
+
+    public List<Measurable> measurables() {
+        return measurables;
+    }
+
+
+    public Optional<Measurable> findMeasurableById(long id) {
+        return Optional.ofNullable(measurablesById.get(id));
+    }
+
+
+    public Optional<Measurable> findMeasurableByExternalId(String externalId) {
+        return Optional.ofNullable(measurablesByExternalId.get(externalId));
+    }
+
+
+    // -- DATA TYPES ---
+
+    public List<DataType> dataTypes() {
+        return dataTypes;
+    }
+
+
+    public Optional<DataType> findDataTypeById(long id) {
+        return Optional.ofNullable(dataTypesById.get(id));
+    }
+
+
+    public Optional<DataType> findDataTypeByCode(String code) {
+        return Optional.ofNullable(dataTypesByCode.get(code));
+    }
+
+
+    // -- ORG UNITS ---
+
+    public List<OrganisationalUnit> orgUnits() {
+        return orgUnits;
+    }
+
+
+    public Optional<OrganisationalUnit> findOrgUnitById(long id) {
+        return Optional.ofNullable(orgUnitsById.get(id));
+    }
+
+
+    public Optional<OrganisationalUnit> findOrgUnitByExternalId(String externalId) {
+        return Optional.ofNullable(orgUnitsByExternalId.get(externalId));
+    }
+
+
+    // -- MEASURABLE CATEGORIES ---
+
+    public List<MeasurableCategory> measurableCategories() {
+        return measurableCategories;
+    }
+
+
+    public Optional<MeasurableCategory> findMeasurableCategoryById(long id) {
+        return Optional.ofNullable(measurableCategoriesById.get(id));
+    }
+
+
+    public Optional<MeasurableCategory> findMeasurableCategoryByExternalId(String externalId) {
+        return Optional.ofNullable(measurableCategoriesByExternalId.get(externalId));
+    }
+
+
+    // -- RATING SCHEMES ---
+
+    public List<RatingScheme> ratingSchemes() {
+        return ratingSchemes;
+    }
+
+
+    public Optional<RatingScheme> findRatingSchemeById(long id) {
+        return Optional.ofNullable(ratingSchemesById.get(id));
+    }
+
+
+    // -- INVOLVEMENT KINDS ---
+
+    public List<InvolvementKind> involvementKinds() {
+        return involvementKinds;
+    }
+
+
+    public Optional<InvolvementKind> findInvolvementKindById(long id) {
+        return Optional.ofNullable(involvementKindsById.get(id));
+    }
+
+
+    // -- ENUM VALUES ---
+
+    public List<EnumValue> enumValues() {
+        return enumValues;
+    }
+
+
+    public Optional<EnumValue> findEnumValue(String type, String key) {
+        return Optional.ofNullable(enumValuesByTypeAndKey.get(tuple(type, key)));
+    }
+
+
+    // -- ACTORS ---
+
+    public List<Actor> actors() {
+        return actors;
+    }
+
+
+    public Optional<Actor> findActorById(long id) {
+        return Optional.ofNullable(actorsById.get(id));
+    }
+
+
+    @Override
+    public String toString() {
+        return "ReferenceDataSnapshot{" +
+                "version=" + version +
+                ", loadedAt=" + loadedAt +
+                ", measurables=" + measurables.size() +
+                ", dataTypes=" + dataTypes.size() +
+                ", orgUnits=" + orgUnits.size() +
+                ", measurableCategories=" + measurableCategories.size() +
+                ", ratingSchemes=" + ratingSchemes.size() +
+                ", involvementKinds=" + involvementKinds.size() +
+                ", enumValues=" + enumValues.size() +
+                ", actors=" + actors.size() +
+                '}';
+    }
+
+
+    // -- HELPERS ---
+
+    private static <T> List<T> freeze(Collection<T> xs) {
+        checkNotNull(xs, "collection cannot be null");
+        return Collections.unmodifiableList(new ArrayList<>(xs));
+    }
+
+
+    private static <T extends IdProvider> Map<Long, T> indexById(List<T> xs) {
+        return index(xs, x -> x.id().orElse(null));
+    }
+
+
+    /**
+     * Items without a key are not indexed, where keys collide the last item wins
+     */
+    private static <K, T> Map<K, T> index(List<T> xs, Function<T, K> keyFn) {
+        Map<K, T> result = new HashMap<>(xs.size() * 2);
+        xs.forEach(x -> {
+            K key = keyFn.apply(x);
+            if (key != null) {
+                result.put(key, x);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.report_grid;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.report_grid.ReportGridCell;
+import com.khartec.waltz.model.report_grid.ReportGridDefinition;
+
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Materialised cells of a single report grid, held per application so that
+ * the cells for any selection of applications can be gathered without querying
+ * the underlying ratings, assessments, costs and involvements.
+ *
+ * Cost cells are held for each application's latest year (along with that year).
+ * When reading, only the cost cells for the latest year across the selected
+ * applications are returned, matching the non-materialised query.
+ *
+ * Instances are immutable, refreshed applications are applied via
+ * {@link #withApplications(Set, Set, Map)}.
+ */
+public class ReportGridCellStore {
+
+    private final ReportGridDefinition definition;
+    private final Map<Long, List<ReportGridCell>> cellsByApplicationId;
+    private final Map<ReportGridCell, Integer> costYears;
+
+
+    private ReportGridCellStore(ReportGridDefinition definition,
+                                Map<Long, List<ReportGridCell>> cellsByApplicationId,
+                                Map<ReportGridCell, Integer> costYears) {
+        this.definition = definition;
+        this.cellsByApplicationId = cellsByApplicationId;
+        this.costYears = costYears;
+    }
+
+
+    /**
+     * @param cells  all non cost cells of the grid
+     * @param costCells  cost cells (for each application's latest year) -> year
+     */
+    public static ReportGridCellStore build(ReportGridDefinition definition,
+                                           Set<ReportGridCell> cells,
+                                           Map<ReportGridCell, Integer> costCells) {
+        checkNotNull(definition, "definition cannot be null");
+        checkNotNull(cells, "cells cannot be null");
+        checkNotNull(costCells, "costCells cannot be null");
+
+        Map<Long, List<ReportGridCell>> cellsByApplicationId = new HashMap<>();
+        addCells(cellsByApplicationId, cells);
+        addCells(cellsByApplicationId, costCells.keySet());
+
+        return new ReportGridCellStore(
+                definition,
+                cellsByApplicationId,
+                new HashMap<>(costCells));
+    }
+
+
+    /**
+     * Replaces the cells of the given applications.  Applications with no cells
+     * in the new data are removed.
+     */
+    public ReportGridCellStore withApplications(Set<Long> applicationIds,
+                                               Set<ReportGridCell> cells,
+                                               Map<ReportGridCell, Integer> costCells) {
+        checkNotNull(applicationIds, "applicationIds cannot be null");
+        checkNotNull(cells, "cells cannot be null");
+        checkNotNull(costCells, "costCells cannot be null");
+
+        Map<Long, List<ReportGridCell>> updatedCells = new HashMap<>(cellsByApplicationId);
+        Map<ReportGridCell, Integer> updatedCostYears = new HashMap<>(costYears);
+
+        applicationIds.forEach(appId -> {
+            List<ReportGridCell> previous = updatedCells.remove(appId);
+            if (previous != null) {
+                previous.forEach(updatedCostYears::remove);
+            }
+        });
+
+        // only the given applications are touched, lists of the others are shared with this store
+        addCells(updatedCells, filter(cells, applicationIds));
+        addCells(updatedCells, filter(costCells.keySet(), applicationIds));
+        costCells.forEach((cell, year) -> {
+            if (applicationIds.contains(cell.applicationId())) {
+                updatedCostYears.put(cell, year);
+            }
+        });
+
+        return new ReportGridCellStore(definition, updatedCells, updatedCostYears);
+    }
+
+
+    public ReportGridDefinition getDefinition() {
+        return definition;
+    }
+
+
+    public Set<ReportGridCell> findCells(Collection<Long> applicationIds) {
+        checkNotNull(applicationIds, "applicationIds cannot be null");
+
+        List<List<ReportGridCell>> selected = new ArrayList<>(applicationIds.size());
+        Map<Long, Integer> latestYearByCostKindId = new HashMap<>();
+
+        for (Long appId : applicationIds) {
+            List<ReportGridCell> cells = cellsByApplicationId.get(appId);
+            if (cells == null) {
+                continue;
+            }
+            selected.add(cells);
+            for (ReportGridCell cell : cells) {
+                if (cell.columnEntityKind() == EntityKind.COST_KIND) {
+                    latestYearByCostKindId.merge(cell.columnEntityId(), costYears.get(cell), Math::max);
+                }
+            }
+        }
+
+        Set<ReportGridCell> result = new HashSet<>();
+        for (List<ReportGridCell> cells : selected) {
+            for (ReportGridCell cell : cells) {
+                if (cell.columnEntityKind() != EntityKind.COST_KIND
+                        || costYears.get(cell).equals(latestYearByCostKindId.get(cell.columnEntityId()))) {
+                    result.add(cell);
+                }
+            }
+        }
+        return result;
+    }
+
+
+    public int getApplicationCount() {
+        return cellsByApplicationId.size();
+    }
+
+
+    public int getCellCount() {
+        return cellsByApplicationId
+                .values()
+                .stream()
+                .mapToInt(List::size)
+                .sum();
+    }
+
+
+    @Override
+    public String toString() {
+        return "ReportGridCellStore{" +
+                "grid=" + definition.id().orElse(null) +
+                ", applications=" + getApplicationCount() +
+                ", cells=" + getCellCount() +
+                '}';
+    }
+
+
+    // --- helpers
+
+    private static List<ReportGridCell> filter(Collection<ReportGridCell> cells,
+                                               Set<Long> applicationIds) {
+        return cells
+                .stream()
+                .filter(c -> applicationIds.contains(c.applicationId()))
+                .collect(toList());
+    }
+
+
+    private static void addCells(Map<Long, List<ReportGridCell>> cellsByApplicationId,
+                                 Collection<ReportGridCell> cells) {
+        cells.forEach(cell -> cellsByApplicationId
+                .computeIfAbsent(cell.applicationId(), k -> new ArrayList<>())
+                .add(cell));
+    }
+
+}
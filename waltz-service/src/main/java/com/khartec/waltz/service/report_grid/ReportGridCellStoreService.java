@@ -0,0 +1,215 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.report_grid;
+
+import com.khartec.waltz.data.report_grid.ReportGridDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import com.khartec.waltz.model.report_grid.ReportGridCell;
+import com.khartec.waltz.model.report_grid.ReportGridDefinition;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+
+
+/**
+ * Maintains optional, in-memory, materialised cell stores for every report grid.
+ * Stores are fully rebuilt periodically (picking up definition changes and bulk
+ * loaded data, e.g. costs) and, in between, the cells of applications are
+ * refreshed as the change log records modifications to them.
+ *
+ * A store is only offered to readers when it reflects all recorded changes,
+ * otherwise callers should query the database directly.
+ */
+@Service
+public class ReportGridCellStoreService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReportGridCellStoreService.class);
+
+    /**
+     * Changes to these kinds (e.g. taxonomy edits) may affect the cells of many
+     * applications, all stores are rebuilt.
+     */
+    private static final Set<EntityKind> REBUILD_KINDS = asSet(
+            EntityKind.MEASURABLE,
+            EntityKind.MEASURABLE_CATEGORY);
+
+    @Value("${waltz.report-grid.materialise.enabled:false}")
+    private boolean storeEnabled;
+
+    private final ReportGridDao reportGridDao;
+    private final Set<Long> pendingApplicationIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildRequired = new AtomicBoolean(false);
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Map<Long, ReportGridCellStore> storesByGridId = Collections.emptyMap();
+
+
+    @Autowired
+    public ReportGridCellStoreService(ReportGridDao reportGridDao) {
+        checkNotNull(reportGridDao, "reportGridDao cannot be null");
+        this.reportGridDao = reportGridDao;
+    }
+
+
+    /**
+     * Pending application changes are applied before returning the store, if
+     * that is not possible (e.g. a refresh is already underway or fails) or a
+     * rebuild is outstanding then no store is returned.
+     */
+    public Optional<ReportGridCellStore> findStore(long gridId) {
+        if (! storeEnabled || rebuildRequired.get()) {
+            return Optional.empty();
+        }
+
+        if (! pendingApplicationIds.isEmpty()) {
+            if (! refreshLock.tryLock()) {
+                return Optional.empty();
+            }
+            try {
+                if (! applyPendingApplicationChanges()) {
+                    return Optional.empty();
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+
+        return Optional.ofNullable(storesByGridId.get(gridId));
+    }
+
+
+    public void markChanged(ChangeLog changeLog) {
+        if (! storeEnabled || changeLog == null) {
+            return;
+        }
+
+        EntityReference parentRef = changeLog.parentReference();
+        if (parentRef.kind() == EntityKind.APPLICATION) {
+            pendingApplicationIds.add(parentRef.id());
+        } else if (REBUILD_KINDS.contains(parentRef.kind())) {
+            rebuildRequired.set(true);
+        }
+    }
+
+
+    /**
+     * Requests a rebuild of all stores (e.g. after a grid definition changes), until
+     * it completes readers fall back to the database.
+     */
+    public void requestRebuild() {
+        if (storeEnabled) {
+            rebuildRequired.set(true);
+        }
+    }
+
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${waltz.report-grid.materialise.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (! storeEnabled) {
+            return;
+        }
+
+        refreshLock.lock();
+        try {
+            rebuildRequired.set(false);
+            pendingApplicationIds.clear();
+
+            Map<Long, ReportGridCellStore> rebuilt = new HashMap<>();
+            reportGridDao
+                    .findAll()
+                    .forEach(defn -> defn.id().ifPresent(id -> {
+                        Tuple2<Set<ReportGridCell>, Map<ReportGridCell, Integer>> cellData = reportGridDao.findAllCellDataForMaterialisation(defn);
+                        rebuilt.put(id, ReportGridCellStore.build(defn, cellData.v1, cellData.v2));
+                    }));
+
+            storesByGridId = rebuilt;
+            LOG.info("Rebuilt report grid cell stores: {}", rebuilt.values());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+
+    @Scheduled(initialDelay = 10_000, fixedDelay = 10_000)
+    public void applyPendingChanges() {
+        if (rebuildRequired.get()) {
+            rebuild();
+            return;
+        }
+
+        refreshLock.lock();
+        try {
+            applyPendingApplicationChanges();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+
+    // --- helpers
+
+    /**
+     * If the changes cannot be applied the stores are marked stale, they will
+     * not be offered to readers until the next (scheduled) rebuild completes.
+     *
+     * @return true if all pending changes were applied
+     */
+    private boolean applyPendingApplicationChanges() {
+        if (pendingApplicationIds.isEmpty()) {
+            return true;
+        }
+
+        Set<Long> appIds = new HashSet<>(pendingApplicationIds);
+        pendingApplicationIds.removeAll(appIds);
+
+        Map<Long, ReportGridCellStore> updated = new HashMap<>();
+        try {
+            storesByGridId.forEach((gridId, store) -> {
+                ReportGridDefinition defn = store.getDefinition();
+                Tuple2<Set<ReportGridCell>, Map<ReportGridCell, Integer>> cellData = reportGridDao.findCellDataForMaterialisation(defn, appIds);
+                updated.put(gridId, store.withApplications(appIds, cellData.v1, cellData.v2));
+            });
+        } catch (RuntimeException e) {
+            // retain the changes and force a rebuild, readers fall back to the database meanwhile
+            pendingApplicationIds.addAll(appIds);
+            rebuildRequired.set(true);
+            LOG.warn("Failed to refresh {} applications in report grid cell stores, stores will be rebuilt", appIds.size(), e);
+            return false;
+        }
+
+        storesByGridId = updated;
+        LOG.debug("Refreshed {} applications in report grid cell stores", appIds.size());
+        return true;
+    }
+
+}
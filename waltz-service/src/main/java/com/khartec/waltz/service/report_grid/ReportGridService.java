@@ -29,23 +29,40 @@ import com.khartec.waltz.model.application.Application;
 import com.khartec.waltz.model.rating.RagName;
 import com.khartec.waltz.model.report_grid.*;
 import com.khartec.waltz.service.rating_scheme.RatingSchemeService;
+import com.khartec.waltz.service.result_cache.ResultCacheService;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.SetUtilities.asSet;
 import static com.khartec.waltz.common.SetUtilities.map;
 
 @Service
 public class ReportGridService {
 
+    /**
+     * Cached grids are invalidated by change log entries for these kinds.  Changes
+     * to the grid definitions themselves are applied via {@link #invalidateGrid(long)}.
+     */
+    private static final Set<EntityKind> GRID_DEPENDENCIES = asSet(
+            EntityKind.APPLICATION,
+            EntityKind.ASSESSMENT_RATING,
+            EntityKind.COST,
+            EntityKind.INVOLVEMENT,
+            EntityKind.MEASURABLE,
+            EntityKind.MEASURABLE_RATING);
+
     private final RatingSchemeService ratingSchemeService;
     private final ApplicationDao applicationDao;
     private final ReportGridDao reportGridDao;
+    private final ResultCacheService resultCacheService;
+    private final ReportGridCellStoreService reportGridCellStoreService;
 
     private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
 
@@ -53,14 +70,20 @@ public class ReportGridService {
     @Autowired
     public ReportGridService(ReportGridDao reportGridDao,
                              ApplicationDao applicationDao,
-                             RatingSchemeService ratingSchemeService) {
+                             RatingSchemeService ratingSchemeService,
+                             ResultCacheService resultCacheService,
+                             ReportGridCellStoreService reportGridCellStoreService) {
         checkNotNull(reportGridDao, "reportGridDao cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(ratingSchemeService, "ratingSchemeService cannot be null");
+        checkNotNull(resultCacheService, "resultCacheService cannot be null");
+        checkNotNull(reportGridCellStoreService, "reportGridCellStoreService cannot be null");
 
         this.reportGridDao = reportGridDao;
         this.applicationDao = applicationDao;
         this.ratingSchemeService = ratingSchemeService;
+        this.resultCacheService = resultCacheService;
+        this.reportGridCellStoreService = reportGridCellStoreService;
     }
 
 
@@ -83,22 +106,52 @@ public class ReportGridService {
                     .withScope(HierarchyQueryScope.EXACT)
                 : idSelectionOptions;
 
-        ReportGridInstance instance = mkInstance(id, opts);
-        ReportGridDefinition definition = reportGridDao.getGridDefinitionById(id);
+        return resultCacheService.get(
+                mkCacheOperation(id),
+                opts,
+                GRID_DEPENDENCIES,
+                () -> {
+                    Optional<ReportGridCellStore> store = reportGridCellStoreService.findStore(id);
+
+                    ReportGridInstance instance = mkInstance(id, opts, store);
+                    ReportGridDefinition definition = store
+                            .map(ReportGridCellStore::getDefinition)
+                            .orElseGet(() -> reportGridDao.getGridDefinitionById(id));
+
+                    return ImmutableReportGrid
+                            .builder()
+                            .definition(definition)
+                            .instance(instance)
+                            .build();
+                });
+    }
 
-        return ImmutableReportGrid
-                .builder()
-                .definition(definition)
-                .instance(instance)
-                .build();
+
+    /**
+     * Grid definitions are maintained outside of Waltz, once one has changed this
+     * discards its cached results and rebuilds the materialised cell stores.
+     */
+    public void invalidateGrid(long id) {
+        resultCacheService.invalidate(mkCacheOperation(id));
+        reportGridCellStoreService.requestRebuild();
     }
 
 
-    private ReportGridInstance mkInstance(long id, IdSelectionOptions idSelectionOptions) {
+    private static String mkCacheOperation(long id) {
+        return "ReportGridService.getByIdAndSelectionOptions:" + id;
+    }
+
+
+    private ReportGridInstance mkInstance(long id,
+                                          IdSelectionOptions idSelectionOptions,
+                                          Optional<ReportGridCellStore> store) {
         Select<Record1<Long>> appSelector = applicationIdSelectorFactory.apply(idSelectionOptions);
-        Set<ReportGridCell> cellData = reportGridDao.findCellDataByGridId(id, appSelector);
         List<Application> apps = applicationDao.findByAppIdSelector(appSelector);
 
+        Set<ReportGridCell> cellData = store
+                .map(s -> s.findCells(map(apps, app -> app.id().get())))
+                .orElseGet(() -> reportGridDao.findCellDataByGridId(id, appSelector));
+
         Set<RagName> ratingSchemeItems = ratingSchemeService.findRatingSchemeItemsByIds(map(
                 cellData,
                 ReportGridCell::ratingId));
@@ -0,0 +1,203 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.result_cache;
+
+import com.khartec.waltz.model.EntityKind;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Size bounded, least-recently-used result cache with an optional time-to-live.
+ *
+ * A max size of zero disables caching, every request is passed to the loader.
+ */
+public class LruResultCache implements ResultCache {
+
+    private static class Entry {
+        private final Object value;
+        private final Set<EntityKind> dependencies;
+        private final long createdAt;
+
+        private Entry(Object value, Set<EntityKind> dependencies, long createdAt) {
+            this.value = value;
+            this.dependencies = dependencies;
+            this.createdAt = createdAt;
+        }
+    }
+
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Object, Entry> entries;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+
+    public LruResultCache(int maxSize, int ttlSeconds) {
+        checkTrue(maxSize >= 0, "maxSize cannot be negative");
+        checkTrue(ttlSeconds >= 0, "ttlSeconds cannot be negative");
+
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                boolean evict = size() > LruResultCache.this.maxSize;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+
+    @Override
+    public <T> T get(Object key, Set<EntityKind> dependencies, Supplier<T> loader) {
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(dependencies, "dependencies cannot be null");
+        checkNotNull(loader, "loader cannot be null");
+
+        if (maxSize == 0) {
+            return loader.get();
+        }
+
+        synchronized (entries) {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                if (isExpired(existing)) {
+                    entries.remove(key);
+                    evictions.incrementAndGet();
+                } else {
+                    hits.incrementAndGet();
+                    return (T) existing.value;
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+
+        // loading happens outside the lock, if anything is invalidated in the
+        // meantime the result may already be stale so we do not retain it
+        long generationAtStart = generation.get();
+        T value = loader.get();
+
+        synchronized (entries) {
+            if (value != null && generation.get() == generationAtStart) {
+                entries.put(key, new Entry(value, dependencies, System.nanoTime()));
+            }
+        }
+
+        return value;
+    }
+
+
+    @Override
+    public void invalidate(EntityKind kind) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().dependencies.contains(kind)) {
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+
+    @Override
+    public void invalidateKeys(Predicate<Object> keyPredicate) {
+        checkNotNull(keyPredicate, "keyPredicate cannot be null");
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Iterator<Object> iterator = entries.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (keyPredicate.test(iterator.next())) {
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+
+    @Override
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+
+    private boolean isExpired(Entry entry) {
+        return ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos;
+    }
+
+}
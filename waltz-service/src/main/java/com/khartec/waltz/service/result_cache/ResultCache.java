@@ -0,0 +1,63 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.result_cache;
+
+import com.khartec.waltz.model.EntityKind;
+
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+
+/**
+ * A bounded store of computed results.  Each entry records the entity kinds
+ * it was derived from so that it can be discarded when any of those kinds
+ * are modified.
+ */
+public interface ResultCache {
+
+    /**
+     * Returns the cached value for the key, otherwise invokes the loader and
+     * (if no intervening invalidation occurred) caches the result.
+     */
+    <T> T get(Object key, Set<EntityKind> dependencies, Supplier<T> loader);
+
+    /**
+     * Discards all entries which depend upon the given kind
+     */
+    void invalidate(EntityKind kind);
+
+    /**
+     * Discards all entries whose key satisfies the given predicate
+     */
+    void invalidateKeys(Predicate<Object> keyPredicate);
+
+    void clear();
+
+    int size();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    long getInvalidationCount();
+
+}
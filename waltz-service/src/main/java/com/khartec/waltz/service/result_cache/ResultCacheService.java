@@ -0,0 +1,112 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.result_cache;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import org.jooq.lambda.tuple.Tuple2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.common.SetUtilities.union;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Caches the results of expensive, selector based, computations.  Entries are keyed
+ * by (operation, selection options) and are discarded when the entity kinds they
+ * depend on are modified (see {@link #invalidate(ChangeLog)}).
+ */
+@Service
+public class ResultCacheService {
+
+    private final ResultCache resultCache;
+
+
+    @Autowired
+    public ResultCacheService(ResultCache resultCache) {
+        checkNotNull(resultCache, "resultCache cannot be null");
+        this.resultCache = resultCache;
+    }
+
+
+    /**
+     * @param operation  name of the computation, include any additional parameters
+     * @param options  selection options the computation is based upon
+     * @param dependencies  entity kinds which, if modified, invalidate the result.
+     *                      The kind of the selection options is always included.
+     * @param loader  computes the result on a cache miss
+     */
+    public <T> T get(String operation,
+                     IdSelectionOptions options,
+                     Set<EntityKind> dependencies,
+                     Supplier<T> loader) {
+        checkNotNull(operation, "operation cannot be null");
+        checkNotNull(options, "options cannot be null");
+
+        return resultCache.get(
+                tuple(operation, options),
+                union(dependencies, asSet(options.entityReference().kind())),
+                loader);
+    }
+
+
+    public void invalidate(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        resultCache.invalidate(kind);
+    }
+
+
+    public void invalidate(Collection<EntityKind> kinds) {
+        checkNotNull(kinds, "kinds cannot be null");
+        kinds.forEach(resultCache::invalidate);
+    }
+
+
+    public void invalidate(ChangeLog changeLog) {
+        checkNotNull(changeLog, "changeLog cannot be null");
+        resultCache.invalidate(changeLog.parentReference().kind());
+        changeLog.childKind().ifPresent(resultCache::invalidate);
+    }
+
+
+    /**
+     * Discards the results of the given computation for all selection options, for
+     * changes which cannot be expressed as a modified entity kind.
+     * @param operation  name of the computation, as given to {@link #get}
+     */
+    public void invalidate(String operation) {
+        checkNotNull(operation, "operation cannot be null");
+        resultCache.invalidateKeys(key -> key instanceof Tuple2
+                && operation.equals(((Tuple2<?, ?>) key).v1));
+    }
+
+
+    public void clear() {
+        resultCache.clear();
+    }
+
+}
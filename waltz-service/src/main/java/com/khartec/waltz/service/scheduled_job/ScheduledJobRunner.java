@@ -0,0 +1,347 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.scheduled_job;
+
+import com.khartec.waltz.model.scheduled_job.ImmutableScheduledJobRun;
+import com.khartec.waltz.model.scheduled_job.JobKey;
+import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import com.khartec.waltz.model.scheduled_job.ScheduledJobRun;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+
+
+/**
+ * Executes scheduled jobs on a bounded pool of threads.
+ *
+ * Jobs only start once the jobs they depend upon (whether submitted in the
+ * same batch or still running from an earlier one) have finished.  Dependencies
+ * express ordering only, a job still runs if a prerequisite fails.  Independent
+ * jobs run concurrently.
+ *
+ * Running jobs may be cancelled, this cancels (interrupting) the future of the
+ * job. Jobs blocked in a database call will only notice once the call returns.
+ * Dependent jobs start once the cancelled job has actually stopped.
+ *
+ * Each job is passed to a `starter` on the pool thread immediately before it
+ * runs.  Jobs which the starter declines, which are still queued (or waiting
+ * on prerequisites) when the runner shuts down, or which are rejected by the
+ * executor never start.  Their futures complete exceptionally and the
+ * completion handler is not invoked for them.
+ */
+public class ScheduledJobRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobRunner.class);
+
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private static class JobTask extends FutureTask<Void> {
+        private final JobKey jobKey;
+        private final CompletableFuture<ScheduledJobRun> executed;
+
+        private JobTask(Callable<Void> callable, JobKey jobKey, CompletableFuture<ScheduledJobRun> executed) {
+            super(callable);
+            this.jobKey = jobKey;
+            this.executed = executed;
+        }
+    }
+
+
+    private static class RunningJob {
+        private final Future<?> future;
+        private final long startNanos;
+        private volatile boolean cancelled = false;
+
+        private RunningJob(Future<?> future, long startNanos) {
+            this.future = future;
+            this.startNanos = startNanos;
+        }
+    }
+
+
+    private final ExecutorService executor;
+    private final Map<JobKey, CompletableFuture<ScheduledJobRun>> inFlight = new EnumMap<>(JobKey.class);
+    private final Map<JobKey, RunningJob> running = new ConcurrentHashMap<>();
+
+
+    public ScheduledJobRunner(int threadCount) {
+        checkTrue(threadCount > 0, "threadCount must be positive");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread t = new Thread(r, "WaltzScheduledJob-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+
+    /**
+     * Submits the given jobs for execution, this method does not wait for
+     * them to complete.
+     *
+     * @param jobs  job implementations, returning the number of rows affected (or null if unknown)
+     * @param dependencies  keys of the jobs which must finish before a job may start
+     * @param starter  called as each job is about to run, returning false if the job should not run
+     * @param completionHandler  invoked with the outcome of each job, before any dependent job starts
+     * @return future for each submitted job, completing exceptionally if the job never started
+     * @throws IllegalArgumentException if the dependencies of the submitted jobs are cyclic
+     */
+    public synchronized Map<JobKey, CompletableFuture<ScheduledJobRun>> submit(Map<JobKey, Supplier<Integer>> jobs,
+                                                                              Map<JobKey, Set<JobKey>> dependencies,
+                                                                              Predicate<JobKey> starter,
+                                                                              Consumer<ScheduledJobRun> completionHandler) {
+        checkNotNull(jobs, "jobs cannot be null");
+        checkNotNull(dependencies, "dependencies cannot be null");
+        checkNotNull(starter, "starter cannot be null");
+        checkNotNull(completionHandler, "completionHandler cannot be null");
+
+        Map<JobKey, CompletableFuture<ScheduledJobRun>> scheduled = new EnumMap<>(JobKey.class);
+        jobs.keySet().forEach(jobKey -> schedule(
+                jobKey,
+                jobs,
+                dependencies,
+                starter,
+                completionHandler,
+                scheduled,
+                EnumSet.noneOf(JobKey.class)));
+        return scheduled;
+    }
+
+
+    /**
+     * @return true if the job was running and has been asked to stop
+     */
+    public boolean cancel(JobKey jobKey) {
+        RunningJob runningJob = running.get(jobKey);
+        if (runningJob == null) {
+            return false;
+        }
+
+        LOG.warn("Cancelling job: {}", jobKey);
+        runningJob.cancelled = true;
+        runningJob.future.cancel(true);
+        return true;
+    }
+
+
+    /**
+     * Cancels any running jobs and stops the executor, waiting briefly for
+     * the cancelled jobs to stop.  Queued jobs, and jobs waiting on
+     * prerequisites, never start and their futures complete exceptionally.
+     */
+    public void shutdown() {
+        running.keySet().forEach(this::cancel);
+        executor.shutdownNow()
+                .stream()
+                .filter(r -> r instanceof JobTask)
+                .map(r -> (JobTask) r)
+                .forEach(task -> {
+                    LOG.warn("Job: {} not started as the runner has been shut down", task.jobKey);
+                    task.executed.completeExceptionally(new CancellationException("Runner shut down before job started: " + task.jobKey));
+                });
+        try {
+            if (! executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Scheduled jobs still running after shutdown: {}", running.keySet());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * @return currently executing jobs and how long (in millis) they have been running
+     */
+    public Map<JobKey, Long> findRunningJobs() {
+        long now = System.nanoTime();
+        Map<JobKey, Long> result = new EnumMap<>(JobKey.class);
+        running.forEach((jobKey, runningJob) -> result.put(
+                jobKey,
+                TimeUnit.NANOSECONDS.toMillis(now - runningJob.startNanos)));
+        return result;
+    }
+
+
+    /**
+     * @return jobs which have been submitted but have not yet finished (including running jobs)
+     */
+    public synchronized Set<JobKey> findSubmittedJobs() {
+        return inFlight.isEmpty()
+                ? EnumSet.noneOf(JobKey.class)
+                : EnumSet.copyOf(inFlight.keySet());
+    }
+
+
+    // --- helpers
+
+    private CompletableFuture<ScheduledJobRun> schedule(JobKey jobKey,
+                                                        Map<JobKey, Supplier<Integer>> jobs,
+                                                        Map<JobKey, Set<JobKey>> dependencies,
+                                                        Predicate<JobKey> starter,
+                                                        Consumer<ScheduledJobRun> completionHandler,
+                                                        Map<JobKey, CompletableFuture<ScheduledJobRun>> scheduled,
+                                                        Set<JobKey> visiting) {
+        CompletableFuture<ScheduledJobRun> existing = scheduled.get(jobKey);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (! visiting.add(jobKey)) {
+            throw new IllegalArgumentException("Cyclic job dependency involving: " + visiting);
+        }
+
+        CompletableFuture<?>[] prerequisites = dependencies
+                .getOrDefault(jobKey, Collections.emptySet())
+                .stream()
+                .map(dependency -> jobs.containsKey(dependency)
+                        ? schedule(dependency, jobs, dependencies, starter, completionHandler, scheduled, visiting)
+                        : inFlight.get(dependency))
+                .filter(Objects::nonNull)
+                .toArray(CompletableFuture<?>[]::new);
+
+        visiting.remove(jobKey);
+
+        Supplier<Integer> job = jobs.get(jobKey);
+        CompletableFuture<ScheduledJobRun> executed = new CompletableFuture<>();
+        CompletableFuture
+                .allOf(prerequisites)
+                .whenComplete((ignored, prerequisiteFailure) -> start(jobKey, job, starter, executed));
+
+        CompletableFuture<ScheduledJobRun> future = executed
+                .thenApply(run -> {
+                    notify(completionHandler, run);
+                    return run;
+                });
+
+        scheduled.put(jobKey, future);
+        inFlight.put(jobKey, future);
+        future.whenComplete((run, e) -> removeInFlight(jobKey, future));
+
+        return future;
+    }
+
+
+    /**
+     * Hands the job to the executor.  The outcome is published from within the
+     * task (rather than via the task's future) so that, if cancelled, dependents
+     * wait until the job has stopped.
+     */
+    private void start(JobKey jobKey,
+                       Supplier<Integer> job,
+                       Predicate<JobKey> starter,
+                       CompletableFuture<ScheduledJobRun> executed) {
+        AtomicReference<Future<?>> taskRef = new AtomicReference<>();
+        JobTask task = new JobTask(
+                () -> {
+                    boolean started;
+                    try {
+                        started = starter.test(jobKey);
+                    } catch (Exception e) {
+                        LOG.error("Failed to start job: " + jobKey, e);
+                        executed.completeExceptionally(e);
+                        return null;
+                    }
+
+                    if (started) {
+                        executed.complete(execute(jobKey, job, taskRef.get()));
+                    } else {
+                        LOG.info("Job: {} declined to start", jobKey);
+                        executed.completeExceptionally(new CancellationException("Job declined to start: " + jobKey));
+                    }
+                    return null;
+                },
+                jobKey,
+                executed);
+        taskRef.set(task);
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Job: {} not started as the runner has been shut down", jobKey);
+            executed.completeExceptionally(new CancellationException("Runner shut down before job started: " + jobKey));
+        }
+    }
+
+
+    private ScheduledJobRun execute(JobKey jobKey, Supplier<Integer> job, Future<?> task) {
+        RunningJob runningJob = new RunningJob(task, System.nanoTime());
+        ImmutableScheduledJobRun.Builder run = ImmutableScheduledJobRun
+                .builder()
+                .jobKey(jobKey)
+                .startedAt(nowUtc());
+
+        running.put(jobKey, runningJob);
+        try {
+            LOG.info("Starting job: {}", jobKey);
+            run.rowCount(Optional.ofNullable(job.get()));
+            run.status(runningJob.cancelled
+                    ? JobLifecycleStatus.ERRORED
+                    : JobLifecycleStatus.COMPLETED);
+            if (runningJob.cancelled) {
+                run.error("Cancelled");
+            }
+        } catch (Exception e) {
+            if (runningJob.cancelled) {
+                LOG.warn("Job: {} was cancelled", jobKey);
+                run.error("Cancelled");
+            } else {
+                LOG.error("Failed to run job: " + jobKey, e);
+                run.error(String.valueOf(e.getMessage()));
+            }
+            run.status(JobLifecycleStatus.ERRORED);
+        } finally {
+            running.remove(jobKey);
+            // clear any outstanding cancellation before the thread is reused
+            Thread.interrupted();
+        }
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runningJob.startNanos);
+        LOG.info("Finished job: {}, took: {}ms", jobKey, durationMillis);
+        return run
+                .durationMillis(durationMillis)
+                .build();
+    }
+
+
+    private static void notify(Consumer<ScheduledJobRun> completionHandler, ScheduledJobRun run) {
+        try {
+            completionHandler.accept(run);
+        } catch (Exception e) {
+            LOG.error("Failed to record outcome of job: " + run.jobKey(), e);
+        }
+    }
+
+
+    private synchronized void removeInFlight(JobKey jobKey, CompletableFuture<ScheduledJobRun> future) {
+        inFlight.remove(jobKey, future);
+    }
+
+}
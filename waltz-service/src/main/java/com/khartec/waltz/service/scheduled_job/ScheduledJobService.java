@@ -23,118 +23,315 @@ import com.khartec.waltz.data.scheduled_job.ScheduledJobDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.scheduled_job.JobKey;
 import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import com.khartec.waltz.model.scheduled_job.ScheduledJobRun;
+import com.khartec.waltz.service.access_log.AccessLogService;
 import com.khartec.waltz.service.attestation.AttestationRunService;
 import com.khartec.waltz.service.authoritative_source.AuthoritativeSourceService;
 import com.khartec.waltz.service.complexity.ComplexityRatingService;
 import com.khartec.waltz.service.entity_hierarchy.EntityHierarchyService;
+import com.khartec.waltz.service.entity_statistic.EntityStatisticService;
 import com.khartec.waltz.service.logical_flow.LogicalFlowService;
 import com.khartec.waltz.service.physical_specification_data_type.PhysicalSpecDataTypeService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.result_cache.ResultCacheService;
+import com.khartec.waltz.service.settings.SettingsService;
 import com.khartec.waltz.service.usage_info.DataTypeUsageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.function.Consumer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.common.SetUtilities.asSet;
 
 @Service
 public class ScheduledJobService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobService.class);
 
-    private final AuthoritativeSourceService authoritativeSourceService;
-    private final ComplexityRatingService complexityRatingService;
-    private final DataTypeUsageService dataTypeUsageService;
-    private final EntityHierarchyService entityHierarchyService;
-    private final LogicalFlowService logicalFlowService;
-    private final PhysicalSpecDataTypeService physicalSpecDataTypeService;
+    /**
+     * Jobs which must finish before the keyed job may start (if both are due to run)
+     */
+    private static final Map<JobKey, Set<JobKey>> JOB_DEPENDENCIES = new EnumMap<>(JobKey.class);
+
+    static {
+        JOB_DEPENDENCIES.put(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION, asSet(
+                JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS));
+
+        JOB_DEPENDENCIES.put(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS, asSet(
+                JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS));
+
+        JOB_DEPENDENCIES.put(JobKey.ATTESTATION_ISSUE_INSTANCES, asSet(
+                JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                JobKey.HIERARCHY_REBUILD_MEASURABLE,
+                JobKey.HIERARCHY_REBUILD_PERSON));
+    }
+
     private final ScheduledJobDao scheduledJobDao;
-    private final AttestationRunService attestationRunService;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final ResultCacheService resultCacheService;
+    private final ReferenceDataService referenceDataService;
+    private final SettingsService settingsService;
+    private final Map<JobKey, Supplier<Integer>> jobs = new EnumMap<>(JobKey.class);
+    private final Set<JobKey> claimedJobs = ConcurrentHashMap.newKeySet();
+
+    @Value("${waltz.scheduled-jobs.max-duration-minutes:0}")
+    private long maxDurationMinutes;
 
 
     @Autowired
-    public ScheduledJobService(AuthoritativeSourceService authoritativeSourceService,
+    public ScheduledJobService(AccessLogService accessLogService,
+                               AuthoritativeSourceService authoritativeSourceService,
                                ComplexityRatingService complexityRatingService,
                                DataTypeUsageService dataTypeUsageService,
                                EntityHierarchyService entityHierarchyService,
+                               EntityStatisticService entityStatisticService,
                                LogicalFlowService logicalFlowService,
                                PhysicalSpecDataTypeService physicalSpecDataTypeService,
                                ScheduledJobDao scheduledJobDao,
-                               AttestationRunService attestationRunService) {
+                               ScheduledJobRunner scheduledJobRunner,
+                               AttestationRunService attestationRunService,
+                               ResultCacheService resultCacheService,
+                               ReferenceDataService referenceDataService,
+                               SettingsService settingsService) {
+        checkNotNull(accessLogService, "accessLogService cannot be null");
         checkNotNull(authoritativeSourceService, "authoritativeSourceService cannot be null");
         checkNotNull(complexityRatingService, "complexityRatingService cannot be null");
         checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
+        checkNotNull(entityStatisticService, "entityStatisticService cannot be null");
         checkNotNull(logicalFlowService, "logicalFlowService cannot be null");
         checkNotNull(physicalSpecDataTypeService, "physicalSpecDataTypeService cannot be null");
         checkNotNull(scheduledJobDao, "scheduledJobDao cannot be null");
+        checkNotNull(scheduledJobRunner, "scheduledJobRunner cannot be null");
         checkNotNull(attestationRunService, "attestationRunService cannot be null");
+        checkNotNull(resultCacheService, "resultCacheService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
+        checkNotNull(settingsService, "settingsService cannot be null");
 
-        this.authoritativeSourceService = authoritativeSourceService;
-        this.complexityRatingService = complexityRatingService;
-        this.dataTypeUsageService = dataTypeUsageService;
-        this.entityHierarchyService = entityHierarchyService;
-        this.logicalFlowService = logicalFlowService;
-        this.physicalSpecDataTypeService = physicalSpecDataTypeService;
         this.scheduledJobDao = scheduledJobDao;
-        this.attestationRunService = attestationRunService;
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.resultCacheService = resultCacheService;
+        this.referenceDataService = referenceDataService;
+        this.settingsService = settingsService;
+
+        jobs.put(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
+                () -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
+
+        jobs.put(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                () -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE));
+
+        jobs.put(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
+                () -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC));
+
+        jobs.put(JobKey.HIERARCHY_REBUILD_MEASURABLE,
+                () -> entityHierarchyService.buildFor(EntityKind.MEASURABLE));
+
+        jobs.put(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                () -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT));
+
+        jobs.put(JobKey.HIERARCHY_REBUILD_PERSON,
+                () -> entityHierarchyService.buildFor(EntityKind.PERSON));
+
+        jobs.put(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                physicalSpecDataTypeService::rippleDataTypesToLogicalFlows);
+
+        jobs.put(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
+                withoutRowCount(dataTypeUsageService::recalculate));
+
+        jobs.put(JobKey.COMPLEXITY_REBUILD,
+                complexityRatingService::rebuild);
+
+        jobs.put(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
+                withoutRowCount(authoritativeSourceService::fastRecalculateAllFlowRatings));
+
+        jobs.put(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
+                logicalFlowService::cleanupOrphans);
+
+        jobs.put(JobKey.ATTESTATION_ISSUE_INSTANCES,
+                attestationRunService::issueInstancesForPendingRuns);
+
+        jobs.put(JobKey.ENTITY_STATISTIC_ROLLUP_REFRESH,
+                entityStatisticService::refreshRollup);
+
+        jobs.put(JobKey.ACCESS_LOG_ROLLUP,
+                accessLogService::rollupExpiredEntries);
     }
 
 
+    /**
+     * Submits all runnable jobs to the job runner, jobs already submitted by a
+     * previous invocation (queued, waiting on prerequisites or running) are not
+     * resubmitted.
+     *
+     * Jobs are only marked as `RUNNING` as they start, so a job which never
+     * starts (e.g. the runner shuts down first) is left `RUNNABLE`.
+     */
     @Scheduled(fixedRate = 300_000)
     public void run() {
-        Thread.currentThread().setName("WaltzScheduledJobService");
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
+        cancelOverdueJobs();
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE));
+        Set<JobKey> alreadySubmitted = scheduledJobRunner.findSubmittedJobs();
+        Map<JobKey, Supplier<Integer>> jobsToRun = new EnumMap<>(JobKey.class);
+        jobs.forEach((jobKey, job) -> {
+            try {
+                if (! alreadySubmitted.contains(jobKey)
+                        && scheduledJobDao.isJobRunnable(jobKey)) {
+                    jobsToRun.put(jobKey, job);
+                }
+            } catch (Exception e) {
+                LOG.error("Failed to submit job: " + jobKey, e);
+                scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.ERRORED);
+            }
+        });
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC));
+        if (jobsToRun.isEmpty()) {
+            return;
+        }
+
+        scheduledJobRunner
+                .submit(jobsToRun, JOB_DEPENDENCIES, this::onJobStarting, this::onJobFinished)
+                .forEach((jobKey, future) -> future.whenComplete((run, e) -> {
+                    if (e != null) {
+                        onJobNotStarted(jobKey);
+                    }
+                }));
+    }
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_MEASURABLE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.MEASURABLE));
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT));
+    public boolean cancel(JobKey jobKey) {
+        checkNotNull(jobKey, "jobKey cannot be null");
+        return scheduledJobRunner.cancel(jobKey);
+    }
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_PERSON,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.PERSON));
 
-        runIfNeeded(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
-                (jk) -> physicalSpecDataTypeService.rippleDataTypesToLogicalFlows());
+    /**
+     * @return currently executing jobs and how long (in millis) they have been running
+     */
+    public Map<JobKey, Long> findRunningJobs() {
+        return scheduledJobRunner.findRunningJobs();
+    }
 
-        runIfNeeded(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
-                (jk) -> dataTypeUsageService.recalculateForAllApplications());
 
-        runIfNeeded(JobKey.COMPLEXITY_REBUILD,
-                (jk) -> complexityRatingService.rebuild());
+    // --- helpers
 
-        runIfNeeded(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
-                (jk) -> authoritativeSourceService.fastRecalculateAllFlowRatings());
+    /**
+     * Claims the job, another server may have already done so in which case
+     * the job does not run here.
+     */
+    private boolean onJobStarting(JobKey jobKey) {
+        if (! scheduledJobDao.markJobAsRunning(jobKey)) {
+            return false;
+        }
 
-        runIfNeeded(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
-                (jk) -> logicalFlowService.cleanupOrphans());
+        claimedJobs.add(jobKey);
+        scheduledJobDao.recordJobStarted(jobKey, nowUtc());
 
-        runIfNeeded(JobKey.ATTESTATION_ISSUE_INSTANCES,
-                (jk) -> attestationRunService.issueInstancesForPendingRuns());
+        // job statuses are held as settings
+        settingsService.invalidate();
+        return true;
     }
 
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor) {
-        try {
-            if (scheduledJobDao.isJobRunnable(jobKey)
-                    && scheduledJobDao.markJobAsRunning(jobKey)) {
-                jobExecutor
-                        .andThen((jk) -> scheduledJobDao.updateJobStatus(jk, JobLifecycleStatus.COMPLETED))
-                        .accept(jobKey);
+    /**
+     * Releases the claim on a job which did not run (e.g. failed whilst
+     * recording its start) so that it may be picked up again.  Jobs which
+     * were never claimed are still `RUNNABLE` and are left alone.
+     */
+    private void onJobNotStarted(JobKey jobKey) {
+        if (claimedJobs.remove(jobKey)) {
+            try {
+                scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.RUNNABLE);
+                settingsService.invalidate();
+            } catch (Exception e) {
+                LOG.error("Failed to reset status of job: " + jobKey, e);
             }
-        } catch (Exception e) {
-            LOG.error("Failed to run job: " + jobKey, e);
-            scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.ERRORED);
+        }
+    }
+
+
+    private void onJobFinished(ScheduledJobRun run) {
+        claimedJobs.remove(run.jobKey());
+        scheduledJobDao.updateJobStatus(run.jobKey(), run.status());
+        if (run.status() == JobLifecycleStatus.COMPLETED) {
+            Set<EntityKind> affectedKinds = determineAffectedKinds(run.jobKey());
+            resultCacheService.invalidate(affectedKinds);
+            referenceDataService.markChanged(affectedKinds);
+        }
+        scheduledJobDao.recordJobRun(run);
+        settingsService.invalidate();
+    }
+
+
+    private void cancelOverdueJobs() {
+        if (maxDurationMinutes <= 0) {
+            return;
+        }
+
+        long maxDurationMillis = TimeUnit.MINUTES.toMillis(maxDurationMinutes);
+        scheduledJobRunner
+                .findRunningJobs()
+                .forEach((jobKey, runningMillis) -> {
+                    if (runningMillis > maxDurationMillis) {
+                        LOG.warn("Job: {} has exceeded the maximum duration of {} minutes", jobKey, maxDurationMinutes);
+                        scheduledJobRunner.cancel(jobKey);
+                    }
+                });
+    }
+
+
+    private static Supplier<Integer> withoutRowCount(Supplier<Boolean> job) {
+        return () -> {
+            job.get();
+            return null;
+        };
+    }
+
+
+    private static Set<EntityKind> determineAffectedKinds(JobKey jobKey) {
+        switch (jobKey) {
+            case HIERARCHY_REBUILD_CHANGE_INITIATIVE:
+                return asSet(EntityKind.CHANGE_INITIATIVE);
+            case HIERARCHY_REBUILD_DATA_TYPE:
+                return asSet(EntityKind.DATA_TYPE);
+            case HIERARCHY_REBUILD_ENTITY_STATISTICS:
+            case ENTITY_STATISTIC_ROLLUP_REFRESH:
+                return asSet(EntityKind.ENTITY_STATISTIC);
+            case HIERARCHY_REBUILD_MEASURABLE:
+                return asSet(EntityKind.MEASURABLE);
+            case HIERARCHY_REBUILD_ORG_UNIT:
+                return asSet(EntityKind.ORG_UNIT);
+            case HIERARCHY_REBUILD_PERSON:
+                return asSet(EntityKind.PERSON);
+            case DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL:
+            case LOGICAL_FLOW_CLEANUP_ORPHANS:
+                return asSet(EntityKind.LOGICAL_DATA_FLOW);
+            case DATA_TYPE_USAGE_RECALC_APPLICATION:
+                return asSet(EntityKind.DATA_TYPE);
+            case COMPLEXITY_REBUILD:
+                return asSet(EntityKind.COMPLEXITY);
+            case AUTH_SOURCE_RECALC_FLOW_RATINGS:
+                return asSet(EntityKind.AUTHORITATIVE_SOURCE, EntityKind.LOGICAL_DATA_FLOW);
+            case ATTESTATION_CLEANUP_ORPHANS:
+            case ATTESTATION_ISSUE_INSTANCES:
+                return asSet(EntityKind.ATTESTATION);
+            case ACCESS_LOG_ROLLUP:
+                // access logs are not cached
+                return Collections.emptySet();
+            default:
+                return asSet(EntityKind.values());
         }
     }
 
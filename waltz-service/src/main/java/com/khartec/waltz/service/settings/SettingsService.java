@@ -18,16 +18,20 @@
 
 package com.khartec.waltz.service.settings;
 
-import com.khartec.waltz.common.CollectionUtilities;
 import com.khartec.waltz.common.MapUtilities;
 import com.khartec.waltz.data.settings.SettingsDao;
 import com.khartec.waltz.model.settings.Setting;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.khartec.waltz.common.ListUtilities.ensureNotNull;
 
@@ -35,16 +39,42 @@ import static com.khartec.waltz.common.ListUtilities.ensureNotNull;
 @Service
 public class SettingsService {
 
+    /**
+     * Immutable copy of the settings table (with overrides applied)
+     */
+    private static class Snapshot {
+        private final long version;
+        private final long loadedAtNanos;
+        private final Map<String, Setting> settingsByName;
+
+        private Snapshot(long version, long loadedAtNanos, Map<String, Setting> settingsByName) {
+            this.version = version;
+            this.loadedAtNanos = loadedAtNanos;
+            this.settingsByName = settingsByName;
+        }
+    }
+
+
     private final SettingsDao settingsDao;
 
     public static final String DEFAULT_ROLES_KEY = "server.authentication.roles.default";
     private final Map<String, Setting> overridesByName;
 
+    @Value("${waltz.cache.settings.ttl-seconds:60}")
+    private int snapshotTtlSeconds;
+
+    private final AtomicLong versionCounter = new AtomicLong();
+    private volatile Snapshot snapshot = null;
+
 
     /**
      * Setting service allows the settings table to be interrogated.  For dev purposes then a
      * collection of overrides may be given, useful when debugging a shared database instance and
-     * you do not wish to change the values in the settings table
+     * you do not wish to change the values in the settings table.
+     *
+     * Settings are read from a snapshot of the table which is reloaded once it is older
+     * than `waltz.cache.settings.ttl-seconds` (zero disables the snapshot) or has been
+     * invalidated.
      * @param settingsDao
      * @param overrides
      */
@@ -56,18 +86,14 @@ public class SettingsService {
 
 
     public Collection<Setting> findAll() {
-        return CollectionUtilities.map(
-                settingsDao.findAll(),
-                s -> Optional
-                        .ofNullable(overridesByName.get(s.name()))
-                        .orElse(s));
+        return Collections.unmodifiableCollection(getSnapshot().settingsByName.values());
     }
 
 
     public Setting getByName(String name) {
         return Optional
                 .ofNullable(overridesByName.get(name))
-                .orElse(settingsDao.getByName(name));
+                .orElseGet(() -> getSnapshot().settingsByName.get(name));
     }
 
     /**
@@ -82,4 +108,58 @@ public class SettingsService {
                 .flatMap(s -> s.value());
     }
 
+
+    /**
+     * Discards the current snapshot, the next read will reload the settings.
+     * Should be called whenever the settings table is modified.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+
+    /**
+     * @return identifier of the current snapshot, changes whenever the settings are reloaded
+     */
+    public long getVersion() {
+        return getSnapshot().version;
+    }
+
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && ! isExpired(current)) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || isExpired(current)) {
+                current = loadSnapshot();
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+
+    private Snapshot loadSnapshot() {
+        Map<String, Setting> settingsByName = new HashMap<>();
+        settingsDao
+                .findAll()
+                .forEach(s -> settingsByName.put(
+                        s.name(),
+                        overridesByName.getOrDefault(s.name(), s)));
+
+        return new Snapshot(
+                versionCounter.incrementAndGet(),
+                System.nanoTime(),
+                settingsByName);
+    }
+
+
+    private boolean isExpired(Snapshot s) {
+        return System.nanoTime() - s.loadedAtNanos >= TimeUnit.SECONDS.toNanos(snapshotTtlSeconds);
+    }
+
 }
@@ -0,0 +1,49 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_latency;
+
+import java.util.regex.Pattern;
+
+
+/**
+ * Reduces sql to its 'shape' so that executions which differ only in
+ * literal values, bind variable counts (e.g. `IN` lists) or whitespace
+ * are grouped together.
+ */
+public class SqlFingerprint {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+
+    public static String of(String sql) {
+        if (sql == null) {
+            return "";
+        }
+
+        String normalised = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalised = NUMERIC_LITERAL.matcher(normalised).replaceAll("?");
+        normalised = WHITESPACE.matcher(normalised).replaceAll(" ");
+        normalised = PLACEHOLDER_LIST.matcher(normalised).replaceAll("?, ...");
+        return normalised.trim();
+    }
+
+}
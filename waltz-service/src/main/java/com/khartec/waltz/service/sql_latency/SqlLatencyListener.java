@@ -0,0 +1,293 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_latency;
+
+import com.khartec.waltz.common.metrics.LatencyHistogram;
+import com.khartec.waltz.model.sql_latency.ImmutableSqlShapeStatistics;
+import com.khartec.waltz.model.sql_latency.SqlShapeStatistics;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Records latency histograms for each query shape (see {@link SqlFingerprint})
+ * executed via jOOQ, along with the number of rows fetched and the time spent
+ * acquiring a connection.
+ *
+ * Executions slower than the threshold are logged to the performance log.  A
+ * proportion of those (the bind sample rate) are logged with their bind values
+ * inlined, rendering is comparatively expensive so the rate may be lowered on
+ * busy instances.
+ *
+ * The listener is shared by all executions, per-execution state is held in
+ * the {@link ExecuteContext}.
+ */
+public class SqlLatencyListener extends DefaultExecuteListener {
+
+    private static final String PERFORMANCE_APPENDER = "WALTZ.PERFORMANCE";
+    private static final Logger LOG = LoggerFactory.getLogger(PERFORMANCE_APPENDER);
+
+    /**
+     * Maximum number of distinct shapes tracked, executions of any further
+     * shapes are pooled under {@link #OTHER_SHAPE}
+     */
+    static final int MAX_SHAPES = 2000;
+    static final String OTHER_SHAPE = "(other)";
+
+    private static final int MAX_CACHED_FINGERPRINTS = 10_000;
+
+    private static final String STARTED_AT = "waltz.sql.startedAt";
+    private static final String RENDERED_AT = "waltz.sql.renderedAt";
+    private static final String ACQUIRE_NANOS = "waltz.sql.acquireNanos";
+    private static final String ROW_COUNT = "waltz.sql.rowCount";
+    private static final String FAILED = "waltz.sql.failed";
+
+
+    public static class SQLPerformanceWarning
+            extends Exception {
+
+        public SQLPerformanceWarning(String message) {
+            super(message);
+        }
+    }
+
+
+    private static class Shape {
+        private final LatencyHistogram executionTimes = new LatencyHistogram();
+        private final LatencyHistogram connectionAcquireTimes = new LatencyHistogram();
+        private final LongAdder errorCount = new LongAdder();
+        private final LongAdder slowCount = new LongAdder();
+        private final LongAdder rowCount = new LongAdder();
+        private volatile String sampleSql;
+    }
+
+
+    private final long slowQueryThresholdNanos;
+    private final double bindSampleRate;
+
+    private final ConcurrentMap<String, Shape> shapesByFingerprint = new ConcurrentHashMap<>();
+
+    // raw sql -> fingerprint, saves re-normalising frequently executed statements
+    private final ConcurrentMap<String, String> fingerprintCache = new ConcurrentHashMap<>();
+
+
+    public SqlLatencyListener(long slowQueryThresholdMillis, double bindSampleRate) {
+        checkTrue(slowQueryThresholdMillis >= 0, "slowQueryThresholdMillis cannot be negative");
+        checkTrue(bindSampleRate >= 0 && bindSampleRate <= 1, "bindSampleRate must be between 0 and 1");
+
+        LOG.info("Initialising with {}ms slow query threshold and bind sample rate of {}", slowQueryThresholdMillis, bindSampleRate);
+        this.slowQueryThresholdNanos = slowQueryThresholdMillis * 1_000_000L;
+        this.bindSampleRate = bindSampleRate;
+    }
+
+
+    @Override
+    public void start(ExecuteContext ctx) {
+        ctx.data(STARTED_AT, System.nanoTime());
+        ctx.data(ROW_COUNT, new long[1]);
+    }
+
+
+    @Override
+    public void renderEnd(ExecuteContext ctx) {
+        ctx.data(RENDERED_AT, System.nanoTime());
+    }
+
+
+    /**
+     * jOOQ defers acquiring a connection until the query has been rendered,
+     * therefore the time between rendering and preparing is the acquisition time.
+     */
+    @Override
+    public void prepareStart(ExecuteContext ctx) {
+        Object renderedAt = ctx.data(RENDERED_AT);
+        if (renderedAt != null && ctx.data(ACQUIRE_NANOS) == null) {
+            ctx.data(ACQUIRE_NANOS, System.nanoTime() - (Long) renderedAt);
+        }
+    }
+
+
+    @Override
+    public void recordEnd(ExecuteContext ctx) {
+        Object rowCount = ctx.data(ROW_COUNT);
+        if (rowCount != null) {
+            ((long[]) rowCount)[0]++;
+        }
+    }
+
+
+    @Override
+    public void exception(ExecuteContext ctx) {
+        ctx.data(FAILED, Boolean.TRUE);
+    }
+
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        Object startedAt = ctx.data(STARTED_AT);
+        if (startedAt == null) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - (Long) startedAt;
+        String fingerprint = toFingerprint(ctx);
+        Shape shape = getShape(fingerprint);
+
+        shape.executionTimes.record(elapsed);
+
+        Object acquireNanos = ctx.data(ACQUIRE_NANOS);
+        if (acquireNanos != null) {
+            shape.connectionAcquireTimes.record((Long) acquireNanos);
+        }
+
+        long fetched = ((long[]) ctx.data(ROW_COUNT))[0];
+        shape.rowCount.add(fetched > 0 ? fetched : Math.max(ctx.rows(), 0));
+
+        if (ctx.data(FAILED) != null) {
+            shape.errorCount.increment();
+        }
+
+        if (elapsed > slowQueryThresholdNanos) {
+            shape.slowCount.increment();
+            logSlowQuery(ctx, shape, fingerprint, elapsed);
+        }
+    }
+
+
+    /**
+     * @return statistics for the shapes with the greatest total execution time
+     */
+    public List<SqlShapeStatistics> findSlowestShapes(int limit) {
+        checkTrue(limit >= 0, "limit cannot be negative");
+
+        return shapesByFingerprint
+                .entrySet()
+                .stream()
+                .sorted(Comparator.comparingDouble(
+                        (Map.Entry<String, Shape> e) -> e.getValue().executionTimes.getTotalMillis())
+                        .reversed())
+                .limit(limit)
+                .map(e -> toStatistics(e.getKey(), e.getValue()))
+                .collect(toList());
+    }
+
+
+    public int getShapeCount() {
+        return shapesByFingerprint.size();
+    }
+
+
+    public void reset() {
+        shapesByFingerprint.clear();
+        fingerprintCache.clear();
+    }
+
+
+    // --- helpers
+
+    private String toFingerprint(ExecuteContext ctx) {
+        String sql = ctx.sql();
+        if (sql == null) {
+            String[] batchSql = ctx.batchSQL();
+            sql = batchSql.length > 0
+                    ? batchSql[0]
+                    : "";
+        }
+
+        String fingerprint = fingerprintCache.get(sql);
+        if (fingerprint == null) {
+            fingerprint = SqlFingerprint.of(sql);
+            if (fingerprintCache.size() < MAX_CACHED_FINGERPRINTS) {
+                fingerprintCache.put(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+
+    private Shape getShape(String fingerprint) {
+        Shape shape = shapesByFingerprint.get(fingerprint);
+        if (shape != null) {
+            return shape;
+        }
+
+        String key = shapesByFingerprint.size() < MAX_SHAPES
+                ? fingerprint
+                : OTHER_SHAPE;
+        return shapesByFingerprint.computeIfAbsent(key, k -> new Shape());
+    }
+
+
+    private void logSlowQuery(ExecuteContext ctx, Shape shape, String fingerprint, long elapsedNanos) {
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+
+        boolean sampleBinds = ctx.query() != null
+                && ThreadLocalRandom.current().nextDouble() < bindSampleRate;
+
+        if (sampleBinds) {
+            DSLContext context = DSL.using(ctx.dialect(), new Settings().withRenderFormatted(true));
+            String inlined = context.renderInlined(ctx.query());
+            shape.sampleSql = inlined;
+            LOG.warn(String.format("Slow SQL executed in %.0fms", elapsedMillis), new SQLPerformanceWarning(inlined));
+        } else {
+            LOG.warn(String.format("Slow SQL executed in %.0fms: %s", elapsedMillis, fingerprint));
+        }
+    }
+
+
+    private static SqlShapeStatistics toStatistics(String fingerprint, Shape shape) {
+        LatencyHistogram executionTimes = shape.executionTimes;
+        LatencyHistogram acquireTimes = shape.connectionAcquireTimes;
+
+        return ImmutableSqlShapeStatistics.builder()
+                .fingerprint(fingerprint)
+                .executionCount(executionTimes.getCount())
+                .errorCount(shape.errorCount.sum())
+                .slowCount(shape.slowCount.sum())
+                .rowCount(shape.rowCount.sum())
+                .totalMillis(executionTimes.getTotalMillis())
+                .meanMillis(executionTimes.getMeanMillis())
+                .p50Millis(executionTimes.getPercentileMillis(50))
+                .p95Millis(executionTimes.getPercentileMillis(95))
+                .p99Millis(executionTimes.getPercentileMillis(99))
+                .maxMillis(executionTimes.getMaxMillis())
+                .meanConnectionAcquireMillis(acquireTimes.getMeanMillis())
+                .maxConnectionAcquireMillis(acquireTimes.getMaxMillis())
+                .sampleSql(Optional.ofNullable(shape.sampleSql))
+                .build();
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_latency;
+
+import com.khartec.waltz.model.sql_latency.SqlShapeStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+@Service
+public class SqlLatencyService {
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    private final SqlLatencyListener sqlLatencyListener;
+
+
+    @Autowired
+    public SqlLatencyService(SqlLatencyListener sqlLatencyListener) {
+        checkNotNull(sqlLatencyListener, "sqlLatencyListener cannot be null");
+        this.sqlLatencyListener = sqlLatencyListener;
+    }
+
+
+    public List<SqlShapeStatistics> findSlowestShapes(int limit) {
+        return sqlLatencyListener.findSlowestShapes(limit);
+    }
+
+
+    public int getShapeCount() {
+        return sqlLatencyListener.getShapeCount();
+    }
+
+
+    public void reset() {
+        sqlLatencyListener.reset();
+    }
+
+}
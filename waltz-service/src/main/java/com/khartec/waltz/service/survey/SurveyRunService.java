@@ -32,6 +32,9 @@ import com.khartec.waltz.model.survey.*;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -46,12 +49,17 @@ import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.common.MapUtilities.indexBy;
 import static com.khartec.waltz.common.SetUtilities.fromCollection;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Service
 public class SurveyRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SurveyRunService.class);
+
     private final ChangeLogService changeLogService;
     private final InvolvementDao involvementDao;
     private final PersonDao personDao;
@@ -286,60 +294,41 @@ public class SurveyRunService {
                 .filter(r -> !excludedRecipientSet.contains(r))
                 .collect(toList());
 
-        Map<SurveyInstance, List<SurveyInstanceRecipient>> instancesAndRecipientsToSave = surveyInstanceRecipients.stream()
+        Map<SurveyInstance, List<Long>> recipientIdsByInstance = surveyInstanceRecipients.stream()
                 .collect(groupingBy(
                         SurveyInstanceRecipient::surveyInstance,
-                        toList()
-                ));
-
-        // delete existing instances and recipients
-        deleteSurveyInstancesAndRecipients(surveyRunId);
-
-        // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k,v) -> {
-                    if (surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP) {
-                        // one instance per group
-                        long instanceId = createSurveyInstance(k);
-                        v.forEach(r -> createSurveyInstanceRecipient(instanceId, r));
-                    } else {
-                        // one instance for each individual
-                        v.forEach(r -> {
-                            long instanceId = createSurveyInstance(k);
-                            createSurveyInstanceRecipient(instanceId, r);
-                        });
-                    }
-                }
-        );
+                        mapping(r -> r.person().id().get(), toList())));
+
+        List<Tuple2<SurveyInstance, List<Long>>> instancesToCreate = surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP
+                ? recipientIdsByInstance  // one instance per group
+                    .entrySet()
+                    .stream()
+                    .map(e -> tuple(e.getKey(), e.getValue()))
+                    .collect(toList())
+                : recipientIdsByInstance  // one instance for each individual
+                    .entrySet()
+                    .stream()
+                    .flatMap(e -> e.getValue()
+                            .stream()
+                            .map(personId -> tuple(e.getKey(), singletonList(personId))))
+                    .collect(toList());
+
+        // existing instances and recipients are replaced in a single transaction
+        long start = System.currentTimeMillis();
+        Tuple2<Integer, Integer> counts = surveyInstanceDao.replaceForSurveyRun(surveyRunId, instancesToCreate);
+        long duration = Math.max(1, System.currentTimeMillis() - start);
+
+        LOG.info("Issued {} instances and {} recipients for survey run {} in {}ms ({} rows/sec)",
+                counts.v1,
+                counts.v2,
+                surveyRunId,
+                duration,
+                (counts.v1 + counts.v2) * 1000L / duration);
 
         return true;
     }
 
 
-    private void deleteSurveyInstancesAndRecipients(long surveyRunId) {
-        surveyInstanceRecipientDao.deleteForSurveyRun(surveyRunId);
-        surveyInstanceDao.deleteForSurveyRun(surveyRunId);
-    }
-
-
-    private long createSurveyInstance(SurveyInstance surveyInstance) {
-        return surveyInstanceDao.create(ImmutableSurveyInstanceCreateCommand.builder()
-                .surveyRunId(surveyInstance.surveyRunId())
-                .entityReference(surveyInstance.surveyEntity())
-                .status(surveyInstance.status())
-                .dueDate(surveyInstance.dueDate())
-                .build());
-    }
-
-
-    private long createSurveyInstanceRecipient(long surveyInstanceId, SurveyInstanceRecipient surveyInstanceRecipient) {
-        return surveyInstanceRecipientDao.create(ImmutableSurveyInstanceRecipientCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(surveyInstanceRecipient.person().id().get())
-                .build());
-    }
-
-
     private void validateSurveyRunUpdate(String userName, long surveyRunId) {
         Person owner = validateUser(userName);
         SurveyRun surveyRun = validateSurveyRun(surveyRunId);
@@ -22,24 +22,45 @@ import com.khartec.waltz.common.SvgUtilities;
 import com.khartec.waltz.data.svg.SvgDiagramDao;
 import com.khartec.waltz.model.svg.ImmutableSvgDiagram;
 import com.khartec.waltz.model.svg.SvgDiagram;
+import com.khartec.waltz.service.extract_job.ExtractArtifactCache;
 import org.jooq.lambda.Unchecked;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.xpath.XPathExpressionException;
-import java.io.IOException;
+import javax.xml.stream.XMLStreamException;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static java.util.stream.Collectors.toList;
 
 @Service
 public class SvgDiagramService {
 
+    private static class RenderedSvg {
+        private final String version;
+        private final String svg;
+
+        private RenderedSvg(String version, String svg) {
+            this.version = version;
+            this.svg = svg;
+        }
+    }
+
+
+    @Value("${waltz.svg-diagram.cache.max-chars:20000000}")
+    private long cacheMaxChars;
+
     private final SvgDiagramDao svgDiagramDao;
 
+    // converted svg by diagram id, least recently used first.  Guarded by itself, as is cachedChars.
+    private final Map<Long, RenderedSvg> renderedById = new LinkedHashMap<>(16, 0.75f, true);
+
+    // total length of the converted svg held in renderedById
+    private long cachedChars = 0;
+
 
     @Autowired
     public SvgDiagramService(SvgDiagramDao svgDiagramDao) {
@@ -69,7 +90,7 @@ public class SvgDiagramService {
     }
 
 
-    private String convertProductSpecificSvg(SvgDiagram diagram) throws ParserConfigurationException, IOException, SAXException, XPathExpressionException, TransformerException {
+    private String convertProductSpecificSvg(SvgDiagram diagram) throws XMLStreamException {
         switch (diagram.product()) {
             case "visio":
                 return convertVisioSvg(diagram);
@@ -79,11 +100,59 @@ public class SvgDiagramService {
     }
 
 
-    private String convertVisioSvg(SvgDiagram diagram) throws ParserConfigurationException, IOException, SAXException, XPathExpressionException, TransformerException {
+    /**
+     * Conversions are cached by diagram id and version.  Diagrams are not
+     * versioned in the database so the version is derived from the stored
+     * content (a SHA-256 digest), any change to the diagram (or its key
+     * property) yields a new conversion.  The cache is bounded by the total
+     * length of the converted svg, conversions larger than the bound are not
+     * cached.
+     */
+    private String convertVisioSvg(SvgDiagram diagram) throws XMLStreamException {
         String key = diagram.keyProperty();
         String svgStr = diagram.svg();
 
-        return SvgUtilities.convertVisioSvg(key, svgStr);
+        if (cacheMaxChars <= 0 || ! diagram.id().isPresent()) {
+            return SvgUtilities.convertVisioSvg(key, svgStr);
+        }
+
+        Long id = diagram.id().get();
+        String version = ExtractArtifactCache.mkKey(key + ":" + svgStr);
+
+        RenderedSvg cached;
+        synchronized (renderedById) {
+            cached = renderedById.get(id);
+        }
+
+        if (cached != null && cached.version.equals(version)) {
+            return cached.svg;
+        }
+
+        String converted = SvgUtilities.convertVisioSvg(key, svgStr);
+
+        synchronized (renderedById) {
+            RenderedSvg previous = renderedById.remove(id);
+            if (previous != null) {
+                cachedChars -= previous.svg.length();
+            }
+            if (converted.length() <= cacheMaxChars) {
+                renderedById.put(id, new RenderedSvg(version, converted));
+                cachedChars += converted.length();
+                evictLeastRecentlyUsed();
+            }
+        }
+
+        return converted;
+    }
+
+
+    // callers must hold the renderedById lock
+    private void evictLeastRecentlyUsed() {
+        Iterator<RenderedSvg> iterator = renderedById.values().iterator();
+        while (cachedChars > cacheMaxChars && iterator.hasNext()) {
+            cachedChars -= iterator.next().svg.length();
+            iterator.remove();
+        }
     }
 
-}
\ No newline at end of file
+}
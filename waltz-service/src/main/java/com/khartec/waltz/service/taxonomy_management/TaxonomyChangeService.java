@@ -32,6 +32,7 @@ import com.khartec.waltz.service.client_cache_key.ClientCacheKeyService;
 import com.khartec.waltz.service.entity_hierarchy.EntityHierarchyService;
 import com.khartec.waltz.service.measurable.MeasurableService;
 import com.khartec.waltz.service.measurable_category.MeasurableCategoryService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.service.user.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -54,6 +55,7 @@ public class TaxonomyChangeService {
     private final MeasurableCategoryService measurableCategoryService;
     private final MeasurableService measurableService;
     private final EntityHierarchyService entityHierarchyService;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
@@ -63,9 +65,11 @@ public class TaxonomyChangeService {
                                  UserRoleService userRoleService,
                                  List<TaxonomyCommandProcessor> processors,
                                  MeasurableService measurableService,
-                                 EntityHierarchyService entityHierarchyService) {
+                                 EntityHierarchyService entityHierarchyService,
+                                 ReferenceDataService referenceDataService) {
         checkNotNull(taxonomyChangeDao, "taxonomyChangeDao cannot be null");
         checkNotNull(clientCacheKeyService, "clientCacheKeyService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
         this.clientCacheKeyService = clientCacheKeyService;
         this.taxonomyChangeDao = taxonomyChangeDao;
         this.userRoleService = userRoleService;
@@ -78,6 +82,7 @@ public class TaxonomyChangeService {
                 .collect(toMap(t -> t.v1, t -> t.v2));
         this.measurableService = measurableService;
         this.entityHierarchyService = entityHierarchyService;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -136,6 +141,8 @@ public class TaxonomyChangeService {
             entityHierarchyService.buildForMeasurableByCategory(command.changeDomain().id());
         }
 
+        referenceDataService.refresh();
+
         return updatedCommand;
     }
 
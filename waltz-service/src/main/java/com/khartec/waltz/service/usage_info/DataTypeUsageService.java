@@ -22,6 +22,7 @@ import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.data_type.DataTypeIdSelectorFactory;
 import com.khartec.waltz.data.data_type_usage.DataTypeUsageDao;
+import com.khartec.waltz.data.data_type_usage.DataTypeUsageQueueDao;
 import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.changelog.ChangeLog;
 import com.khartec.waltz.model.changelog.ImmutableChangeLog;
@@ -34,17 +35,24 @@ import com.khartec.waltz.service.changelog.ChangeLogService;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.*;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtcTimestamp;
 import static com.khartec.waltz.common.SetUtilities.fromCollection;
 import static com.khartec.waltz.model.usage_info.UsageInfoUtilities.mkChangeSet;
 import static com.khartec.waltz.schema.tables.Actor.ACTOR;
@@ -53,7 +61,26 @@ import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 @Service
 public class DataTypeUsageService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DataTypeUsageService.class);
+
+    /**
+     * If enabled, flow and decorator changes queue the affected entities and the
+     * scheduled recalculation only processes the queue (with a periodic full
+     * recalculation as a fallback).  Otherwise every run is a full recalculation.
+     */
+    @Value("${waltz.data-type-usage.incremental.enabled:false}")
+    private boolean incrementalEnabled;
+
+    @Value("${waltz.data-type-usage.incremental.batch-size:100}")
+    private int incrementalBatchSize;
+
+    @Value("${waltz.data-type-usage.incremental.full-recalc-interval-minutes:1440}")
+    private int fullRecalcIntervalMinutes;
+
+    private volatile long lastFullRecalcAt = 0;
+
     private final DataTypeUsageDao dataTypeUsageDao;
+    private final DataTypeUsageQueueDao dataTypeUsageQueueDao;
     private final DataTypeDao dataTypeDao;
     private final ApplicationIdSelectorFactory appIdSelectorFactor = new ApplicationIdSelectorFactory();
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
@@ -62,12 +89,15 @@ public class DataTypeUsageService {
 
     @Autowired
     public DataTypeUsageService(DataTypeUsageDao dataTypeUsageDao,
+                                DataTypeUsageQueueDao dataTypeUsageQueueDao,
                                 DataTypeDao dataTypeDao,
                                 ChangeLogService changeLogService) {
         checkNotNull(dataTypeUsageDao, "dataTypeUsageDao cannot be null");
+        checkNotNull(dataTypeUsageQueueDao, "dataTypeUsageQueueDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
         this.dataTypeUsageDao = dataTypeUsageDao;
+        this.dataTypeUsageQueueDao = dataTypeUsageQueueDao;
         this.dataTypeDao = dataTypeDao;
         this.changeLogService = changeLogService;
     }
@@ -146,7 +176,94 @@ public class DataTypeUsageService {
 
 
     public boolean recalculateForAllApplications() {
-        return dataTypeUsageDao.recalculateForAllApplications();
+        long start = System.currentTimeMillis();
+        // queue entries are stamped in UTC, so the cutoff must be too
+        Timestamp queueCutoff = nowUtcTimestamp();
+        boolean result = dataTypeUsageDao.recalculateForAllApplications();
+        lastFullRecalcAt = start;
+        if (incrementalEnabled) {
+            // anything queued before we started has been covered
+            dataTypeUsageQueueDao.removeQueuedBefore(queueCutoff);
+        }
+        return result;
+    }
+
+
+    /**
+     * Entry point for the scheduled recalculation.  In incremental mode only
+     * queued entities are recalculated, unless the last full recalculation
+     * is older than the configured interval.
+     */
+    public boolean recalculate() {
+        boolean fullRecalcDue = System.currentTimeMillis() - lastFullRecalcAt
+                > TimeUnit.MINUTES.toMillis(fullRecalcIntervalMinutes);
+
+        if (! incrementalEnabled || fullRecalcDue) {
+            return recalculateForAllApplications();
+        } else {
+            recalculateQueued();
+            return true;
+        }
+    }
+
+
+    /**
+     * Queues the given entities for recalculation (if incremental mode is enabled)
+     */
+    public void markDirty(Collection<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+        if (incrementalEnabled) {
+            dataTypeUsageQueueDao.enqueue(filter(
+                    refs,
+                    r -> r.kind() == EntityKind.APPLICATION || r.kind() == EntityKind.ACTOR));
+        }
+    }
+
+
+    /**
+     * Queues the endpoints of the selected logical flows for recalculation
+     * (if incremental mode is enabled)
+     */
+    public void markDirtyForLogicalFlows(Select<Record1<Long>> logicalFlowIdSelector) {
+        checkNotNull(logicalFlowIdSelector, "logicalFlowIdSelector cannot be null");
+        if (incrementalEnabled) {
+            dataTypeUsageQueueDao.enqueueForLogicalFlows(logicalFlowIdSelector);
+        }
+    }
+
+
+    /**
+     * Drains the recalculation queue, each batch of entities is recalculated
+     * in its own (small) transaction.
+     *
+     * @return number of distinct entities recalculated
+     */
+    public int recalculateQueued() {
+        int recalculated = 0;
+
+        while (! Thread.currentThread().isInterrupted()) {
+            List<Tuple2<Long, EntityReference>> batch = dataTypeUsageQueueDao.findQueued(incrementalBatchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            Set<EntityReference> refs = batch
+                    .stream()
+                    .map(t -> t.v2)
+                    .collect(Collectors.toSet());
+
+            recalculateForApplications(refs);
+            dataTypeUsageQueueDao.remove(map(batch, t -> t.v1));
+            recalculated += refs.size();
+        }
+
+        LOG.info("Recalculated data type usages for {} queued entities", recalculated);
+        return recalculated;
+    }
+
+
+    public int getDirtyQueueDepth() {
+        return dataTypeUsageQueueDao.countQueued();
     }
 
 
@@ -33,11 +33,16 @@ import com.khartec.waltz.service.person.PersonService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.sort;
@@ -53,12 +58,31 @@ public class UserRoleService {
 
     private static final Logger LOG = LoggerFactory.getLogger(UserRoleService.class);
 
+    private static class CachedRoles {
+        private final Set<String> roles;
+        private final long loadedAtNanos;
+
+        private CachedRoles(Set<String> roles, long loadedAtNanos) {
+            this.roles = roles;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
     private final UserRoleDao userRoleDao;
 
     private final ChangeLogService changeLogService;
 
     private final PersonService personService;
 
+    /**
+     * Roles are checked on almost every request, they are held for a short while
+     * to avoid repeatedly querying the database.  Zero disables the cache.
+     */
+    @Value("${waltz.cache.user-roles.ttl-seconds:30}")
+    private int rolesTtlSeconds;
+
+    private final Map<String, CachedRoles> rolesByUserName = new ConcurrentHashMap<>();
+
 
     @Autowired
     public UserRoleService(UserRoleDao userRoleDao,
@@ -83,7 +107,7 @@ public class UserRoleService {
 
 
     public boolean hasRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return userRoles.containsAll(requiredRoles);
     }
 
@@ -98,7 +122,7 @@ public class UserRoleService {
     }
 
     public boolean hasAnyRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return ! SetUtilities.intersection(userRoles, requiredRoles)
                     .isEmpty();
     }
@@ -112,7 +136,7 @@ public class UserRoleService {
     public User getByUserId(String userId) {
         return ImmutableUser.builder()
                 .userName(userId)
-                .addAllRoles(userRoleDao.getUserRoles(userId))
+                .addAllRoles(getUserRoles(userId))
                 .build();
     }
 
@@ -139,12 +163,37 @@ public class UserRoleService {
             changeLogService.write(logEntry);
         }
 
-        return userRoleDao.updateRoles(targetUserName, newRoles);
+        try {
+            return userRoleDao.updateRoles(targetUserName, newRoles);
+        } finally {
+            invalidate(targetUserName);
+        }
     }
 
 
     public Set<String> getUserRoles(String userName) {
-        return userRoleDao.getUserRoles(userName);
+        if (rolesTtlSeconds <= 0 || userName == null) {
+            return userRoleDao.getUserRoles(userName);
+        }
+
+        long now = System.nanoTime();
+        CachedRoles cached = rolesByUserName.get(userName);
+        if (cached == null || now - cached.loadedAtNanos >= TimeUnit.SECONDS.toNanos(rolesTtlSeconds)) {
+            cached = new CachedRoles(
+                    Collections.unmodifiableSet(userRoleDao.getUserRoles(userName)),
+                    now);
+            rolesByUserName.put(userName, cached);
+        }
+        return cached.roles;
+    }
+
+
+    /**
+     * Discards any cached roles for the user, must be called whenever
+     * their roles are modified
+     */
+    public void invalidate(String userName) {
+        rolesByUserName.remove(userName);
     }
 
 }
@@ -0,0 +1,170 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.authoritative_source;
+
+import com.khartec.waltz.common.hierarchy.HierarchyIndex;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.DecoratorRatingCandidate;
+import com.khartec.waltz.model.authoritativesource.ImmutableAuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.ImmutableDecoratorRatingCandidate;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.rating.AuthoritativenessRating.*;
+import static org.junit.Assert.assertEquals;
+
+
+public class AuthSourceRatingDeltaCalculatorTest {
+
+    private static final long ROOT_OU = 1;
+    private static final long CHILD_OU = 2;
+    private static final long OTHER_OU = 3;
+
+    private static final long ROOT_DT = 10;
+    private static final long CHILD_DT = 11;
+
+    private static final long AUTH_APP = 100;
+    private static final long CHILD_AUTH_APP = 101;
+    private static final long OTHER_APP = 200;
+
+    /**
+     * Org units: 1 -> 2, 3.  Data types: 10 -> 11
+     */
+    private static final HierarchyIndex ORG_UNITS = HierarchyIndex.builder()
+            .add(ROOT_OU, ROOT_OU)
+            .add(CHILD_OU, CHILD_OU)
+            .add(CHILD_OU, ROOT_OU)
+            .add(OTHER_OU, OTHER_OU)
+            .build();
+
+    private static final HierarchyIndex DATA_TYPES = HierarchyIndex.builder()
+            .add(ROOT_DT, ROOT_DT)
+            .add(CHILD_DT, CHILD_DT)
+            .add(CHILD_DT, ROOT_DT)
+            .build();
+
+
+    private static AuthoritativeRatingVantagePoint mkVantagePoint(long orgUnitId,
+                                                                  int orgUnitRank,
+                                                                  long dataTypeId,
+                                                                  int dataTypeRank,
+                                                                  long appId,
+                                                                  AuthoritativenessRating rating) {
+        return ImmutableAuthoritativeRatingVantagePoint.builder()
+                .vantagePoint(EntityReference.mkRef(EntityKind.ORG_UNIT, orgUnitId))
+                .vantagePointRank(orgUnitRank)
+                .dataType(EntityReference.mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .dataTypeCode("DT_" + dataTypeId)
+                .dataTypeRank(dataTypeRank)
+                .applicationId(appId)
+                .rating(rating)
+                .build();
+    }
+
+
+    private static DecoratorRatingCandidate mkCandidate(long decoratorId,
+                                                        AuthoritativenessRating currentRating,
+                                                        Long sourceAppId,
+                                                        Long targetOrgUnitId,
+                                                        Long dataTypeId) {
+        return ImmutableDecoratorRatingCandidate.builder()
+                .decoratorId(decoratorId)
+                .rating(currentRating)
+                .sourceApplicationId(Optional.ofNullable(sourceAppId))
+                .targetOrgUnitId(Optional.ofNullable(targetOrgUnitId))
+                .dataTypeId(Optional.ofNullable(dataTypeId))
+                .build();
+    }
+
+
+    /**
+     * Most specific first, as given by the dao
+     */
+    private static AuthSourceRatingDeltaCalculator mkCalculator() {
+        List<AuthoritativeRatingVantagePoint> vantagePoints = newArrayList(
+                mkVantagePoint(CHILD_OU, 2, ROOT_DT, 1, CHILD_AUTH_APP, SECONDARY),
+                mkVantagePoint(ROOT_OU, 1, ROOT_DT, 1, AUTH_APP, PRIMARY));
+        return new AuthSourceRatingDeltaCalculator(vantagePoints, ORG_UNITS, DATA_TYPES);
+    }
+
+
+    @Test
+    public void sourceMatchingAuthAppGetsItsRating() {
+        AuthSourceRatingDeltaCalculator calculator = mkCalculator();
+        assertEquals(PRIMARY, calculator.calculate(mkCandidate(1, NO_OPINION, AUTH_APP, ROOT_OU, CHILD_DT)));
+        assertEquals(SECONDARY, calculator.calculate(mkCandidate(2, NO_OPINION, CHILD_AUTH_APP, CHILD_OU, CHILD_DT)));
+    }
+
+
+    @Test
+    public void lessSpecificVantagePointsStillApplyIfMoreSpecificOnesDiscourage() {
+        AuthSourceRatingDeltaCalculator calculator = mkCalculator();
+        assertEquals(PRIMARY, calculator.calculate(mkCandidate(1, NO_OPINION, AUTH_APP, CHILD_OU, ROOT_DT)));
+    }
+
+
+    @Test
+    public void nonAuthSourcesAreDiscouraged() {
+        AuthSourceRatingDeltaCalculator calculator = mkCalculator();
+        assertEquals(DISCOURAGED, calculator.calculate(mkCandidate(1, NO_OPINION, OTHER_APP, CHILD_OU, CHILD_DT)));
+    }
+
+
+    @Test
+    public void uncoveredOrIncompleteCandidatesHaveNoOpinion() {
+        AuthSourceRatingDeltaCalculator calculator = mkCalculator();
+        assertEquals(NO_OPINION, calculator.calculate(mkCandidate(1, PRIMARY, AUTH_APP, OTHER_OU, ROOT_DT)));
+        assertEquals(NO_OPINION, calculator.calculate(mkCandidate(2, PRIMARY, null, ROOT_OU, ROOT_DT)));
+        assertEquals(NO_OPINION, calculator.calculate(mkCandidate(3, PRIMARY, AUTH_APP, null, ROOT_DT)));
+        assertEquals(NO_OPINION, calculator.calculate(mkCandidate(4, PRIMARY, AUTH_APP, ROOT_OU, null)));
+    }
+
+
+    @Test
+    public void onlyChangedRatingsAreReturned() {
+        Map<Long, AuthoritativenessRating> changes = mkCalculator().calculateChanges(newArrayList(
+                mkCandidate(1, PRIMARY, AUTH_APP, ROOT_OU, ROOT_DT),
+                mkCandidate(2, NO_OPINION, OTHER_APP, ROOT_OU, ROOT_DT),
+                mkCandidate(3, DISCOURAGED, AUTH_APP, OTHER_OU, ROOT_DT),
+                mkCandidate(4, NO_OPINION, OTHER_APP, OTHER_OU, ROOT_DT)));
+
+        assertEquals(2, changes.size());
+        assertEquals(DISCOURAGED, changes.get(2L));
+        assertEquals(NO_OPINION, changes.get(3L));
+    }
+
+
+    @Test
+    public void noVantagePointsMeansNoOpinion() {
+        AuthSourceRatingDeltaCalculator calculator = new AuthSourceRatingDeltaCalculator(
+                Collections.emptyList(),
+                ORG_UNITS,
+                DATA_TYPES);
+        assertEquals(NO_OPINION, calculator.calculate(mkCandidate(1, NO_OPINION, AUTH_APP, ROOT_OU, ROOT_DT)));
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.changelog;
+
+import com.khartec.waltz.data.changelog.ChangeLogDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.Operation;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import com.khartec.waltz.model.changelog.ImmutableChangeLog;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static org.junit.Assert.*;
+
+public class ChangeLogWriterTest {
+
+    private static class RecordingDao extends ChangeLogDao {
+
+        private final List<ChangeLog> written = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        private final Set<Thread> writingThreads = Collections.synchronizedSet(new HashSet<>());
+        private final CountDownLatch release;
+
+        private RecordingDao(CountDownLatch release) {
+            super(DSL.using(SQLDialect.DEFAULT));
+            this.release = release;
+        }
+
+        @Override
+        public int write(ChangeLog changeLog) {
+            writingThreads.add(Thread.currentThread());
+            written.add(changeLog);
+            return 1;
+        }
+
+        @Override
+        public int[] write(Collection<ChangeLog> changeLogs) {
+            if (Thread.currentThread().getName().startsWith("WaltzChangeLogWriter")) {
+                // only hold up the background writer
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            writingThreads.add(Thread.currentThread());
+            batchSizes.add(changeLogs.size());
+            written.addAll(changeLogs);
+            return new int[] { changeLogs.size() };
+        }
+    }
+
+
+    @Test
+    public void synchronousWriterWritesDirectly() {
+        RecordingDao dao = new RecordingDao(new CountDownLatch(0));
+        ChangeLogWriter writer = new ChangeLogWriter(dao, false, 10, 10, 0, 0);
+
+        writer.write(mkChangeLog(1));
+        writer.write(Arrays.asList(mkChangeLog(2), mkChangeLog(3)));
+
+        assertEquals(3, dao.written.size());
+        assertEquals(asSet(Thread.currentThread()), dao.writingThreads);
+        assertEquals(0, writer.getQueueDepth());
+        assertFalse(writer.isAsync());
+    }
+
+
+    @Test
+    public void asyncWriterBatchesQueuedEntries() {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingDao dao = new RecordingDao(release);
+        ChangeLogWriter writer = new ChangeLogWriter(dao, true, 100, 10, 0, 10_000);
+
+        // first entry is picked up alone and blocks the writer thread
+        writer.write(mkChangeLog(0));
+        for (int i = 1; i <= 25; i++) {
+            assertEquals(1, writer.write(mkChangeLog(i)));
+        }
+
+        release.countDown();
+        writer.shutdown();
+
+        assertEquals(26, dao.written.size());
+        assertEquals(26, writer.getWrittenCount());
+        assertEquals(0, writer.getCallerWritesCount());
+        assertFalse("caller should not have written", dao.writingThreads.contains(Thread.currentThread()));
+        dao.batchSizes.forEach(size -> assertTrue("batch too large: " + size, size <= 10));
+        assertTrue("expected entries to be batched", dao.batchSizes.size() < 26);
+    }
+
+
+    @Test
+    public void callerWritesWhenQueueIsFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingDao dao = new RecordingDao(release);
+        ChangeLogWriter writer = new ChangeLogWriter(dao, true, 2, 10, 0, 10_000);
+
+        List<ChangeLog> changeLogs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            changeLogs.add(mkChangeLog(i));
+        }
+
+        // the writer thread holds at most one batch (blocked) and the queue two more
+        writer.write(changeLogs);
+
+        assertTrue("expected the caller to write entries", writer.getCallerWritesCount() >= 5);
+        assertTrue(dao.writingThreads.contains(Thread.currentThread()));
+
+        release.countDown();
+        writer.shutdown();
+
+        assertEquals(10, dao.written.size());
+        assertEquals(new HashSet<>(changeLogs), new HashSet<>(dao.written));
+    }
+
+
+    @Test
+    public void writesAfterShutdownAreSynchronous() {
+        RecordingDao dao = new RecordingDao(new CountDownLatch(0));
+        ChangeLogWriter writer = new ChangeLogWriter(dao, true, 10, 10, 0, 10_000);
+        writer.shutdown();
+
+        writer.write(mkChangeLog(1));
+
+        assertEquals(1, dao.written.size());
+        assertTrue(dao.writingThreads.contains(Thread.currentThread()));
+    }
+
+
+    // -- helpers
+
+    private static ChangeLog mkChangeLog(long id) {
+        return ImmutableChangeLog.builder()
+                .parentReference(mkRef(EntityKind.APPLICATION, id))
+                .message("test " + id)
+                .userId("test")
+                .operation(Operation.UPDATE)
+                .build();
+    }
+
+
+    private static <T> Set<T> asSet(T t) {
+        return Collections.singleton(t);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_search;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.ImmutableEntityReference;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.EntityKind.APPLICATION;
+import static com.khartec.waltz.model.EntityKind.MEASURABLE;
+import static com.khartec.waltz.model.EntityLifecycleStatus.ACTIVE;
+import static com.khartec.waltz.model.EntityLifecycleStatus.REMOVED;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class EntitySearchIndexTest {
+
+    private static final List<EntityKind> ALL_KINDS = newArrayList(APPLICATION, MEASURABLE);
+    private static final List<EntityLifecycleStatus> ACTIVE_ONLY = newArrayList(ACTIVE);
+
+
+    private static EntitySearchIndex.Entry mkEntry(EntityKind kind,
+                                                   long id,
+                                                   String name,
+                                                   EntityLifecycleStatus status,
+                                                   List<String> codes,
+                                                   List<String> aliases) {
+        EntityReference ref = ImmutableEntityReference.builder()
+                .kind(kind)
+                .id(id)
+                .name(name)
+                .entityLifecycleStatus(status)
+                .build();
+        return new EntitySearchIndex.Entry(ref, codes, aliases);
+    }
+
+
+    private static EntitySearchIndex mkIndex() {
+        return EntitySearchIndex.build(newArrayList(
+                mkEntry(APPLICATION, 1, "Trade Booking", ACTIVE, newArrayList("12345-1"), emptyList()),
+                mkEntry(APPLICATION, 2, "Booking Engine", ACTIVE, newArrayList("54321-1"), newArrayList("BKE")),
+                mkEntry(APPLICATION, 3, "Old Booking", REMOVED, emptyList(), emptyList()),
+                mkEntry(MEASURABLE, 4, "Trade Capture", ACTIVE, newArrayList("CAP-01"), emptyList())));
+    }
+
+
+    private static List<Long> ids(Map<EntityKind, List<EntityReference>> results, EntityKind kind) {
+        return results
+                .getOrDefault(kind, emptyList())
+                .stream()
+                .map(EntityReference::id)
+                .collect(toList());
+    }
+
+
+    @Test
+    public void matchesNamesCaseInsensitivelyAndRanksByPosition() {
+        Map<EntityKind, List<EntityReference>> results = mkIndex()
+                .search(ALL_KINDS, newArrayList("BOOKING"), ACTIVE_ONLY, 10);
+
+        assertEquals(newArrayList(2L, 1L), ids(results, APPLICATION));
+        assertTrue(ids(results, MEASURABLE).isEmpty());
+    }
+
+
+    @Test
+    public void allTermsMustMatch() {
+        Map<EntityKind, List<EntityReference>> results = mkIndex()
+                .search(ALL_KINDS, newArrayList("trade", "cap"), ACTIVE_ONLY, 10);
+
+        assertTrue(ids(results, APPLICATION).isEmpty());
+        assertEquals(newArrayList(4L), ids(results, MEASURABLE));
+    }
+
+
+    @Test
+    public void codesAndAliasesAreSearchedAndCodesRankFirst() {
+        EntitySearchIndex index = mkIndex();
+
+        assertEquals(
+                newArrayList(2L),
+                ids(index.search(ALL_KINDS, newArrayList("bke"), ACTIVE_ONLY, 10), APPLICATION));
+
+        EntitySearchIndex withCodeMatch = index.withChanges(
+                newArrayList(mkEntry(APPLICATION, 5, "Zebra", ACTIVE, newArrayList("Book-7"), emptyList())),
+                emptyList());
+
+        assertEquals(
+                newArrayList(5L, 2L, 1L),
+                ids(withCodeMatch.search(ALL_KINDS, newArrayList("book"), ACTIVE_ONLY, 10), APPLICATION));
+    }
+
+
+    @Test
+    public void lifecycleStatusesKindsAndLimitAreRespected() {
+        EntitySearchIndex index = mkIndex();
+
+        assertEquals(
+                newArrayList(2L, 3L, 1L),
+                ids(index.search(ALL_KINDS, newArrayList("booking"), newArrayList(ACTIVE, REMOVED), 10), APPLICATION));
+
+        assertEquals(
+                newArrayList(2L),
+                ids(index.search(ALL_KINDS, newArrayList("booking"), ACTIVE_ONLY, 1), APPLICATION));
+
+        assertTrue(index.search(newArrayList(MEASURABLE), newArrayList("booking"), ACTIVE_ONLY, 10).isEmpty());
+    }
+
+
+    @Test
+    public void changesReplaceAndRemoveEntries() {
+        EntitySearchIndex index = mkIndex().withChanges(
+                newArrayList(mkEntry(APPLICATION, 1, "Trade Settlement", ACTIVE, emptyList(), emptyList())),
+                newArrayList(EntityReference.mkRef(APPLICATION, 2)));
+
+        assertTrue(ids(index.search(ALL_KINDS, newArrayList("booking"), ACTIVE_ONLY, 10), APPLICATION).isEmpty());
+        assertEquals(
+                newArrayList(1L),
+                ids(index.search(ALL_KINDS, newArrayList("settle"), ACTIVE_ONLY, 10), APPLICATION));
+        assertEquals(3, index.size());
+    }
+
+
+    @Test
+    public void largeOverlaysAreCompacted() {
+        EntitySearchIndex index = mkIndex();
+        for (int i = 0; i <= EntitySearchIndex.MAX_OVERLAY_SIZE; i++) {
+            index = index.withChanges(
+                    newArrayList(mkEntry(MEASURABLE, 100 + i, "Generated " + i, ACTIVE, emptyList(), emptyList())),
+                    Collections.emptyList());
+        }
+
+        assertEquals(4 + EntitySearchIndex.MAX_OVERLAY_SIZE + 1, index.size());
+        assertTrue(ids(index.search(ALL_KINDS, newArrayList("generated 142"), ACTIVE_ONLY, 10), MEASURABLE).contains(242L));
+    }
+
+
+    @Test
+    public void shortTermsAreMatchedWithoutGrams() {
+        Map<EntityKind, List<EntityReference>> results = mkIndex()
+                .search(ALL_KINDS, newArrayList("tr", "ca"), ACTIVE_ONLY, 10);
+
+        assertEquals(newArrayList(4L), ids(results, MEASURABLE));
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_search;
+
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.WaltzEntity;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.EntityKind.APPLICATION;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+
+public class EntitySearchServiceTest {
+
+    private static final EntityReference A = mkRef(APPLICATION, 1L, "Alpha");
+    private static final EntityReference B = mkRef(APPLICATION, 2L, "Beta");
+    private static final EntityReference C = mkRef(APPLICATION, 3L, "Gamma");
+
+
+    private static List<WaltzEntity> fromDatabase(EntityReference... refs) {
+        return newArrayList(refs)
+                .stream()
+                .map(ref -> (WaltzEntity) () -> ref)
+                .collect(toList());
+    }
+
+
+    @Test
+    public void databaseResultsAreUsedWhenNothingIsIndexed() {
+        assertEquals(
+                newArrayList(B, A),
+                EntitySearchService.mergeResults(emptyList(), fromDatabase(B, A), 10));
+    }
+
+
+    @Test
+    public void indexHitsComeFirstFollowedByFurtherDatabaseMatches() {
+        // C only matches on its description, so is only found by the database
+        assertEquals(
+                newArrayList(B, A, C),
+                EntitySearchService.mergeResults(newArrayList(B, A), fromDatabase(A, C, B), 10));
+    }
+
+
+    @Test
+    public void mergedResultsAreLimited() {
+        assertEquals(
+                newArrayList(B, A),
+                EntitySearchService.mergeResults(newArrayList(B), fromDatabase(A, C), 2));
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.extract_job;
+
+import com.khartec.waltz.model.extract_job.ExtractJob;
+import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.jooq.lambda.tuple.Tuple2;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.jooq.lambda.tuple.Tuple.tuple;
+import static org.junit.Assert.*;
+
+public class ExtractJobRunnerTest {
+
+    private Path directory;
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private ExtractArtifactCache cache;
+    private ExtractJobRunner runner;
+
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("extract-job-runner-test");
+        cache = new ExtractArtifactCache(directory, 60_000, now::get);
+        runner = new ExtractJobRunner(cache, 1, 1);
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        runner.shutdown();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(f -> f.toFile().delete());
+        }
+        Files.deleteIfExists(directory);
+    }
+
+
+    @Test
+    public void completedExtractCanBeDownloaded() throws Exception {
+        ExtractJob job = runner.submit("bob", "test", "CSV", "k1", () -> tuple("report", "a,b".getBytes()));
+
+        ExtractJob completed = awaitCompletion(job.id(), "bob");
+        assertEquals(JobLifecycleStatus.COMPLETED, completed.status());
+        assertEquals("report", completed.name().orElse(null));
+        assertFalse(completed.fromCache());
+
+        ExtractArtifact artifact = runner.findArtifact(job.id(), "bob").orElseThrow(AssertionError::new);
+        assertEquals("a,b", new String(Files.readAllBytes(artifact.path())));
+        assertFalse("other users cannot see the job", runner.findArtifact(job.id(), "alice").isPresent());
+    }
+
+
+    @Test
+    public void identicalInFlightExtractsShareWork() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Callable<Tuple2<String, byte[]>> work = () -> {
+            calls.incrementAndGet();
+            release.await(10, TimeUnit.SECONDS);
+            return tuple("report", new byte[] { 1, 2, 3 });
+        };
+
+        ExtractJob first = runner.submit("bob", "test", "CSV", "k1", work);
+        ExtractJob second = runner.submit("alice", "test", "CSV", "k1", work);
+        release.countDown();
+
+        assertEquals(JobLifecycleStatus.COMPLETED, awaitCompletion(first.id(), "bob").status());
+        assertEquals(JobLifecycleStatus.COMPLETED, awaitCompletion(second.id(), "alice").status());
+        assertEquals(1, calls.get());
+        assertEquals(1, runner.getSharedCount());
+    }
+
+
+    @Test
+    public void cachedExtractsAreNotPreparedAgainUntilExpired() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Callable<Tuple2<String, byte[]>> work = () -> tuple("report-" + calls.incrementAndGet(), new byte[0]);
+
+        awaitCompletion(runner.submit("bob", "test", "CSV", "k1", work).id(), "bob");
+
+        ExtractJob cached = runner.submit("bob", "test", "CSV", "k1", work);
+        assertEquals(JobLifecycleStatus.COMPLETED, cached.status());
+        assertTrue(cached.fromCache());
+        assertEquals("report-1", cached.name().orElse(null));
+
+        now.addAndGet(60_000);
+        assertEquals(1, runner.evictExpired());
+
+        ExtractJob rebuilt = awaitCompletion(runner.submit("bob", "test", "CSV", "k1", work).id(), "bob");
+        assertFalse(rebuilt.fromCache());
+        assertEquals("report-2", rebuilt.name().orElse(null));
+    }
+
+
+    @Test
+    public void failuresAreReportedOnTheJob() throws Exception {
+        ExtractJob job = runner.submit("bob", "test", "CSV", "k1", () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        ExtractJob failed = awaitCompletion(job.id(), "bob");
+        assertEquals(JobLifecycleStatus.ERRORED, failed.status());
+        assertEquals("boom", failed.error().orElse(null));
+        assertFalse(runner.findArtifact(job.id(), "bob").isPresent());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+
+    @Test
+    public void submissionsAreRejectedWhenTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        runner.submit("bob", "test", "CSV", "running", () -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return tuple("report", new byte[0]);
+        });
+        started.await(10, TimeUnit.SECONDS);
+
+        runner.submit("bob", "test", "CSV", "queued", () -> tuple("report", new byte[0]));
+        ExtractJob rejected = runner.submit("bob", "test", "CSV", "rejected", () -> tuple("report", new byte[0]));
+        release.countDown();
+
+        assertEquals(JobLifecycleStatus.ERRORED, rejected.status());
+        assertEquals(1, runner.getRejectedCount());
+    }
+
+
+    @Test
+    public void shutdownMarksExtractsWhichHadNotStartedAsErrored() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExtractJob running = runner.submit("bob", "test", "CSV", "running", () -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return tuple("report", new byte[0]);
+        });
+        started.await(10, TimeUnit.SECONDS);
+
+        AtomicInteger queuedCalls = new AtomicInteger();
+        ExtractJob queued = runner.submit("bob", "test", "CSV", "queued", () -> {
+            queuedCalls.incrementAndGet();
+            return tuple("report", new byte[0]);
+        });
+
+        runner.shutdown();
+        release.countDown();
+
+        ExtractJob abandoned = runner.getJob(queued.id(), "bob").orElseThrow(AssertionError::new);
+        assertEquals(JobLifecycleStatus.ERRORED, abandoned.status());
+        assertTrue(abandoned.completedAt().isPresent());
+        assertEquals(JobLifecycleStatus.ERRORED, runner.submit("bob", "test", "CSV", "later", () -> tuple("report", new byte[0])).status());
+
+        awaitCompletion(running.id(), "bob");
+        assertEquals("queued extracts never run", 0, queuedCalls.get());
+    }
+
+
+    @Test
+    public void keysAreSafeFileNames() {
+        String key = ExtractArtifactCache.mkKey("grid/1?format=XLSX\n{}");
+        assertTrue(key.matches("[0-9a-f]{64}"));
+        assertEquals(key, ExtractArtifactCache.mkKey("grid/1?format=XLSX\n{}"));
+        assertNotEquals(key, ExtractArtifactCache.mkKey("grid/2?format=XLSX\n{}"));
+    }
+
+
+    // -- helpers
+
+    private ExtractJob awaitCompletion(String jobId, String username) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            ExtractJob job = runner.getJob(jobId, username).orElseThrow(AssertionError::new);
+            if (job.status() == JobLifecycleStatus.COMPLETED || job.status() == JobLifecycleStatus.ERRORED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Job did not complete: " + jobId);
+    }
+
+}
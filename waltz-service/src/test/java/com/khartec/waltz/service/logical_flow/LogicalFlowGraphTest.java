@@ -0,0 +1,133 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.logical_flow;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlowEdge;
+import com.khartec.waltz.model.logical_flow.LogicalFlowEdge;
+import com.khartec.waltz.model.logical_flow.LogicalFlowStatistics;
+import com.khartec.waltz.model.tally.TallyPack;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+public class LogicalFlowGraphTest {
+
+    private static final EntityReference APP_1 = mkRef(EntityKind.APPLICATION, 1);
+    private static final EntityReference APP_2 = mkRef(EntityKind.APPLICATION, 2);
+    private static final EntityReference APP_3 = mkRef(EntityKind.APPLICATION, 3);
+    private static final EntityReference APP_4 = mkRef(EntityKind.APPLICATION, 4);
+    private static final EntityReference ACTOR_1 = mkRef(EntityKind.ACTOR, 1);
+
+
+    private static LogicalFlowEdge mkEdge(long flowId, EntityReference source, EntityReference target, Long... dataTypeIds) {
+        return ImmutableLogicalFlowEdge
+                .builder()
+                .flowId(flowId)
+                .source(source)
+                .target(target)
+                .addDataTypeIds(dataTypeIds)
+                .build();
+    }
+
+
+    /**
+     * <pre>
+     *     ACTOR_1 -(10)-> APP_1 -(11)-> APP_2 -(12)-> APP_3 -(13)-> APP_4
+     *                       ^                           |
+     *                       +-----------(14)------------+
+     * </pre>
+     */
+    private static LogicalFlowGraph mkGraph() {
+        return LogicalFlowGraph.build(newArrayList(
+                mkEdge(10, ACTOR_1, APP_1, 100L),
+                mkEdge(11, APP_1, APP_2, 100L, 200L),
+                mkEdge(12, APP_2, APP_3, 200L),
+                mkEdge(13, APP_3, APP_4),
+                mkEdge(14, APP_3, APP_1, 100L)));
+    }
+
+
+    @Test
+    public void traversalIsLimitedByHops() {
+        LogicalFlowGraph graph = mkGraph();
+        assertEquals(asSet(12L), graph.findUpstreamFlowIds(newArrayList(APP_3), 1));
+        assertEquals(asSet(10L, 11L, 12L, 14L), graph.findUpstreamFlowIds(newArrayList(APP_3), 3));
+        assertEquals(asSet(11L), graph.findDownstreamFlowIds(newArrayList(APP_1), 1));
+        assertEquals(asSet(11L, 12L, 13L, 14L), graph.findDownstreamFlowIds(newArrayList(APP_1), 10));
+        assertTrue(graph.findDownstreamFlowIds(newArrayList(mkRef(EntityKind.APPLICATION, 99)), 10).isEmpty());
+    }
+
+
+    @Test
+    public void reachability() {
+        LogicalFlowGraph graph = mkGraph();
+        assertTrue(graph.isReachable(ACTOR_1, APP_4, 4));
+        assertFalse(graph.isReachable(ACTOR_1, APP_4, 3));
+        assertFalse(graph.isReachable(APP_4, APP_1, 10));
+        assertTrue(graph.isReachable(APP_1, APP_1, 3));
+    }
+
+
+    @Test
+    public void replacingNodesSwapsTheirFlows() {
+        LogicalFlowGraph graph = mkGraph()
+                .withReplacedNodes(
+                        newArrayList(APP_4),
+                        emptyList())
+                .withReplacedNodes(
+                        newArrayList(APP_2),
+                        newArrayList(mkEdge(11, APP_1, APP_2, 300L), mkEdge(15, APP_2, APP_4)));
+
+        assertEquals(4, graph.getFlowCount());
+        assertEquals(asSet(11L, 14L, 15L, 10L), graph.findUpstreamFlowIds(newArrayList(APP_4), 5));
+        assertFalse(graph.findUpstreamFlowIds(newArrayList(APP_3), 1).contains(12L));
+    }
+
+
+    @Test
+    public void statsOnlyConsiderFlowsBetweenApplications() {
+        LogicalFlowStatistics stats = mkGraph().calculateStats(asSet(1L, 2L));
+
+        assertEquals(1, stats.appCounts().inbound(), 0);
+        assertEquals(1, stats.appCounts().outbound(), 0);
+        assertEquals(2, stats.appCounts().intra(), 0);
+
+        assertEquals(1, stats.flowCounts().inbound(), 0);
+        assertEquals(1, stats.flowCounts().outbound(), 0);
+        assertEquals(1, stats.flowCounts().intra(), 0);
+
+        List<TallyPack<String>> dataTypeCounts = stats.dataTypeCounts();
+        assertEquals(2, dataTypeCounts.size());
+        TallyPack<String> dt100 = dataTypeCounts
+                .stream()
+                .filter(p -> p.entityReference().id() == 100L)
+                .findFirst()
+                .get();
+        assertEquals(2, dt100.tallies().size());
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.reference_data;
+
+import com.khartec.waltz.model.EnumValue;
+import com.khartec.waltz.model.ImmutableEnumValue;
+import com.khartec.waltz.model.datatype.DataType;
+import com.khartec.waltz.model.datatype.ImmutableDataType;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static org.junit.Assert.*;
+
+public class ReferenceDataSnapshotTest {
+
+    private static final DataType BOOK = mkDataType(1L, "BOOK", "Book");
+    private static final DataType TRADE = mkDataType(2L, "TRADE", "Trade");
+
+
+    @Test
+    public void dataTypesCanBeFoundByIdAndCode() {
+        ReferenceDataSnapshot snapshot = mkSnapshot(newArrayList(BOOK, TRADE), Collections.emptyList());
+
+        assertEquals(2, snapshot.dataTypes().size());
+        assertEquals(TRADE, snapshot.findDataTypeById(2L).get());
+        assertEquals(BOOK, snapshot.findDataTypeByCode("BOOK").get());
+        assertFalse(snapshot.findDataTypeById(3L).isPresent());
+        assertFalse(snapshot.findDataTypeByCode("book").isPresent());
+    }
+
+
+    @Test
+    public void enumValuesAreIndexedByTypeAndKey() {
+        EnumValue daily = mkEnumValue("Frequency", "DAILY");
+        EnumValue monthly = mkEnumValue("Frequency", "MONTHLY");
+        EnumValue fileTransport = mkEnumValue("TransportKind", "FILE");
+        ReferenceDataSnapshot snapshot = mkSnapshot(
+                Collections.emptyList(),
+                newArrayList(daily, monthly, fileTransport));
+
+        assertEquals(monthly, snapshot.findEnumValue("Frequency", "MONTHLY").get());
+        assertEquals(fileTransport, snapshot.findEnumValue("TransportKind", "FILE").get());
+        assertFalse(snapshot.findEnumValue("Frequency", "FILE").isPresent());
+    }
+
+
+    @Test
+    public void snapshotIsNotAffectedByChangesToTheSourceCollections() {
+        List<DataType> dataTypes = newArrayList(BOOK);
+        ReferenceDataSnapshot snapshot = mkSnapshot(dataTypes, Collections.emptyList());
+
+        dataTypes.add(TRADE);
+
+        assertEquals(1, snapshot.dataTypes().size());
+        assertFalse(snapshot.findDataTypeById(2L).isPresent());
+    }
+
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotCollectionsCannotBeModified() {
+        mkSnapshot(newArrayList(BOOK), Collections.emptyList())
+                .dataTypes()
+                .add(TRADE);
+    }
+
+
+    @Test
+    public void versionIsRetained() {
+        ReferenceDataSnapshot snapshot = new ReferenceDataSnapshot(
+                42,
+                LocalDateTime.now(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList());
+
+        assertEquals(42, snapshot.version());
+        assertTrue(snapshot.measurables().isEmpty());
+    }
+
+
+    // -- HELPERS ---
+
+    private static ReferenceDataSnapshot mkSnapshot(List<DataType> dataTypes,
+                                                    List<EnumValue> enumValues) {
+        return new ReferenceDataSnapshot(
+                1,
+                LocalDateTime.now(),
+                Collections.emptyList(),
+                dataTypes,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                enumValues,
+                Collections.emptyList());
+    }
+
+
+    private static DataType mkDataType(long id, String code, String name) {
+        return ImmutableDataType.builder()
+                .id(id)
+                .code(code)
+                .name(name)
+                .build();
+    }
+
+
+    private static EnumValue mkEnumValue(String type, String key) {
+        return ImmutableEnumValue.builder()
+                .type(type)
+                .key(key)
+                .name(key)
+                .icon("circle")
+                .iconColor("#ccc")
+                .position(0)
+                .build();
+    }
+
+}
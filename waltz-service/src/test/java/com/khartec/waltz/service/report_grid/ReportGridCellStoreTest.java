@@ -0,0 +1,145 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.report_grid;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.report_grid.ImmutableReportGridCell;
+import com.khartec.waltz.model.report_grid.ImmutableReportGridDefinition;
+import com.khartec.waltz.model.report_grid.ReportGridCell;
+import com.khartec.waltz.model.report_grid.ReportGridDefinition;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static org.junit.Assert.assertEquals;
+
+public class ReportGridCellStoreTest {
+
+    private static final ReportGridDefinition DEFINITION = ImmutableReportGridDefinition
+            .builder()
+            .id(1L)
+            .name("test")
+            .description("test grid")
+            .provenance("test")
+            .lastUpdatedAt(LocalDateTime.now())
+            .lastUpdatedBy("test")
+            .build();
+
+
+    private static ReportGridCell mkRatingCell(long appId, long measurableId, long ratingId) {
+        return ImmutableReportGridCell
+                .builder()
+                .applicationId(appId)
+                .columnEntityKind(EntityKind.MEASURABLE)
+                .columnEntityId(measurableId)
+                .ratingId(ratingId)
+                .build();
+    }
+
+
+    private static ReportGridCell mkCostCell(long appId, long costKindId, int amount) {
+        return ImmutableReportGridCell
+                .builder()
+                .applicationId(appId)
+                .columnEntityKind(EntityKind.COST_KIND)
+                .columnEntityId(costKindId)
+                .value(BigDecimal.valueOf(amount))
+                .build();
+    }
+
+
+    @Test
+    public void findsCellsForSelectedApplicationsOnly() {
+        ReportGridCell a = mkRatingCell(1, 10, 100);
+        ReportGridCell b = mkRatingCell(2, 10, 101);
+        ReportGridCell c = mkRatingCell(3, 10, 100);
+
+        ReportGridCellStore store = ReportGridCellStore.build(DEFINITION, asSet(a, b, c), emptyMap());
+
+        assertEquals(asSet(a, c), store.findCells(newArrayList(1L, 3L, 99L)));
+        assertEquals(emptySet(), store.findCells(newArrayList(99L)));
+        assertEquals(3, store.getApplicationCount());
+    }
+
+
+    @Test
+    public void costsAreOnlyGivenForTheLatestYearOfTheSelectedApplications() {
+        ReportGridCell app1Cost = mkCostCell(1, 20, 500);  // 2020
+        ReportGridCell app2Cost = mkCostCell(2, 20, 600);  // 2021
+        ReportGridCell app3Cost = mkCostCell(3, 20, 700);  // 2020
+        ReportGridCell app3OtherKindCost = mkCostCell(3, 21, 800);  // 2019
+
+        Map<ReportGridCell, Integer> costCells = new HashMap<>();
+        costCells.put(app1Cost, 2020);
+        costCells.put(app2Cost, 2021);
+        costCells.put(app3Cost, 2020);
+        costCells.put(app3OtherKindCost, 2019);
+
+        ReportGridCellStore store = ReportGridCellStore.build(DEFINITION, emptySet(), costCells);
+
+        assertEquals(
+                "2021 is the latest year for kind 20 when app 2 is selected",
+                asSet(app2Cost, app3OtherKindCost),
+                store.findCells(newArrayList(1L, 2L, 3L)));
+
+        assertEquals(
+                "without app 2 the latest year for kind 20 is 2020",
+                asSet(app1Cost, app3Cost, app3OtherKindCost),
+                store.findCells(newArrayList(1L, 3L)));
+    }
+
+
+    @Test
+    public void withApplicationsReplacesOnlyTheGivenApplications() {
+        ReportGridCell a = mkRatingCell(1, 10, 100);
+        ReportGridCell b = mkRatingCell(2, 10, 101);
+        ReportGridCell cost = mkCostCell(2, 20, 500);
+
+        Map<ReportGridCell, Integer> costCells = new HashMap<>();
+        costCells.put(cost, 2020);
+
+        ReportGridCellStore original = ReportGridCellStore.build(DEFINITION, asSet(a, b), costCells);
+
+        ReportGridCell updatedB = mkRatingCell(2, 10, 102);
+        ReportGridCell newApp = mkRatingCell(4, 10, 100);
+        ReportGridCell unrelated = mkRatingCell(1, 11, 100);
+
+        ReportGridCellStore updated = original.withApplications(
+                asSet(2L, 4L),
+                asSet(updatedB, newApp, unrelated),
+                emptyMap());
+
+        Set<ReportGridCell> all = updated.findCells(newArrayList(1L, 2L, 3L, 4L));
+        assertEquals(asSet(a, updatedB, newApp), all);
+
+        assertEquals(
+                "original store is unaffected",
+                asSet(a, b, cost),
+                original.findCells(newArrayList(1L, 2L, 3L, 4L)));
+    }
+
+}
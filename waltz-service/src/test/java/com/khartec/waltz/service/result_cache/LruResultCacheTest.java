@@ -0,0 +1,122 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.result_cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.model.EntityKind.APPLICATION;
+import static com.khartec.waltz.model.EntityKind.LOGICAL_DATA_FLOW;
+import static com.khartec.waltz.model.EntityKind.MEASURABLE;
+import static org.junit.Assert.assertEquals;
+
+
+public class LruResultCacheTest {
+
+    @Test
+    public void repeatedLookupsAreServedFromCache() {
+        LruResultCache cache = new LruResultCache(10, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a", cache.get("k", asSet(APPLICATION), () -> {
+            loads.incrementAndGet();
+            return "a";
+        }));
+        assertEquals("a", cache.get("k", asSet(APPLICATION), () -> {
+            loads.incrementAndGet();
+            return "b";
+        }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+
+    @Test
+    public void invalidationOnlyRemovesDependentEntries() {
+        LruResultCache cache = new LruResultCache(10, 0);
+        cache.get("flows", asSet(APPLICATION, LOGICAL_DATA_FLOW), () -> 1);
+        cache.get("ratings", asSet(APPLICATION, MEASURABLE), () -> 2);
+
+        cache.invalidate(LOGICAL_DATA_FLOW);
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(Integer.valueOf(2), cache.get("ratings", asSet(MEASURABLE), () -> 99));
+        assertEquals(Integer.valueOf(99), cache.get("flows", asSet(LOGICAL_DATA_FLOW), () -> 99));
+    }
+
+
+    @Test
+    public void keyInvalidationOnlyRemovesMatchingEntries() {
+        LruResultCache cache = new LruResultCache(10, 0);
+        cache.get("grid:1", asSet(APPLICATION), () -> 1);
+        cache.get("grid:2", asSet(APPLICATION), () -> 2);
+
+        cache.invalidateKeys("grid:1"::equals);
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(Integer.valueOf(2), cache.get("grid:2", asSet(APPLICATION), () -> 99));
+        assertEquals(Integer.valueOf(99), cache.get("grid:1", asSet(APPLICATION), () -> 99));
+    }
+
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        LruResultCache cache = new LruResultCache(2, 0);
+        cache.get("a", asSet(APPLICATION), () -> "a");
+        cache.get("b", asSet(APPLICATION), () -> "b");
+        cache.get("a", asSet(APPLICATION), () -> "x");  // touch 'a'
+        cache.get("c", asSet(APPLICATION), () -> "c");  // evicts 'b'
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("a", cache.get("a", asSet(APPLICATION), () -> "x"));
+        assertEquals("x", cache.get("b", asSet(APPLICATION), () -> "x"));
+    }
+
+
+    @Test
+    public void resultsLoadedDuringAnInvalidationAreNotRetained() {
+        LruResultCache cache = new LruResultCache(10, 0);
+        cache.get("k", asSet(APPLICATION), () -> {
+            cache.invalidate(MEASURABLE);
+            return "stale";
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void zeroSizeDisablesCaching() {
+        LruResultCache cache = new LruResultCache(0, 0);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("k", asSet(APPLICATION), loads::incrementAndGet);
+        cache.get("k", asSet(APPLICATION), loads::incrementAndGet);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.scheduled_job;
+
+import com.khartec.waltz.model.scheduled_job.JobKey;
+import com.khartec.waltz.model.scheduled_job.JobLifecycleStatus;
+import com.khartec.waltz.model.scheduled_job.ScheduledJobRun;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static java.util.Collections.emptyMap;
+import static org.junit.Assert.*;
+
+public class ScheduledJobRunnerTest {
+
+    private static final JobKey A = JobKey.HIERARCHY_REBUILD_DATA_TYPE;
+    private static final JobKey B = JobKey.HIERARCHY_REBUILD_ORG_UNIT;
+    private static final JobKey C = JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION;
+
+
+    private static class Recorder {
+        private final List<JobKey> order = Collections.synchronizedList(new ArrayList<>());
+        private final Map<JobKey, ScheduledJobRun> runs = new ConcurrentHashMap<>();
+        private final CountDownLatch finished;
+
+        private Recorder(int expectedRuns) {
+            finished = new CountDownLatch(expectedRuns);
+        }
+
+        private Supplier<Integer> job(JobKey jobKey, int rows) {
+            return () -> {
+                order.add(jobKey);
+                return rows;
+            };
+        }
+
+        private void record(ScheduledJobRun run) {
+            runs.put(run.jobKey(), run);
+            finished.countDown();
+        }
+
+        private void await() throws InterruptedException {
+            assertTrue("jobs did not finish", finished.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+
+    @Test
+    public void dependentJobsWaitForPrerequisites() throws InterruptedException {
+        CountDownLatch releaseA = new CountDownLatch(1);
+        CountDownLatch bRan = new CountDownLatch(1);
+        Recorder recorder = new Recorder(3);
+
+        Map<JobKey, Supplier<Integer>> jobs = new EnumMap<>(JobKey.class);
+        jobs.put(A, () -> {
+            try {
+                releaseA.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            recorder.order.add(A);
+            return 1;
+        });
+        jobs.put(B, () -> {
+            recorder.order.add(B);
+            bRan.countDown();
+            return 2;
+        });
+        jobs.put(C, recorder.job(C, 3));
+
+        Map<JobKey, Set<JobKey>> dependencies = new EnumMap<>(JobKey.class);
+        dependencies.put(C, asSet(A, B));
+
+        new ScheduledJobRunner(2).submit(jobs, dependencies, k -> true, recorder::record);
+
+        // B is independent of A so completes whilst A is blocked
+        assertTrue("B did not run", bRan.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(B), new ArrayList<>(recorder.order));
+
+        releaseA.countDown();
+        recorder.await();
+
+        assertEquals(Arrays.asList(B, A, C), recorder.order);
+        assertEquals(Optional.of(3), recorder.runs.get(C).rowCount());
+        assertEquals(JobLifecycleStatus.COMPLETED, recorder.runs.get(C).status());
+    }
+
+
+    @Test
+    public void failedPrerequisitesDoNotPreventDependentJobs() throws InterruptedException {
+        Recorder recorder = new Recorder(2);
+
+        Map<JobKey, Supplier<Integer>> jobs = new EnumMap<>(JobKey.class);
+        jobs.put(A, () -> {
+            throw new IllegalStateException("boom");
+        });
+        jobs.put(C, recorder.job(C, 3));
+
+        Map<JobKey, Set<JobKey>> dependencies = new EnumMap<>(JobKey.class);
+        dependencies.put(C, asSet(A));
+
+        new ScheduledJobRunner(1).submit(jobs, dependencies, k -> true, recorder::record);
+        recorder.await();
+
+        assertEquals(JobLifecycleStatus.ERRORED, recorder.runs.get(A).status());
+        assertEquals(Optional.of("boom"), recorder.runs.get(A).error());
+        assertEquals(JobLifecycleStatus.COMPLETED, recorder.runs.get(C).status());
+    }
+
+
+    @Test
+    public void runningJobsCanBeCancelled() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Recorder recorder = new Recorder(1);
+        ScheduledJobRunner runner = new ScheduledJobRunner(1);
+
+        Map<JobKey, Supplier<Integer>> jobs = new EnumMap<>(JobKey.class);
+        jobs.put(A, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return 1;
+        });
+
+        runner.submit(jobs, emptyMap(), k -> true, recorder::record);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(runner.findRunningJobs().containsKey(A));
+
+        assertTrue(runner.cancel(A));
+        recorder.await();
+
+        assertEquals(JobLifecycleStatus.ERRORED, recorder.runs.get(A).status());
+        assertEquals(Optional.of("Cancelled"), recorder.runs.get(A).error());
+        assertFalse(runner.cancel(A));
+    }
+
+
+    @Test
+    public void shutdownCancelsRunningJobsAndStartsNoMore() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Recorder recorder = new Recorder(1);
+        ScheduledJobRunner runner = new ScheduledJobRunner(1);
+
+        Map<JobKey, Supplier<Integer>> jobs = new EnumMap<>(JobKey.class);
+        jobs.put(A, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return 1;
+        });
+
+        runner.submit(jobs, emptyMap(), k -> true, recorder::record);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        runner.shutdown();
+        recorder.await();
+        assertEquals(Optional.of("Cancelled"), recorder.runs.get(A).error());
+
+        runner.submit(Collections.singletonMap(B, recorder.job(B, 1)), emptyMap(), k -> true, recorder::record);
+        assertFalse(recorder.runs.containsKey(B));
+        assertTrue(runner.findSubmittedJobs().isEmpty());
+    }
+
+
+    @Test
+    public void shutdownLeavesQueuedAndDependentJobsUnstarted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Recorder recorder = new Recorder(1);
+        Set<JobKey> startedJobs = ConcurrentHashMap.newKeySet();
+        ScheduledJobRunner runner = new ScheduledJobRunner(1);
+
+        Map<JobKey, Supplier<Integer>> jobs = new EnumMap<>(JobKey.class);
+        jobs.put(A, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return 1;
+        });
+        jobs.put(B, recorder.job(B, 2));  // queued behind A
+        jobs.put(C, recorder.job(C, 3));  // waits on A
+
+        Map<JobKey, Set<JobKey>> dependencies = new EnumMap<>(JobKey.class);
+        dependencies.put(C, asSet(A));
+
+        Map<JobKey, CompletableFuture<ScheduledJobRun>> futures = runner.submit(
+                jobs,
+                dependencies,
+                k -> startedJobs.add(k),
+                recorder::record);
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        runner.shutdown();
+        recorder.await();
+
+        assertEquals(JobLifecycleStatus.ERRORED, futures.get(A).get(10, TimeUnit.SECONDS).status());
+        assertNeverStarted(futures.get(B));
+        assertNeverStarted(futures.get(C));
+        assertEquals(asSet(A), startedJobs);
+        assertEquals(asSet(A), recorder.runs.keySet());
+        assertTrue(runner.findSubmittedJobs().isEmpty());
+    }
+
+
+    @Test
+    public void jobsDeclinedByTheStarterDoNotRun() throws Exception {
+        Recorder recorder = new Recorder(1);
+
+        Map<JobKey, Supplier<Integer>> jobs = new EnumMap<>(JobKey.class);
+        jobs.put(A, recorder.job(A, 1));
+        jobs.put(C, recorder.job(C, 3));
+
+        Map<JobKey, Set<JobKey>> dependencies = new EnumMap<>(JobKey.class);
+        dependencies.put(C, asSet(A));
+
+        Map<JobKey, CompletableFuture<ScheduledJobRun>> futures = new ScheduledJobRunner(1).submit(
+                jobs,
+                dependencies,
+                k -> k != A,
+                recorder::record);
+
+        recorder.await();
+
+        assertNeverStarted(futures.get(A));
+        assertEquals(JobLifecycleStatus.COMPLETED, futures.get(C).get(10, TimeUnit.SECONDS).status());
+        assertEquals(Collections.singletonList(C), recorder.order);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cyclicDependenciesAreRejected() {
+        Map<JobKey, Supplier<Integer>> jobs = new EnumMap<>(JobKey.class);
+        jobs.put(A, () -> 1);
+        jobs.put(B, () -> 1);
+
+        Map<JobKey, Set<JobKey>> dependencies = new EnumMap<>(JobKey.class);
+        dependencies.put(A, asSet(B));
+        dependencies.put(B, asSet(A));
+
+        new ScheduledJobRunner(1).submit(jobs, dependencies, k -> true, run -> {});
+    }
+
+
+    // --- helpers
+
+    private static void assertNeverStarted(CompletableFuture<ScheduledJobRun> future) throws Exception {
+        Throwable failure = future
+                .handle((run, e) -> e)
+                .get(10, TimeUnit.SECONDS);
+
+        assertNotNull("job should not have started", failure);
+        Throwable cause = failure instanceof CompletionException
+                ? failure.getCause()
+                : failure;
+        assertTrue(cause instanceof CancellationException);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_latency;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SqlFingerprintTest {
+
+    @Test
+    public void nullOrEmptySqlGivesEmptyFingerprint() {
+        assertEquals("", SqlFingerprint.of(null));
+        assertEquals("", SqlFingerprint.of("  "));
+    }
+
+
+    @Test
+    public void literalsAreReplacedWithPlaceholders() {
+        assertEquals(
+                "select * from app where name = ? and id = ?",
+                SqlFingerprint.of("select * from app where name = 'it''s' and id = 42"));
+        assertEquals(
+                "select * from cost where amount > ?",
+                SqlFingerprint.of("select * from cost where amount > 12.5"));
+    }
+
+
+    @Test
+    public void identifiersContainingDigitsAreRetained() {
+        assertEquals(
+                "select t1.id from app t1 where t1.id = ?",
+                SqlFingerprint.of("select t1.id from app t1 where t1.id = 7"));
+    }
+
+
+    @Test
+    public void inListsOfAnyLengthShareAFingerprint() {
+        String a = SqlFingerprint.of("select * from app where id in (?, ?, ?)");
+        String b = SqlFingerprint.of("select * from app where id in (?,?)");
+        String c = SqlFingerprint.of("select * from app where id in (1, 2, 3, 4)");
+
+        assertEquals("select * from app where id in (?, ...)", a);
+        assertEquals(a, b);
+        assertEquals(a, c);
+    }
+
+
+    @Test
+    public void whitespaceIsCollapsed() {
+        assertEquals(
+                "select id from app where kind = ?",
+                SqlFingerprint.of("select id\n  from app\n\twhere kind = ?  "));
+    }
+
+}
@@ -105,6 +105,7 @@ public class Main {
         LoggingUtilities.configureLogging();
 
         ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
+        ctx.registerShutdownHook();  // ensures destroy methods (e.g. queue drains) run on SIGTERM
 
         Map<String, Endpoint> endpoints = ctx.getBeansOfType(Endpoint.class);
         endpoints.forEach((name, endpoint) -> {
@@ -225,6 +226,8 @@ public class Main {
                 }
             }));
 
+            WebUtilities.enableGzipStreams(minimumLength);
+
             LOG.info("Enabled GZIP (size: " + minimumLength + ")");
 
         } else {
@@ -0,0 +1,36 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web;
+
+import spark.Request;
+import spark.Response;
+
+import java.util.stream.Stream;
+
+
+/**
+ * Route which provides a (potentially lazy, e.g. database cursor backed) stream
+ * of items.  Items are written to the response as they are consumed and the
+ * stream is closed once the response is complete.
+ */
+@FunctionalInterface
+public interface StreamRoute<T> {
+
+    Stream<T> apply(Request request, Response response) throws Exception;
+}
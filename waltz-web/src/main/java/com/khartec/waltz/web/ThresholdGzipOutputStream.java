@@ -0,0 +1,121 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Holds back the start of a streamed response until it reaches the minimum
+ * length for compression, from then on it is gzipped.  Shorter responses are
+ * written uncompressed when the stream is closed.
+ *
+ * Nothing reaches the underlying stream before the threshold is crossed, so a
+ * failure whilst writing a short response can still be reported as an error.
+ */
+class ThresholdGzipOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final int minimumLength;
+    private final Runnable beforeCompressing;
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private OutputStream target;
+
+
+    /**
+     * @param out  underlying stream
+     * @param minimumLength  number of bytes after which the output is compressed
+     * @param beforeCompressing  invoked once the output is to be compressed, e.g. to set the `Content-Encoding` header
+     */
+    ThresholdGzipOutputStream(OutputStream out,
+                              int minimumLength,
+                              Runnable beforeCompressing) {
+        checkNotNull(out, "out cannot be null");
+        checkTrue(minimumLength >= 0, "minimumLength cannot be negative");
+        checkNotNull(beforeCompressing, "beforeCompressing cannot be null");
+        this.out = out;
+        this.minimumLength = minimumLength;
+        this.beforeCompressing = beforeCompressing;
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (target != null) {
+            target.write(b, off, len);
+            return;
+        }
+
+        pending.write(b, off, len);
+        if (pending.size() >= minimumLength) {
+            beforeCompressing.run();
+            target = new GZIPOutputStream(out, 8192);
+            release();
+        }
+    }
+
+
+    /**
+     * Output held back below the threshold is not flushed, it is only written
+     * once the compression decision can be made.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (target != null) {
+            target.flush();
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (target == null) {
+            target = out;
+            release();
+        }
+        target.close();
+    }
+
+
+    boolean isCompressing() {
+        return target != null && target != out;
+    }
+
+
+    // -- helpers
+
+    private void release() throws IOException {
+        pending.writeTo(target);
+        pending = null;
+    }
+
+}
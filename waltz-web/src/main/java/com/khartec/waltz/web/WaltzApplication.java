@@ -18,7 +18,6 @@
 
 package com.khartec.waltz.web;
 
-import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import spark.servlet.SparkApplication;
 
@@ -30,14 +29,15 @@ public class WaltzApplication implements SparkApplication {
     }
 
 
+    /**
+     * Closes the Spring context, which in turn closes the data source.  The
+     * data source must not be closed first as beans (e.g. the change log
+     * writer) flush any pending work to the database whilst being destroyed.
+     */
     @Override
     public void destroy() {
         AnnotationConfigApplicationContext ctx = Main.getSpringContext();
         if (ctx != null) {
-            HikariDataSource dataSource = ctx.getBean(HikariDataSource.class);
-            if (dataSource != null) {
-                dataSource.close();
-            }
             ctx.close();
         }
     }
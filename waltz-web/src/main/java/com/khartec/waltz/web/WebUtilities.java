@@ -19,6 +19,8 @@
 package com.khartec.waltz.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JSR310Module;
@@ -36,7 +38,9 @@ import spark.Request;
 import spark.Response;
 import spark.ResponseTransformer;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -44,6 +48,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.ObjectUtilities.firstNotNull;
 import static com.khartec.waltz.common.SetUtilities.asSet;
 import static com.khartec.waltz.model.EntityReference.mkRef;
@@ -59,6 +64,12 @@ public class WebUtilities {
 
     private static final MimeTypes mimeTypes = new MimeTypes();
     private static final ObjectMapper mapper;
+    private static final ObjectWriter streamingWriter;
+
+    /**
+     * Streamed responses of at least this many bytes are gzipped, negative if disabled
+     */
+    private static volatile int gzipStreamsMinimumLength = -1;
 
     static {
         mapper = new ObjectMapper();
@@ -69,6 +80,11 @@ public class WebUtilities {
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
 
         mimeTypes.addMimeMapping("ttf", "application/x-font-ttf");
+
+        // flushing after every element would defeat the output buffer
+        streamingWriter = mapper
+                .writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
 
@@ -106,6 +122,76 @@ public class WebUtilities {
     }
 
 
+    /**
+     * Writes the items, as a json array, directly to the response output stream
+     * rather than first rendering the entire payload to a string.  Items are
+     * pulled from the iterator as they are written, so a lazy (e.g. cursor backed)
+     * iterator is never fully materialised.
+     *
+     * Failures whilst the response is still buffered (e.g. running the underlying
+     * query) discard the partial output, so they are reported via the usual exception
+     * handlers.  Once the response has been committed failures propagate with the
+     * json array left unterminated.
+     * The output is gzipped if it reaches the minimum length (see
+     * {@link #enableGzipStreams(int)}) and the client accepts it.
+     *
+     * @param request  spark request object
+     * @param response  spark response object
+     * @param items  items to write, may be empty
+     */
+    public static void writeJsonArray(Request request,
+                                      Response response,
+                                      Iterator<?> items) throws IOException {
+        checkNotNull(request, "request must not be null");
+        checkNotNull(response, "response must not be null");
+        checkNotNull(items, "items must not be null");
+
+        // forces the first fetch whilst errors can still be reported
+        items.hasNext();
+
+        HttpServletResponse raw = response.raw();
+        raw.setContentType(TYPE_JSON);
+
+        int gzipMinimumLength = gzipStreamsMinimumLength;
+        OutputStream out = gzipMinimumLength >= 0 && acceptsGzip(request)
+                ? new ThresholdGzipOutputStream(
+                        raw.getOutputStream(),
+                        gzipMinimumLength,
+                        () -> raw.setHeader("Content-Encoding", "gzip"))
+                : raw.getOutputStream();
+
+        try {
+            // not closed on failure, leaving the array unterminated so that a response which
+            // has already been committed cannot be mistaken for a complete one
+            SequenceWriter writer = streamingWriter.writeValuesAsArray(out);
+            while (items.hasNext()) {
+                writer.write(items.next());
+            }
+            writer.close();
+        } catch (IOException | RuntimeException e) {
+            if (! raw.isCommitted()) {
+                // nothing has been sent, discard the partial array so the error is reported in its place
+                raw.resetBuffer();
+                raw.setHeader("Content-Encoding", null);
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Streamed responses cannot be compressed by the usual (size based) after-filter
+     * as their length is not known in advance.  Instead the start of the response is
+     * held back until it reaches the minimum length, responses which do are compressed
+     * if the client accepts it.
+     * @param minimumLength  size, in bytes, from which responses are compressed
+     */
+    public static void enableGzipStreams(int minimumLength) {
+        checkTrue(minimumLength >= 0, "minimumLength cannot be negative");
+        gzipStreamsMinimumLength = minimumLength;
+    }
+
+
     public static long getLong(Request request,
                                String paramName) {
         checkNotNull(request, "request must not be null");
@@ -391,4 +477,11 @@ public class WebUtilities {
                 .collect(toList());
     }
 
+
+    private static boolean acceptsGzip(Request request) {
+        String acceptEncoding = request.headers("Accept-Encoding");
+        return acceptEncoding != null
+                && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
 }
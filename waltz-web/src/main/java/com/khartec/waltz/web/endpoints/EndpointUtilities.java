@@ -20,12 +20,20 @@ package com.khartec.waltz.web.endpoints;
 
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
+import com.khartec.waltz.web.StreamRoute;
 import com.khartec.waltz.web.WebUtilities;
 import spark.ResponseTransformer;
 import spark.Route;
 import spark.Spark;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
 import static com.khartec.waltz.web.WebUtilities.TYPE_JSON;
+import static com.khartec.waltz.web.WebUtilities.writeJsonArray;
 
 
 public class EndpointUtilities {
@@ -36,12 +44,50 @@ public class EndpointUtilities {
     /**
      * Helper method to register a route which provides a list of items.
      * This helps comprehension as the return types of routes becomes explicit.
+     * The list is written directly to the response rather than via an
+     * intermediate string.
      * @param path
      * @param handler
      * @param <T>
      */
     public static <T> void getForList(String path, ListRoute<T> handler) {
-        Spark.get(path, wrapListHandler(handler), transformer);
+        Spark.get(path, wrapListHandler(handler));
+    }
+
+
+    /**
+     * As {@link #getForList(String, ListRoute)} but for content identified by a
+     * version (e.g. the reference data snapshot).  The version is sent as an
+     * `ETag` and requests presenting it via `If-None-Match` receive an empty
+     * `304 Not Modified` response without the handler being invoked.  If no
+     * version is available the route behaves as a plain list route.
+     * @param path
+     * @param versionSupplier
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForVersionedList(String path,
+                                               Supplier<Optional<String>> versionSupplier,
+                                               ListRoute<T> handler) {
+        Spark.get(path, wrapVersionedListHandler(versionSupplier, handler));
+    }
+
+
+    /**
+     * Helper method to register a route which provides a stream of items,
+     * typically backed by a lazy database cursor.  Each item is written to
+     * the response as it is read.
+     * @param path
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForStream(String path, StreamRoute<T> handler) {
+        Spark.get(path, wrapStreamHandler(handler));
+    }
+
+
+    public static <T> void postForStream(String path, StreamRoute<T> handler) {
+        Spark.post(path, wrapStreamHandler(handler));
     }
 
 
@@ -62,11 +108,11 @@ public class EndpointUtilities {
     }
 
     public static <T> void postForList(String path, ListRoute<T> handler) {
-        Spark.post(path, wrapListHandler(handler), transformer);
+        Spark.post(path, wrapListHandler(handler));
     }
 
     public static <T> void deleteForList(String path, ListRoute<T> handler) {
-        Spark.delete(path, wrapListHandler(handler), transformer);
+        Spark.delete(path, wrapListHandler(handler));
     }
 
     public static <T> void deleteForDatum(String path, DatumRoute<T> handler) {
@@ -78,16 +124,70 @@ public class EndpointUtilities {
     }
 
     public static <T> void putForList(String path, ListRoute<T> handler) {
-        Spark.put(path, wrapListHandler(handler), transformer);
+        Spark.put(path, wrapListHandler(handler));
     }
 
 
     // -- helpers ---
 
+    // streamed routes return an empty body, the response has already been committed
+
     private static <T> Route wrapListHandler(ListRoute<T> handler) {
         return (request, response) -> {
             response.type(TYPE_JSON);
-            return handler.apply(request, response);
+            Collection<T> items = handler.apply(request, response);
+            if (items == null) {
+                return transformer.render(null);
+            }
+            writeJsonArray(request, response, items.iterator());
+            return "";
+        };
+    }
+
+    private static <T> Route wrapVersionedListHandler(Supplier<Optional<String>> versionSupplier,
+                                                      ListRoute<T> handler) {
+        Route listRoute = wrapListHandler(handler);
+        return (request, response) -> {
+            Optional<String> eTag = versionSupplier
+                    .get()
+                    .map(v -> "\"" + v + "\"");
+
+            if (eTag.isPresent()) {
+                response.header("ETag", eTag.get());
+                response.header("Cache-Control", "no-cache");
+                if (matchesETag(request.headers("If-None-Match"), eTag.get())) {
+                    response.status(304);
+                    return "";
+                }
+            }
+
+            return listRoute.handle(request, response);
+        };
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Stream
+                .of(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(t -> t.startsWith("W/") ? t.substring(2) : t)
+                .anyMatch(t -> t.equals(eTag) || t.equals("*"));
+    }
+
+    private static <T> Route wrapStreamHandler(StreamRoute<T> handler) {
+        return (request, response) -> {
+            response.type(TYPE_JSON);
+            try (Stream<T> items = handler.apply(request, response)) {
+                writeJsonArray(
+                        request,
+                        response,
+                        items == null
+                                ? Collections.emptyIterator()
+                                : items.iterator());
+            }
+            return "";
         };
     }
 
@@ -25,6 +25,7 @@ import com.khartec.waltz.model.actor.ActorCreateCommand;
 import com.khartec.waltz.model.command.CommandResponse;
 import com.khartec.waltz.model.user.SystemRole;
 import com.khartec.waltz.service.actor.ActorService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.service.user.UserRoleService;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.WebUtilities;
@@ -50,15 +51,20 @@ public class ActorEndpoint implements Endpoint {
 
     private final ActorService service;
     private final UserRoleService userRoleService;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public ActorEndpoint(ActorService service, UserRoleService userRoleService) {
+    public ActorEndpoint(ActorService service,
+                         UserRoleService userRoleService,
+                         ReferenceDataService referenceDataService) {
         checkNotNull(service, "service must not be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.service = service;
         this.userRoleService = userRoleService;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -72,7 +78,7 @@ public class ActorEndpoint implements Endpoint {
 
         // read
         getForList(searchPath, searchRoute);
-        getForList(BASE_URL, (request, response) -> service.findAll());
+        getForVersionedList(BASE_URL, referenceDataService::findETag, (request, response) -> service.findAll());
         getForDatum(mkPath(BASE_URL, "id", ":id"), this::getByIdRoute );
 
         // create
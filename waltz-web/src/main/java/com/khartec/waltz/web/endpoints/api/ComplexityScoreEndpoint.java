@@ -26,6 +26,8 @@ import com.khartec.waltz.web.endpoints.Endpoint;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 import static com.khartec.waltz.web.WebUtilities.*;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForList;
@@ -50,13 +52,16 @@ public class ComplexityScoreEndpoint implements Endpoint {
         String getForAppPath = mkPath(BASE_URL, "application", ":id");
         String findForAppIdSelectorPath = BASE_URL;
         String rebuildPath = mkPath(BASE_URL, "rebuild");
+        String rebuildTimingsPath = mkPath(BASE_URL, "rebuild", "timings");
 
         DatumRoute<ComplexityRating> getForAppRoute = (request, response) -> service.getForApp(getId(request));
         ListRoute<ComplexityRating> findForAppIdSelectorRoute = (request, response) -> service.findForAppIdSelector(readIdSelectionOptionsFromBody(request));
         DatumRoute<Integer> rebuildRoute = (request, response) -> service.rebuild();
+        DatumRoute<Map<String, Long>> rebuildTimingsRoute = (request, response) -> service.getLastRebuildTimings();
 
         getForDatum(getForAppPath, getForAppRoute);
         postForList(findForAppIdSelectorPath, findForAppIdSelectorRoute);
         getForDatum(rebuildPath, rebuildRoute);
+        getForDatum(rebuildTimingsPath, rebuildTimingsRoute);
     }
 }
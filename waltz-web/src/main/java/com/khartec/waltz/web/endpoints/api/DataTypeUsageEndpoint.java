@@ -72,6 +72,7 @@ public class DataTypeUsageEndpoint implements Endpoint {
         String findUsageStatsForDataTypeSelectorPath = mkPath(BASE_URL, "type", "stats");
         String findForUsageKindByDataTypeSelectorPath = mkPath(BASE_URL, "usage-kind", ":usage-kind");
         String calculateForAllApplicationsPath = mkPath(BASE_URL, "calculate-all", "application");
+        String queueDepthPath = mkPath(BASE_URL, "queue", "depth");
         String findForSelectorPath = mkPath(BASE_URL, "selector");
         String savePath = mkPath(BASE_URL, "entity", ":kind", ":id", ":typeId");
 
@@ -93,6 +94,7 @@ public class DataTypeUsageEndpoint implements Endpoint {
         postForList(findForSelectorPath, findForSelectorRoute);
         postForList(savePath, this::saveRoute);
         getForDatum(calculateForAllApplicationsPath, this::calculateForAllApplicationsRoute);
+        getForDatum(queueDepthPath, (request, response) -> dataTypeUsageService.getDirtyQueueDepth());
         postForDatum(findForUsageKindByDataTypeSelectorPath, this::findForUsageKindByDataTypeSelectorRoute);
     }
 
@@ -22,6 +22,7 @@ import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
 import com.khartec.waltz.service.data_type.DataTypeService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.WebUtilities;
@@ -42,11 +43,15 @@ public class DataTypesEndpoint implements Endpoint {
     private static final String BASE_URL = WebUtilities.mkPath("api", "data-types");
 
     private final DataTypeService service;
+    private final ReferenceDataService referenceDataService;
 
     @Autowired
-    public DataTypesEndpoint(DataTypeService service) {
+    public DataTypesEndpoint(DataTypeService service,
+                             ReferenceDataService referenceDataService) {
         checkNotNull(service, "service must not be null");
+        checkNotNull(referenceDataService, "referenceDataService must not be null");
         this.service = service;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -66,7 +71,7 @@ public class DataTypesEndpoint implements Endpoint {
         DatumRoute<DataType> getDataTypeByCodeRoute = (request, response) ->
                 service.getDataTypeByCode(request.params("code"));
 
-        getForList(BASE_URL, (request, response) -> service.findAll());
+        getForVersionedList(BASE_URL, referenceDataService::findETag, (request, response) -> service.findAll());
         postForList(searchPath, searchRoute);
         getForDatum(getDataTypeByIdPath, getDataTypeByIdRoute);
         getForDatum(getDataTypeByCodePath, getDataTypeByCodeRoute);
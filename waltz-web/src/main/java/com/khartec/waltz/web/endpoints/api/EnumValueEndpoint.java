@@ -20,6 +20,7 @@ package com.khartec.waltz.web.endpoints.api;
 
 import com.khartec.waltz.model.EnumValue;
 import com.khartec.waltz.service.enum_value.EnumValueService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,19 +28,23 @@ import org.springframework.stereotype.Service;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
-import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForVersionedList;
 
 @Service
 public class EnumValueEndpoint implements Endpoint {
 
     private static final String BASE_URL = mkPath("api", "enum-value");
     private final EnumValueService enumValueService;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public EnumValueEndpoint(EnumValueService enumValueService) {
+    public EnumValueEndpoint(EnumValueService enumValueService,
+                             ReferenceDataService referenceDataService) {
         checkNotNull(enumValueService, "enumValueService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
         this.enumValueService = enumValueService;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -49,6 +54,6 @@ public class EnumValueEndpoint implements Endpoint {
 
         ListRoute<EnumValue> findAllRoute = (req, resp) -> enumValueService.findAll();
 
-        getForList(findAllPath, findAllRoute);
+        getForVersionedList(findAllPath, referenceDataService::findETag, findAllRoute);
     }
 }
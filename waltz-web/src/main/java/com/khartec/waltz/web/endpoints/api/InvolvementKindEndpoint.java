@@ -25,6 +25,7 @@ import com.khartec.waltz.model.involvement_kind.InvolvementKindChangeCommand;
 import com.khartec.waltz.model.involvement_kind.InvolvementKindCreateCommand;
 import com.khartec.waltz.model.user.SystemRole;
 import com.khartec.waltz.service.involvement_kind.InvolvementKindService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.service.user.UserRoleService;
 import com.khartec.waltz.web.WebUtilities;
 import com.khartec.waltz.web.endpoints.Endpoint;
@@ -50,15 +51,20 @@ public class InvolvementKindEndpoint implements Endpoint {
 
     private final InvolvementKindService service;
     private UserRoleService userRoleService;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public InvolvementKindEndpoint(InvolvementKindService service, UserRoleService userRoleService) {
+    public InvolvementKindEndpoint(InvolvementKindService service,
+                                   UserRoleService userRoleService,
+                                   ReferenceDataService referenceDataService) {
         checkNotNull(service, "service must not be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.service = service;
         this.userRoleService = userRoleService;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -66,7 +72,7 @@ public class InvolvementKindEndpoint implements Endpoint {
     public void register() {
 
         // read
-        getForList(BASE_URL, (request, response) -> service.findAll());
+        getForVersionedList(BASE_URL, referenceDataService::findETag, (request, response) -> service.findAll());
 
         getForList(mkPath(BASE_URL, "key-involvement-kinds", ":kind"), this::findKeyInvolvementKindByEntityKind);
 
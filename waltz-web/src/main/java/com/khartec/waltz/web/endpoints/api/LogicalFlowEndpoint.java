@@ -27,6 +27,7 @@ import com.khartec.waltz.service.logical_flow.LogicalFlowService;
 import com.khartec.waltz.service.user.UserRoleService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
+import com.khartec.waltz.web.StreamRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
 import org.jooq.lambda.tuple.Tuple;
 import org.jooq.lambda.tuple.Tuple2;
@@ -78,6 +79,7 @@ public class LogicalFlowEndpoint implements Endpoint {
         String findBySourceAndTargetsPath = mkPath(BASE_URL, "source-targets");
         String findStatsPath = mkPath(BASE_URL, "stats");
         String findUpstreamFlowsForEntityReferencesPath = mkPath(BASE_URL, "find-upstream-flows");
+        String findDownstreamFlowsForEntityReferencesPath = mkPath(BASE_URL, "find-downstream-flows");
         String getByIdPath = mkPath(BASE_URL, ":id");
         String removeFlowPath = mkPath(BASE_URL, ":id");
         String cleanupOrphansPath = mkPath(BASE_URL, "cleanup-orphans");
@@ -88,15 +90,20 @@ public class LogicalFlowEndpoint implements Endpoint {
         ListRoute<LogicalFlow> getByEntityRef = (request, response)
                 -> logicalFlowService.findByEntityReference(getEntityReference(request));
 
-        ListRoute<LogicalFlow> findBySelectorRoute = (request, response)
-                -> logicalFlowService.findBySelector(readIdSelectionOptionsFromBody(request));
+        StreamRoute<LogicalFlow> findBySelectorRoute = (request, response)
+                -> logicalFlowService.streamBySelector(readIdSelectionOptionsFromBody(request));
 
         ListRoute<LogicalFlow> findByIdsRoute = (request, response)
                 -> logicalFlowService.findActiveByFlowIds(readIdsFromBody(request));
 
         ListRoute<LogicalFlow> findUpstreamFlowsForEntityReferencesRoute = (request, response) -> {
             EntityReference[] refs = readBody(request, EntityReference[].class);
-            return logicalFlowService.findUpstreamFlowsForEntityReferences(newArrayList(refs));
+            return logicalFlowService.findUpstreamFlowsForEntityReferences(newArrayList(refs), getHops(request));
+        };
+
+        ListRoute<LogicalFlow> findDownstreamFlowsForEntityReferencesRoute = (request, response) -> {
+            EntityReference[] refs = readBody(request, EntityReference[].class);
+            return logicalFlowService.findDownstreamFlowsForEntityReferences(newArrayList(refs), getHops(request));
         };
 
         DatumRoute<LogicalFlowStatistics> findStatsRoute = (request, response)
@@ -111,7 +118,8 @@ public class LogicalFlowEndpoint implements Endpoint {
         getForDatum(getByIdPath, getByIdRoute);
         postForList(findByIdsPath, findByIdsRoute);
         postForList(findUpstreamFlowsForEntityReferencesPath, findUpstreamFlowsForEntityReferencesRoute);
-        postForList(findBySelectorPath, findBySelectorRoute);
+        postForList(findDownstreamFlowsForEntityReferencesPath, findDownstreamFlowsForEntityReferencesRoute);
+        postForStream(findBySelectorPath, findBySelectorRoute);
         postForDatum(findBySourceAndTargetsPath, this::findBySourceAndTargetsRoute);
         postForDatum(findStatsPath, findStatsRoute);
         deleteForDatum(removeFlowPath, this::removeFlowRoute);
@@ -120,6 +128,18 @@ public class LogicalFlowEndpoint implements Endpoint {
     }
 
 
+    /**
+     * Number of flows to follow when tracing lineage, taken from the
+     * optional `hops` query parameter (defaults to 1, i.e. direct flows only)
+     */
+    private int getHops(Request request) {
+        String hops = request.queryParams("hops");
+        return hops == null
+                ? 1
+                : Integer.parseInt(hops);
+    }
+
+
     private Integer cleanupOrphansRoute(Request request, Response response) {
         ensureUserHasAdminRights(request);
 
@@ -20,6 +20,7 @@ package com.khartec.waltz.web.endpoints.api;
 
 import com.khartec.waltz.model.measurable_category.MeasurableCategory;
 import com.khartec.waltz.service.measurable_category.MeasurableCategoryService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
@@ -30,6 +31,7 @@ import static com.khartec.waltz.web.WebUtilities.getId;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForVersionedList;
 
 
 @Service
@@ -38,11 +40,14 @@ public class MeasurableCategoryEndpoint implements Endpoint {
     private static final String BASE_URL = mkPath("api", "measurable-category");
 
     private final MeasurableCategoryService measurableCategoryService;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public MeasurableCategoryEndpoint(MeasurableCategoryService measurableCategoryService) {
+    public MeasurableCategoryEndpoint(MeasurableCategoryService measurableCategoryService,
+                                      ReferenceDataService referenceDataService) {
         this.measurableCategoryService = measurableCategoryService;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -61,7 +66,7 @@ public class MeasurableCategoryEndpoint implements Endpoint {
         DatumRoute<MeasurableCategory> getByIdRoute = (request, response)
                 -> measurableCategoryService.getById(getId(request));
 
-        getForList(findAllPath, findAllRoute);
+        getForVersionedList(findAllPath, referenceDataService::findETag, findAllRoute);
         getForList(getCategoriesByDirectOrgUnitPath, findCategoriesByDirectOrgUnitRoute);
         getForDatum(getByIdPath, getByIdRoute);
     }
@@ -20,6 +20,7 @@ package com.khartec.waltz.web.endpoints.api;
 
 import com.khartec.waltz.model.measurable.Measurable;
 import com.khartec.waltz.service.measurable.MeasurableService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
@@ -36,11 +37,14 @@ public class MeasurableEndpoint implements Endpoint {
     private static final String BASE_URL = mkPath("api", "measurable");
 
     private final MeasurableService measurableService;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public MeasurableEndpoint(MeasurableService measurableService) {
+    public MeasurableEndpoint(MeasurableService measurableService,
+                              ReferenceDataService referenceDataService) {
         this.measurableService = measurableService;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -73,7 +77,7 @@ public class MeasurableEndpoint implements Endpoint {
                 -> measurableService.findByOrgUnitId(getId(request));
 
 
-        getForList(findAllPath, findAllRoute);
+        getForVersionedList(findAllPath, referenceDataService::findETag, findAllRoute);
         getForList(findByExternalIdPath, findByExternalIdRoute);
         postForList(findByMeasurableIdSelectorPath, findByMeasurableIdSelectorRoute);
         getForDatum(getByIdPath, getByIdRoute);
@@ -22,6 +22,7 @@ import com.khartec.waltz.model.LeveledEntityReference;
 import com.khartec.waltz.model.orgunit.OrganisationalUnit;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import com.khartec.waltz.service.orgunit.OrganisationalUnitService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.service.user.UserRoleService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
@@ -45,19 +46,23 @@ public class OrganisationUnitEndpoint implements Endpoint {
     private final OrganisationalUnitService service;
     private final ChangeLogService changeLogService;
     private final UserRoleService userRoleService;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
     public OrganisationUnitEndpoint(OrganisationalUnitService service,
                                     ChangeLogService changeLogService,
-                                    UserRoleService userRoleService) {
+                                    UserRoleService userRoleService,
+                                    ReferenceDataService referenceDataService) {
         checkNotNull(service, "service must not be null");
         checkNotNull(changeLogService, "changeLogService must not be null");
         checkNotNull(userRoleService, "userRoleService must not be null");
+        checkNotNull(referenceDataService, "referenceDataService must not be null");
 
         this.service = service;
         this.changeLogService = changeLogService;
         this.userRoleService = userRoleService;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -82,7 +87,7 @@ public class OrganisationUnitEndpoint implements Endpoint {
         DatumRoute<OrganisationalUnit> getByIdRoute = (request, response) -> service.getById(getId(request));
 
 
-        getForList(findAllPath, findAllRoute);
+        getForVersionedList(findAllPath, referenceDataService::findETag, findAllRoute);
         getForList(searchPath, searchRoute);
         getForList(findImmediateHierarchyPath, findImmediateHierarchyRoute);
         getForList(findDescendantsPath, findDescendantsRoute);
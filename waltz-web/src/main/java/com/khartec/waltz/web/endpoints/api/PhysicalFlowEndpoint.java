@@ -154,6 +154,17 @@ public class PhysicalFlowEndpoint implements Endpoint {
                 BASE_URL,
                 "upload");
 
+        String submitUploadPath = mkPath(
+                BASE_URL,
+                "upload",
+                "async");
+
+        String getUploadJobPath = mkPath(
+                BASE_URL,
+                "upload",
+                "job",
+                ":id");
+
         String cleanupOrphansPath = mkPath(BASE_URL, "cleanup-orphans");
 
 
@@ -210,6 +221,8 @@ public class PhysicalFlowEndpoint implements Endpoint {
         postForDatum(updateAttributePath, this::updateAttribute);
         postForDatum(validateUploadPath, this::validateUpload);
         postForDatum(uploadPath, this::upload);
+        postForDatum(submitUploadPath, this::submitUpload);
+        getForDatum(getUploadJobPath, this::getUploadJob);
 
         deleteForDatum(deletePath, this::deleteFlow);
         getForDatum(cleanupOrphansPath, this::cleanupOrphansRoute);
@@ -299,6 +312,22 @@ public class PhysicalFlowEndpoint implements Endpoint {
     }
 
 
+    private PhysicalFlowUploadJob submitUpload(Request request, Response response) throws IOException {
+        requireRole(userRoleService, request, SystemRole.LOGICAL_DATA_FLOW_EDITOR);
+        List<PhysicalFlowUploadCommand> commands = asList(readBody(request, PhysicalFlowUploadCommand[].class));
+        String username = getUsername(request);
+
+        return physicalFlowUploadService.submitUpload(username, commands);
+    }
+
+
+    private PhysicalFlowUploadJob getUploadJob(Request request, Response response) {
+        return physicalFlowUploadService
+                .getJob(request.params("id"), getUsername(request))
+                .orElse(null);
+    }
+
+
     private Integer cleanupOrphansRoute(Request request, Response response) throws IOException {
         requireRole(userRoleService, request, SystemRole.ADMIN);
 
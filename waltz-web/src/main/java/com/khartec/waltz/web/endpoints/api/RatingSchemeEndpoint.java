@@ -21,6 +21,7 @@ package com.khartec.waltz.web.endpoints.api;
 import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.rating.RagName;
 import com.khartec.waltz.service.rating_scheme.RatingSchemeService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +31,7 @@ import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.web.WebUtilities.*;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForVersionedList;
 
 
 @Service
@@ -37,11 +39,15 @@ public class RatingSchemeEndpoint implements Endpoint {
 
     private static final String BASE_URL = mkPath("api", "rating-scheme");
     private final RatingSchemeService ratingSchemeService;
+    private final ReferenceDataService referenceDataService;
 
     @Autowired
-    public RatingSchemeEndpoint(RatingSchemeService ratingSchemeService) {
+    public RatingSchemeEndpoint(RatingSchemeService ratingSchemeService,
+                                ReferenceDataService referenceDataService) {
         checkNotNull(ratingSchemeService, "ratingSchemeService cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
         this.ratingSchemeService = ratingSchemeService;
+        this.referenceDataService = referenceDataService;
     }
 
     @Override
@@ -58,7 +64,7 @@ public class RatingSchemeEndpoint implements Endpoint {
             return ratingSchemeService.findRatingSchemeItemsForEntityAndCategory(ref, categoryId);
         };
 
-        getForList(findAllPath, (req, resp) -> ratingSchemeService.findAll());
+        getForVersionedList(findAllPath, referenceDataService::findETag, (req, resp) -> ratingSchemeService.findAll());
         getForList(findRatingSchemeItemsForEntityAndCategoryPath, findRatingSchemeItemsForEntityAndCategoryRoute);
         getForList(findRatingSchemeItemsPath, (req, resp) -> ratingSchemeService.findRatingSchemeItemsByAssessmentDefinition(getId(req)));
         getForDatum(getByIdPath, (req, resp) -> ratingSchemeService.getById(getId(req)));
@@ -0,0 +1,76 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints.api;
+
+import com.khartec.waltz.model.sql_latency.SqlShapeStatistics;
+import com.khartec.waltz.service.sql_latency.SqlLatencyService;
+import com.khartec.waltz.service.user.UserRoleService;
+import com.khartec.waltz.web.DatumRoute;
+import com.khartec.waltz.web.ListRoute;
+import com.khartec.waltz.web.endpoints.Endpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.model.user.SystemRole.ADMIN;
+import static com.khartec.waltz.service.sql_latency.SqlLatencyService.DEFAULT_LIMIT;
+import static com.khartec.waltz.web.WebUtilities.*;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.deleteForDatum;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
+
+@Service
+public class SqlLatencyEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "sql-latency");
+
+    private final SqlLatencyService sqlLatencyService;
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public SqlLatencyEndpoint(SqlLatencyService sqlLatencyService, UserRoleService userRoleService) {
+        checkNotNull(sqlLatencyService, "sqlLatencyService cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+
+        this.sqlLatencyService = sqlLatencyService;
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        String findSlowestShapesPath = mkPath(BASE_URL, "slowest");
+        String resetPath = mkPath(BASE_URL);
+
+        ListRoute<SqlShapeStatistics> findSlowestShapesRoute = (request, response) -> {
+            requireRole(userRoleService, request, ADMIN);
+            return sqlLatencyService.findSlowestShapes(getLimit(request).orElse(DEFAULT_LIMIT));
+        };
+
+        DatumRoute<Boolean> resetRoute = (request, response) -> {
+            requireRole(userRoleService, request, ADMIN);
+            sqlLatencyService.reset();
+            return true;
+        };
+
+        getForList(findSlowestShapesPath, findSlowestShapesRoute);
+        deleteForDatum(resetPath, resetRoute);
+    }
+
+}
@@ -21,7 +21,6 @@ package com.khartec.waltz.web.endpoints.auth;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
-import com.auth0.jwt.interfaces.DecodedJWT;
 import com.khartec.waltz.service.settings.SettingsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +34,7 @@ public class DisallowAnonymousFilter extends WaltzFilter {
     private static final Logger LOG = LoggerFactory.getLogger(DisallowAnonymousFilter.class);
 
     private final JWTVerifier verifier;
+    private final VerifiedTokenCache verifiedTokens = new VerifiedTokenCache();
 
 
     public DisallowAnonymousFilter(SettingsService settingsService) {
@@ -59,8 +59,8 @@ public class DisallowAnonymousFilter extends WaltzFilter {
             halt("Anonymous not allowed");
         } else {
             String token = authorizationHeader.replaceFirst("Bearer ", "");
-            DecodedJWT decodedJWT = verifier.verify(token);
-            AuthenticationUtilities.setUser(request, decodedJWT.getSubject());
+            String subject = verifiedTokens.getSubject(token, t -> verifier);
+            AuthenticationUtilities.setUser(request, subject);
         }
     }
 
@@ -39,6 +39,7 @@ public class JWTAuthenticationFilter extends WaltzFilter {
 
     private final JWTVerifier verifier256;
     private final JWTVerifier verifier512;
+    private final VerifiedTokenCache verifiedTokens = new VerifiedTokenCache();
 
 
     public JWTAuthenticationFilter(SettingsService settingsService) {
@@ -65,12 +66,10 @@ public class JWTAuthenticationFilter extends WaltzFilter {
             AuthenticationUtilities.setUserAsAnonymous(request);
         } else {
             String token = authorizationHeader.replaceFirst("Bearer ", "");
-            DecodedJWT decodedToken = JWT.decode(token);
-
-            JWTVerifier verifier = selectVerifier(decodedToken);
-
-            DecodedJWT decodedJWT = verifier.verify(token);
-            AuthenticationUtilities.setUser(request, decodedJWT.getSubject());
+            String subject = verifiedTokens.getSubject(
+                    token,
+                    t -> selectVerifier(JWT.decode(t)));
+            AuthenticationUtilities.setUser(request, subject);
         }
     }
 
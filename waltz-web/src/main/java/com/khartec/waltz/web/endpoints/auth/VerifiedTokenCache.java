@@ -0,0 +1,106 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints.auth;
+
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Remembers the subject of recently verified tokens so that the signature
+ * does not need to be re-checked on every request.  Entries are held for a
+ * short while (or until the token expires, if sooner) and the cache is size
+ * bounded, discarding the least recently used tokens first.
+ *
+ * Each filter should use its own instance as the outcome of verification
+ * depends upon the verifier used.
+ */
+class VerifiedTokenCache {
+
+    private static final int MAX_SIZE = 10_000;
+    private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static class Entry {
+        private final String subject;
+        private final long expiresAtMillis;
+
+        private Entry(String subject, long expiresAtMillis) {
+            this.subject = subject;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+
+    /**
+     * Returns the subject of the token, verifying it (and throwing any
+     * verification exception) if it has not been recently seen.
+     *
+     * @param token  raw token
+     * @param verifierSelector  provides the verifier to use for the decoded token
+     */
+    String getSubject(String token, Function<String, JWTVerifier> verifierSelector) {
+        checkNotNull(token, "token cannot be null");
+        checkNotNull(verifierSelector, "verifierSelector cannot be null");
+
+        long now = System.currentTimeMillis();
+
+        synchronized (entries) {
+            Entry existing = entries.get(token);
+            if (existing != null) {
+                if (existing.expiresAtMillis > now) {
+                    return existing.subject;
+                }
+                entries.remove(token);
+            }
+        }
+
+        DecodedJWT verified = verifierSelector
+                .apply(token)
+                .verify(token);
+
+        long expiresAt = now + TTL_MILLIS;
+        Date tokenExpiry = verified.getExpiresAt();
+        if (tokenExpiry != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiry.getTime());
+        }
+
+        synchronized (entries) {
+            entries.put(token, new Entry(verified.getSubject(), expiresAt));
+        }
+
+        return verified.getSubject();
+    }
+
+}
@@ -1,5 +1,8 @@
 package com.khartec.waltz.web.endpoints.extracts;
 
+import com.khartec.waltz.model.extract_job.ExtractJob;
+import com.khartec.waltz.service.extract_job.ExtractArtifact;
+import com.khartec.waltz.service.extract_job.ExtractJobService;
 import org.eclipse.jetty.http.MimeTypes;
 import org.jooq.lambda.tuple.Tuple3;
 import spark.Request;
@@ -7,9 +10,14 @@ import spark.Response;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
 
 import static com.khartec.waltz.common.EnumUtilities.readEnum;
 import static com.khartec.waltz.common.StringUtilities.mkSafe;
+import static com.khartec.waltz.web.WebUtilities.getUsername;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 /**
  * Represents classes which are used for Data Extraction.
@@ -48,11 +56,43 @@ public interface DataExtractor {
 
 
     default Object writeReportResults(Response response, Tuple3<ExtractFormat, String, byte[]> reportResult) throws IOException {
-        String templateName = reportResult.v2;
+        HttpServletResponse httpResponse = response.raw();
+        writeReportHeaders(response, reportResult.v1, reportResult.v2);
+
+        byte[] bytes = reportResult.v3;
+        httpResponse.setContentLength(bytes.length);
+        httpResponse.getOutputStream().write(bytes);
+        httpResponse.getOutputStream().flush();
+        httpResponse.getOutputStream().close();
+
+        return httpResponse;
+    }
+
+
+    /**
+     * Streams a report prepared by an extract job (see {@link #submitReportJob})
+     */
+    default Object writeReportArtifact(Response response, ExtractArtifact artifact) throws IOException {
+        HttpServletResponse httpResponse = response.raw();
+        writeReportHeaders(
+                response,
+                ExtractFormat.valueOf(artifact.format()),
+                artifact.name());
+
+        httpResponse.setContentLengthLong(artifact.sizeBytes());
+        try (OutputStream out = httpResponse.getOutputStream()) {
+            Files.copy(artifact.path(), out);
+            out.flush();
+        }
+
+        return httpResponse;
+    }
+
 
+    default void writeReportHeaders(Response response, ExtractFormat format, String templateName) {
         HttpServletResponse httpResponse = response.raw();
 
-        switch (reportResult.v1) {
+        switch (format) {
             case XLSX:
                 httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
                 httpResponse.setHeader("Content-Disposition", "attachment; filename=" + templateName + ".xlsx");
@@ -65,15 +105,59 @@ public interface DataExtractor {
             default:
                 break;
         }
+    }
 
-        byte[] bytes = reportResult.v3;
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
 
-        return httpResponse;
+    /**
+     * Prepares a report in the background rather than on the request thread.
+     * The job may be polled, and the report downloaded once complete, via the
+     * routes registered by {@link ExtractJobExtractor}.
+     *
+     * Identical requests (same path, query string and body) made while the
+     * underlying data is unchanged share a single report.  The preparer runs
+     * after the request has completed, so it must not read from the request.
+     *
+     * @param extractJobService  service which runs the job
+     * @param request  web request, identifies the report
+     * @param format  format of the report
+     * @param reportPreparer  builds the report, typically via `formatReport`
+     * @return the submitted job
+     */
+    default ExtractJob submitReportJob(ExtractJobService extractJobService,
+                                       Request request,
+                                       ExtractFormat format,
+                                       Callable<Tuple3<ExtractFormat, String, byte[]>> reportPreparer) {
+        return submitReportJob(extractJobService, request, format, "", reportPreparer);
     }
 
 
+    /**
+     * As {@link #submitReportJob(ExtractJobService, Request, ExtractFormat, Callable)}
+     * for reports over data which may be modified without a change log entry.
+     *
+     * @param dataVersion  changes whenever the data in the report changes (e.g. a last updated timestamp)
+     */
+    default ExtractJob submitReportJob(ExtractJobService extractJobService,
+                                       Request request,
+                                       ExtractFormat format,
+                                       String dataVersion,
+                                       Callable<Tuple3<ExtractFormat, String, byte[]>> reportPreparer) {
+        String parameters = String.join(
+                "\n",
+                request.pathInfo(),
+                mkSafe(request.queryString()),
+                mkSafe(request.body()),
+                mkSafe(dataVersion));
+
+        return extractJobService.submit(
+                getUsername(request),
+                getClass().getSimpleName(),
+                format.name(),
+                parameters,
+                () -> {
+                    Tuple3<ExtractFormat, String, byte[]> report = reportPreparer.call();
+                    return tuple(report.v2, report.v3);
+                });
+    }
+
 }
@@ -23,18 +23,27 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.eclipse.jetty.http.MimeTypes;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.Record;
 import org.jooq.Select;
+import org.supercsv.io.CsvListWriter;
+import org.supercsv.prefs.CsvPreference;
 import spark.Request;
 import spark.Response;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -42,8 +51,26 @@ import static com.khartec.waltz.common.Checks.checkNotNull;
 import static java.util.Optional.ofNullable;
 
 
+/**
+ * Base class for extracts which are driven by a single jOOQ query.
+ *
+ * Results are streamed: rows are read via a lazy cursor and written directly
+ * to the servlet output stream (without a content length, so the container
+ * uses chunked encoding).  Excel output uses a windowed workbook which only
+ * keeps a small number of rows in memory, flushing older rows to a temp file.
+ */
 public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
 
+    /**
+     * Hint to the jdbc driver on how many rows to fetch per round trip
+     */
+    private static final int FETCH_SIZE = 1000;
+
+    /**
+     * Number of excel rows held in memory before being flushed to disk
+     */
+    private static final int EXCEL_ROW_WINDOW = 100;
+
     protected DSLContext dsl;
 
 
@@ -72,75 +99,95 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
     private Object writeAsExcel(String suggestedFilenameStem,
                                 Select<?> qry,
                                 Response response) throws IOException {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet(sanitizeSheetName(suggestedFilenameStem));
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        try {
+            SXSSFSheet sheet = workbook.createSheet(sanitizeSheetName(suggestedFilenameStem));
 
-        writeExcelHeader(qry, sheet);
-        writeExcelBody(qry, sheet);
+            writeExcelHeader(qry, sheet);
+            writeExcelBody(qry, sheet);
 
-        int endFilterColumnIndex = qry.fields().length == 0
-                ? 0
-                : qry.fields().length - 1;
+            int endFilterColumnIndex = qry.fields().length == 0
+                    ? 0
+                    : qry.fields().length - 1;
 
-        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
-        sheet.createFreezePane(0, 1);
+            sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
+            sheet.createFreezePane(0, 1);
 
-        byte[] bytes = convertExcelToByteArray(workbook);
+            HttpServletResponse httpResponse = response.raw();
 
-        HttpServletResponse httpResponse = response.raw();
+            httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
+            httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
 
-        httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
-        httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
+            ServletOutputStream outputStream = httpResponse.getOutputStream();
+            workbook.write(outputStream);
+            outputStream.flush();
+            outputStream.close();
 
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
-
-        return httpResponse;
+            return httpResponse;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
     }
 
 
     private Object writeAsCSV(String suggestedFilenameStem,
                               Select<?> qry,
-                              Response response) {
-        String csv = qry.fetch().formatCSV();
+                              Response response) throws IOException {
         response.type(MimeTypes.Type.TEXT_PLAIN.name());
         response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
-        return csv;
-    }
 
+        HttpServletResponse httpResponse = response.raw();
+
+        CsvListWriter csvWriter = new CsvListWriter(
+                new BufferedWriter(new OutputStreamWriter(httpResponse.getOutputStream(), StandardCharsets.UTF_8)),
+                CsvPreference.STANDARD_PREFERENCE);
+
+        List<String> headers = new ArrayList<>();
+        qry.fieldStream().forEach(f -> headers.add(f.getName()));
+        csvWriter.write(headers);
+
+        try (Cursor<? extends Record> cursor = qry.fetchSize(FETCH_SIZE).fetchLazy()) {
+            for (Record r : cursor) {
+                List<Object> values = new ArrayList<>(r.size());
+                for (int i = 0; i < r.size(); i++) {
+                    values.add(r.get(i));
+                }
+                csvWriter.write(values);
+            }
+        }
+
+        csvWriter.flush();
+        csvWriter.close();
 
-    private byte[] convertExcelToByteArray(XSSFWorkbook workbook) throws IOException {
-        ByteArrayOutputStream outByteStream = new ByteArrayOutputStream();
-        workbook.write(outByteStream);
-        workbook.close();
-        return outByteStream.toByteArray();
+        return httpResponse;
     }
 
 
-    private void writeExcelBody(Select<?> qry, XSSFSheet sheet) {
+    private void writeExcelBody(Select<?> qry, SXSSFSheet sheet) {
         AtomicInteger rowNum = new AtomicInteger(1);
-        qry.fetch().forEach(r -> {
-            Row row = sheet.createRow(rowNum.getAndIncrement());
-            AtomicInteger colNum = new AtomicInteger(0);
-            for (Field<?> field : r.fields()) {
-                Cell cell = row.createCell(colNum.getAndIncrement());
-                ofNullable(r.get(field)).ifPresent(v -> {
-                    if (v instanceof Number) {
-                        cell.setCellType(CellType.NUMERIC);
-                        cell.setCellValue(((Number) v).doubleValue());
-                    } else {
-                        cell.setCellValue(Objects.toString(v));
-                    }
-                });
-            }
-        });
+        try (Cursor<? extends Record> cursor = qry.fetchSize(FETCH_SIZE).fetchLazy()) {
+            cursor.forEach(r -> {
+                Row row = sheet.createRow(rowNum.getAndIncrement());
+                AtomicInteger colNum = new AtomicInteger(0);
+                for (Field<?> field : r.fields()) {
+                    Cell cell = row.createCell(colNum.getAndIncrement());
+                    ofNullable(r.get(field)).ifPresent(v -> {
+                        if (v instanceof Number) {
+                            cell.setCellType(CellType.NUMERIC);
+                            cell.setCellValue(((Number) v).doubleValue());
+                        } else {
+                            cell.setCellValue(Objects.toString(v));
+                        }
+                    });
+                }
+            });
+        }
     }
 
 
-    private void writeExcelHeader(Select<?> qry, XSSFSheet sheet) {
+    private void writeExcelHeader(Select<?> qry, SXSSFSheet sheet) {
         Row headerRow = sheet.createRow(0);
         AtomicInteger colNum = new AtomicInteger();
         qry.fieldStream().forEach(f -> {
@@ -0,0 +1,84 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints.extracts;
+
+import com.khartec.waltz.common.exception.NotFoundException;
+import com.khartec.waltz.model.extract_job.ExtractJob;
+import com.khartec.waltz.service.extract_job.ExtractArtifact;
+import com.khartec.waltz.service.extract_job.ExtractJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import spark.Request;
+import spark.Response;
+
+import java.io.IOException;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.web.WebUtilities.getUsername;
+import static com.khartec.waltz.web.WebUtilities.mkPath;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
+import static spark.Spark.get;
+
+
+/**
+ * Tracks and downloads reports prepared in the background, see
+ * {@link DataExtractor#submitReportJob}.  Jobs are only visible to the
+ * user who submitted them.
+ */
+@Service
+public class ExtractJobExtractor implements DataExtractor {
+
+    public static final String BASE_URL = mkPath("data-extract", "job");
+
+    private final ExtractJobService extractJobService;
+
+
+    @Autowired
+    public ExtractJobExtractor(ExtractJobService extractJobService) {
+        checkNotNull(extractJobService, "extractJobService cannot be null");
+        this.extractJobService = extractJobService;
+    }
+
+
+    @Override
+    public void register() {
+        getForDatum(mkPath(BASE_URL, ":id"), this::getJobRoute);
+        get(mkPath(BASE_URL, ":id", "download"), this::downloadRoute);
+    }
+
+
+    private ExtractJob getJobRoute(Request request, Response response) {
+        return extractJobService
+                .getJob(request.params("id"), getUsername(request))
+                .orElse(null);
+    }
+
+
+    private Object downloadRoute(Request request, Response response) throws IOException {
+        String jobId = request.params("id");
+        ExtractArtifact artifact = extractJobService
+                .findArtifact(jobId, getUsername(request))
+                .orElseThrow(() -> new NotFoundException(
+                        "EXTRACT_NOT_FOUND",
+                        "Extract job: " + jobId + " has not completed or has expired"));
+
+        return writeReportArtifact(response, artifact);
+    }
+
+}
@@ -23,6 +23,7 @@ import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.data_type.DataTypeIdSelectorFactory;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.service.extract_job.ExtractJobService;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 import org.jooq.lambda.tuple.Tuple3;
@@ -44,6 +45,7 @@ import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static com.khartec.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
 import static com.khartec.waltz.web.WebUtilities.readIdSelectionOptionsFromBody;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForDatum;
 import static java.util.stream.Collectors.toList;
 import static spark.Spark.post;
 
@@ -75,10 +77,13 @@ public class LogicalFlowExtractor extends CustomDataExtractor {
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
 
     private final DSLContext dsl;
+    private final ExtractJobService extractJobService;
 
     @Autowired
-    public LogicalFlowExtractor(DSLContext dsl) {
+    public LogicalFlowExtractor(DSLContext dsl,
+                                ExtractJobService extractJobService) {
         this.dsl = dsl;
+        this.extractJobService = extractJobService;
     }
 
 
@@ -95,6 +100,21 @@ public class LogicalFlowExtractor extends CustomDataExtractor {
                             "logical-flows",
                             getTagsMap()));
         });
+
+        postForDatum(mkPath("data-extract", "logical-flows", "async"), (request, response) -> {
+            IdSelectionOptions options = readIdSelectionOptionsFromBody(request);
+            ExtractFormat format = parseExtractFormat(request);
+
+            return submitReportJob(
+                    extractJobService,
+                    request,
+                    format,
+                    () -> prepareFlows(
+                            prepareQuery(dsl, options),
+                            format,
+                            "logical-flows",
+                            getTagsMap()));
+        });
     }
 
 
@@ -25,6 +25,7 @@ import com.khartec.waltz.model.report_grid.ReportGrid;
 import com.khartec.waltz.model.report_grid.ReportGridCell;
 import com.khartec.waltz.model.report_grid.ReportGridColumnDefinition;
 import com.khartec.waltz.model.report_grid.ReportGridDefinition;
+import com.khartec.waltz.service.extract_job.ExtractJobService;
 import com.khartec.waltz.service.report_grid.ReportGridService;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -50,6 +51,7 @@ import static com.khartec.waltz.common.MapUtilities.groupBy;
 import static com.khartec.waltz.common.MapUtilities.indexBy;
 import static com.khartec.waltz.model.utils.IdUtilities.indexById;
 import static com.khartec.waltz.web.WebUtilities.*;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.postForDatum;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
 import static org.jooq.lambda.fi.util.function.CheckedConsumer.unchecked;
@@ -61,16 +63,20 @@ public class ReportGridExtractor implements DataExtractor {
 
     public static final String BASE_URL = mkPath("data-extract", "report-grid");
     private final ReportGridService reportGridService;
+    private final ExtractJobService extractJobService;
 
     @Autowired
-    public ReportGridExtractor(ReportGridService reportGridService) {
+    public ReportGridExtractor(ReportGridService reportGridService,
+                               ExtractJobService extractJobService) {
         this.reportGridService = reportGridService;
+        this.extractJobService = extractJobService;
     }
 
 
     @Override
     public void register() {
         registerGridViewExtract();
+        registerGridViewExtractJob();
     }
 
 
@@ -86,6 +92,22 @@ public class ReportGridExtractor implements DataExtractor {
     }
 
 
+    private void registerGridViewExtractJob() {
+        postForDatum(mkPath(BASE_URL, "id", ":id", "async"),
+            (request, response) -> {
+                ExtractFormat format = parseExtractFormat(request);
+                long gridId = getId(request);
+                IdSelectionOptions selectionOptions = readIdSelectionOptionsFromBody(request);
+
+                return submitReportJob(
+                        extractJobService,
+                        request,
+                        format,
+                        () -> prepareReport(format, gridId, selectionOptions));
+            });
+    }
+
+
     private Tuple3<ExtractFormat, String, byte[]> prepareReport(ExtractFormat format,
                                                                 long gridId,
                                                                 IdSelectionOptions selectionOptions) throws IOException {
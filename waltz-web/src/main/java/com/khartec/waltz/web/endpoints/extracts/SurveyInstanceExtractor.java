@@ -24,6 +24,7 @@ import com.khartec.waltz.data.survey.SurveyQuestionDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.survey.SurveyInstanceStatus;
 import com.khartec.waltz.model.survey.SurveyQuestion;
+import com.khartec.waltz.service.extract_job.ExtractJobService;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
@@ -43,6 +44,7 @@ import spark.Request;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
@@ -61,6 +63,7 @@ import static com.khartec.waltz.schema.tables.SurveyRun.SURVEY_RUN;
 import static com.khartec.waltz.schema.tables.SurveyTemplate.SURVEY_TEMPLATE;
 import static com.khartec.waltz.web.WebUtilities.getId;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 import static org.jooq.lambda.fi.util.function.CheckedConsumer.unchecked;
@@ -73,6 +76,7 @@ public class SurveyInstanceExtractor implements DataExtractor {
     public static final String BASE_URL = mkPath("data-extract", "survey-instance");
     private final DSLContext dsl;
     private final SurveyQuestionDao questionDao;
+    private final ExtractJobService extractJobService;
     private final com.khartec.waltz.schema.tables.SurveyTemplate st = SURVEY_TEMPLATE.as("st");
     private final com.khartec.waltz.schema.tables.SurveyRun sr = SURVEY_RUN.as("sr");
     private final com.khartec.waltz.schema.tables.SurveyInstance si = SURVEY_INSTANCE.as("si");
@@ -102,9 +106,11 @@ public class SurveyInstanceExtractor implements DataExtractor {
 
     @Autowired
     public SurveyInstanceExtractor(DSLContext dsl,
-                                   SurveyQuestionDao questionDao) {
+                                   SurveyQuestionDao questionDao,
+                                   ExtractJobService extractJobService) {
         this.dsl = dsl;
         this.questionDao = questionDao;
+        this.extractJobService = extractJobService;
     }
 
 
@@ -125,6 +131,20 @@ public class SurveyInstanceExtractor implements DataExtractor {
                             parseExtractFormat(request),
                             getId(request),
                             parseStatuses(request))));
+
+        getForDatum(mkPath(BASE_URL, "run-id", ":id", "async"),
+            (request, response) -> {
+                ExtractFormat format = parseExtractFormat(request);
+                long runId = getId(request);
+                Set<SurveyInstanceStatus> statuses = parseStatuses(request);
+
+                return submitReportJob(
+                        extractJobService,
+                        request,
+                        format,
+                        loadResponsesVersion(sr.ID.eq(runId)),
+                        () -> prepareInstancesOfRun(format, runId, statuses));
+            });
     }
 
 
@@ -138,6 +158,20 @@ public class SurveyInstanceExtractor implements DataExtractor {
                         parseExtractFormat(request),
                         getId(request),
                         parseStatuses(request))));
+
+        getForDatum(mkPath(BASE_URL, "template-id", ":id", "async"),
+            (request, response) -> {
+                ExtractFormat format = parseExtractFormat(request);
+                long templateId = getId(request);
+                Set<SurveyInstanceStatus> statuses = parseStatuses(request);
+
+                return submitReportJob(
+                        extractJobService,
+                        request,
+                        format,
+                        loadResponsesVersion(st.ID.eq(templateId)),
+                        () -> prepareInstancesOfTemplate(format, templateId, statuses));
+            });
     }
 
 
@@ -436,6 +470,24 @@ public class SurveyInstanceExtractor implements DataExtractor {
     }
 
 
+    /**
+     * Saving survey responses does not write to the change log, so async
+     * extracts are also keyed on the latest response update in scope.
+     */
+    private String loadResponsesVersion(Condition scope) {
+        Record2<Timestamp, Integer> version = dsl
+                .select(DSL.max(sqr.LAST_UPDATED_AT), DSL.count())
+                .from(st)
+                .innerJoin(sr).on(sr.SURVEY_TEMPLATE_ID.eq(st.ID))
+                .innerJoin(si).on(si.SURVEY_RUN_ID.eq(sr.ID))
+                .innerJoin(sqr).on(sqr.SURVEY_INSTANCE_ID.eq(si.ID))
+                .where(scope)
+                .fetchOne();
+
+        return version.value1() + ":" + version.value2();
+    }
+
+
     private String loadTemplateName(long templateId) {
         return dsl
                 .select(st.NAME)
@@ -0,0 +1,132 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class ThresholdGzipOutputStream_write {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final AtomicInteger compressions = new AtomicInteger();
+
+
+    @Test
+    public void outputShorterThanTheThresholdIsWrittenUncompressedOnClose() throws IOException {
+        ThresholdGzipOutputStream stream = mkStream(10);
+
+        write(stream, "[1,2]");
+        stream.flush();
+        assertEquals("nothing is released before the decision is made", 0, out.size());
+
+        stream.close();
+        assertEquals("[1,2]", out.toString(StandardCharsets.UTF_8.name()));
+        assertFalse(stream.isCompressing());
+        assertEquals(0, compressions.get());
+    }
+
+
+    @Test
+    public void outputReachingTheThresholdIsCompressed() throws IOException {
+        ThresholdGzipOutputStream stream = mkStream(10);
+
+        write(stream, "[1,2,3,");
+        write(stream, "4,5,6,7,8]");
+        assertTrue(stream.isCompressing());
+        assertEquals(1, compressions.get());
+
+        write(stream, "tail");
+        stream.close();
+        assertEquals("[1,2,3,4,5,6,7,8]tail", gunzip(out.toByteArray()));
+        assertEquals("compression is only started once", 1, compressions.get());
+    }
+
+
+    @Test
+    public void singleByteWritesAreHeldBackToo() throws IOException {
+        ThresholdGzipOutputStream stream = mkStream(3);
+
+        stream.write('[');
+        stream.write(']');
+        assertEquals(0, out.size());
+        stream.write(' ');
+        stream.close();
+
+        assertEquals("[] ", gunzip(out.toByteArray()));
+    }
+
+
+    @Test
+    public void aZeroThresholdCompressesEverything() throws IOException {
+        ThresholdGzipOutputStream stream = mkStream(0);
+
+        write(stream, "[]");
+        stream.close();
+
+        assertTrue(stream.isCompressing());
+        assertEquals("[]", gunzip(out.toByteArray()));
+    }
+
+
+    @Test
+    public void closingTwiceIsHarmless() throws IOException {
+        ThresholdGzipOutputStream stream = mkStream(10);
+
+        write(stream, "[]");
+        stream.close();
+        stream.close();
+
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+
+    // -- helpers
+
+    private ThresholdGzipOutputStream mkStream(int minimumLength) {
+        return new ThresholdGzipOutputStream(out, minimumLength, compressions::incrementAndGet);
+    }
+
+
+    private static void write(ThresholdGzipOutputStream stream, String str) throws IOException {
+        stream.write(str.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+        }
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
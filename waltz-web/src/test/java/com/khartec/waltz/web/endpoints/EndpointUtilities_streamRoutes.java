@@ -0,0 +1,241 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints;
+
+import com.khartec.waltz.web.WebUtilities;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import spark.Spark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForStream;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * Exercises the streamed list routes through an embedded server, the
+ * larger responses exceed the container's output buffer and are therefore
+ * committed (and flushed) well before the last item is written.
+ */
+public class EndpointUtilities_streamRoutes {
+
+    private static final int LARGE_COUNT = 30_000;
+    private static final int FAIL_AT = 20_000;
+    private static final int GZIP_MINIMUM_LENGTH = 1024;
+
+    private static final AtomicBoolean failingStreamClosed = new AtomicBoolean(false);
+
+
+    private static class Fetched {
+        private int status;
+        private String body;
+        private boolean complete = true;
+        private String contentEncoding;
+    }
+
+
+    @BeforeClass
+    public static void startServer() {
+        Spark.port(0);
+        WebUtilities.enableGzipStreams(GZIP_MINIMUM_LENGTH);
+
+        getForStream("/test/stream/empty", (req, resp) -> Stream.empty());
+        getForStream("/test/stream/null", (req, resp) -> null);
+        getForStream("/test/stream/large", (req, resp) -> mkItems(LARGE_COUNT));
+        getForList("/test/list/large", (req, resp) -> mkItems(LARGE_COUNT).collect(toList()));
+        getForStream("/test/stream/failing", (req, resp) -> mkItems(LARGE_COUNT)
+                .peek(i -> {
+                    if (i == FAIL_AT) {
+                        throw new IllegalStateException("cursor failed");
+                    }
+                })
+                .onClose(() -> failingStreamClosed.set(true)));
+        getForStream("/test/stream/failing-early", (req, resp) -> mkItems(LARGE_COUNT)
+                .peek(i -> {
+                    if (i == 5) {
+                        throw new IllegalStateException("cursor failed");
+                    }
+                }));
+
+        Spark.awaitInitialization();
+    }
+
+
+    @AfterClass
+    public static void stopServer() {
+        Spark.stop();
+        Spark.awaitStop();
+    }
+
+
+    @Test
+    public void emptyStreamsAreWrittenAsEmptyArrays() throws IOException {
+        Fetched fetched = fetch("/test/stream/empty");
+        assertEquals(200, fetched.status);
+        assertEquals("[]", fetched.body);
+    }
+
+
+    @Test
+    public void nullStreamsAreWrittenAsEmptyArrays() throws IOException {
+        assertEquals("[]", fetch("/test/stream/null").body);
+    }
+
+
+    @Test
+    public void streamsLargerThanTheOutputBufferAreWrittenInFull() throws IOException {
+        Fetched fetched = fetch("/test/stream/large");
+        assertEquals(200, fetched.status);
+        assertTrue(fetched.complete);
+        assertEquals(mkExpectedJson(LARGE_COUNT), fetched.body);
+    }
+
+
+    @Test
+    public void listsLargerThanTheOutputBufferAreWrittenInFull() throws IOException {
+        assertEquals(mkExpectedJson(LARGE_COUNT), fetch("/test/list/large").body);
+    }
+
+
+    @Test
+    public void failuresAfterTheResponseIsCommittedLeaveTheArrayUnterminated() throws IOException {
+        Fetched fetched = fetch("/test/stream/failing");
+
+        // the status was sent with the first flush, long before the failure
+        assertEquals(200, fetched.status);
+        assertTrue(fetched.body.startsWith("[0,1,2,"));
+        assertFalse(
+                "a truncated response must not look like a complete json array",
+                fetched.complete && fetched.body.endsWith("]"));
+        assertTrue("the stream should be closed", failingStreamClosed.get());
+    }
+
+
+    @Test
+    public void failuresBeforeTheResponseIsCommittedAreReportedAsErrors() throws IOException {
+        Fetched fetched = fetch("/test/stream/failing-early");
+
+        assertEquals(500, fetched.status);
+        assertFalse(
+                "the partially written array should be discarded",
+                fetched.body.startsWith("[0,1,2"));
+    }
+
+
+    @Test
+    public void streamsShorterThanTheGzipMinimumAreNotCompressed() throws IOException {
+        Fetched fetched = fetch("/test/stream/empty", true);
+        assertNull(fetched.contentEncoding);
+        assertEquals("[]", fetched.body);
+    }
+
+
+    @Test
+    public void streamsReachingTheGzipMinimumAreCompressedWhenAccepted() throws IOException {
+        Fetched fetched = fetch("/test/stream/large", true);
+        assertEquals("gzip", fetched.contentEncoding);
+        assertTrue(fetched.complete);
+        assertEquals(mkExpectedJson(LARGE_COUNT), fetched.body);
+    }
+
+
+    @Test
+    public void streamsAreNotCompressedUnlessAccepted() throws IOException {
+        Fetched fetched = fetch("/test/stream/large");
+        assertNull(fetched.contentEncoding);
+        assertEquals(mkExpectedJson(LARGE_COUNT), fetched.body);
+    }
+
+
+    // -- helpers
+
+    private static Stream<Integer> mkItems(int count) {
+        return IntStream
+                .range(0, count)
+                .boxed();
+    }
+
+
+    private static String mkExpectedJson(int count) {
+        return mkItems(count)
+                .map(String::valueOf)
+                .collect(joining(",", "[", "]"));
+    }
+
+
+    private static Fetched fetch(String path) throws IOException {
+        return fetch(path, false);
+    }
+
+
+    private static Fetched fetch(String path, boolean acceptGzip) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + Spark.port() + path).openConnection();
+        if (acceptGzip) {
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+        }
+        Fetched fetched = new Fetched();
+        fetched.status = conn.getResponseCode();
+        fetched.contentEncoding = conn.getHeaderField("Content-Encoding");
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = openBody(conn, fetched)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // the server may abort a committed response rather than complete it
+            fetched.complete = false;
+        } finally {
+            conn.disconnect();
+        }
+
+        fetched.body = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        return fetched;
+    }
+
+
+    private static InputStream openBody(HttpURLConnection conn, Fetched fetched) throws IOException {
+        InputStream in = fetched.status >= 400
+                ? conn.getErrorStream()
+                : conn.getInputStream();
+        if (in == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return "gzip".equals(fetched.contentEncoding)
+                ? new GZIPInputStream(in)
+                : in;
+    }
+
+}